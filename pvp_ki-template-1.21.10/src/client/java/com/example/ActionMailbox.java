@@ -0,0 +1,119 @@
+package com.example;
+
+import com.google.gson.JsonObject;
+import net.minecraft.client.KeyMapping;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.Options;
+import net.minecraft.client.player.LocalPlayer;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands agent actions from the IPC thread to the client tick.
+ *
+ * The IPC thread decodes each action (binary ACTION record, or a legacy JSON object) into a
+ * scratch {@link WireCodec.ActionFields} and publishes it into a single atomic slot. If the
+ * client has not taken the previous one yet, the two are merged: later key states win and
+ * yaw/pitch deltas add up, so no rotation is lost. START_CLIENT_TICK takes the slot once per
+ * tick and applies it to the key mappings and the player; applying allocates nothing. The frame
+ * id the action echoes is handed to {@link LatencyTracker}; a merged action keeps the newer one.
+ *
+ * Records cycle between the IPC thread, the slot and a free slot; a new one is only allocated
+ * on the IPC thread in the rare case that the client tick still holds the other.
+ */
+public final class ActionMailbox {
+    private static final AtomicReference<WireCodec.ActionFields> pending = new AtomicReference<>();
+    private static final AtomicReference<WireCodec.ActionFields> free = new AtomicReference<>(new WireCodec.ActionFields());
+    private static WireCodec.ActionFields scratch = new WireCodec.ActionFields(); // IPC thread
+
+    // Stats
+    private static volatile long published;
+    private static volatile long merged;
+    private static volatile long applied;
+
+    private ActionMailbox() {}
+
+    /** IPC thread: decode a binary ACTION payload and publish it. Returns false if it is not one. */
+    public static boolean publishBinary(byte[] payload, int length) {
+        if (!WireCodec.readAction(payload, length, scratch)) return false;
+        publishScratch();
+        return true;
+    }
+
+    /** IPC thread: publish the action keys of a legacy JSON message; returns false if it has none. */
+    public static boolean publishJson(JsonObject actions) {
+        WireCodec.ActionFields a = scratch;
+        a.mask = 0;
+        a.pressed = 0;
+        for (int bit = 0; bit < WireCodec.ACTION_KEYS.length; bit++) {
+            String key = WireCodec.ACTION_KEYS[bit];
+            if (actions.has(key)) {
+                a.mask |= 1 << bit;
+                if (actions.get(key).getAsBoolean()) a.pressed |= 1 << bit;
+            }
+        }
+        a.yaw = actions.has("yaw") ? actions.get("yaw").getAsFloat() : 0f;
+        a.pitch = actions.has("pitch") ? actions.get("pitch").getAsFloat() : 0f;
+        a.tick = 0;
+        a.frameId = actions.has("frame_id") ? actions.get("frame_id").getAsLong() : 0L;
+        if (a.mask == 0 && !actions.has("yaw") && !actions.has("pitch")) return false;
+        publishScratch();
+        return true;
+    }
+
+    private static void publishScratch() {
+        WireCodec.ActionFields next = scratch;
+        // Take back an action the client has not applied yet and fold the new one into it
+        WireCodec.ActionFields unapplied = pending.getAndSet(null);
+        if (unapplied != null) {
+            unapplied.mask |= next.mask;
+            unapplied.pressed = (unapplied.pressed & ~next.mask) | (next.pressed & next.mask);
+            unapplied.yaw += next.yaw;
+            unapplied.pitch += next.pitch;
+            unapplied.tick = next.tick;
+            unapplied.frameId = next.frameId;
+            pending.set(unapplied);
+            merged++;
+        } else {
+            pending.set(next);
+            WireCodec.ActionFields recycled = free.getAndSet(null);
+            scratch = recycled != null ? recycled : new WireCodec.ActionFields();
+        }
+        published++;
+    }
+
+    /** START_CLIENT_TICK: apply the latest action, if any. */
+    public static void applyPending(Minecraft client) {
+        WireCodec.ActionFields a = pending.getAndSet(null);
+        if (a == null) return;
+        Options options = client.options;
+        int mask = a.mask;
+        if (mask != 0) {
+            set(options.keyUp, mask, a.pressed, WireCodec.ACTION_FORWARD);
+            set(options.keyLeft, mask, a.pressed, WireCodec.ACTION_LEFT);
+            set(options.keyDown, mask, a.pressed, WireCodec.ACTION_BACK);
+            set(options.keyRight, mask, a.pressed, WireCodec.ACTION_RIGHT);
+            set(options.keyJump, mask, a.pressed, WireCodec.ACTION_JUMP);
+            set(options.keyAttack, mask, a.pressed, WireCodec.ACTION_ATTACK);
+            set(options.keyUse, mask, a.pressed, WireCodec.ACTION_USE);
+            set(options.keySwapOffhand, mask, a.pressed, WireCodec.ACTION_SWAP_OFFHAND);
+            set(options.keyInventory, mask, a.pressed, WireCodec.ACTION_OPEN_INVENTORY);
+        }
+        LocalPlayer player = client.player;
+        if (player != null) {
+            if (a.yaw != 0f) player.setYRot(player.getYRot() + a.yaw);
+            if (a.pitch != 0f) player.setXRot(player.getXRot() + a.pitch);
+        }
+        LatencyTracker.onApplied(PVP_KIClient.currentAgentId, a.frameId, System.nanoTime());
+        applied++;
+        free.set(a);
+    }
+
+    private static void set(KeyMapping key, int mask, int pressed, int bit) {
+        if ((mask & bit) != 0) key.setDown((pressed & bit) != 0);
+    }
+
+    public static String statsSummary() {
+        return "actions published=" + published + " merged=" + merged + " applied=" + applied;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Heap bytes allocated by the current thread between {@link #begin()} and {@link #end()},
+ * from HotSpot's per-thread allocation counter (com.sun.management.ThreadMXBean).
+ *
+ * Used around frame capture to check the steady state allocates nothing: after the first frames
+ * (buffers growing to size) {@code allocating_frames} should stop increasing. /capturestats prints it.
+ * Single-threaded use only.
+ */
+public final class AllocationMeter {
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private long start = -1;
+    private long frames;
+    private long allocatingFrames;
+    private long totalBytes;
+    private long lastBytes;
+    private long maxBytes;
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+                if (!bean.isThreadAllocatedMemoryEnabled()) bean.setThreadAllocatedMemoryEnabled(true);
+                return bean;
+            }
+        } catch (Throwable ignored) {
+            // Non-HotSpot VM: metering stays off
+        }
+        return null;
+    }
+
+    public boolean isSupported() {
+        return THREADS != null;
+    }
+
+    public void begin() {
+        start = THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    public void end() {
+        if (start < 0) return;
+        long bytes = THREADS.getCurrentThreadAllocatedBytes() - start;
+        start = -1;
+        frames++;
+        lastBytes = bytes;
+        totalBytes += bytes;
+        if (bytes > 0) allocatingFrames++;
+        if (bytes > maxBytes) maxBytes = bytes;
+    }
+
+    public void reset() {
+        frames = allocatingFrames = totalBytes = lastBytes = maxBytes = 0;
+        start = -1;
+    }
+
+    public String summary() {
+        if (THREADS == null) return "alloc=unsupported";
+        return String.format(Locale.ROOT, "frames=%d allocating_frames=%d last_bytes=%d max_bytes=%d avg_bytes=%.1f",
+            frames, allocatingFrames, lastBytes, maxBytes, frames == 0 ? 0.0 : (double) totalBytes / frames);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Observation size and format for client frame capture.
+ *
+ * Defaults come from PVP_CAPTURE_WIDTH / PVP_CAPTURE_HEIGHT / PVP_CAPTURE_CHANNELS (64x64, 1 channel);
+ * the Python side can change them at runtime on the agent socket with
+ * {"capture": {"width": 96, "height": 96, "channels": 1}}. Channels: 1 = grayscale (luma),
+ * 3 = RGB, 4 = BGRA. The capture mixin rebuilds its GL targets when {@link #generation()} changes.
+ */
+public final class CaptureConfig {
+    public static final int MIN_SIZE = 8;
+    public static final int MAX_SIZE = 1024;
+
+    private static volatile int width = envInt("PVP_CAPTURE_WIDTH", 64);
+    private static volatile int height = envInt("PVP_CAPTURE_HEIGHT", 64);
+    private static volatile int channels = validChannels(envInt("PVP_CAPTURE_CHANNELS", 1));
+    private static volatile int generation = 0;
+
+    private CaptureConfig() {}
+
+    private static int envInt(String name, int fallback) {
+        String v = System.getenv(name);
+        if (v == null) return fallback;
+        try {
+            return clampSize(Integer.parseInt(v.trim()));
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static int clampSize(int v) {
+        return Math.max(MIN_SIZE, Math.min(MAX_SIZE, v));
+    }
+
+    private static int validChannels(int c) {
+        return c == 3 || c == 4 ? c : 1;
+    }
+
+    public static int width() {
+        return width;
+    }
+
+    public static int height() {
+        return height;
+    }
+
+    public static int channels() {
+        return channels;
+    }
+
+    public static int frameBytes() {
+        return width * height * channels;
+    }
+
+    public static int generation() {
+        return generation;
+    }
+
+    public static synchronized void set(int newWidth, int newHeight, int newChannels) {
+        width = clampSize(newWidth);
+        height = clampSize(newHeight);
+        channels = validChannels(newChannels);
+        generation++;
+        System.out.println("[Capture] Observation " + width + "x" + height + "x" + channels);
+    }
+
+    /**
+     * Apply a {"width", "height", "channels"} object; missing keys keep their current value.
+     * Rate keys ("every_ticks", "hz") belong to {@link CaptureScheduler} and do not rebuild anything.
+     */
+    public static void apply(JsonObject capture) {
+        if (!capture.has("width") && !capture.has("height") && !capture.has("channels")) return;
+        set(capture.has("width") ? capture.get("width").getAsInt() : width,
+            capture.has("height") ? capture.get("height").getAsInt() : height,
+            capture.has("channels") ? capture.get("channels").getAsInt() : channels);
+    }
+}
@@ -0,0 +1,158 @@
+package com.example;
+
+import com.google.gson.JsonObject;
+import net.minecraft.client.Minecraft;
+
+import java.util.Locale;
+
+/**
+ * Decides which rendered frames are captured: on client tick boundaries at a configured rate
+ * instead of on every GameRenderer.render call, so the observation rate follows the training
+ * rate rather than the VM's FPS.
+ *
+ * Rate: every k client ticks (PVP_CAPTURE_EVERY_TICKS, default 1 = 20 Hz) or N Hz of game time
+ * (PVP_CAPTURE_HZ, at most 20, overrides k when set). The Python side can change it at runtime with
+ * {"capture": {"every_ticks": 2}} or {"capture": {"hz": 10}}.
+ *
+ * A tick that is due arms one capture for the next render. Each armed capture gets the next frame
+ * id (monotonic, so gaps tell the consumer what was lost) and the level game time of its tick.
+ * Nothing queues when the consumer falls behind: an armed capture that has not rendered by the
+ * next due tick is replaced (dropped), as is one whose readback slot is still busy. A frame
+ * delivered at or after the tick its successor was due is counted late.
+ *
+ * Client thread only (ticks and rendering both run there).
+ */
+public final class CaptureScheduler {
+    public static final int TICKS_PER_SECOND = 20;
+
+    private static volatile int everyTicks = Math.max(1, envInt("PVP_CAPTURE_EVERY_TICKS", 1));
+    private static volatile double hz = envDouble("PVP_CAPTURE_HZ", 0.0);
+
+    private static double credit;
+    private static long clientTicks;
+    private static long nextFrameId = 1;
+    private static long armedFrameId = -1;
+    private static long armedTick;
+    private static long currentFrameId;
+    private static long currentTick;
+
+    // Stats
+    private static long scheduled;
+    private static long captured;
+    private static long delivered;
+    private static long superseded;
+    private static long busyDrops;
+    private static long late;
+
+    private CaptureScheduler() {}
+
+    private static int envInt(String name, int fallback) {
+        String v = System.getenv(name);
+        if (v == null) return fallback;
+        try {
+            return Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static double envDouble(String name, double fallback) {
+        String v = System.getenv(name);
+        if (v == null) return fallback;
+        try {
+            return Double.parseDouble(v.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /** Apply "every_ticks" / "hz" from a capture config object; other keys are ignored. */
+    public static void apply(JsonObject capture) {
+        if (capture.has("every_ticks")) {
+            everyTicks = Math.max(1, capture.get("every_ticks").getAsInt());
+            hz = 0.0;
+        }
+        if (capture.has("hz")) {
+            hz = capture.get("hz").getAsDouble();
+        }
+        credit = 0.0;
+        System.out.println("[Capture] Rate " + rateDescription());
+    }
+
+    private static String rateDescription() {
+        return hz > 0 ? String.format(Locale.ROOT, "%.2f Hz", Math.min(hz, TICKS_PER_SECOND)) : "every " + everyTicks + " tick(s)";
+    }
+
+    /** Ticks between captures, rounded up (used for the late-frame check). */
+    private static long intervalTicks() {
+        return hz > 0 ? (long) Math.ceil(TICKS_PER_SECOND / Math.min(hz, TICKS_PER_SECOND)) : everyTicks;
+    }
+
+    /** END_CLIENT_TICK: arm a capture if this tick is due. */
+    public static void onClientTick(Minecraft client) {
+        if (PVP_KIClient.ipcManager == null || !PVP_KIClient.ipcManager.isActive() || client.level == null) {
+            armedFrameId = -1;
+            return;
+        }
+        clientTicks++;
+        boolean due;
+        if (hz > 0) {
+            credit += Math.min(hz, TICKS_PER_SECOND) / TICKS_PER_SECOND;
+            due = credit >= 1.0;
+            if (due) credit -= 1.0;
+        } else {
+            due = clientTicks % everyTicks == 0;
+        }
+        if (!due) return;
+        if (armedFrameId >= 0) {
+            // Rendering is slower than the capture rate; the newer tick wins
+            superseded++;
+        }
+        armedFrameId = nextFrameId++;
+        armedTick = client.level.getGameTime();
+        scheduled++;
+    }
+
+    /**
+     * Called at render HEAD: true if a capture is armed, in which case it is consumed and its
+     * id and tick are available from {@link #frameId()} / {@link #tick()} until the next call.
+     */
+    public static boolean takeDue() {
+        if (armedFrameId < 0) return false;
+        currentFrameId = armedFrameId;
+        currentTick = armedTick;
+        armedFrameId = -1;
+        captured++;
+        return true;
+    }
+
+    public static long frameId() {
+        return currentFrameId;
+    }
+
+    public static long tick() {
+        return currentTick;
+    }
+
+    /** The consumed capture could not be queued because every readback slot was busy. */
+    public static void onBusyDrop() {
+        busyDrops++;
+    }
+
+    /** A scheduled frame reached the transport; counts it late if its successor was already due. */
+    public static void onDelivered(long frameId, long frameTick) {
+        if (frameId <= 0) return; // test frames are not scheduled
+        delivered++;
+        Minecraft mc = Minecraft.getInstance();
+        if (mc.level != null && mc.level.getGameTime() >= frameTick + intervalTicks()) {
+            late++;
+        }
+    }
+
+    public static String statsSummary() {
+        return String.format(Locale.ROOT,
+            "rate=%s scheduled=%d captured=%d delivered=%d dropped=%d (superseded=%d busy=%d) late=%d last_frame_id=%d",
+            rateDescription(), scheduled, captured, delivered, superseded + busyDrops, superseded, busyDrops, late,
+            nextFrameId - 1);
+    }
+}
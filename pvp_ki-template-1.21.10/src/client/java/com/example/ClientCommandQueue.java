@@ -1,14 +1,14 @@
 package com.example;
 
+import java.util.Deque;
 import java.util.LinkedList;
-import java.util.Queue;
 
 /**
  * Legacy queue for client-side IPC command headers.
  * Protocol v1 keeps reset/combat authority server-side and disables this path by default.
  */
 public class ClientCommandQueue {
-    private static final Queue<IPCCommand> queue = new LinkedList<>();
+    private static final Deque<IPCCommand> queue = new LinkedList<>();
 
     public static class IPCCommand {
         public String type;
@@ -29,6 +29,13 @@ public class ClientCommandQueue {
         }
     }
 
+    /** Put a command that could not be delivered back at the head of the queue. */
+    public static void requeue(String type, String data) {
+        synchronized (queue) {
+            queue.addFirst(new IPCCommand(type, data));
+        }
+    }
+
     public static IPCCommand dequeue() {
         synchronized (queue) {
             return queue.poll();
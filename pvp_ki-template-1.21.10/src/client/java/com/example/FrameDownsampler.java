@@ -0,0 +1,221 @@
+package com.example;
+
+import java.nio.IntBuffer;
+
+import org.lwjgl.system.MemoryStack;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * GPU side of frame capture: downscale the main framebuffer, flip it to top-down row order and
+ * convert it to the configured channel count, so readback returns exactly the bytes Python uses.
+ *
+ * Pass 1 blits the main framebuffer into an RGBA8 target at observation size (GL_LINEAR).
+ * Pass 2 draws a fullscreen triangle sampling that target with v flipped into the output target
+ * (R8 luma for 1 channel, RGB8 or RGBA8 otherwise). {@link #readFormat()} is the matching
+ * glReadPixels format; 4 channels keep the historical BGRA byte order.
+ *
+ * All GL objects are owned here and created on the render thread. Every piece of state the pass
+ * touches is saved and restored, so the game's cached GL state stays valid.
+ */
+public final class FrameDownsampler {
+    private static final String VERTEX_SHADER = """
+        #version 150
+        out vec2 uv;
+        void main() {
+            vec2 p = vec2((gl_VertexID << 1) & 2, gl_VertexID & 2);
+            uv = p;
+            gl_Position = vec4(p * 2.0 - 1.0, 0.0, 1.0);
+        }
+        """;
+
+    private static final String FRAGMENT_SHADER = """
+        #version 150
+        uniform sampler2D src;
+        uniform int grayscale;
+        in vec2 uv;
+        out vec4 color;
+        void main() {
+            // Flip vertically so glReadPixels returns the top row first
+            vec4 c = texture(src, vec2(uv.x, 1.0 - uv.y));
+            if (grayscale == 1) {
+                float l = dot(c.rgb, vec3(0.299, 0.587, 0.114));
+                color = vec4(l, l, l, 1.0);
+            } else {
+                color = vec4(c.rgb, 1.0);
+            }
+        }
+        """;
+
+    private final int width;
+    private final int height;
+    private final int channels;
+    private int scaledFbo;
+    private int scaledTexture;
+    private int outputFbo;
+    private int outputTexture;
+    private int program;
+    private int vao;
+
+    public FrameDownsampler(int width, int height, int channels) {
+        this.width = width;
+        this.height = height;
+        this.channels = channels;
+
+        int prevTexture = glGetInteger(GL_TEXTURE_BINDING_2D);
+        int prevFbo = glGetInteger(GL_FRAMEBUFFER_BINDING);
+        scaledTexture = createTexture(GL_RGBA8);
+        scaledFbo = createFramebuffer(scaledTexture);
+        outputTexture = createTexture(channels == 1 ? GL_R8 : channels == 3 ? GL_RGB8 : GL_RGBA8);
+        outputFbo = createFramebuffer(outputTexture);
+        glBindTexture(GL_TEXTURE_2D, prevTexture);
+        glBindFramebuffer(GL_FRAMEBUFFER, prevFbo);
+
+        program = linkProgram();
+        vao = glGenVertexArrays();
+        int prevProgram = glGetInteger(GL_CURRENT_PROGRAM);
+        glUseProgram(program);
+        glUniform1i(glGetUniformLocation(program, "src"), 0);
+        glUniform1i(glGetUniformLocation(program, "grayscale"), channels == 1 ? 1 : 0);
+        glUseProgram(prevProgram);
+    }
+
+    private int createTexture(int internalFormat) {
+        int tex = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, tex);
+        glTexImage2D(GL_TEXTURE_2D, 0, internalFormat, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, (java.nio.ByteBuffer) null);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        return tex;
+    }
+
+    private static int createFramebuffer(int texture) {
+        int fbo = glGenFramebuffers();
+        glBindFramebuffer(GL_FRAMEBUFFER, fbo);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, texture, 0);
+        int status = glCheckFramebufferStatus(GL_FRAMEBUFFER);
+        if (status != GL_FRAMEBUFFER_COMPLETE) {
+            throw new IllegalStateException("capture framebuffer incomplete: 0x" + Integer.toHexString(status));
+        }
+        return fbo;
+    }
+
+    private static int linkProgram() {
+        int vs = compile(GL_VERTEX_SHADER, VERTEX_SHADER);
+        int fs = compile(GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+        int p = glCreateProgram();
+        glAttachShader(p, vs);
+        glAttachShader(p, fs);
+        glBindFragDataLocation(p, 0, "color");
+        glLinkProgram(p);
+        glDeleteShader(vs);
+        glDeleteShader(fs);
+        if (glGetProgrami(p, GL_LINK_STATUS) != GL_TRUE) {
+            String log = glGetProgramInfoLog(p);
+            glDeleteProgram(p);
+            throw new IllegalStateException("capture shader link failed: " + log);
+        }
+        return p;
+    }
+
+    private static int compile(int type, String source) {
+        int shader = glCreateShader(type);
+        glShaderSource(shader, source);
+        glCompileShader(shader);
+        if (glGetShaderi(shader, GL_COMPILE_STATUS) != GL_TRUE) {
+            String log = glGetShaderInfoLog(shader);
+            glDeleteShader(shader);
+            throw new IllegalStateException("capture shader compile failed: " + log);
+        }
+        return shader;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /** glReadPixels format for the output target. */
+    public int readFormat() {
+        return channels == 1 ? GL_RED : channels == 3 ? GL_RGB : GL_BGRA;
+    }
+
+    public boolean matches(int w, int h, int c) {
+        return width == w && height == h && channels == c;
+    }
+
+    /**
+     * Run both passes from the given source framebuffer. Afterwards the output target is bound
+     * as GL_READ_FRAMEBUFFER (attachment 0 selected) for the caller's readback, and everything
+     * else is as it was.
+     */
+    public void render(int srcFbo, int srcWidth, int srcHeight) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer viewport = stack.mallocInt(4);
+            glGetIntegerv(GL_VIEWPORT, viewport);
+            int prevDrawFbo = glGetInteger(GL_DRAW_FRAMEBUFFER_BINDING);
+            int prevProgram = glGetInteger(GL_CURRENT_PROGRAM);
+            int prevVao = glGetInteger(GL_VERTEX_ARRAY_BINDING);
+            int prevActive = glGetInteger(GL_ACTIVE_TEXTURE);
+            glActiveTexture(GL_TEXTURE0);
+            int prevTexture = glGetInteger(GL_TEXTURE_BINDING_2D);
+            boolean blend = glIsEnabled(GL_BLEND);
+            boolean depth = glIsEnabled(GL_DEPTH_TEST);
+            boolean scissor = glIsEnabled(GL_SCISSOR_TEST);
+            boolean cull = glIsEnabled(GL_CULL_FACE);
+
+            // Pass 1: downscale
+            glBindFramebuffer(GL_READ_FRAMEBUFFER, srcFbo);
+            glBindFramebuffer(GL_DRAW_FRAMEBUFFER, scaledFbo);
+            glBlitFramebuffer(0, 0, srcWidth, srcHeight, 0, 0, width, height, GL_COLOR_BUFFER_BIT, GL_LINEAR);
+
+            // Pass 2: flip + channel conversion
+            glBindFramebuffer(GL_DRAW_FRAMEBUFFER, outputFbo);
+            glViewport(0, 0, width, height);
+            glDisable(GL_BLEND);
+            glDisable(GL_DEPTH_TEST);
+            glDisable(GL_SCISSOR_TEST);
+            glDisable(GL_CULL_FACE);
+            glUseProgram(program);
+            glBindVertexArray(vao);
+            glBindTexture(GL_TEXTURE_2D, scaledTexture);
+            glDrawArrays(GL_TRIANGLES, 0, 3);
+
+            // Restore
+            glBindTexture(GL_TEXTURE_2D, prevTexture);
+            glActiveTexture(prevActive);
+            glBindVertexArray(prevVao);
+            glUseProgram(prevProgram);
+            if (blend) glEnable(GL_BLEND);
+            if (depth) glEnable(GL_DEPTH_TEST);
+            if (scissor) glEnable(GL_SCISSOR_TEST);
+            if (cull) glEnable(GL_CULL_FACE);
+            glViewport(viewport.get(0), viewport.get(1), viewport.get(2), viewport.get(3));
+            glBindFramebuffer(GL_DRAW_FRAMEBUFFER, prevDrawFbo);
+            glBindFramebuffer(GL_READ_FRAMEBUFFER, outputFbo);
+            glReadBuffer(GL_COLOR_ATTACHMENT0);
+        }
+    }
+
+    public void close() {
+        glDeleteFramebuffers(scaledFbo);
+        glDeleteFramebuffers(outputFbo);
+        glDeleteTextures(scaledTexture);
+        glDeleteTextures(outputTexture);
+        glDeleteProgram(program);
+        glDeleteVertexArrays(vao);
+        scaledFbo = outputFbo = scaledTexture = outputTexture = program = vao = 0;
+    }
+}
@@ -0,0 +1,222 @@
+package com.example;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import org.lwjgl.system.MemoryUtil;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_PACK_BUFFER;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_PACK_BUFFER_BINDING;
+import static org.lwjgl.opengl.GL30.GL_MAP_READ_BIT;
+import static org.lwjgl.opengl.GL30.nglMapBufferRange;
+import static org.lwjgl.opengl.GL32.*;
+
+/**
+ * Asynchronous glReadPixels through a ring of pixel buffer objects.
+ *
+ * {@link #beginRead} queues a readback of the bound read framebuffer into a free PBO and
+ * returns immediately; {@link #collect} copies out the oldest queued frame once its fence has
+ * signalled and never waits on the GPU. Each PBO owns a metadata object (created once by the
+ * caller's factory) that is filled through {@link #nextMeta} and comes back with the pixels one or
+ * more frames later, so queueing and collecting allocate nothing.
+ *
+ * Falls back to a plain synchronous glReadPixels when PBOs or sync objects are missing, when
+ * PVP_FRAME_READBACK=sync is set, or after a GL error on the async path. Mesa's llvmpipe
+ * supports the PBO path. The caller polls {@link #isReady} at every render while
+ * {@link #hasInFlight}, so a frame ships a render or two after it was queued (when its fence has
+ * signalled), not at the next capture.
+ */
+public final class FrameReadback<T> {
+    public enum Mode { PBO, SYNC }
+
+    private final int width;
+    private final int height;
+    private final int format;
+    private final int byteLength;
+    private final int[] pbos;
+    private final long[] fences;
+    private final T[] meta;
+    // Ring indices: next PBO to read into, oldest PBO still in flight, reads in flight
+    private int writeIndex = 0;
+    private int readIndex = 0;
+    private int inFlight = 0;
+    private Mode mode;
+
+    // Stats (render thread only)
+    private long issued;
+    private long collected;
+    private long notReady;
+    private long busyDrops;
+
+    @SuppressWarnings("unchecked")
+    public FrameReadback(int width, int height, int bytesPerPixel, int format, int ringSize, Supplier<T> metaFactory) {
+        this.width = width;
+        this.height = height;
+        this.format = format;
+        this.byteLength = width * height * bytesPerPixel;
+        this.pbos = new int[ringSize];
+        this.fences = new long[ringSize];
+        this.meta = (T[]) new Object[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            meta[i] = metaFactory.get();
+        }
+        this.mode = pboSupported() && !"sync".equalsIgnoreCase(System.getenv("PVP_FRAME_READBACK")) ? Mode.PBO : Mode.SYNC;
+        if (mode == Mode.PBO) {
+            int previous = glGetInteger(GL_PIXEL_PACK_BUFFER_BINDING);
+            for (int i = 0; i < ringSize; i++) {
+                pbos[i] = glGenBuffers();
+                glBindBuffer(GL_PIXEL_PACK_BUFFER, pbos[i]);
+                glBufferData(GL_PIXEL_PACK_BUFFER, byteLength, GL_STREAM_READ);
+            }
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, previous);
+            if (glGetError() != GL_NO_ERROR) {
+                fallBackToSync("PBO allocation failed");
+            }
+        }
+        System.out.println("[Readback] " + width + "x" + height + " " + mode.name().toLowerCase(Locale.ROOT) + " readback"
+            + (mode == Mode.PBO ? " (" + ringSize + " PBOs)" : ""));
+    }
+
+    private static boolean pboSupported() {
+        GLCapabilities caps = GL.getCapabilities();
+        return (caps.OpenGL21 || caps.GL_ARB_pixel_buffer_object) && (caps.OpenGL32 || caps.GL_ARB_sync) && caps.OpenGL30;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getByteLength() {
+        return byteLength;
+    }
+
+    /** Synchronous read of the bound read framebuffer into dst (stalls until the GPU is done). */
+    public void readSync(ByteBuffer dst) {
+        int previous = glGetInteger(GL_PIXEL_PACK_BUFFER_BINDING);
+        if (previous != 0) glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+        int alignment = glGetInteger(GL_PACK_ALIGNMENT);
+        glPixelStorei(GL_PACK_ALIGNMENT, 1);
+        glReadPixels(0, 0, width, height, format, GL_UNSIGNED_BYTE, dst);
+        glPixelStorei(GL_PACK_ALIGNMENT, alignment);
+        if (previous != 0) glBindBuffer(GL_PIXEL_PACK_BUFFER, previous);
+    }
+
+    /**
+     * Metadata object of the PBO the next {@link #beginRead} will use, for the caller to fill,
+     * or null when every PBO is still in flight.
+     */
+    public T nextMeta() {
+        return mode == Mode.PBO && inFlight < pbos.length ? meta[writeIndex] : null;
+    }
+
+    /**
+     * Queue a read of the bound read framebuffer with the metadata filled via {@link #nextMeta}.
+     * Returns false (frame dropped) when every PBO is still in flight; call {@link #collect} first to free one.
+     */
+    public boolean beginRead() {
+        if (mode != Mode.PBO) return false;
+        if (inFlight == pbos.length) {
+            busyDrops++;
+            return false;
+        }
+        int i = writeIndex;
+        int previous = glGetInteger(GL_PIXEL_PACK_BUFFER_BINDING);
+        glBindBuffer(GL_PIXEL_PACK_BUFFER, pbos[i]);
+        // Tightly packed rows: 1- and 3-channel rows are not 4-byte multiples
+        int alignment = glGetInteger(GL_PACK_ALIGNMENT);
+        glPixelStorei(GL_PACK_ALIGNMENT, 1);
+        glReadPixels(0, 0, width, height, format, GL_UNSIGNED_BYTE, 0L);
+        glPixelStorei(GL_PACK_ALIGNMENT, alignment);
+        // Leave the pack binding as we found it, or the game's own glReadPixels (screenshots) would land in our PBO
+        glBindBuffer(GL_PIXEL_PACK_BUFFER, previous);
+        fences[i] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        if (glGetError() != GL_NO_ERROR) {
+            fallBackToSync("glReadPixels into PBO failed");
+            return false;
+        }
+        writeIndex = (i + 1) % pbos.length;
+        inFlight++;
+        issued++;
+        return true;
+    }
+
+    /** True while any queued read has not been collected yet. */
+    public boolean hasInFlight() {
+        return inFlight > 0;
+    }
+
+    /** True if the oldest queued read has completed on the GPU. Never blocks. */
+    public boolean isReady() {
+        if (inFlight == 0) return false;
+        int status = glClientWaitSync(fences[readIndex], 0, 0L);
+        return status == GL_ALREADY_SIGNALED || status == GL_CONDITION_SATISFIED;
+    }
+
+    /**
+     * Copy the oldest completed read into dst and return its metadata; returns null without
+     * waiting if nothing has completed yet. dst must be a direct buffer with at least
+     * {@link #getByteLength} bytes remaining. The metadata stays valid until that PBO is reused.
+     */
+    public T collect(ByteBuffer dst) {
+        if (!isReady()) {
+            if (inFlight > 0) notReady++;
+            return null;
+        }
+        int i = readIndex;
+        int previous = glGetInteger(GL_PIXEL_PACK_BUFFER_BINDING);
+        glBindBuffer(GL_PIXEL_PACK_BUFFER, pbos[i]);
+        // Raw mapping address: the ByteBuffer overload wraps the mapping in a new object every call
+        long mapped = nglMapBufferRange(GL_PIXEL_PACK_BUFFER, 0, byteLength, GL_MAP_READ_BIT);
+        T frameMeta = null;
+        if (mapped != 0L) {
+            MemoryUtil.memCopy(mapped, MemoryUtil.memAddress(dst), byteLength);
+            glUnmapBuffer(GL_PIXEL_PACK_BUFFER);
+            frameMeta = meta[i];
+        }
+        glBindBuffer(GL_PIXEL_PACK_BUFFER, previous);
+        release(i);
+        if (mapped == 0L) {
+            fallBackToSync("glMapBufferRange failed");
+            return null;
+        }
+        collected++;
+        return frameMeta;
+    }
+
+    private void release(int i) {
+        glDeleteSync(fences[i]);
+        fences[i] = 0;
+        readIndex = (i + 1) % pbos.length;
+        inFlight--;
+    }
+
+    private void fallBackToSync(String reason) {
+        System.err.println("[Readback] " + reason + ", falling back to synchronous glReadPixels");
+        close();
+        mode = Mode.SYNC;
+    }
+
+    /** Free GL objects; queued frames are discarded. Must run on the render thread. */
+    public void close() {
+        while (inFlight > 0) {
+            release(readIndex);
+        }
+        for (int i = 0; i < pbos.length; i++) {
+            if (pbos[i] != 0) {
+                glDeleteBuffers(pbos[i]);
+                pbos[i] = 0;
+            }
+        }
+    }
+
+    public String statsSummary() {
+        return String.format(Locale.ROOT, "mode=%s issued=%d collected=%d not_ready=%d busy_drops=%d in_flight=%d",
+            mode, issued, collected, notReady, busyDrops, inFlight);
+    }
+}
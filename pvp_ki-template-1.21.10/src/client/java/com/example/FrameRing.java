@@ -0,0 +1,186 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped single-writer frame ring shared with the Python side.
+ *
+ * The render thread reads pixels straight into the next slot's body, writes the bin1
+ * FRAME header next to it and publishes the slot's sequence number; no socket write and
+ * no heap copy per frame. A slow reader simply sees newer frames (latest wins).
+ * python/server/backend/frame_ring.py reads this layout.
+ *
+ * Layout, little-endian:
+ *   file header (64 bytes): u32 magic "PKFR", u16 version, u16 slot count, u32 slot stride,
+ *                           u32 header capacity, u32 body capacity, u32 pad, i64 published seq
+ *   slot i at 64 + i * stride:
+ *     i64 seq (0 while being written), u32 header length, u32 body length, i64 epoch millis,
+ *     u16 width, u16 height, u8 channels, u8 flags (WireCodec.FRAME_FLAG_*), u16 pad,
+ *     i64 frame id (CaptureScheduler; 0 for test frames), i64 game tick, 16 bytes reserved,
+ *     header bytes [header capacity], body bytes [body capacity]
+ *
+ * Sequence numbers start at 1; frame seq s lives in slot (s - 1) % slot count. Readers check the
+ * slot seq before and after copying (seqlock) to detect a slot overwritten underneath them.
+ */
+public final class FrameRing implements Closeable {
+    public static final int MAGIC = 0x52464B50; // "PKFR" little-endian
+    public static final short VERSION = 1;
+    public static final int FILE_HEADER_BYTES = 64;
+    public static final int SLOT_HEADER_BYTES = 64;
+    private static final int PUBLISHED_SEQ_OFFSET = 24;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int slots;
+    private final int stride;
+    private final int headerCapacity;
+    private final int bodyCapacity;
+    // Body slices are created once so claiming a slot allocates nothing
+    private final ByteBuffer[] bodies;
+    private long nextSeq = 1;
+    private int claimedSlot = -1;
+
+    private FrameRing(Path path, FileChannel channel, MappedByteBuffer map, int slots, int stride, int headerCapacity, int bodyCapacity) {
+        this.path = path;
+        this.channel = channel;
+        this.map = map;
+        this.slots = slots;
+        this.stride = stride;
+        this.headerCapacity = headerCapacity;
+        this.bodyCapacity = bodyCapacity;
+        this.bodies = new ByteBuffer[slots];
+        for (int i = 0; i < slots; i++) {
+            bodies[i] = map.slice(slotOffset(i) + SLOT_HEADER_BYTES + headerCapacity, bodyCapacity).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /** Create (or truncate) the ring file and map it. */
+    public static FrameRing create(Path path, int slots, int headerCapacity, int bodyCapacity) throws IOException {
+        if (slots < 2 || slots > 0xFFFF) throw new IllegalArgumentException("slots must be in [2, 65535]: " + slots);
+        headerCapacity = align(headerCapacity, 64);
+        bodyCapacity = align(bodyCapacity, 64);
+        int stride = SLOT_HEADER_BYTES + headerCapacity + bodyCapacity;
+        long size = FILE_HEADER_BYTES + (long) slots * stride;
+        if (size > Integer.MAX_VALUE) throw new IllegalArgumentException("frame ring too large: " + size + " bytes");
+
+        Files.createDirectories(path.getParent());
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        MappedByteBuffer map;
+        try {
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        map.putShort(4, VERSION);
+        map.putShort(6, (short) slots);
+        map.putInt(8, stride);
+        map.putInt(12, headerCapacity);
+        map.putInt(16, bodyCapacity);
+        LONGS.setRelease(map, PUBLISHED_SEQ_OFFSET, 0L);
+        // Magic last so a reader never accepts a half-initialised file
+        VarHandle.releaseFence();
+        map.putInt(0, MAGIC);
+        return new FrameRing(path, channel, map, slots, stride, headerCapacity, bodyCapacity);
+    }
+
+    private static int align(int n, int to) {
+        return (Math.max(n, to) + to - 1) / to * to;
+    }
+
+    private int slotOffset(int slot) {
+        return FILE_HEADER_BYTES + slot * stride;
+    }
+
+    /**
+     * Claim the next slot and return its body buffer (position 0, limit bodyLength) for the
+     * caller to fill, e.g. with glReadPixels. Returns null if the frame does not fit.
+     */
+    public ByteBuffer claim(int bodyLength) {
+        if (bodyLength > bodyCapacity) return null;
+        int slot = (int) ((nextSeq - 1) % slots);
+        // Invalidate before touching the payload so readers of the previous lap back off
+        LONGS.setRelease(map, slotOffset(slot), 0L);
+        VarHandle.storeStoreFence();
+        claimedSlot = slot;
+        ByteBuffer body = bodies[slot];
+        body.clear().limit(bodyLength);
+        return body;
+    }
+
+    /** Publish the claimed slot with its header. Returns the frame sequence number, or -1 if nothing was claimed. */
+    public long publish(WireCodec.BinaryWriter header, int bodyLength, int width, int height, int channels, int flags,
+                        long frameId, long tick) {
+        if (claimedSlot < 0) return -1;
+        int base = slotOffset(claimedSlot);
+        int headerLength = Math.min(header.length(), headerCapacity);
+        map.put(base + SLOT_HEADER_BYTES, header.array(), 0, headerLength);
+        map.putInt(base + 8, headerLength);
+        map.putInt(base + 12, bodyLength);
+        map.putLong(base + 16, System.currentTimeMillis());
+        map.putShort(base + 24, (short) width);
+        map.putShort(base + 26, (short) height);
+        map.put(base + 28, (byte) channels);
+        map.put(base + 29, (byte) flags);
+        map.putLong(base + 32, frameId);
+        map.putLong(base + 40, tick);
+
+        long seq = nextSeq++;
+        LONGS.setRelease(map, base, seq);
+        LONGS.setRelease(map, PUBLISHED_SEQ_OFFSET, seq);
+        claimedSlot = -1;
+        return seq;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getSlotCount() {
+        return slots;
+    }
+
+    public int getBodyCapacity() {
+        return bodyCapacity;
+    }
+
+    public int getHeaderCapacity() {
+        return headerCapacity;
+    }
+
+    public long getPublishedCount() {
+        return nextSeq - 1;
+    }
+
+    /**
+     * Close the file and remove it. The mapping itself stays valid until it is garbage collected,
+     * so a render thread still holding a claimed slot writes into memory nobody reads.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+                // Windows refuses to delete a file that is still mapped; the next create truncates it
+            }
+        }
+    }
+}
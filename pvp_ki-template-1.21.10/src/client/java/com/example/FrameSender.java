@@ -0,0 +1,143 @@
+package com.example;
+
+import com.google.gson.Gson;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Socket writer for captured frames, so a stalled Python reader can never freeze the render thread.
+ *
+ * The render thread only copies the pixels and header fields into a free buffer and drops it into
+ * a single-slot mailbox ({@link #offer}); the sender thread takes the newest frame, encodes it
+ * ({@link FrameEncoder}), writes header and body and flushes. If the sender is still busy when the
+ * next frame arrives, the unsent one is overwritten (latest wins) and its events and client command
+ * are carried into the newer frame so nothing but pixels is lost.
+ *
+ * Three buffers rotate between render thread, mailbox and sender ({@link FrameMailbox}), so steady
+ * state allocates nothing on the render thread. The lock only guards pointer swaps, never socket I/O.
+ */
+public final class FrameSender implements Runnable {
+    private final DataOutputStream out;
+    private final FrameEncoder encoder;
+    private final int port;
+    private final Gson gson = new Gson();
+    private final WireCodec.BinaryWriter headerWriter = new WireCodec.BinaryWriter();
+    private final Thread thread;
+    private volatile WireCodec.Codec codec = WireCodec.Codec.JSON;
+    private volatile boolean running = true;
+    private volatile boolean failed;
+
+    private final FrameMailbox<FrameState> mailbox = new FrameMailbox<>(FrameState::new);
+    private boolean firstFrameLogged;
+
+    // Stats
+    private volatile long sent;
+    private volatile long blockedNanos;
+    private volatile long maxBlockedNanos;
+
+    public FrameSender(DataOutputStream out, FrameEncoder encoder, int port) {
+        this.out = out;
+        this.encoder = encoder;
+        this.port = port;
+        this.thread = new Thread(this, "PVP_KI Frame Sender " + port);
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public void setCodec(WireCodec.Codec codec) {
+        this.codec = codec;
+    }
+
+    /** True once a socket write failed; the connection is gone. */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Render thread: queue body bytes [0, length) with a copy of the frame's header fields and
+     * return immediately. Delivery-time fields (events, command, teams) are collected here, on the
+     * client thread, because they read client state.
+     */
+    public void offer(ByteBuffer body, int length, FrameState state) {
+        FrameMailbox.Slot<FrameState> slot = mailbox.writing();
+        slot.copyBody(body, length);
+        slot.state.copyCaptureFrom(state);
+        slot.state.collect(net.minecraft.client.Minecraft.getInstance(), length);
+        mailbox.publish();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                FrameMailbox.Slot<FrameState> slot = mailbox.take();
+                if (slot == null) break;
+                send(slot);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("Error sending frame: " + e.getMessage());
+            }
+            failed = true;
+        }
+    }
+
+    private void send(FrameMailbox.Slot<FrameState> slot) throws IOException {
+        FrameState state = slot.state;
+        state.encodingFlags = encoder.encode(slot.body, slot.length);
+        int bodyLength = encoder.outputLength();
+        state.bodyLength = bodyLength;
+
+        long start = System.nanoTime();
+        if (codec == WireCodec.Codec.BINARY) {
+            state.writeBinaryHeader(headerWriter);
+            out.writeInt(headerWriter.length());
+            out.write(headerWriter.array(), 0, headerWriter.length());
+        } else {
+            byte[] jsonBytes = gson.toJson(state.toJsonMap()).getBytes(StandardCharsets.UTF_8);
+            // Send Header Length (4 bytes), then Header
+            out.writeInt(jsonBytes.length);
+            out.write(jsonBytes);
+        }
+        // Send Body
+        out.write(encoder.output(), 0, bodyLength);
+        out.flush();
+        long blocked = System.nanoTime() - start;
+        blockedNanos += blocked;
+        if (blocked > maxBlockedNanos) maxBlockedNanos = blocked;
+        sent++;
+
+        // Debug: Show frame sent once per connection
+        if (!firstFrameLogged && state.playerName != null) {
+            firstFrameLogged = true;
+            System.out.println("[IPC Port " + port + "] Frame sent to Python (Agent " + state.agentId + ")");
+        }
+    }
+
+    /** Stop the sender thread; a frame still in the mailbox is discarded. */
+    public void close() {
+        running = false;
+        mailbox.close();
+        thread.interrupt();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String statsSummary() {
+        long n = sent;
+        return String.format(Locale.ROOT, "sender offered=%d sent=%d overwritten=%d blocked_ms=%.1f avg_blocked_us=%.1f max_blocked_ms=%.2f",
+            mailbox.offered(), n, mailbox.overwritten(), blockedNanos / 1e6, n == 0 ? 0.0 : blockedNanos / 1e3 / n, maxBlockedNanos / 1e6);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.player.LocalPlayer;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.List;
+
+/**
+ * Header fields of one captured frame, reused from frame to frame: {@link FrameHeader} plus the
+ * reads of client state.
+ *
+ * The capture mixin owns one instance per readback slot and fills it in place, so the steady
+ * state (bin1 header or shared-memory ring) allocates nothing per frame. Everything but
+ * {@link #capture} and {@link #collect} lives in FrameHeader, where AllocationFreeTest can reach it
+ * without the game.
+ */
+public final class FrameState extends FrameHeader {
+    /** Snapshot the local player and the capture format. */
+    public void capture(Minecraft client, long frameId, long tick, boolean isTestFrame, int width, int height, int channels) {
+        this.frameId = frameId;
+        this.tick = tick;
+        this.captureNanos = System.nanoTime();
+        LatencyTracker.onCaptured(frameId, captureNanos);
+        LocalPlayer player = client.player;
+        hasPlayer = player != null;
+        if (player != null) {
+            x = player.getX();
+            y = player.getY();
+            z = player.getZ();
+            health = player.getHealth();
+            hunger = player.getFoodData().getFoodLevel();
+            pitch = player.getXRot();
+            yaw = player.getYRot();
+        }
+        this.width = width;
+        this.height = height;
+        this.channels = channels;
+        this.topDown = true; // Flipped on the GPU
+        this.testFrame = isTestFrame;
+        this.encodingFlags = 0;
+    }
+
+    /**
+     * Fill the delivery-time fields: drained events, pending client command, agent mapping and
+     * the team/enemy relation of every player in the level.
+     */
+    public void collect(Minecraft mc, int bodyLength) {
+        this.bodyLength = bodyLength;
+        events.clear();
+        synchronized (PVP_KIClient.eventQueue) {
+            for (int i = 0, n = PVP_KIClient.eventQueue.size(); i < n; i++) {
+                events.add(PVP_KIClient.eventQueue.get(i));
+            }
+            PVP_KIClient.eventQueue.clear();
+        }
+
+        ClientCommandQueue.IPCCommand cmd = ClientCommandQueue.dequeue();
+        cmdType = cmd != null ? cmd.type : null;
+        cmdData = cmd != null ? cmd.data : null;
+
+        // Scoreboard names are the cached profile names; getName().getString() builds a new string
+        playerName = mc.player != null ? mc.player.getScoreboardName() : null;
+        agentId = PVP_KIClient.currentAgentId;
+
+        teamCount = 0;
+        synchronized (PVP_KIClient.teamMembers) {
+            for (int i = 0, n = PVP_KIClient.teamMembers.size(); i < n; i++) {
+                addTeam(PVP_KIClient.teamMembers.get(i), (byte) 1);
+            }
+            if (mc.level != null && playerName != null) {
+                List<? extends Player> players = mc.level.players();
+                for (int i = 0, n = players.size(); i < n; i++) {
+                    String name = players.get(i).getScoreboardName();
+                    if (!name.equals(playerName) && !PVP_KIClient.teamMembers.contains(name)) {
+                        addTeam(name, (byte) 0);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Hand the displaced command back to the queue; a later frame carries it. */
+    @Override
+    protected void displacedCommand(String type, String data) {
+        ClientCommandQueue.requeue(type, data);
+    }
+}
@@ -3,21 +3,30 @@ package com.example;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import net.minecraft.client.Minecraft;
-import net.minecraft.client.player.LocalPlayer;
 
 import java.io.*;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
 
 public class IPCManager implements Runnable {
     private final int port;
     private final Gson gson = new Gson();
     private volatile boolean running = true;
     private volatile boolean active = false;
-    private DataOutputStream currentOut;
+    // Socket writer of the current connection; the render thread never writes the socket itself
+    private volatile FrameSender frameSender;
+    // Frame header codec; the Python side opts into binary by sending {"codec": "bin1"}
+    private volatile WireCodec.Codec codec = WireCodec.Codec.JSON;
+    private final WireCodec.BinaryWriter headerWriter = new WireCodec.BinaryWriter();
+    // Optional delta/deflate body encoding; Python opts in with {"frame_encoding": "delta+deflate"}
+    private final FrameEncoder frameEncoder = new FrameEncoder();
+    // Shared-memory frame ring; the Python side opts in by sending {"frames": "shm"}
+    private volatile FrameRing frameRing;
+    private static final int DEFAULT_RING_SLOTS = 4;
+    private static final int DEFAULT_RING_FRAME_BYTES = 256 * 1024;
+    private static final int RING_HEADER_BYTES = 4096;
+    // Incoming messages are u16-length framed, so one buffer fits all of them (IPC thread only)
+    private final byte[] readBuffer = new byte[0xFFFF];
 
     public IPCManager(int port) {
         this.port = port;
@@ -25,14 +34,17 @@ public class IPCManager implements Runnable {
 
     @Override
     public void run() {
-        try (ServerSocket serverSocket = new ServerSocket(port)) {
-            System.out.println("IPC Server started on port " + port);
+        // Loopback TCP on the agent port, or its Unix domain socket when PVP_IPC_TRANSPORT=uds
+        try (IpcTransport.Listener listener = IpcTransport.listen(port)) {
+            System.out.println("IPC Server started on " + listener.describe());
             while (running) {
-                try (Socket clientSocket = serverSocket.accept();
-                     DataOutputStream out = new DataOutputStream(clientSocket.getOutputStream());
-                     DataInputStream in = new DataInputStream(clientSocket.getInputStream())) {
+                try (IpcTransport.Connection clientConn = listener.accept();
+                     DataOutputStream out = new DataOutputStream(new BufferedOutputStream(clientConn.out()));
+                     DataInputStream in = new DataInputStream(new BufferedInputStream(clientConn.in()))) {
 
-                    currentOut = out;
+                    FrameSender sender = new FrameSender(out, frameEncoder, port);
+                    sender.start();
+                    frameSender = sender;
                     active = true;
                     System.out.println("Client connected");
 
@@ -41,19 +53,58 @@ public class IPCManager implements Runnable {
                         int length = in.readUnsignedShort();
                         if (length == 0) continue;
 
-                        // Read JSON bytes
-                        byte[] jsonBytes = new byte[length];
-                        in.readFully(jsonBytes);
-                        String actionJson = new String(jsonBytes, StandardCharsets.UTF_8);
+                        in.readFully(readBuffer, 0, length);
+
+                        // Binary ACTION record: straight into the mailbox, no parsing or allocation
+                        if (WireCodec.isBinary(readBuffer, length)) {
+                            if (PVP_KIClient.ENABLE_LEGACY_CLIENT_IPC) {
+                                ActionMailbox.publishBinary(readBuffer, length);
+                            }
+                            continue;
+                        }
+
+                        // JSON control message (and legacy JSON actions)
+                        String actionJson = new String(readBuffer, 0, length, StandardCharsets.UTF_8);
 
                         JsonObject actions = gson.fromJson(actionJson, JsonObject.class);
 
+                        // Codec handshake (may arrive alone or alongside an action)
+                        if (actions.has("codec")) {
+                            codec = WireCodec.Codec.fromWireName(actions.get("codec").getAsString());
+                            frameSender.setCodec(codec);
+                            System.out.println("[IPC Port " + port + "] Frame header codec: " + codec.wireName);
+                        }
+
+                        if (actions.has("capture") && actions.get("capture").isJsonObject()) {
+                            CaptureConfig.apply(actions.getAsJsonObject("capture"));
+                            CaptureScheduler.apply(actions.getAsJsonObject("capture"));
+                        }
+                        if (actions.has("frames")) {
+                            configureFrameDelivery(actions);
+                        }
+                        if (actions.has("frame_encoding")) {
+                            frameEncoder.configure(FrameEncoder.Mode.fromWireName(actions.get("frame_encoding").getAsString()),
+                                actions.has("keyframe_interval") ? actions.get("keyframe_interval").getAsInt()
+                                    : FrameEncoder.DEFAULT_KEYFRAME_INTERVAL);
+                            System.out.println("[IPC Port " + port + "] Frame encoding: " + frameEncoder.getMode().wireName);
+                        }
+                        if (actions.has("keyframe")) {
+                            frameEncoder.requestKeyframe();
+                        }
+                        // {"stats": "latency", "stats_reset": true}: report comes back as the LATENCY_STATS frame command
+                        if (actions.has("stats") && "latency".equals(actions.get("stats").getAsString())) {
+                            ClientCommandQueue.enqueue("LATENCY_STATS", LatencyTracker.toJson().toString());
+                            if (actions.has("stats_reset") && actions.get("stats_reset").getAsBoolean()) {
+                                LatencyTracker.reset();
+                            }
+                        }
+
                         if (!PVP_KIClient.ENABLE_LEGACY_CLIENT_IPC) {
                             continue;
                         }
 
-                        // Set pending action for Mixin to apply (legacy mode only)
-                        PVP_KIClient.pendingAction = actions;
+                        // Hand key/look actions to the client tick (legacy mode only)
+                        ActionMailbox.publishJson(actions);
 
                         // Check for reset (handled immediately if possible, or via chat)
                         if (actions.has("reset")) {
@@ -66,7 +117,12 @@ public class IPCManager implements Runnable {
                     System.err.println("Error in IPC: " + e.getMessage());
                 } finally {
                     active = false;
-                    currentOut = null;
+                    FrameSender sender = frameSender;
+                    frameSender = null;
+                    if (sender != null) sender.close();
+                    codec = WireCodec.Codec.JSON;
+                    frameEncoder.configure(FrameEncoder.defaultMode(), FrameEncoder.DEFAULT_KEYFRAME_INTERVAL);
+                    closeFrameRing();
                 }
             }
         } catch (Exception e) {
@@ -74,78 +130,89 @@ public class IPCManager implements Runnable {
         }
     }
 
-    public void sendFrame(byte[] frameBytes, Map<String, Object> state) {
-        if (!PVP_KIClient.ENABLE_LEGACY_CLIENT_IPC) {
+    /**
+     * Switch frame delivery between the socket (default) and the shared-memory ring.
+     * {"frames": "shm", "ring_slots": 4, "ring_frame_bytes": 262144} maps
+     * <socket dir>/pvp_ki-frames-<port>.ring; {"frames": "socket"} goes back.
+     */
+    private void configureFrameDelivery(JsonObject request) {
+        String mode = request.get("frames").getAsString();
+        closeFrameRing();
+        if (!"shm".equalsIgnoreCase(mode)) {
+            System.out.println("[IPC Port " + port + "] Frame delivery: socket");
             return;
         }
-        if (currentOut != null) {
-            try {
-                // Add Events
-                synchronized (PVP_KIClient.eventQueue) {
-                    state.put("events", new java.util.ArrayList<>(PVP_KIClient.eventQueue));
-                    PVP_KIClient.eventQueue.clear();
-                }
+        int slots = request.has("ring_slots") ? request.get("ring_slots").getAsInt() : DEFAULT_RING_SLOTS;
+        int frameBytes = request.has("ring_frame_bytes") ? request.get("ring_frame_bytes").getAsInt() : DEFAULT_RING_FRAME_BYTES;
+        try {
+            frameRing = FrameRing.create(IpcTransport.socketDir().resolve("pvp_ki-frames-" + port + ".ring"),
+                slots, RING_HEADER_BYTES, frameBytes);
+            System.out.println("[IPC Port " + port + "] Frame delivery: shared memory " + frameRing.getPath()
+                + " (" + slots + " slots x " + frameRing.getBodyCapacity() + " bytes)");
+        } catch (Exception e) {
+            System.err.println("[IPC Port " + port + "] Frame ring unavailable, staying on socket: " + e.getMessage());
+        }
+    }
 
-                // Check for pending client commands and inject into header
-                ClientCommandQueue.IPCCommand cmd = ClientCommandQueue.dequeue();
-                if (cmd != null) {
-                    state.put("cmd_type", cmd.type);
-                    state.put("cmd_data", cmd.data);
-                }
-                
-                // Inject player_name and agent_id for agent mapping
-                net.minecraft.client.Minecraft mc = net.minecraft.client.Minecraft.getInstance();
-                if (mc.player != null) {
-                    state.put("player_name", mc.player.getName().getString());
-                    state.put("agent_id", PVP_KIClient.currentAgentId);
-                }
-                
-                // Inject teams data (map of player names to team/enemy/null)
-                Map<String, String> teams = new HashMap<>();
-                synchronized (PVP_KIClient.teamMembers) {
-                    // Mark team members as "team"
-                    for (String teamMember : PVP_KIClient.teamMembers) {
-                        teams.put(teamMember, "team");
-                    }
-                    
-                    // Mark other visible players as "enemy"
-                    if (mc.level != null && mc.player != null) {
-                        String localPlayerName = mc.player.getName().getString();
-                        for (net.minecraft.world.entity.player.Player player : mc.level.players()) {
-                            String playerName = player.getName().getString();
-                            if (!playerName.equals(localPlayerName) && !PVP_KIClient.teamMembers.contains(playerName)) {
-                                teams.put(playerName, "enemy");
-                            }
-                        }
-                    }
-                }
-                state.put("teams", teams);
-
-                // Add body length
-                state.put("bodyLength", frameBytes.length);
-
-                String stateJson = gson.toJson(state);
-                byte[] jsonBytes = stateJson.getBytes(StandardCharsets.UTF_8);
-
-                // Send Header Length (4 bytes)
-                currentOut.writeInt(jsonBytes.length);
-                // Send Header
-                currentOut.write(jsonBytes);
-                // Send Body
-                currentOut.write(frameBytes);
-                currentOut.flush();
-                
-                // Debug: Show frame sent once per connection
-                if (state.containsKey("agent_id")) {
-                    System.out.println("[IPC Port " + port + "] Frame sent to Python (Agent " + state.get("agent_id") + ")");
-                }
-            } catch (Exception e) {
-                System.err.println("Error sending frame: " + e.getMessage());
-                active = false; // Assume disconnected
-            }
+    private void closeFrameRing() {
+        FrameRing ring = frameRing;
+        frameRing = null;
+        if (ring == null) return;
+        try {
+            ring.close();
+        } catch (IOException e) {
+            System.err.println("[IPC Port " + port + "] Error closing frame ring: " + e.getMessage());
         }
     }
 
+    /**
+     * Slot body to read the next frame into when shared-memory delivery is on, else null.
+     * Must be followed by {@link #publishFrame} on the same thread.
+     */
+    public ByteBuffer claimFrameBuffer(int frameLength) {
+        if (!PVP_KIClient.ENABLE_LEGACY_CLIENT_IPC) {
+            return null;
+        }
+        FrameRing ring = frameRing;
+        return ring != null ? ring.claim(frameLength) : null;
+    }
+
+    /** Publish a frame already written into the buffer from {@link #claimFrameBuffer}. */
+    public void publishFrame(int frameLength, FrameState state) {
+        FrameRing ring = frameRing;
+        if (ring == null) return;
+        state.collect(Minecraft.getInstance(), frameLength);
+        state.writeBinaryHeader(headerWriter);
+        ring.publish(headerWriter, frameLength, state.width, state.height, state.channels, state.flags(),
+            state.frameId, state.tick);
+        CaptureScheduler.onDelivered(state.frameId, state.tick);
+    }
+
+    /**
+     * Hand a frame to the connection's {@link FrameSender}: body bytes [0, frameLength) of the
+     * buffer are copied and the call returns without touching the socket. The sender encodes
+     * the body ({@link FrameEncoder}) and writes it; if it is still busy with an older frame,
+     * that one is replaced (latest wins).
+     */
+    public void sendFrame(ByteBuffer body, int frameLength, FrameState state) {
+        if (!PVP_KIClient.ENABLE_LEGACY_CLIENT_IPC) {
+            return;
+        }
+        FrameSender sender = frameSender;
+        if (sender == null) return;
+        if (sender.isFailed()) {
+            active = false; // Assume disconnected
+            return;
+        }
+        sender.offer(body, frameLength, state);
+        CaptureScheduler.onDelivered(state.frameId, state.tick);
+    }
+
+    public String frameEncodingSummary() {
+        FrameSender sender = frameSender;
+        return frameEncoder.statsSummary() + (sender != null ? " " + sender.statsSummary() : "");
+    }
+
     public boolean isActive() {
         return active;
     }
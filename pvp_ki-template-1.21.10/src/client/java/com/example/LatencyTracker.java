@@ -0,0 +1,90 @@
+package com.example;
+
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Observation-to-action latency per agent.
+ *
+ * Every captured frame gets a frame id and a System.nanoTime stamp ({@link FrameState#captureNanos}).
+ * An action echoes the frame id it was computed from (ACTION record or "frame_id" JSON key);
+ * when {@link ActionMailbox} applies it on the client tick, the time since that frame was
+ * captured goes into the agent's {@link LatencyHistogram}. Capture stamps live in a small ring
+ * indexed by frame id, so ids older than the ring count as unmatched instead of growing a map.
+ *
+ * Capture and apply both run on the client thread; reports are read from commands and the IPC
+ * thread (the histograms are synchronized).
+ */
+public final class LatencyTracker {
+    private static final int RING = 1024; // power of two; ~17 s of frames at 60 Hz
+    private static final long[] ringFrameIds = new long[RING];
+    private static final long[] ringNanos = new long[RING];
+
+    private static final Map<Integer, LatencyHistogram> perAgent = new ConcurrentHashMap<>();
+    private static volatile long untraced;
+    private static volatile long unmatched;
+
+    private LatencyTracker() {}
+
+    /** Client thread: remember when a frame was captured (frame id 0 = unscheduled test frame). */
+    public static void onCaptured(long frameId, long nanos) {
+        if (frameId <= 0) return;
+        int i = (int) (frameId & (RING - 1));
+        ringFrameIds[i] = frameId;
+        ringNanos[i] = nanos;
+    }
+
+    /** Client thread: an action computed from {@code frameId} was just applied. */
+    public static void onApplied(int agentId, long frameId, long nowNanos) {
+        if (frameId <= 0) {
+            untraced++;
+            return;
+        }
+        int i = (int) (frameId & (RING - 1));
+        if (ringFrameIds[i] != frameId) {
+            unmatched++;
+            return;
+        }
+        perAgent.computeIfAbsent(agentId, id -> new LatencyHistogram()).recordNanos(nowNanos - ringNanos[i]);
+    }
+
+    public static void reset() {
+        for (LatencyHistogram h : perAgent.values()) h.reset();
+        untraced = 0;
+        unmatched = 0;
+    }
+
+    /** One line per agent plus the untraced/unmatched counters, for /ki stats latency. */
+    public static List<String> summaryLines() {
+        List<String> lines = new ArrayList<>();
+        perAgent.forEach((id, h) -> lines.add("agent " + id + ": " + h.summary()));
+        lines.add("untraced=" + untraced + " unmatched=" + unmatched);
+        return lines;
+    }
+
+    /**
+     * Report sent to Python as the LATENCY_STATS client command:
+     * {"agents": {"<id>": {"n", "p50_ms", "p99_ms", "max_ms", "mean_ms"}}, "untraced", "unmatched"}.
+     */
+    public static JsonObject toJson() {
+        JsonObject agents = new JsonObject();
+        perAgent.forEach((id, h) -> {
+            JsonObject a = new JsonObject();
+            a.addProperty("n", h.count());
+            a.addProperty("p50_ms", h.percentileMicros(0.50) / 1000.0);
+            a.addProperty("p99_ms", h.percentileMicros(0.99) / 1000.0);
+            a.addProperty("max_ms", h.maxMicros() / 1000.0);
+            a.addProperty("mean_ms", h.meanMicros() / 1000.0);
+            agents.add(String.valueOf(id), a);
+        });
+        JsonObject report = new JsonObject();
+        report.add("agents", agents);
+        report.addProperty("untraced", untraced);
+        report.addProperty("unmatched", unmatched);
+        return report;
+    }
+}
@@ -1,14 +1,40 @@
 package com.example;
 
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.minecraft.client.Minecraft;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.List;
+
 /**
  * Manages the enabled state for 3D nametag overlays
- * Actual rendering is handled by NametagRenderMixin
+ * Actual rendering is handled by NametagRenderMixin, which asks {@link #playersNear} for
+ * candidates instead of walking every player in the level each frame
  */
 public class NametagOverlayRenderer {
     private static boolean enabled = true;
+    // Other players' positions as of the last client tick
+    private static final PlayerGrid<Player> grid = new PlayerGrid<>(16.0);
     
     public static void register() {
-        // Registration happens via mixin injection
+        ClientTickEvents.END_CLIENT_TICK.register(NametagOverlayRenderer::updateGrid);
+    }
+
+    private static void updateGrid(Minecraft mc) {
+        if (!enabled || mc.level == null) {
+            grid.clear();
+            return;
+        }
+        grid.beginSync();
+        for (Player player : mc.level.players()) {
+            if (player != mc.player) grid.update(player, player.getX(), player.getY(), player.getZ());
+        }
+        grid.endSync();
+    }
+
+    /** Other players within radius of (x, y, z) at the last client tick, into out. */
+    public static void playersNear(double x, double y, double z, double radius, List<Player> out) {
+        grid.within(x, y, z, radius, null, out);
     }
     
     public static void setEnabled(boolean enable) {
@@ -1,9 +1,10 @@
 package com.example;
 
-import com.google.gson.JsonObject;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.message.v1.ClientReceiveMessageEvents;
 import net.fabricmc.fabric.api.event.player.AttackEntityCallback;
 import net.fabricmc.fabric.api.entity.event.v1.ServerLivingEntityEvents;
@@ -31,11 +32,12 @@ public class PVP_KIClient implements ClientModInitializer {
 	public static final boolean ENABLE_LEGACY_CLIENT_IPC = false;
 
 	public static IPCManager ipcManager;
-	public static JsonObject pendingAction;
 	public static final List<String> eventQueue = Collections.synchronizedList(new ArrayList<>());
 	public static final List<String> teamMembers = Collections.synchronizedList(new ArrayList<>());
 	public static int currentAgentId = 1; // Current agent this client is mapped to
 	public static boolean testFrameRequested = false; // Flag for /testframe command
+	public static FrameReadback<?> frameReadback; // Set by the capture mixin on first frame
+	public static final AllocationMeter captureAllocations = new AllocationMeter(); // Heap bytes per captured frame
 	public static boolean nametagsEnabled = true; // Session-only toggle, default ON
 
 	@Override
@@ -47,6 +49,13 @@ public class PVP_KIClient implements ClientModInitializer {
 		
 		// Register nametag overlay renderer
 		NametagOverlayRenderer.register();
+
+		// Frame capture runs on tick boundaries at the configured rate, not on every rendered frame
+		if (ENABLE_LEGACY_CLIENT_IPC) {
+			ClientTickEvents.END_CLIENT_TICK.register(CaptureScheduler::onClientTick);
+			// Agent actions from the IPC thread are applied once per tick, before input is processed
+			ClientTickEvents.START_CLIENT_TICK.register(ActionMailbox::applyPending);
+		}
 		
 		// Register client-side event detection only in legacy local mode.
 		if (ENABLE_LEGACY_CLIENT_IPC) {
@@ -55,26 +64,28 @@ public class PVP_KIClient implements ClientModInitializer {
 
 		// Register commands
 		ClientCommandRegistrationCallback.EVENT.register((dispatcher, registryAccess) -> {
-			// Forward /ki ... to the server
+			// Forward /ki ... to the server, except /ki stats latency which is measured here
 			dispatcher.register(ClientCommandManager.literal("ki")
+				.then(ClientCommandManager.literal("stats")
+					.then(ClientCommandManager.literal("latency")
+						.then(ClientCommandManager.literal("reset")
+							.executes(context -> {
+								LatencyTracker.reset();
+								context.getSource().sendFeedback(Component.literal("§7[Latency] reset"));
+								return 1;
+							}))
+						.executes(context -> {
+							for (String line : LatencyTracker.summaryLines()) {
+								context.getSource().sendFeedback(Component.literal("§7[Latency] " + line));
+							}
+							return 1;
+						}))
+					.then(ClientCommandManager.argument("args", StringArgumentType.greedyString())
+						.executes(context -> forwardKi(context.getSource(), "stats " + StringArgumentType.getString(context, "args"))))
+					.executes(context -> forwardKi(context.getSource(), "stats")))
 				.then(ClientCommandManager.argument("args", StringArgumentType.greedyString())
-					.executes(context -> {
-						String args = StringArgumentType.getString(context, "args");
-						Minecraft mc = Minecraft.getInstance();
-						if (mc.getConnection() != null) {
-							mc.getConnection().send(new ServerboundChatCommandPacket("ki " + args));
-							context.getSource().sendFeedback(Component.literal("Sent /ki " + args + " to server"));
-						}
-						return 1;
-					}))
-				.executes(context -> {
-					Minecraft mc = Minecraft.getInstance();
-					if (mc.getConnection() != null) {
-						mc.getConnection().send(new ServerboundChatCommandPacket("ki"));
-						context.getSource().sendFeedback(Component.literal("Sent /ki to server"));
-					}
-					return 1;
-				}));
+					.executes(context -> forwardKi(context.getSource(), StringArgumentType.getString(context, "args"))))
+				.executes(context -> forwardKi(context.getSource(), null)));
 
 // Toggle nametag overlay with /name
 		dispatcher.register(ClientCommandManager.literal("name")
@@ -119,6 +130,23 @@ public class PVP_KIClient implements ClientModInitializer {
 					return 1;
 				}));
 
+		// Debug command /capturestats: frame readback path and counters
+		dispatcher.register(ClientCommandManager.literal("capturestats")
+				.executes(context -> {
+					if (frameReadback == null) {
+						context.getSource().sendFeedback(Component.literal("§eNo frames captured yet"));
+					} else {
+						context.getSource().sendFeedback(Component.literal("§7[Capture] " + frameReadback.statsSummary()));
+						context.getSource().sendFeedback(Component.literal("§7[Capture] " + captureAllocations.summary()));
+						context.getSource().sendFeedback(Component.literal("§7[Capture] " + CaptureScheduler.statsSummary()));
+						if (ipcManager != null) {
+							context.getSource().sendFeedback(Component.literal("§7[Capture] " + ipcManager.frameEncodingSummary()));
+							context.getSource().sendFeedback(Component.literal("§7[Capture] " + ActionMailbox.statsSummary()));
+						}
+					}
+					return 1;
+				}));
+
 		// Legacy client-side reward control (disabled in Protocol v1 mode)
 		dispatcher.register(ClientCommandManager.literal("reward")
 			.then(ClientCommandManager.literal("start")
@@ -466,4 +494,14 @@ public class PVP_KIClient implements ClientModInitializer {
 		// Note: Client-side death detection is handled via health monitoring in IPCManager
 		// Full AFTER_DEATH event requires server-side mod, so we rely on health=0 detection
 	}
+
+	private static int forwardKi(FabricClientCommandSource source, String args) {
+		Minecraft mc = Minecraft.getInstance();
+		if (mc.getConnection() != null) {
+			String command = args == null ? "ki" : "ki " + args;
+			mc.getConnection().send(new ServerboundChatCommandPacket(command));
+			source.sendFeedback(Component.literal("Sent /" + command + " to server"));
+		}
+		return 1;
+	}
 }
\ No newline at end of file
@@ -1,11 +1,13 @@
 package com.example.mixin.client;
 
+import com.example.CaptureConfig;
+import com.example.CaptureScheduler;
+import com.example.FrameDownsampler;
+import com.example.FrameReadback;
+import com.example.FrameState;
 import com.example.PVP_KIClient;
-import com.google.gson.JsonObject;
 import com.mojang.blaze3d.pipeline.RenderTarget;
-import com.mojang.blaze3d.pipeline.TextureTarget;
 import net.minecraft.client.Minecraft;
-import net.minecraft.client.player.LocalPlayer;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
@@ -13,17 +15,21 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.HashMap;
-import java.util.Map;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL30.*;
 
 @Mixin(net.minecraft.client.renderer.GameRenderer.class)
 public class ExampleClientMixin {
-	private TextureTarget smallTarget;
-	private static final int TARGET_WIDTH = 64;
-	private static final int TARGET_HEIGHT = 64;
+	// Observation size/channels come from CaptureConfig; both are rebuilt when it changes
+	private FrameDownsampler downsampler;
+	private FrameReadback<FrameState> readback;
+	private int captureGeneration = -1;
+	// Reused per frame: sync-path header fields and the socket-path pixel buffer
+	private final FrameState syncState = new FrameState();
+	private ByteBuffer scratch;
+	private static java.lang.reflect.Field fboIdField;
+	private static boolean fboIdFieldResolved;
 
 	// Inject at HEAD to capture BEFORE GUI overlays (ESC menu, inventory, etc.)
 	// This ensures AI sees the actual game world, not menus
@@ -32,9 +38,20 @@ public class ExampleClientMixin {
 		if (!PVP_KIClient.ENABLE_LEGACY_CLIENT_IPC) {
 			return;
 		}
-		// Capture frame if IPC active OR if test frame requested
+		// Ship finished readbacks at every render, not only when the next capture is due:
+		// otherwise each PBO frame waits out a whole capture interval before it is sent
+		if (readback != null && readback.getMode() == FrameReadback.Mode.PBO && readback.hasInFlight()) {
+			PVP_KIClient.captureAllocations.begin();
+			try {
+				deliverCompletedReadback(readback.getByteLength());
+			} finally {
+				PVP_KIClient.captureAllocations.end();
+			}
+		}
+		// Capture when the scheduler armed this tick's frame OR if test frame requested
 		boolean isTestFrame = PVP_KIClient.testFrameRequested;
-		if ((PVP_KIClient.ipcManager != null && PVP_KIClient.ipcManager.isActive()) || isTestFrame) {
+		boolean due = PVP_KIClient.ipcManager != null && PVP_KIClient.ipcManager.isActive() && CaptureScheduler.takeDue();
+		if (due || isTestFrame) {
 			captureFrame(isTestFrame);
 			if (isTestFrame) {
 				PVP_KIClient.testFrameRequested = false; // Reset flag after capture
@@ -42,17 +59,6 @@ public class ExampleClientMixin {
 		}
 	}
 
-	// Apply actions at TAIL (after rendering) to avoid input conflicts
-	@Inject(at = @At("TAIL"), method = "render")
-	private void onRenderEnd(net.minecraft.client.DeltaTracker deltaTracker, boolean bl, CallbackInfo ci) {
-		if (!PVP_KIClient.ENABLE_LEGACY_CLIENT_IPC) {
-			return;
-		}
-		if (PVP_KIClient.ipcManager != null && PVP_KIClient.ipcManager.isActive()) {
-			applyActions();
-		}
-	}
-
 	private void captureFrame(boolean isTestFrame) {
 		Minecraft client = Minecraft.getInstance();
 		int windowWidth = client.getWindow().getWidth();
@@ -60,110 +66,117 @@ public class ExampleClientMixin {
 
 		if (windowWidth <= 0 || windowHeight <= 0) return;
 
-		// Initialize small target if needed
-		if (smallTarget == null) {
-			// TextureTarget(String name, int width, int height, boolean useDepth)
-			smallTarget = new TextureTarget("pvp_ki_small", TARGET_WIDTH, TARGET_HEIGHT, true);
-			// Note: setClearColor not available in 1.21.11
-		}
-
+		// Steady state allocates nothing here; /capturestats shows the measured bytes per frame
+		PVP_KIClient.captureAllocations.begin();
 		try {
-			// Get IDs via reflection
-			int mainFboId = -1;
-			int smallFboId = -1;
-			
-			try {
-				// Try to find "frameBufferId" or "id" or "field_4493"
-				java.lang.reflect.Field idField = null;
-				Class<?> rtClass = RenderTarget.class;
-				
-				try { idField = rtClass.getDeclaredField("frameBufferId"); } catch (Exception e) {}
-				if (idField == null) try { idField = rtClass.getDeclaredField("id"); } catch (Exception e) {}
-				if (idField == null) try { idField = rtClass.getDeclaredField("field_4493"); } catch (Exception e) {} // Intermediary
-				
-				if (idField != null) {
-					idField.setAccessible(true);
-					mainFboId = idField.getInt(client.getMainRenderTarget());
-					smallFboId = idField.getInt(smallTarget);
-				}
-			} catch (Exception e) {
-				System.out.println("Failed to get FBO IDs: " + e.getMessage());
+			if (downsampler == null || captureGeneration != CaptureConfig.generation()) {
+				rebuildCaptureTargets();
 			}
 
-			if (mainFboId != -1 && smallFboId != -1) {
-				glBindFramebuffer(GL_READ_FRAMEBUFFER, mainFboId);
-				glBindFramebuffer(GL_DRAW_FRAMEBUFFER, smallFboId);
-				glBlitFramebuffer(0, 0, windowWidth, windowHeight, 0, 0, TARGET_WIDTH, TARGET_HEIGHT, GL_COLOR_BUFFER_BIT, GL_LINEAR);
-				glBindFramebuffer(GL_FRAMEBUFFER, smallFboId);
-			} else {
-				// Fallback: Read from current buffer (likely main)
+			int mainFboId = mainFramebufferId(client.getMainRenderTarget());
+			if (mainFboId == -1) {
 				return;
 			}
 
-			glReadBuffer(GL_COLOR_ATTACHMENT0);
+			// Downscale, flip and convert channels on the GPU; leaves the result bound for reading
+			downsampler.render(mainFboId, windowWidth, windowHeight);
 
-			// Read Pixels
-			ByteBuffer buffer = ByteBuffer.allocateDirect(TARGET_WIDTH * TARGET_HEIGHT * 4).order(ByteOrder.nativeOrder());
-			glReadPixels(0, 0, TARGET_WIDTH, TARGET_HEIGHT, GL_BGRA, GL_UNSIGNED_BYTE, buffer);
+			int frameLength = readback.getByteLength();
+
+			if (readback.getMode() == FrameReadback.Mode.PBO && !isTestFrame) {
+				// Ship a readback that finished since HEAD so its PBO is free, then queue this frame
+				deliverCompletedReadback(frameLength);
+				FrameState pending = readback.nextMeta();
+				if (pending != null) {
+					pending.capture(client, CaptureScheduler.frameId(), CaptureScheduler.tick(), false,
+						downsampler.getWidth(), downsampler.getHeight(), downsampler.getChannels());
+				}
+				if (!readback.beginRead()) {
+					// Consumer behind (every PBO still in flight): drop rather than queue
+					CaptureScheduler.onBusyDrop();
+				}
+			} else {
+				// Sync path (no PBOs, or a one-off test frame that must not wait for the next capture)
+				long frameId = isTestFrame ? 0 : CaptureScheduler.frameId();
+				long tick = isTestFrame ? (client.level != null ? client.level.getGameTime() : 0) : CaptureScheduler.tick();
+				syncState.capture(client, frameId, tick, isTestFrame,
+					downsampler.getWidth(), downsampler.getHeight(), downsampler.getChannels());
+				ByteBuffer ringSlot = PVP_KIClient.ipcManager != null ? PVP_KIClient.ipcManager.claimFrameBuffer(frameLength) : null;
+				ByteBuffer buffer = ringSlot != null ? ringSlot : scratch;
+				readback.readSync(buffer);
+				deliverFrame(buffer, ringSlot != null, frameLength, syncState);
+			}
 
 			// Restore
 			glBindFramebuffer(GL_FRAMEBUFFER, 0);
+		} catch (Exception e) {
+			System.out.println("Error in captureFrame: " + e.getMessage());
+		} finally {
+			PVP_KIClient.captureAllocations.end();
+		}
+	}
 
-			// Flip
-			// buffer.flip(); // Not needed if we read directly into allocated buffer? 
-			// Actually glReadPixels writes from position 0. We need to read from it.
-			// But we need to flip the image vertically because OpenGL is bottom-left origin.
-			// We can do this in Python or here. Doing it here is cleaner but slower.
-			// Let's just send it and let Python handle it or just learn upside down.
-			// Actually, `buffer.get(bytes)` reads from position.
-			
-			byte[] frameBytes = new byte[TARGET_WIDTH * TARGET_HEIGHT * 4];
-			buffer.get(frameBytes); // Reads from 0 to limit
-
-			if (PVP_KIClient.ipcManager != null) {
-				Map<String, Object> state = new HashMap<>();
-				LocalPlayer player = client.player;
-				if (player != null) {
-					state.put("x", player.getX());
-					state.put("y", player.getY());
-					state.put("z", player.getZ());
-					state.put("health", player.getHealth());
-					state.put("hunger", player.getFoodData().getFoodLevel());
-					state.put("pitch", player.getXRot());
-					state.put("yaw", player.getYRot());
-					state.put("width", TARGET_WIDTH);
-					state.put("height", TARGET_HEIGHT);
-					state.put("test_frame", isTestFrame); // Mark test frames
+	/** GL name of the main render target's framebuffer; the reflective field is looked up once. */
+	private static int mainFramebufferId(RenderTarget target) {
+		if (!fboIdFieldResolved) {
+			fboIdFieldResolved = true;
+			// Try to find "frameBufferId" or "id" or "field_4493"
+			for (String name : new String[] {"frameBufferId", "id", "field_4493"}) { // Last one is intermediary
+				try {
+					fboIdField = RenderTarget.class.getDeclaredField(name);
+					fboIdField.setAccessible(true);
+					break;
+				} catch (Exception e) {
+					fboIdField = null;
 				}
-				PVP_KIClient.ipcManager.sendFrame(frameBytes, state);
 			}
+			if (fboIdField == null) {
+				System.out.println("Failed to get FBO IDs: no framebuffer id field on RenderTarget");
+			}
+		}
+		if (fboIdField == null) return -1;
+		try {
+			return fboIdField.getInt(target);
 		} catch (Exception e) {
-			System.out.println("Error in captureFrame: " + e.getMessage());
+			System.out.println("Failed to get FBO IDs: " + e.getMessage());
+			return -1;
 		}
 	}
 
-	private void applyActions() {
-		JsonObject action = PVP_KIClient.pendingAction;
-		if (action != null) {
-			Minecraft client = Minecraft.getInstance();
-			LocalPlayer player = client.player;
-			
-			if (action.has("forward")) client.options.keyUp.setDown(action.get("forward").getAsBoolean());
-			if (action.has("left")) client.options.keyLeft.setDown(action.get("left").getAsBoolean());
-			if (action.has("back")) client.options.keyDown.setDown(action.get("back").getAsBoolean());
-			if (action.has("right")) client.options.keyRight.setDown(action.get("right").getAsBoolean());
-			if (action.has("jump")) client.options.keyJump.setDown(action.get("jump").getAsBoolean());
-			if (action.has("attack")) client.options.keyAttack.setDown(action.get("attack").getAsBoolean());
-			if (action.has("swap_offhand")) client.options.keySwapOffhand.setDown(action.get("swap_offhand").getAsBoolean());
-			if (action.has("open_inventory")) client.options.keyInventory.setDown(action.get("open_inventory").getAsBoolean());
-			if (action.has("use")) client.options.keyUse.setDown(action.get("use").getAsBoolean());
-			
-			if (player != null) {
-				if (action.has("yaw")) player.setYRot(player.getYRot() + action.get("yaw").getAsFloat());
-				if (action.has("pitch")) player.setXRot(player.getXRot() + action.get("pitch").getAsFloat());
-			}
-			
-			PVP_KIClient.pendingAction = null;
+	private void rebuildCaptureTargets() {
+		captureGeneration = CaptureConfig.generation();
+		if (readback != null) readback.close();
+		if (downsampler != null) downsampler.close();
+		int width = CaptureConfig.width();
+		int height = CaptureConfig.height();
+		int channels = CaptureConfig.channels();
+		downsampler = new FrameDownsampler(width, height, channels);
+		// Two PBOs: frame N is read back while frame N-1 is mapped and shipped
+		readback = new FrameReadback<>(width, height, channels, downsampler.readFormat(), 2, FrameState::new);
+		// Socket-path staging buffer, reused every frame (the ring path reads straight into its slot)
+		scratch = ByteBuffer.allocateDirect(readback.getByteLength()).order(ByteOrder.nativeOrder());
+		PVP_KIClient.frameReadback = readback;
+		PVP_KIClient.captureAllocations.reset();
+	}
+
+	/** Ship every readback that has completed, oldest first. Never waits on the GPU. */
+	private void deliverCompletedReadback(int frameLength) {
+		while (readback.isReady()) {
+			// Read straight into the shared-memory ring slot when Python asked for it
+			ByteBuffer ringSlot = PVP_KIClient.ipcManager != null ? PVP_KIClient.ipcManager.claimFrameBuffer(frameLength) : null;
+			ByteBuffer buffer = ringSlot != null ? ringSlot : scratch;
+			FrameState state = readback.collect(buffer);
+			if (state == null) return;
+			deliverFrame(buffer, ringSlot != null, frameLength, state);
+		}
+	}
+
+	private void deliverFrame(ByteBuffer buffer, boolean inRing, int frameLength, FrameState state) {
+		if (PVP_KIClient.ipcManager == null) return;
+		if (inRing) {
+			PVP_KIClient.ipcManager.publishFrame(frameLength, state);
+		} else {
+			PVP_KIClient.ipcManager.sendFrame(buffer, frameLength, state);
 		}
 	}
 }
\ No newline at end of file
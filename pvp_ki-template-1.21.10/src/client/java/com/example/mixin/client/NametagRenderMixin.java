@@ -15,15 +15,21 @@ import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.phys.Vec3;
 import org.joml.Matrix4f;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Mixin to render 3D nametag overlays above player heads
  */
 @Mixin(LevelRenderer.class)
 public class NametagRenderMixin {
+    @Unique
+    private final List<Player> nearbyPlayers = new ArrayList<>();
     
     // Inject at the start of renderLevel to avoid fragile INVOKE targets
     @Inject(method = "renderLevel", at = @At("HEAD"))
@@ -50,9 +56,11 @@ public class NametagRenderMixin {
         }
         float tickDelta = deltaTracker.getGameTimeDeltaPartialTick(true);
         
-        // Iterate through all players
-        for (Player player : mc.level.players()) {
-            if (player == mc.player) continue;
+        // Players near the camera from the overlay's grid (positions from the last tick, hence the margin)
+        nearbyPlayers.clear();
+        NametagOverlayRenderer.playersNear(cameraPos.x, cameraPos.y, cameraPos.z, 64.0 + 8.0, nearbyPlayers);
+        for (Player player : nearbyPlayers) {
+            if (player == mc.player || player.isRemoved()) continue;
             if (player.isInvisible()) continue;
             
             Vec3 playerPos = player.getPosition(tickDelta);
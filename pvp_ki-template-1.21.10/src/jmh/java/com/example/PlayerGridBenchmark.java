@@ -0,0 +1,81 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * k-nearest queries (k = 4) on a {@link PlayerGrid} vs a linear scan, over random players in a
+ * square sized for ~1 player per 64 m^2 (PvP density). One benchmark op is one query, every
+ * player taking its turn. Correctness against brute force is PlayerGridTest.
+ *
+ * Run: ./gradlew jmh -PjmhIncludes=PlayerGridBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerGridBenchmark {
+    private static final int K = 4;
+
+    @Param({"10", "100", "500"})
+    int players;
+
+    private double[] xs, ys, zs;
+    private PlayerGrid<Integer> grid;
+    private final Integer[] out = new Integer[K];
+    private final double[] dist = new double[K];
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(players);
+        double side = Math.max(32.0, Math.sqrt(players * 64.0));
+        xs = new double[players];
+        ys = new double[players];
+        zs = new double[players];
+        grid = new PlayerGrid<>(PlayerIndex.CELL_SIZE);
+        grid.beginSync();
+        for (int i = 0; i < players; i++) {
+            xs[i] = rnd.nextDouble() * side;
+            ys[i] = 64 + rnd.nextDouble() * 4;
+            zs[i] = rnd.nextDouble() * side;
+            grid.update(i, xs[i], ys[i], zs[i]);
+        }
+        grid.endSync();
+    }
+
+    private int nextQuery() {
+        int q = next;
+        next = q + 1 == players ? 0 : q + 1;
+        return q;
+    }
+
+    @Benchmark
+    public int grid() {
+        int q = nextQuery();
+        return grid.nearest(xs[q], ys[q], zs[q], K, Double.MAX_VALUE, v -> v != q, out, dist);
+    }
+
+    @Benchmark
+    public int linearScan() {
+        int q = nextQuery();
+        int found = 0;
+        for (int i = 0; i < players; i++) {
+            if (i == q) continue;
+            double dx = xs[i] - xs[q], dy = ys[i] - ys[q], dz = zs[i] - zs[q];
+            double d = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            if (found == K && d >= dist[K - 1]) continue;
+            int j = found < K ? found++ : K - 1;
+            while (j > 0 && dist[j - 1] > d) {
+                dist[j] = dist[j - 1];
+                j--;
+            }
+            dist[j] = d;
+        }
+        return found;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode cost of one EVENTS batch, bin1 into a reused writer vs the Gson fallback.
+ * Bytes per message are printed by python -m backend.bench_wire_codec.
+ *
+ * Run: ./gradlew jmh -PjmhIncludes=WireCodecBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireCodecBenchmark {
+    @Param({"1", "8", "64"})
+    int events;
+
+    private WireCodec.EventsMessage batch;
+    private final WireCodec.BinaryWriter writer = new WireCodec.BinaryWriter();
+
+    @Setup
+    public void setup() {
+        batch = new WireCodec.EventsMessage();
+        for (int i = 0; i < events; i++) {
+            batch.add(WireCodec.KIND_HIT, 100 + i, 1, "Alice", 1.5, 64.0, 2.25, 2, "Bob", 2.5, 64.0, 3.75, "enemy", 4.5f);
+        }
+    }
+
+    @Benchmark
+    public int binary() {
+        batch.writeBinary(writer);
+        return writer.length();
+    }
+
+    @Benchmark
+    public int json() {
+        return WireCodec.encodeJson(batch).length;
+    }
+}
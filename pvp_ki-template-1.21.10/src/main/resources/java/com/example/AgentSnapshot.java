@@ -0,0 +1,118 @@
+package com.example;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.EquipmentSlot;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.ai.attributes.Attributes;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+import net.minecraft.world.scores.PlayerTeam;
+
+import java.util.Arrays;
+
+/**
+ * Everything the observation sensors read from one player, copied on the server thread at the end
+ * of a tick so {@link ObservationPipeline} workers never touch the live entity. Fields are only
+ * written by the capture methods below, before the snapshot is handed to the pool.
+ */
+final class AgentSnapshot {
+    private static final EquipmentSlot[] ARMOR_SLOTS = {
+        EquipmentSlot.HEAD, EquipmentSlot.CHEST, EquipmentSlot.LEGS, EquipmentSlot.FEET
+    };
+
+    final ServerLevel level; // identity only: groups agents by level, never read off-thread
+    final int id;
+    final String name;
+    final String team;       // scoreboard team name, null if none
+    final double x, y, z;
+    final Vec3 eye;
+    final float yaw, pitch;
+    final double velX, velY, velZ;
+    final double lookX, lookY, lookZ;
+    final boolean onGround;
+    final float health, maxHealth, absorption, food, saturation;
+    final float attackDamage, attackSpeed, armor, armorToughness;
+    final int mainHandClass, mainHandCount, offHandClass, offHandCount, armorPieces;
+    final BlockPos arenaMin, arenaMax; // null outside every enabled arena
+
+    // Ray targets (vision only): entity boxes as 6 doubles (min x/y/z, max x/y/z) and a class each
+    double[] boxes = new double[0];
+    int[] classes = new int[0];
+    int entityCount;
+
+    AgentSnapshot(ServerPlayer p) {
+        level = (ServerLevel) p.level();
+        id = p.getId();
+        name = p.getScoreboardName();
+        PlayerTeam t = level.getScoreboard().getPlayersTeam(name);
+        team = t != null ? t.getName() : null;
+        x = p.getX();
+        y = p.getY();
+        z = p.getZ();
+        eye = p.getEyePosition(1.0f);
+        yaw = p.getYRot();
+        pitch = p.getXRot();
+        Vec3 vel = p.getDeltaMovement();
+        velX = vel.x;
+        velY = vel.y;
+        velZ = vel.z;
+        Vec3 look = p.getLookAngle();
+        lookX = look.x;
+        lookY = look.y;
+        lookZ = look.z;
+        onGround = p.onGround();
+        health = p.getHealth();
+        maxHealth = p.getMaxHealth();
+        absorption = p.getAbsorptionAmount();
+        food = p.getFoodData().getFoodLevel();
+        saturation = p.getFoodData().getSaturationLevel();
+        attackDamage = (float) p.getAttributeValue(Attributes.ATTACK_DAMAGE);
+        attackSpeed = (float) p.getAttributeValue(Attributes.ATTACK_SPEED);
+        armor = (float) p.getAttributeValue(Attributes.ARMOR);
+        armorToughness = (float) p.getAttributeValue(Attributes.ARMOR_TOUGHNESS);
+        ItemStack main = p.getMainHandItem();
+        ItemStack off = p.getOffhandItem();
+        mainHandClass = StateSensor.itemClass(main);
+        mainHandCount = main.getCount();
+        offHandClass = StateSensor.itemClass(off);
+        offHandCount = off.getCount();
+        int pieces = 0;
+        for (EquipmentSlot slot : ARMOR_SLOTS) {
+            if (!p.getItemBySlot(slot).isEmpty()) pieces++;
+        }
+        armorPieces = pieces;
+        ArenaManager.ArenaConfig arena = ArenaManager.arenaContaining(x, y, z);
+        arenaMin = arena != null ? arena.getMin() : null;
+        arenaMax = arena != null ? arena.getMax() : null;
+    }
+
+    /** Server thread: record the living entities within {@code range} of the eyes as ray targets. */
+    void captureEntities(ServerPlayer p, double range) {
+        AABB area = new AABB(eye, eye).inflate(range);
+        for (LivingEntity e : level.getEntitiesOfClass(LivingEntity.class, area,
+                e -> e != p && e.isAlive() && !e.isSpectator())) {
+            int entityClass = e instanceof ServerPlayer other
+                ? VisionSensor.relationClass(PVP_KI.computeRelation(p, other)) : VisionSensor.ENTITY_OTHER;
+            addEntity(e.getBoundingBox(), entityClass);
+        }
+    }
+
+    private void addEntity(AABB box, int entityClass) {
+        if (entityCount == classes.length) {
+            int cap = Math.max(8, classes.length * 2);
+            boxes = Arrays.copyOf(boxes, cap * 6);
+            classes = Arrays.copyOf(classes, cap);
+        }
+        int o = entityCount * 6;
+        boxes[o] = box.minX;
+        boxes[o + 1] = box.minY;
+        boxes[o + 2] = box.minZ;
+        boxes[o + 3] = box.maxX;
+        boxes[o + 4] = box.maxY;
+        boxes[o + 5] = box.maxZ;
+        classes[entityCount++] = entityClass;
+    }
+}
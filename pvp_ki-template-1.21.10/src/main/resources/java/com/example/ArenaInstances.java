@@ -0,0 +1,590 @@
+package com.example;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Registry;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.Identifier;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerChunkCache;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.server.level.TicketType;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Playable copies of arenas, tiled into slots and leased to matches, restored by block diff.
+ *
+ * Arena resets used to /clone the arena box (source) to one copy above it every time, so two
+ * matches on the same arena overwrote each other, and every reset rewrote every block. Now each
+ * arena has up to SettingsManager.arenaSlots instances in {@link #SLOT_LEVEL}, an empty void
+ * dimension shipped in the mod's data pack (no terrain, caves, fluids or mob spawns around a slot,
+ * nothing to dig out into, and next to nothing to generate). Without it (data pack disabled),
+ * slots go into a reserved area of the source's own level instead. Either way they start at
+ * SettingsManager.arenaSlotRegionX/Z: every arena gets a row along +Z, its slots are tiled along
+ * +X in that row at the source's Y, and rows and slots are a gap apart, rounded up to whole chunks
+ * so no two share a chunk. A new slot is refused (and acquire says why) if it would leave the
+ * build height or the world border or overlap any indexed box.
+ *
+ * A new slot's chunks are loaded through a non-persistent {@link #TICKET}, off the tick thread,
+ * and held for as long as the slot exists; the slot is only leased once every one of them is
+ * loaded, so a paste never generates or loads a chunk on the tick thread. One spare slot per arena
+ * is kept loading ahead of demand (slot 0 from server start). A match (its set of teams) holds a
+ * {@link Lease} on one slot; resetting the same teams again reuses their slot, and a lease is given
+ * back once none of its players has been inside the slot for {@link #LEASE_IDLE_TICKS}.
+ *
+ * Each arena has an {@link ArenaTemplate} of its source box (captured once, persisted, reloaded on
+ * first use in a later session if the source still hashes the same as when it was captured). A
+ * slot is pasted in full from it the first time, straight into chunk sections. After that, LevelMixin reports every successful Level.setBlock and {@link #onBlockChanged} records
+ * positions that fall inside a slot, so a reset only puts back what changed since the last one, plus
+ * the template's block entities (container contents change without a block change).
+ *
+ * Positions are matched through a chunk-keyed index of slot and source boxes, so block changes
+ * elsewhere cost one hash lookup. An edit inside a source box marks that arena's template stale;
+ * the next reset re-captures and saves it and repastes its slots in full (as does any change to
+ * arenas.json). Server thread only.
+ */
+public final class ArenaInstances {
+    // No neighbour updates or drops while restoring, same as /clone
+    private static final int RESTORE_FLAGS = Block.UPDATE_CLIENTS | Block.UPDATE_KNOWN_SHAPE | Block.UPDATE_SUPPRESS_DROPS;
+    // Empty blocks between neighbouring slots (before rounding up to whole chunks)
+    private static final int SLOT_GAP = 16;
+    static final int LEASE_IDLE_TICKS = 600;
+    private static final int LEASE_CHECK_TICKS = 20;
+
+    /** The void dimension slots live in (data/pvp_ki/dimension/arenas.json). */
+    public static final ResourceKey<Level> SLOT_LEVEL =
+        ResourceKey.create(Registries.DIMENSION, Identifier.fromNamespaceAndPath("pvp_ki", "arenas"));
+
+    /** Keeps slot chunks loaded (full status) while their slot exists; not saved with the level. */
+    private static TicketType TICKET;
+
+    /** One arena: its source box, template and slots. */
+    private static final class Arena {
+        final String name;
+        final ServerLevel level;          // the source's level
+        final ServerLevel slotLevel;      // where the slots are
+        final BlockPos sourceMin, sourceMax;
+        final int rowZ;                   // Z of this arena's row in the reserved area
+        final List<Instance> slots = new ArrayList<>();
+        ArenaTemplate template;           // null until loaded or captured
+        boolean templateStale = true;
+        long captures, busy, waits, refused;
+        String refusal;                   // why the last new slot was refused
+
+        Arena(String name, ServerLevel level, ServerLevel slotLevel, BlockPos sourceMin, BlockPos sourceMax, int rowZ) {
+            this.name = name;
+            this.level = level;
+            this.slotLevel = slotLevel;
+            this.sourceMin = sourceMin;
+            this.sourceMax = sourceMax;
+            this.rowZ = rowZ;
+        }
+
+        /** X distance between slot origins in the row: slot width plus gap, rounded up to whole chunks. */
+        int slotStride() {
+            int width = sourceMax.getX() - sourceMin.getX() + 1;
+            return ((width + SLOT_GAP + 15) >> 4) << 4;
+        }
+
+        /**
+         * The next slot, its chunks starting to load, or null (reason in {@link #refusal}) if its
+         * box is not free.
+         */
+        Instance newSlot() {
+            int slot = slots.size();
+            BlockPos min = new BlockPos((SettingsManager.arenaSlotRegionX & ~15) + slot * slotStride(), sourceMin.getY(), rowZ);
+            BlockPos max = min.offset(sourceMax.subtract(sourceMin));
+            String problem = checkSlot(slotLevel, min, max);
+            if (problem != null) {
+                refused++;
+                refusal = "slot " + slot + " at " + min.toShortString() + " " + problem;
+                return null;
+            }
+            Instance inst = new Instance(this, slot, min, max);
+            slots.add(inst);
+            indexRegion(new Region(this, inst, slotLevel, inst.min, inst.max));
+            inst.tickets(true);
+            return inst;
+        }
+
+        /** A slot that is neither leased nor still loading, or null. */
+        Instance freeSlot() {
+            for (Instance inst : slots) {
+                if (inst.lease == null && inst.isLoaded()) return inst;
+            }
+            return null;
+        }
+    }
+
+    /** One slot of an arena: where it is and what changed since its last reset. */
+    public static final class Instance {
+        final Arena arena;
+        public final int slot;
+        public final BlockPos min, max;   // slot box, inclusive
+        boolean pasted;
+        boolean loaded;                   // every chunk of the box is loaded (and held by TICKET)
+        Lease lease;
+        final LongOpenHashSet dirty = new LongOpenHashSet();
+
+        // Stats
+        final LatencyHistogram resetTime = new LatencyHistogram();
+        long resets, fullPastes, restoredTotal, lastRestored;
+
+        Instance(Arena arena, int slot, BlockPos min, BlockPos max) {
+            this.arena = arena;
+            this.slot = slot;
+            this.min = min;
+            this.max = max;
+        }
+
+        /** The level this slot is in (the slot dimension, unless it is missing). */
+        public ServerLevel level() {
+            return arena.slotLevel;
+        }
+
+        /** The block in this slot that corresponds to {@code source} in the arena's source box. */
+        public BlockPos fromSource(BlockPos source) {
+            return source.offset(min.subtract(arena.sourceMin));
+        }
+
+        void tickets(boolean add) {
+            ServerChunkCache chunks = arena.slotLevel.getChunkSource();
+            for (int cx = min.getX() >> 4; cx <= max.getX() >> 4; cx++) {
+                for (int cz = min.getZ() >> 4; cz <= max.getZ() >> 4; cz++) {
+                    if (add) chunks.addTicketWithRadius(TICKET, new ChunkPos(cx, cz), 0);
+                    else chunks.removeTicketWithRadius(TICKET, new ChunkPos(cx, cz), 0);
+                }
+            }
+        }
+
+        /** Polls getChunkNow until every chunk of the box is loaded; never loads one itself. */
+        boolean isLoaded() {
+            if (loaded) return true;
+            ServerChunkCache chunks = arena.slotLevel.getChunkSource();
+            for (int cx = min.getX() >> 4; cx <= max.getX() >> 4; cx++) {
+                for (int cz = min.getZ() >> 4; cz <= max.getZ() >> 4; cz++) {
+                    if (chunks.getChunkNow(cx, cz) == null) return false;
+                }
+            }
+            loaded = true;
+            return true;
+        }
+
+        int index(int x, int y, int z) {
+            return arena.template.index(x - min.getX(), y - min.getY(), z - min.getZ());
+        }
+
+        boolean contains(double x, double y, double z) {
+            return x >= min.getX() && x < max.getX() + 1 && y >= min.getY() && y < max.getY() + 1
+                && z >= min.getZ() && z < max.getZ() + 1;
+        }
+    }
+
+    /** A match's hold on one slot. */
+    public static final class Lease {
+        public final Instance instance;
+        final String match;
+        final List<UUID> players = new ArrayList<>();
+        long lastSeenTick;
+
+        Lease(Instance instance, String match, long tick) {
+            this.instance = instance;
+            this.match = match;
+            this.lastSeenTick = tick;
+        }
+    }
+
+    /** A box in the index: a slot, or an arena's source (instance null), in {@code level}. */
+    private record Region(Arena arena, Instance instance, ServerLevel level, BlockPos min, BlockPos max) {
+        boolean contains(BlockPos pos) {
+            return pos.getX() >= min.getX() && pos.getX() <= max.getX() && pos.getY() >= min.getY() && pos.getY() <= max.getY()
+                && pos.getZ() >= min.getZ() && pos.getZ() <= max.getZ();
+        }
+
+        boolean intersects(BlockPos lo, BlockPos hi) {
+            return lo.getX() <= max.getX() && hi.getX() >= min.getX() && lo.getY() <= max.getY() && hi.getY() >= min.getY()
+                && lo.getZ() <= max.getZ() && hi.getZ() >= min.getZ();
+        }
+    }
+
+    private static final Map<String, Arena> arenas = new HashMap<>();
+    private static final Map<String, Lease> leases = new HashMap<>(); // by match
+    private static final Long2ObjectOpenHashMap<List<Region>> index = new Long2ObjectOpenHashMap<>();
+    private static boolean restoring;
+    private static int nextRowZ;          // next free row, relative to SettingsManager.arenaSlotRegionZ
+    private static String lastRefusal = "";
+    private static long leasesGranted, leasesExpired;
+
+    private ArenaInstances() {}
+
+    /** Register the ticket type; call from onInitialize, while registries are still open. */
+    public static void init() {
+        TICKET = Registry.register(BuiltInRegistries.TICKET_TYPE, Identifier.fromNamespaceAndPath("pvp_ki", "arena_slot"),
+            new TicketType(0L, TicketType.FLAG_LOADING));
+    }
+
+    /** The level arenas are built in for a command run in {@code level}: the overworld for the slot dimension. */
+    public static ServerLevel sourceLevel(ServerLevel level) {
+        return level.dimension() == SLOT_LEVEL ? level.getServer().overworld() : level;
+    }
+
+    /** SERVER_STARTED: start loading slot 0 of every enabled arena, so the first reset need not wait. */
+    public static void warmUp(MinecraftServer server) {
+        for (ArenaManager.ArenaConfig config : ArenaManager.getEnabled()) {
+            Arena arena = arenaFor(server.overworld(), config);
+            if (arena.slots.isEmpty()) arena.newSlot();
+        }
+    }
+
+    /** LevelMixin: a block changed. Cheap unless pos is in an indexed chunk. */
+    public static void onBlockChanged(Level level, BlockPos pos) {
+        if (restoring || index.isEmpty()) return;
+        List<Region> regions = index.get(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+        if (regions == null) return;
+        for (Region r : regions) {
+            if (r.level != level || !r.contains(pos)) continue;
+            if (r.instance == null) r.arena.templateStale = true;
+            else r.instance.dirty.add(pos.asLong());
+        }
+    }
+
+    /** Match key for a set of teams: order does not matter. */
+    public static String matchKey(List<String> teamNames) {
+        List<String> sorted = new ArrayList<>(teamNames);
+        sorted.sort(null);
+        return String.join(",", sorted);
+    }
+
+    /**
+     * The slot of {@code config} (built in {@code level}) for {@code match}: its current lease if it
+     * already holds one there, otherwise a free, loaded slot. A lease on another arena is given up.
+     * Null if every slot is taken, the next one is still loading or can't be placed
+     * ({@link #lastRefusal} says which). While fewer than SettingsManager.arenaSlots exist, taking
+     * the last free slot starts the next one loading.
+     */
+    public static Lease acquire(ServerLevel level, ArenaManager.ArenaConfig config, String match, List<ServerPlayer> players) {
+        long tick = level.getServer().getTickCount();
+        Arena arena = arenaFor(level, config);
+        Lease lease = leases.get(match);
+        if (lease != null && lease.instance.arena != arena) {
+            lease.instance.lease = null;
+            leases.remove(match);
+            lease = null;
+        }
+        if (lease == null) {
+            Instance free = arena.freeSlot();
+            if (free == null) {
+                Instance loading = null;
+                for (Instance inst : arena.slots) {
+                    if (inst.lease == null) loading = inst;
+                }
+                if (loading == null && arena.slots.size() < SettingsManager.arenaSlots) {
+                    loading = arena.newSlot();
+                    if (loading == null) {
+                        lastRefusal = "Arena '" + arena.name + "' has no room for another slot: " + arena.refusal;
+                        return null;
+                    }
+                }
+                if (loading != null) {
+                    arena.waits++;
+                    lastRefusal = "Arena '" + arena.name + "' slot " + loading.slot + " is still loading its chunks; try again shortly";
+                    return null;
+                }
+                arena.busy++;
+                lastRefusal = "All " + arena.slots.size() + " slots of arena '" + arena.name + "' are in use";
+                return null;
+            }
+            lease = new Lease(free, match, tick);
+            free.lease = lease;
+            leases.put(match, lease);
+            leasesGranted++;
+            // Keep one spare loading ahead of the next match
+            if (arena.freeSlot() == null && arena.slots.size() < SettingsManager.arenaSlots) {
+                boolean spareLoading = false;
+                for (Instance inst : arena.slots) {
+                    if (inst.lease == null) spareLoading = true;
+                }
+                if (!spareLoading) arena.newSlot();
+            }
+        }
+        lease.players.clear();
+        for (ServerPlayer p : players) lease.players.add(p.getUUID());
+        lease.lastSeenTick = tick;
+        return lease;
+    }
+
+    /** Why the last {@link #acquire} returned null. */
+    public static String lastRefusal() {
+        return lastRefusal;
+    }
+
+    /**
+     * Why a slot can't occupy min..max, or null if it can: it must be inside the build height and
+     * the world border, and clear of every indexed box (any arena's source or slots) in its level.
+     */
+    private static String checkSlot(ServerLevel level, BlockPos min, BlockPos max) {
+        if (level.isOutsideBuildHeight(min.getY()) || level.isOutsideBuildHeight(max.getY())) {
+            return "is outside the build height";
+        }
+        if (!level.getWorldBorder().isWithinBounds(min) || !level.getWorldBorder().isWithinBounds(max)) {
+            return "is outside the world border";
+        }
+        for (int cx = min.getX() >> 4; cx <= max.getX() >> 4; cx++) {
+            for (int cz = min.getZ() >> 4; cz <= max.getZ() >> 4; cz++) {
+                List<Region> regions = index.get(ChunkPos.asLong(cx, cz));
+                if (regions == null) continue;
+                for (Region r : regions) {
+                    if (r.arena.level != level || !r.intersects(min, max)) continue;
+                    return "overlaps " + (r.instance == null ? "the source" : "slot " + r.instance.slot)
+                        + " of arena '" + r.arena.name + "'";
+                }
+            }
+        }
+        return null;
+    }
+
+    /** END_SERVER_TICK: give back leases whose players have all left their slot (or the server). */
+    public static void onEndTick(MinecraftServer server) {
+        long tick = server.getTickCount();
+        if (leases.isEmpty() || tick % LEASE_CHECK_TICKS != 0) return;
+        Iterator<Lease> it = leases.values().iterator();
+        while (it.hasNext()) {
+            Lease lease = it.next();
+            for (UUID id : lease.players) {
+                ServerPlayer p = server.getPlayerList().getPlayer(id);
+                if (p != null && p.level() == lease.instance.arena.slotLevel && lease.instance.contains(p.getX(), p.getY(), p.getZ())) {
+                    lease.lastSeenTick = tick;
+                    break;
+                }
+            }
+            if (tick - lease.lastSeenTick > LEASE_IDLE_TICKS) {
+                lease.instance.lease = null;
+                it.remove();
+                leasesExpired++;
+            }
+        }
+    }
+
+    /** Restore the leased slot; pads are the source pads mapped by {@link Instance#fromSource}. */
+    public static Instance reset(Lease lease) {
+        long start = System.nanoTime();
+        Instance inst = lease.instance;
+        Arena arena = inst.arena;
+        ServerLevel level = arena.slotLevel;
+        inst.resets++;
+        if (arena.templateStale) loadOrCapture(arena);
+
+        int restored = 0;
+        restoring = true;
+        try {
+            if (!inst.pasted || inst.dirty.size() >= arena.template.volume()) {
+                restored = arena.template.paste(level, inst.min);
+                inst.fullPastes++;
+                inst.pasted = true;
+            } else {
+                BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+                LongIterator it = inst.dirty.iterator();
+                while (it.hasNext()) {
+                    if (restore(inst, pos.set(it.nextLong()))) restored++;
+                }
+                ArenaTemplate t = arena.template;
+                for (Int2ObjectMap.Entry<CompoundTag> e : t.blockEntities().int2ObjectEntrySet()) {
+                    int i = e.getIntKey();
+                    BlockPos p = inst.min.offset(i % t.sizeX, i / (t.sizeX * t.sizeZ), (i / t.sizeX) % t.sizeZ);
+                    BlockEntity be = t.createBlockEntity(level, i, p, level.getBlockState(p));
+                    if (be != null) level.setBlockEntity(be);
+                }
+            }
+        } finally {
+            restoring = false;
+        }
+        inst.dirty.clear();
+        inst.lastRestored = restored;
+        inst.restoredTotal += restored;
+        inst.resetTime.recordNanos(System.nanoTime() - start);
+        return inst;
+    }
+
+    private static boolean restore(Instance inst, BlockPos pos) {
+        BlockState want = inst.arena.template.get(inst.index(pos.getX(), pos.getY(), pos.getZ()));
+        if (inst.arena.slotLevel.getBlockState(pos) == want) return false;
+        inst.arena.slotLevel.setBlock(pos, want, RESTORE_FLAGS);
+        return true;
+    }
+
+    /**
+     * Time template pastes against /clone of the same box into slot 0, {@code rounds} each (both
+     * write every block: the slot is cleared to air between rounds). One line per method. Refuses
+     * while slot 0 is leased or still loading.
+     */
+    public static List<String> benchmark(CommandSourceStack src, ServerLevel level, ArenaManager.ArenaConfig config, int rounds) {
+        Arena arena = arenaFor(level, config);
+        Instance inst = arena.slots.isEmpty() ? arena.newSlot() : arena.slots.get(0);
+        if (inst == null) return List.of(arena.name + " has no room for slot 0: " + arena.refusal);
+        if (inst.lease != null) return List.of(arena.name + " slot 0 is leased to " + inst.lease.match + "; try again when it is free");
+        if (!inst.isLoaded()) return List.of(arena.name + " slot 0 is still loading its chunks; try again shortly");
+        if (arena.templateStale) loadOrCapture(arena);
+        ServerLevel slotLevel = arena.slotLevel;
+        LatencyHistogram paste = new LatencyHistogram();
+        LatencyHistogram clone = new LatencyHistogram();
+        String cloneCmd = String.format(Locale.ROOT, "/clone from %s %d %d %d %d %d %d to %s %d %d %d replace",
+            arena.level.dimension().identifier(), arena.sourceMin.getX(), arena.sourceMin.getY(), arena.sourceMin.getZ(),
+            arena.sourceMax.getX(), arena.sourceMax.getY(), arena.sourceMax.getZ(),
+            slotLevel.dimension().identifier(), inst.min.getX(), inst.min.getY(), inst.min.getZ());
+        String clearCmd = String.format(Locale.ROOT, "/execute in %s run fill %d %d %d %d %d %d air", slotLevel.dimension().identifier(),
+            inst.min.getX(), inst.min.getY(), inst.min.getZ(), inst.max.getX(), inst.max.getY(), inst.max.getZ());
+        CommandSourceStack quiet = src.withSuppressedOutput();
+        restoring = true;
+        try {
+            for (int r = 0; r < rounds; r++) {
+                src.getServer().getCommands().performPrefixedCommand(quiet, clearCmd);
+                long t = System.nanoTime();
+                arena.template.paste(slotLevel, inst.min);
+                paste.recordNanos(System.nanoTime() - t);
+
+                src.getServer().getCommands().performPrefixedCommand(quiet, clearCmd);
+                t = System.nanoTime();
+                src.getServer().getCommands().performPrefixedCommand(quiet, cloneCmd);
+                clone.recordNanos(System.nanoTime() - t);
+            }
+            // The slot now matches the source; the next reset can diff from here
+            arena.template.paste(slotLevel, inst.min);
+        } finally {
+            restoring = false;
+        }
+        inst.pasted = true;
+        inst.dirty.clear();
+        return List.of(
+            String.format(Locale.ROOT, "%s %d blocks, palette %d: template paste %s", arena.name, arena.template.volume(), arena.template.paletteSize(), paste.summary()),
+            String.format(Locale.ROOT, "%s %d blocks: /clone %s", arena.name, arena.template.volume(), clone.summary()));
+    }
+
+    private static Arena arenaFor(ServerLevel level, ArenaManager.ArenaConfig config) {
+        BlockPos min = config.getMin();
+        BlockPos max = config.getMax();
+        Arena arena = arenas.get(config.name);
+        if (arena != null && arena.level == level && arena.sourceMin.equals(min) && arena.sourceMax.equals(max)) return arena;
+        if (arena != null) drop(arena);
+        arena = new Arena(config.name, level, slotLevel(level), min, max, (SettingsManager.arenaSlotRegionZ & ~15) + nextRowZ);
+        nextRowZ += ((max.getZ() - min.getZ() + 1 + SLOT_GAP + 15) >> 4) << 4;
+        arenas.put(config.name, arena);
+        indexRegion(new Region(arena, null, level, min, max));
+        return arena;
+    }
+
+    /**
+     * Fresh arena: use the saved template if it still describes this source box, which includes its
+     * content hash: edits made while the arena was not indexed (an earlier session after the save,
+     * this one before the first reset, or outside the game) never mark it stale. Stale template
+     * (source edited): capture the source again and save it. Either way, every slot repastes in full.
+     */
+    private static void loadOrCapture(Arena arena) {
+        Path file = ArenaManager.templatePath(arena.name);
+        ArenaTemplate template = arena.template == null ? ArenaTemplate.load(arena.level, file) : null;
+        BlockPos size = arena.sourceMax.subtract(arena.sourceMin);
+        if (template == null || !template.sourceMin.equals(arena.sourceMin) || template.sizeX != size.getX() + 1
+            || template.sizeY != size.getY() + 1 || template.sizeZ != size.getZ() + 1
+            || template.sourceHash != ArenaTemplate.hashSource(arena.level, arena.sourceMin, arena.sourceMax)) {
+            template = ArenaTemplate.capture(arena.level, arena.sourceMin, arena.sourceMax);
+            arena.captures++;
+            try {
+                template.save(file);
+            } catch (Exception e) {
+                System.err.println("[ArenaInstances] Could not save template for '" + arena.name + "': " + e.getMessage());
+            }
+        }
+        arena.template = template;
+        arena.templateStale = false;
+        for (Instance inst : arena.slots) inst.pasted = false;
+    }
+
+    private static boolean warnedNoSlotLevel;
+
+    /** The slot dimension, or the source's own level (reserved area) if the data pack is missing. */
+    private static ServerLevel slotLevel(ServerLevel sourceLevel) {
+        ServerLevel level = sourceLevel.getServer().getLevel(SLOT_LEVEL);
+        if (level != null) return level;
+        if (!warnedNoSlotLevel) {
+            warnedNoSlotLevel = true;
+            System.err.println("[ArenaInstances] Dimension " + SLOT_LEVEL.identifier() + " missing; arena slots go into the source's level");
+        }
+        return sourceLevel;
+    }
+
+    private static void indexRegion(Region r) {
+        for (int cx = r.min.getX() >> 4; cx <= r.max.getX() >> 4; cx++) {
+            for (int cz = r.min.getZ() >> 4; cz <= r.max.getZ() >> 4; cz++) {
+                index.computeIfAbsent(ChunkPos.asLong(cx, cz), k -> new ArrayList<>(2)).add(r);
+            }
+        }
+    }
+
+    private static void drop(Arena arena) {
+        for (Instance inst : arena.slots) {
+            if (inst.lease != null) leases.remove(inst.lease.match);
+            inst.tickets(false);
+        }
+        Iterator<List<Region>> it = index.values().iterator();
+        while (it.hasNext()) {
+            List<Region> regions = it.next();
+            regions.removeIf(r -> r.arena == arena);
+            if (regions.isEmpty()) it.remove();
+        }
+    }
+
+    /** Arena definitions changed (arenas.json saved or loaded): rebuild everything on next use. */
+    public static void invalidate() {
+        for (Arena arena : arenas.values()) {
+            for (Instance inst : arena.slots) inst.tickets(false);
+        }
+        arenas.clear();
+        leases.clear();
+        index.clear();
+        nextRowZ = 0;
+    }
+
+    public static String statsSummary() {
+        if (arenas.isEmpty()) return "no arena instances yet";
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT, "leases active=%d granted=%d expired=%d slots/arena=%d",
+            leases.size(), leasesGranted, leasesExpired, SettingsManager.arenaSlots));
+        for (Arena arena : arenas.values()) {
+            int leased = 0;
+            for (Instance inst : arena.slots) {
+                if (inst.lease != null) leased++;
+            }
+            sb.append('\n').append(String.format(Locale.ROOT, "%s: %s slots=%d leased=%d busy=%d waits=%d refused=%d captures=%d",
+                arena.name, arena.template == null ? "no template" : String.format(Locale.ROOT, "%dx%dx%d palette=%d packed=%dB",
+                    arena.template.sizeX, arena.template.sizeY, arena.template.sizeZ, arena.template.paletteSize(), arena.template.packedBytes()),
+                arena.slots.size(), leased, arena.busy, arena.waits, arena.refused, arena.captures));
+            if (arena.refusal != null) sb.append('\n').append("  last refused: ").append(arena.refusal);
+            for (Instance inst : arena.slots) {
+                sb.append('\n').append(String.format(Locale.ROOT,
+                    "  #%d %s: resets=%d full=%d dirty=%d restored last=%d avg=%.1f reset: %s",
+                    inst.slot, inst.lease != null ? inst.lease.match : inst.isLoaded() ? "free" : "loading", inst.resets, inst.fullPastes, inst.dirty.size(),
+                    inst.lastRestored, inst.resets == 0 ? 0.0 : (double) inst.restoredTotal / inst.resets, inst.resetTime.summary()));
+            }
+        }
+        return sb.toString();
+    }
+}
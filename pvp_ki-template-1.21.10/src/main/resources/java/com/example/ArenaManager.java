@@ -3,10 +3,20 @@ package com.example;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.Identifier;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
 
 import java.io.Reader;
 import java.io.Writer;
@@ -16,8 +26,11 @@ import java.nio.file.Paths;
 import java.util.*;
 
 public class ArenaManager {
-        // Cache for white wool pad locations per arena (reset on save/load)
-        private static final Map<String, List<BlockPos>> padCache = new HashMap<>();
+    // Arenas with a known pad list, by chunk (ChunkPos.asLong), for onBlockChanged
+    private static final Long2ObjectOpenHashMap<List<ArenaConfig>> padIndex = new Long2ObjectOpenHashMap<>();
+    private static boolean padsChanged; // pad lists to write out at the end of the tick
+    private static final LatencyHistogram padScanTime = new LatencyHistogram();
+    private static long padScans, sectionsScanned, sectionsSkipped, padInvalidations;
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
     private static final Path CONFIG_DIR = Paths.get("config", "pvp_ki");
     private static final Path ARENAS_FILE = sanitizePath(CONFIG_DIR.resolve("arenas.json"));
@@ -34,11 +47,22 @@ public class ArenaManager {
         return absPath;
     }
 
+    /** Saved ArenaTemplate of an arena: config/pvp_ki/arenas/<name>.nbt, name reduced to safe characters. */
+    public static Path templatePath(String name) {
+        String safe = name.replaceAll("[^A-Za-z0-9_-]", "_");
+        return sanitizePath(CONFIG_DIR.resolve("arenas").resolve(safe + ".nbt"));
+    }
+
     public static class ArenaConfig {
         public String name;
         public BlockPos pos1;
         public BlockPos pos2;
         public boolean enabled = true;
+        // White wool pads in the box, sorted; null until scanned or after a change to pad blocks
+        public List<BlockPos> pads;
+        // Dimension the pads were scanned in; block changes elsewhere leave them alone
+        public ResourceKey<Level> padLevel;
+        final LongOpenHashSet padSet = new LongOpenHashSet();
 
         public ArenaConfig() {}
         public ArenaConfig(String name) { this.name = name; }
@@ -68,7 +92,7 @@ public class ArenaManager {
     private static final Map<String, ArenaConfig> arenas = new HashMap<>();
 
     public static void loadArenas() {
-            padCache.clear();
+        ArenaInstances.invalidate();
         try {
             if (!Files.exists(ARENAS_FILE)) return;
             try (Reader reader = Files.newBufferedReader(ARENAS_FILE)) {
@@ -88,9 +112,22 @@ public class ArenaManager {
                         if (p2 != null && p2.get("x") != null && p2.get("y") != null && p2.get("z") != null) {
                             cfg.pos2 = new BlockPos(p2.get("x").intValue(), p2.get("y").intValue(), p2.get("z").intValue());
                         }
+                        if (a.get("pads") instanceof List<?> padList) {
+                            List<BlockPos> pads = new ArrayList<>();
+                            for (Object o : padList) {
+                                if (o instanceof Map<?, ?> p && p.get("x") instanceof Number x && p.get("y") instanceof Number y && p.get("z") instanceof Number z) {
+                                    pads.add(new BlockPos(x.intValue(), y.intValue(), z.intValue()));
+                                }
+                            }
+                            cfg.pads = pads;
+                            // Files from before pads_dimension was written only ever scanned the overworld
+                            Identifier dim = a.get("pads_dimension") instanceof String d ? Identifier.tryParse(d) : null;
+                            cfg.padLevel = dim != null ? ResourceKey.create(Registries.DIMENSION, dim) : Level.OVERWORLD;
+                        }
                         arenas.put(name, cfg);
                     }
                 }
+                rebuildPadIndex();
             }
         } catch (SecurityException se) {
             System.err.println("[ArenaManager] Security error: " + se.getMessage());
@@ -102,7 +139,6 @@ public class ArenaManager {
     }
 
     public static void saveArenas() {
-            padCache.clear();
         try {
             Files.createDirectories(CONFIG_DIR);
             Map<String, Object> out = new HashMap<>();
@@ -117,6 +153,12 @@ public class ArenaManager {
                 if (cfg.pos2 != null) {
                     a.put("pos2", Map.of("x", cfg.pos2.getX(), "y", cfg.pos2.getY(), "z", cfg.pos2.getZ()));
                 }
+                if (cfg.pads != null) {
+                    List<Object> pads = new ArrayList<>();
+                    for (BlockPos p : cfg.pads) pads.add(Map.of("x", p.getX(), "y", p.getY(), "z", p.getZ()));
+                    a.put("pads", pads);
+                    a.put("pads_dimension", cfg.padLevel.identifier().toString());
+                }
                 out.put(name, a);
             }
             try (Writer writer = Files.newBufferedWriter(ARENAS_FILE)) {
@@ -137,7 +179,16 @@ public class ArenaManager {
 
     public static boolean remove(String name) {
         boolean removed = arenas.remove(name) != null;
-        if (removed) saveArenas();
+        if (removed) {
+            rebuildPadIndex();
+            ArenaInstances.invalidate();
+            saveArenas();
+            try {
+                Files.deleteIfExists(templatePath(name));
+            } catch (Exception e) {
+                System.err.println("[ArenaManager] Could not delete template of '" + name + "': " + e.getMessage());
+            }
+        }
         return removed;
     }
 
@@ -155,31 +206,65 @@ public class ArenaManager {
         return list;
     }
 
+    /** First enabled arena whose box (inclusive block corners) contains the point, or null. */
+    public static ArenaConfig arenaContaining(double x, double y, double z) {
+        for (ArenaConfig cfg : arenas.values()) {
+            if (!cfg.enabled || cfg.pos1 == null || cfg.pos2 == null) continue;
+            BlockPos min = cfg.getMin();
+            BlockPos max = cfg.getMax();
+            if (x >= min.getX() && x < max.getX() + 1 && y >= min.getY() && y < max.getY() + 1
+                && z >= min.getZ() && z < max.getZ() + 1) {
+                return cfg;
+            }
+        }
+        return null;
+    }
+
     public static void setPos(String name, BlockPos pos, boolean pos2) {
         ArenaConfig cfg = getOrCreate(name);
         if (pos2) cfg.pos2 = pos; else cfg.pos1 = pos;
+        setPads(cfg, null, null);
         saveArenas();
     }
 
+    /**
+     * White wool pads in the arena box, sorted by x, y, z. Uses the persisted list when there is
+     * one for this level. Otherwise it scans the box: a section whose palette cannot contain white wool (or that
+     * is all air) is skipped whole, so pads can sit at any height. The new list is saved to
+     * arenas.json.
+     */
     public static List<BlockPos> findWhiteWoolPads(ServerLevel level, ArenaConfig cfg) {
-        // Use cache if available
-        if (padCache.containsKey(cfg.name)) {
-            return new ArrayList<>(padCache.get(cfg.name));
+        if (cfg.pads != null && cfg.padLevel == level.dimension()) {
+            return new ArrayList<>(cfg.pads);
         }
         List<BlockPos> pads = new ArrayList<>();
         BlockPos min = cfg.getMin();
         BlockPos max = cfg.getMax();
         if (min == null || max == null) return pads;
-        // Restrict search bounds: only scan Y from minY to minY+10 (assume pads are near arena floor)
-        int minY = min.getY();
-        int maxY = Math.min(minY + 10, max.getY());
-        for (int x = min.getX(); x <= max.getX(); x++) {
-            for (int y = minY; y <= maxY; y++) {
-                for (int z = min.getZ(); z <= max.getZ(); z++) {
-                    BlockPos bp = new BlockPos(x, y, z);
-                    BlockState state = level.getBlockState(bp);
-                    if (state.getBlock() == Blocks.WHITE_WOOL) {
-                        pads.add(bp);
+        long start = System.nanoTime();
+        for (int cx = min.getX() >> 4; cx <= max.getX() >> 4; cx++) {
+            for (int cz = min.getZ() >> 4; cz <= max.getZ() >> 4; cz++) {
+                LevelChunk chunk = level.getChunk(cx, cz);
+                int x0 = Math.max(min.getX(), cx << 4), x1 = Math.min(max.getX(), (cx << 4) + 15);
+                int z0 = Math.max(min.getZ(), cz << 4), z1 = Math.min(max.getZ(), (cz << 4) + 15);
+                for (int sy = min.getY() >> 4; sy <= max.getY() >> 4; sy++) {
+                    int sectionIndex = chunk.getSectionIndexFromSectionY(sy);
+                    if (sectionIndex < 0 || sectionIndex >= chunk.getSectionsCount()) continue;
+                    LevelChunkSection section = chunk.getSection(sectionIndex);
+                    if (section.hasOnlyAir() || !section.maybeHas(state -> state.is(Blocks.WHITE_WOOL))) {
+                        sectionsSkipped++;
+                        continue;
+                    }
+                    sectionsScanned++;
+                    int y0 = Math.max(min.getY(), sy << 4), y1 = Math.min(max.getY(), (sy << 4) + 15);
+                    for (int y = y0; y <= y1; y++) {
+                        for (int z = z0; z <= z1; z++) {
+                            for (int x = x0; x <= x1; x++) {
+                                if (section.getBlockState(x & 15, y & 15, z & 15).is(Blocks.WHITE_WOOL)) {
+                                    pads.add(new BlockPos(x, y, z));
+                                }
+                            }
+                        }
                     }
                 }
             }
@@ -187,7 +272,81 @@ public class ArenaManager {
         pads.sort(Comparator.comparingInt((BlockPos p) -> p.getX())
                 .thenComparingInt(p -> p.getY())
                 .thenComparingInt(p -> p.getZ()));
-        padCache.put(cfg.name, new ArrayList<>(pads));
-        return pads;
+        padScans++;
+        padScanTime.recordNanos(System.nanoTime() - start);
+        setPads(cfg, pads, level.dimension());
+        saveArenas();
+        return new ArrayList<>(pads);
+    }
+
+    private static void setPads(ArenaConfig cfg, List<BlockPos> pads, ResourceKey<Level> padLevel) {
+        cfg.pads = pads;
+        cfg.padLevel = padLevel;
+        cfg.padSet.clear();
+        if (pads != null) {
+            for (BlockPos p : pads) cfg.padSet.add(p.asLong());
+        }
+        rebuildPadIndex();
+    }
+
+    private static void rebuildPadIndex() {
+        padIndex.clear();
+        for (ArenaConfig cfg : arenas.values()) {
+            if (cfg.pads == null) continue;
+            if (cfg.padSet.size() != cfg.pads.size()) {
+                cfg.padSet.clear();
+                for (BlockPos p : cfg.pads) cfg.padSet.add(p.asLong());
+            }
+            BlockPos min = cfg.getMin();
+            BlockPos max = cfg.getMax();
+            if (min == null || max == null) continue;
+            for (int cx = min.getX() >> 4; cx <= max.getX() >> 4; cx++) {
+                for (int cz = min.getZ() >> 4; cz <= max.getZ() >> 4; cz++) {
+                    padIndex.computeIfAbsent(ChunkPos.asLong(cx, cz), k -> new ArrayList<>(1)).add(cfg);
+                }
+            }
+        }
+    }
+
+    /**
+     * LevelMixin: a block changed. Drops an arena's pad list when white wool appears in its box
+     * or a known pad is replaced, in the level the pads were scanned in. Other changes, and any
+     * change in another dimension, keep the list.
+     */
+    public static void onBlockChanged(Level level, BlockPos pos, BlockState state) {
+        if (padIndex.isEmpty()) return;
+        List<ArenaConfig> candidates = padIndex.get(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+        if (candidates == null) return;
+        boolean wool = state.is(Blocks.WHITE_WOOL);
+        for (ArenaConfig cfg : candidates) {
+            if (cfg.pads == null || cfg.padLevel != level.dimension()) continue;
+            BlockPos min = cfg.getMin();
+            BlockPos max = cfg.getMax();
+            if (pos.getX() < min.getX() || pos.getX() > max.getX() || pos.getY() < min.getY() || pos.getY() > max.getY()
+                || pos.getZ() < min.getZ() || pos.getZ() > max.getZ()) continue;
+            if (wool != cfg.padSet.contains(pos.asLong())) {
+                cfg.pads = null;
+                cfg.padSet.clear();
+                padsChanged = true;
+                padInvalidations++;
+            }
+        }
+    }
+
+    /** END_SERVER_TICK: persist pad lists dropped this tick, so a restart does not load stale pads. */
+    public static void onEndTick(MinecraftServer server) {
+        if (!padsChanged) return;
+        padsChanged = false;
+        rebuildPadIndex();
+        saveArenas();
+    }
+
+    public static String padStatsSummary() {
+        int known = 0;
+        for (ArenaConfig cfg : arenas.values()) {
+            if (cfg.pads != null) known++;
+        }
+        return String.format(Locale.ROOT, "pad lists known=%d/%d scans=%d sections scanned=%d skipped=%d invalidations=%d scan: %s",
+            known, arenas.size(), padScans, sectionsScanned, sectionsSkipped, padInvalidations, padScanTime.summary());
     }
 }
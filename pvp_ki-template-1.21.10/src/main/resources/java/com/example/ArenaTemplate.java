@@ -0,0 +1,364 @@
+package com.example;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.HolderGetter;
+import net.minecraft.core.SectionPos;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.network.protocol.game.ClientboundLevelChunkWithLightPacket;
+import net.minecraft.server.level.ServerChunkCache;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.Container;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.EntityBlock;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.levelgen.Heightmap;
+import net.minecraft.world.level.lighting.LevelLightEngine;
+import net.minecraft.world.level.lighting.LightEngine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A snapshot of an arena box: block-state palette, packed palette indices and block entity NBT.
+ *
+ * Indices are stored like the game's own bit storage: {@link #bits} per block (enough for the
+ * palette), as many whole entries per long as fit, x fastest, then z, then y. A 64x32x64 arena with
+ * up to 16 distinct states packs into 64 KiB instead of an object reference per block. Templates are
+ * saved as compressed NBT in config/pvp_ki/arenas/ (next to arenas.json), one file per arena, with a
+ * {@link #hashSource} of the box they were captured from so a later session can tell whether the
+ * source was edited in between.
+ *
+ * {@link #paste} writes straight into the LevelChunkSections of the destination instead of going
+ * through Level.setBlock (or /clone, which does that for every block). Per chunk it then does the
+ * bookkeeping setBlock would have done once per block: heightmaps are re-primed, block entities
+ * replaced, lighting re-checked for the blocks whose light properties changed (queued together
+ * so the light engine works through them in one go), and clients get either the changed blocks or,
+ * for heavily changed chunks, one full chunk packet. No block updates, drops or POI changes happen,
+ * which is what an arena reset wants. Server thread only.
+ */
+public final class ArenaTemplate {
+    private static final int FORMAT = 2;
+    // Above this many changed blocks a chunk is resent whole instead of block by block
+    private static final int FULL_CHUNK_RESEND = 1024;
+    private static final Set<Heightmap.Types> HEIGHTMAPS = EnumSet.of(Heightmap.Types.MOTION_BLOCKING,
+        Heightmap.Types.MOTION_BLOCKING_NO_LEAVES, Heightmap.Types.OCEAN_FLOOR, Heightmap.Types.WORLD_SURFACE);
+
+    public final BlockPos sourceMin;
+    public final int sizeX, sizeY, sizeZ;
+    public final long sourceHash;
+    private final List<BlockState> palette;
+    private final int bits;
+    private final int perLong;
+    private final long[] data;
+    private final Int2ObjectMap<CompoundTag> blockEntities; // block index -> saved block entity
+
+    private ArenaTemplate(BlockPos sourceMin, int sizeX, int sizeY, int sizeZ, long sourceHash, List<BlockState> palette,
+                          long[] data, Int2ObjectMap<CompoundTag> blockEntities) {
+        this.sourceMin = sourceMin;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.sourceHash = sourceHash;
+        this.palette = palette;
+        this.bits = bitsFor(palette.size());
+        this.perLong = 64 / bits;
+        this.data = data;
+        this.blockEntities = blockEntities;
+    }
+
+    private static int bitsFor(int paletteSize) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(paletteSize - 1));
+    }
+
+    /** Copy the box min..max (inclusive) of {@code level}. */
+    public static ArenaTemplate capture(ServerLevel level, BlockPos min, BlockPos max) {
+        int sx = max.getX() - min.getX() + 1;
+        int sy = max.getY() - min.getY() + 1;
+        int sz = max.getZ() - min.getZ() + 1;
+        int volume = sx * sy * sz;
+        List<BlockState> palette = new ArrayList<>();
+        Reference2IntOpenHashMap<BlockState> ids = new Reference2IntOpenHashMap<>();
+        int[] raw = new int[volume];
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        int i = 0;
+        for (int y = 0; y < sy; y++) {
+            for (int z = 0; z < sz; z++) {
+                for (int x = 0; x < sx; x++) {
+                    BlockState state = level.getBlockState(pos.set(min.getX() + x, min.getY() + y, min.getZ() + z));
+                    int id = ids.getOrDefault(state, -1);
+                    if (id < 0) {
+                        id = palette.size();
+                        palette.add(state);
+                        ids.put(state, id);
+                    }
+                    raw[i++] = id;
+                }
+            }
+        }
+
+        Int2ObjectMap<CompoundTag> blockEntities = new Int2ObjectOpenHashMap<>();
+        for (int cx = min.getX() >> 4; cx <= max.getX() >> 4; cx++) {
+            for (int cz = min.getZ() >> 4; cz <= max.getZ() >> 4; cz++) {
+                for (BlockEntity be : level.getChunk(cx, cz).getBlockEntities().values()) {
+                    BlockPos p = be.getBlockPos();
+                    if (p.getX() < min.getX() || p.getX() > max.getX() || p.getY() < min.getY() || p.getY() > max.getY()
+                        || p.getZ() < min.getZ() || p.getZ() > max.getZ()) continue;
+                    int index = ((p.getY() - min.getY()) * sz + (p.getZ() - min.getZ())) * sx + (p.getX() - min.getX());
+                    blockEntities.put(index, be.saveWithFullMetadata(level.registryAccess()));
+                }
+            }
+        }
+
+        int bits = bitsFor(palette.size());
+        int perLong = 64 / bits;
+        long[] data = new long[(volume + perLong - 1) / perLong];
+        for (int b = 0; b < volume; b++) {
+            data[b / perLong] |= (long) raw[b] << ((b % perLong) * bits);
+        }
+        return new ArenaTemplate(min, sx, sy, sz, hashSource(level, min, max), palette, data, blockEntities);
+    }
+
+    /**
+     * Content hash of the box min..max (inclusive): every block state's id in template order, then
+     * each block entity's type and, for containers, their items. Not its full NBT: that holds state
+     * that changes on its own (spawner delay, furnace progress, hopper cooldown), which would make
+     * every session recapture. Other block entity data (sign text, banner patterns) is therefore not
+     * noticed; recapture by hand after editing only that. Ids are only stable for one set of game and
+     * mod versions, so an upgrade reads as a changed source and costs one extra capture. Reads every
+     * block, like {@link #capture}.
+     */
+    public static long hashSource(ServerLevel level, BlockPos min, BlockPos max) {
+        long h = 0xcbf29ce484222325L; // FNV-1a over ints
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        for (int y = min.getY(); y <= max.getY(); y++) {
+            for (int z = min.getZ(); z <= max.getZ(); z++) {
+                for (int x = min.getX(); x <= max.getX(); x++) {
+                    h = (h ^ Block.getId(level.getBlockState(pos.set(x, y, z)))) * 0x100000001b3L;
+                }
+            }
+        }
+        List<BlockPos> entityPositions = new ArrayList<>();
+        for (int cx = min.getX() >> 4; cx <= max.getX() >> 4; cx++) {
+            for (int cz = min.getZ() >> 4; cz <= max.getZ() >> 4; cz++) {
+                for (BlockPos p : level.getChunk(cx, cz).getBlockEntities().keySet()) {
+                    if (p.getX() < min.getX() || p.getX() > max.getX() || p.getY() < min.getY() || p.getY() > max.getY()
+                        || p.getZ() < min.getZ() || p.getZ() > max.getZ()) continue;
+                    entityPositions.add(p);
+                }
+            }
+        }
+        // Chunk maps iterate in no fixed order
+        entityPositions.sort(null);
+        for (BlockPos p : entityPositions) {
+            BlockEntity be = level.getBlockEntity(p);
+            if (be == null) continue;
+            h = (h ^ p.hashCode()) * 0x100000001b3L;
+            h = (h ^ BuiltInRegistries.BLOCK_ENTITY_TYPE.getId(be.getType())) * 0x100000001b3L;
+            if (be instanceof Container container) {
+                for (int slot = 0; slot < container.getContainerSize(); slot++) {
+                    ItemStack stack = container.getItem(slot);
+                    if (stack.isEmpty()) continue;
+                    h = (h ^ slot) * 0x100000001b3L;
+                    h = (h ^ ItemStack.hashItemAndComponents(stack)) * 0x100000001b3L;
+                    h = (h ^ stack.getCount()) * 0x100000001b3L;
+                }
+            }
+        }
+        return h;
+    }
+
+    public int index(int dx, int dy, int dz) {
+        return (dy * sizeZ + dz) * sizeX + dx;
+    }
+
+    public BlockState get(int index) {
+        int id = (int) ((data[index / perLong] >>> ((index % perLong) * bits)) & ((1L << bits) - 1));
+        return palette.get(id);
+    }
+
+    /** Saved block entity at block index, or null. */
+    public CompoundTag blockEntity(int index) {
+        return blockEntities.get(index);
+    }
+
+    public Int2ObjectMap<CompoundTag> blockEntities() {
+        return blockEntities;
+    }
+
+    public int volume() {
+        return sizeX * sizeY * sizeZ;
+    }
+
+    public int paletteSize() {
+        return palette.size();
+    }
+
+    /** In-memory size of the packed indices. */
+    public long packedBytes() {
+        return data.length * 8L;
+    }
+
+    /** The block entity a template position should hold at {@code pos} (saved data or a fresh one), or null. */
+    BlockEntity createBlockEntity(ServerLevel level, int index, BlockPos pos, BlockState state) {
+        if (!state.hasBlockEntity()) return null;
+        CompoundTag tag = blockEntities.get(index);
+        if (tag != null) return BlockEntity.loadStatic(pos, state, tag, level.registryAccess());
+        return state.getBlock() instanceof EntityBlock eb ? eb.newBlockEntity(pos, state) : null;
+    }
+
+    /**
+     * Write the template with its min corner at {@code dest}, directly into chunk sections.
+     * Returns the number of blocks that changed.
+     */
+    public int paste(ServerLevel level, BlockPos dest) {
+        ServerChunkCache chunks = level.getChunkSource();
+        LevelLightEngine light = chunks.getLightEngine();
+        List<BlockPos> relight = new ArrayList<>();
+        LongArrayList changedInChunk = new LongArrayList();
+        int maxX = dest.getX() + sizeX - 1, maxY = dest.getY() + sizeY - 1, maxZ = dest.getZ() + sizeZ - 1;
+        int changed = 0;
+
+        for (int cx = dest.getX() >> 4; cx <= maxX >> 4; cx++) {
+            for (int cz = dest.getZ() >> 4; cz <= maxZ >> 4; cz++) {
+                LevelChunk chunk = level.getChunk(cx, cz);
+                int x0 = Math.max(dest.getX(), cx << 4), x1 = Math.min(maxX, (cx << 4) + 15);
+                int z0 = Math.max(dest.getZ(), cz << 4), z1 = Math.min(maxZ, (cz << 4) + 15);
+
+                // Old block entities in the box go first; the template's are added after the blocks
+                List<BlockPos> stale = new ArrayList<>();
+                for (BlockPos p : chunk.getBlockEntities().keySet()) {
+                    if (p.getX() >= x0 && p.getX() <= x1 && p.getZ() >= z0 && p.getZ() <= z1
+                        && p.getY() >= dest.getY() && p.getY() <= maxY) stale.add(p);
+                }
+                for (BlockPos p : stale) chunk.removeBlockEntity(p);
+
+                changedInChunk.clear();
+                for (int sy = dest.getY() >> 4; sy <= maxY >> 4; sy++) {
+                    int sectionIndex = chunk.getSectionIndexFromSectionY(sy);
+                    if (sectionIndex < 0 || sectionIndex >= chunk.getSectionsCount()) continue;
+                    LevelChunkSection section = chunk.getSection(sectionIndex);
+                    boolean wasEmpty = section.hasOnlyAir();
+                    int y0 = Math.max(dest.getY(), sy << 4), y1 = Math.min(maxY, (sy << 4) + 15);
+                    for (int y = y0; y <= y1; y++) {
+                        for (int z = z0; z <= z1; z++) {
+                            int row = index(0, y - dest.getY(), z - dest.getZ()) - dest.getX();
+                            for (int x = x0; x <= x1; x++) {
+                                BlockState want = get(row + x);
+                                BlockState old = section.setBlockState(x & 15, y & 15, z & 15, want, false);
+                                if (old == want) continue;
+                                changedInChunk.add(BlockPos.asLong(x, y, z));
+                                if (LightEngine.hasDifferentLightProperties(old, want)) relight.add(new BlockPos(x, y, z));
+                            }
+                        }
+                    }
+                    if (wasEmpty != section.hasOnlyAir()) light.updateSectionStatus(SectionPos.of(cx, sy, cz), section.hasOnlyAir());
+                }
+
+                // Template block entities (also where the block itself did not change)
+                for (int y = dest.getY(); y <= maxY; y++) {
+                    for (int z = z0; z <= z1; z++) {
+                        for (int x = x0; x <= x1; x++) {
+                            int index = index(x - dest.getX(), y - dest.getY(), z - dest.getZ());
+                            BlockState state = get(index);
+                            if (!state.hasBlockEntity()) continue;
+                            BlockPos p = new BlockPos(x, y, z);
+                            BlockEntity be = createBlockEntity(level, index, p, state);
+                            if (be != null) chunk.setBlockEntity(be);
+                            changedInChunk.add(p.asLong()); // resend so clients see the block entity data
+                        }
+                    }
+                }
+
+                if (changedInChunk.isEmpty()) continue;
+                changed += changedInChunk.size();
+                Heightmap.primeHeightmaps(chunk, HEIGHTMAPS);
+                chunk.markUnsaved();
+                if (changedInChunk.size() > FULL_CHUNK_RESEND) {
+                    ClientboundLevelChunkWithLightPacket packet = new ClientboundLevelChunkWithLightPacket(chunk, light, null, null);
+                    for (ServerPlayer player : chunks.chunkMap.getPlayers(chunk.getPos(), false)) {
+                        player.connection.send(packet);
+                    }
+                } else {
+                    BlockPos.MutableBlockPos p = new BlockPos.MutableBlockPos();
+                    for (int k = 0; k < changedInChunk.size(); k++) chunks.blockChanged(p.set(changedInChunk.getLong(k)));
+                }
+            }
+        }
+        for (BlockPos p : relight) light.checkBlock(p);
+        return changed;
+    }
+
+    public void save(Path file) throws IOException {
+        CompoundTag root = new CompoundTag();
+        root.putInt("format", FORMAT);
+        root.putInt("minX", sourceMin.getX());
+        root.putInt("minY", sourceMin.getY());
+        root.putInt("minZ", sourceMin.getZ());
+        root.putInt("sizeX", sizeX);
+        root.putInt("sizeY", sizeY);
+        root.putInt("sizeZ", sizeZ);
+        root.putLong("sourceHash", sourceHash);
+        ListTag paletteTag = new ListTag();
+        for (BlockState state : palette) paletteTag.add(NbtUtils.writeBlockState(state));
+        root.put("palette", paletteTag);
+        root.putLongArray("data", data);
+        ListTag entities = new ListTag();
+        for (Int2ObjectMap.Entry<CompoundTag> e : blockEntities.int2ObjectEntrySet()) {
+            CompoundTag entry = new CompoundTag();
+            entry.putInt("index", e.getIntKey());
+            entry.put("nbt", e.getValue());
+            entities.add(entry);
+        }
+        root.put("blockEntities", entities);
+        Files.createDirectories(file.getParent());
+        NbtIo.writeCompressed(root, file);
+    }
+
+    /** Null if the file is missing, unreadable or from another format version. */
+    public static ArenaTemplate load(ServerLevel level, Path file) {
+        if (!Files.exists(file)) return null;
+        try {
+            CompoundTag root = NbtIo.readCompressed(file, NbtAccounter.unlimitedHeap());
+            if (root.getIntOr("format", 0) != FORMAT) return null;
+            HolderGetter<Block> blocks = level.registryAccess().lookupOrThrow(Registries.BLOCK);
+            List<BlockState> palette = new ArrayList<>();
+            ListTag paletteTag = root.getListOrEmpty("palette");
+            for (int i = 0; i < paletteTag.size(); i++) palette.add(NbtUtils.readBlockState(blocks, paletteTag.getCompoundOrEmpty(i)));
+            Int2ObjectMap<CompoundTag> blockEntities = new Int2ObjectOpenHashMap<>();
+            ListTag entities = root.getListOrEmpty("blockEntities");
+            for (int i = 0; i < entities.size(); i++) {
+                CompoundTag entry = entities.getCompoundOrEmpty(i);
+                blockEntities.put(entry.getIntOr("index", 0), entry.getCompoundOrEmpty("nbt"));
+            }
+            BlockPos min = new BlockPos(root.getIntOr("minX", 0), root.getIntOr("minY", 0), root.getIntOr("minZ", 0));
+            int sx = root.getIntOr("sizeX", 0), sy = root.getIntOr("sizeY", 0), sz = root.getIntOr("sizeZ", 0);
+            long[] data = root.getLongArray("data").orElse(new long[0]);
+            int perLong = palette.isEmpty() ? 1 : 64 / bitsFor(palette.size());
+            if (palette.isEmpty() || data.length != (sx * sy * sz + perLong - 1) / perLong) return null;
+            return new ArenaTemplate(min, sx, sy, sz, root.getLongOr("sourceHash", 0L), palette, data, blockEntities);
+        } catch (Exception e) {
+            System.err.println("[ArenaTemplate] Could not read " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
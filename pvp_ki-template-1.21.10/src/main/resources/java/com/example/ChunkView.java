@@ -0,0 +1,133 @@
+package com.example;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.level.material.FluidState;
+
+/**
+ * Read-only block access over a snapshot of chunk sections, for worker threads.
+ *
+ * Level.getBlockState hops to the server thread for chunk lookups when called from another thread,
+ * and live chunks change while the next tick runs. The server thread therefore copies the block
+ * palettes of the sections observers need ({@link Chunks#add}); workers read only those copies,
+ * so they can run alongside later ticks. Sections that were not copied, all-air sections and
+ * unloaded chunks read as air; fluids come from the block state. BlockGetter's default clip()
+ * works on the view, so ClipContext ray casts run unchanged.
+ *
+ * One view per worker task: it caches the last chunk it hit.
+ */
+public final class ChunkView implements BlockGetter {
+    private static final BlockState AIR = Blocks.AIR.defaultBlockState();
+
+    /** Copied sections of one level, keyed by ChunkPos.asLong; filled on the server thread only. */
+    public static final class Chunks {
+        final int minY;
+        final int height;
+        final int minSection;
+        final Long2ObjectOpenHashMap<PalettedContainer<BlockState>[]> byPos = new Long2ObjectOpenHashMap<>();
+        // Per chunk: which sections have been looked at (copied, or found empty)
+        private final Long2ObjectOpenHashMap<boolean[]> visited = new Long2ObjectOpenHashMap<>();
+        private final ServerLevel level;
+        private int copiedSections;
+
+        public Chunks(ServerLevel level) {
+            this.level = level;
+            this.minY = level.getMinY();
+            this.height = level.getHeight();
+            this.minSection = level.getMinSectionY();
+        }
+
+        /**
+         * Server thread: copy the sections between block heights minBlockY and maxBlockY of every
+         * loaded chunk within {@code radius} chunks of (cx, cz). Sections already copied are skipped.
+         */
+        @SuppressWarnings("unchecked")
+        public void add(int cx, int cz, int radius, int minBlockY, int maxBlockY) {
+            int sections = height >> 4;
+            int s0 = Math.max(0, (minBlockY >> 4) - minSection);
+            int s1 = Math.min(sections - 1, (maxBlockY >> 4) - minSection);
+            for (int x = cx - radius; x <= cx + radius; x++) {
+                for (int z = cz - radius; z <= cz + radius; z++) {
+                    LevelChunk chunk = level.getChunkSource().getChunkNow(x, z);
+                    if (chunk == null) continue;
+                    long key = ChunkPos.asLong(x, z);
+                    PalettedContainer<BlockState>[] states = byPos.get(key);
+                    boolean[] seen = visited.get(key);
+                    if (states == null) {
+                        states = new PalettedContainer[sections];
+                        seen = new boolean[sections];
+                        byPos.put(key, states);
+                        visited.put(key, seen);
+                    }
+                    for (int s = s0; s <= s1; s++) {
+                        if (seen[s]) continue;
+                        seen[s] = true;
+                        LevelChunkSection section = chunk.getSection(s);
+                        if (!section.hasOnlyAir()) {
+                            states[s] = section.getStates().copy();
+                            copiedSections++;
+                        }
+                    }
+                }
+            }
+        }
+
+        public int chunkCount() {
+            return byPos.size();
+        }
+
+        public int copiedSections() {
+            return copiedSections;
+        }
+    }
+
+    private final Chunks chunks;
+    private long lastKey = Long.MIN_VALUE;
+    private PalettedContainer<BlockState>[] lastChunk;
+
+    public ChunkView(Chunks chunks) {
+        this.chunks = chunks;
+    }
+
+    @Override
+    public BlockState getBlockState(BlockPos pos) {
+        if (isOutsideBuildHeight(pos)) return AIR;
+        long key = ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+        if (key != lastKey) {
+            lastKey = key;
+            lastChunk = chunks.byPos.get(key);
+        }
+        if (lastChunk == null) return AIR;
+        PalettedContainer<BlockState> section = lastChunk[(pos.getY() >> 4) - chunks.minSection];
+        return section == null ? AIR : section.get(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15);
+    }
+
+    @Override
+    public FluidState getFluidState(BlockPos pos) {
+        return getBlockState(pos).getFluidState();
+    }
+
+    @Override
+    public BlockEntity getBlockEntity(BlockPos pos) {
+        return null; // not needed for shapes, and block entities are not part of the snapshot
+    }
+
+    @Override
+    public int getHeight() {
+        return chunks.height;
+    }
+
+    @Override
+    public int getMinY() {
+        return chunks.minY;
+    }
+}
@@ -0,0 +1,252 @@
+package com.example;
+
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+
+/**
+ * Typed server-side combat event stream.
+ * Producers on the server thread write into a preallocated {@link EventRingBuffer}
+ * (no strings built, no I/O); a writer thread drains the ring and ships one EVENTS
+ * batch per tick plus RESET messages to the command bridge.
+ * Producer methods must be called from the server thread (single writer).
+ *
+ * HIT/DEATH/TICK_END are dropped when the ring is nearly full; the last {@link #RESET_RESERVE}
+ * slots are kept for RESET so an episode boundary is not lost to a burst of hits. If even those
+ * are taken, the RESET bypasses the ring and goes straight to the bridge queue.
+ */
+public class CombatEvents {
+    public enum Kind { HIT, DEATH, RESET, TICK_END }
+
+    /** Reusable ring slot; fields are overwritten on every claim. */
+    public static class CombatEvent {
+        public Kind kind;
+        public long tick;
+        public int attackerId;
+        public String attackerName;
+        // Non-player attacker: its display name, turned into attackerName on the writer thread
+        public Component attackerDisplayName;
+        public double ax, ay, az;
+        public int victimId;
+        public String victimName;
+        public double vx, vy, vz;
+        public String relation;
+        public float damage;
+        // RESET only: comma-separated participants
+        public String data;
+
+        void clear() {
+            attackerId = -1;
+            attackerName = "Environment";
+            attackerDisplayName = null;
+            ax = ay = az = 0;
+            victimId = -1;
+            victimName = null;
+            vx = vy = vz = 0;
+            relation = null;
+            damage = 0;
+            data = null;
+        }
+    }
+
+    private static final int MAX_DRAIN_BATCH = 256;
+    // Ring slots only RESET may claim
+    static final int RESET_RESERVE = 16;
+    // How long stop() waits for the writer to deliver what was published before shutdown
+    private static final long STOP_JOIN_MS = 1000;
+
+    private static EventRingBuffer<CombatEvent> ring = newRing();
+    private static Writer writer;
+    private static Thread writerThread;
+    // Producer-side: whether anything was published since the last TICK_END marker
+    private static boolean tickDirty = false;
+    // Server thread: RESETs that skipped the full ring, and those the bridge queue refused as well
+    private static long resetBypasses = 0;
+    private static long resetsLost = 0;
+
+    private static EventRingBuffer<CombatEvent> newRing() {
+        return new EventRingBuffer<>(SettingsManager.eventRingCapacity, CombatEvent::new,
+            EventRingBuffer.WaitStrategy.parse(SettingsManager.eventWaitStrategy, EventRingBuffer.WaitStrategy.SLEEPING));
+    }
+
+    /** Slots kept free for RESET; at most a quarter of the ring. */
+    private static int eventReserve() {
+        return Math.min(RESET_RESERVE, ring.capacity() / 4);
+    }
+
+    public static void recordHit(long tick, ServerPlayer attacker, ServerPlayer victim, String relation, float damage) {
+        CombatEvent e = ring.claim(eventReserve());
+        if (e == null) return;
+        e.clear();
+        e.kind = Kind.HIT;
+        e.tick = tick;
+        setAttacker(e, attacker);
+        setVictim(e, victim);
+        e.relation = relation;
+        e.damage = damage;
+        ring.publish();
+        tickDirty = true;
+    }
+
+    public static void recordDeath(long tick, ServerPlayer victim, Entity killer, String relation) {
+        CombatEvent e = ring.claim(eventReserve());
+        if (e == null) return;
+        e.clear();
+        e.kind = Kind.DEATH;
+        e.tick = tick;
+        if (killer != null) setAttacker(e, killer);
+        setVictim(e, victim);
+        e.relation = relation;
+        ring.publish();
+        tickDirty = true;
+    }
+
+    /**
+     * Record a reset for the given participants. Any events already batched for the
+     * current tick are sent ahead of the RESET so they stay in the old episode.
+     * Never dropped on a full ring: it then goes directly to the bridge queue (ahead of
+     * events still in the ring, which is the lesser evil than a missing boundary).
+     */
+    public static void recordReset(long tick, String participants) {
+        CombatEvent e = ring.claim();
+        if (e == null) {
+            resetBypasses++;
+            if (!ServerIPCClient.send(new WireCodec.ResetMessage(tick, participants))) resetsLost++;
+            return;
+        }
+        e.clear();
+        e.kind = Kind.RESET;
+        e.tick = tick;
+        e.data = participants;
+        ring.publish();
+    }
+
+    /**
+     * Mark the end of a tick so the writer can close that tick's batch.
+     * Called at END_SERVER_TICK; does nothing on quiet ticks.
+     */
+    public static void endTick(long tick) {
+        if (!tickDirty) return;
+        CombatEvent e = ring.claim(eventReserve());
+        if (e == null) return; // writer will close the batch at the next marker
+        e.clear();
+        e.kind = Kind.TICK_END;
+        e.tick = tick;
+        ring.publish();
+        tickDirty = false;
+    }
+
+    public static synchronized void start() {
+        if (writer != null) return;
+        // Pick up wait strategy / capacity changes from settings; the ring is idle before start
+        ring = newRing();
+        writer = new Writer(ring);
+        writerThread = new Thread(writer, "PVP_KI-EventWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Stop the writer and wait (bounded) for it to hand the last events to the bridge client.
+     * Call before ServerIPCClient.stop(), which refuses anything sent after it.
+     */
+    public static void stop() {
+        Thread t;
+        synchronized (CombatEvents.class) {
+            if (writer == null) return;
+            writer.running = false;
+            ring.wakeConsumer();
+            writer = null;
+            t = writerThread;
+            writerThread = null;
+        }
+        try {
+            t.join(STOP_JOIN_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (t.isAlive()) {
+            System.err.println("[CombatEvents] Writer still draining after " + STOP_JOIN_MS + " ms; the rest of its events are lost");
+        }
+    }
+
+    /** Drains one ring and turns its slots into bridge messages; owns the batch being built. */
+    private static final class Writer implements Runnable {
+        private final EventRingBuffer<CombatEvent> ring;
+        private volatile boolean running = true;
+        private WireCodec.EventsMessage batch = new WireCodec.EventsMessage();
+
+        Writer(EventRingBuffer<CombatEvent> ring) {
+            this.ring = ring;
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (running) {
+                int n = ring.drain(this::handle, MAX_DRAIN_BATCH);
+                if (n > 0) {
+                    idle = 0;
+                } else {
+                    ring.await(idle++);
+                }
+            }
+            // Deliver whatever was published before shutdown
+            ring.drain(this::handle, Integer.MAX_VALUE);
+            flushBatch();
+        }
+
+        private void handle(CombatEvent e) {
+            switch (e.kind) {
+                case HIT, DEATH -> batch.add(e.kind == Kind.HIT ? WireCodec.KIND_HIT : WireCodec.KIND_DEATH, e.tick,
+                    e.attackerId, e.attackerDisplayName != null ? e.attackerDisplayName.getString() : e.attackerName, e.ax, e.ay, e.az,
+                    e.victimId, e.victimName, e.vx, e.vy, e.vz, e.relation, e.damage);
+                case TICK_END -> {
+                    batch.tick = e.tick;
+                    flushBatch();
+                }
+                case RESET -> {
+                    flushBatch();
+                    ServerIPCClient.send(new WireCodec.ResetMessage(e.tick, e.data));
+                }
+            }
+        }
+
+        private void flushBatch() {
+            if (batch.isEmpty()) return;
+            // The message is handed to the sender queue, so start a fresh one
+            ServerIPCClient.send(batch);
+            batch = new WireCodec.EventsMessage();
+        }
+    }
+
+    private static void setAttacker(CombatEvent e, Entity attacker) {
+        e.attackerId = attacker.getId();
+        // No string built here: a player's cached name, or a mob's display name component ("Zombie",
+        // or its custom name) that the writer resolves
+        if (attacker instanceof ServerPlayer) {
+            e.attackerName = attacker.getScoreboardName();
+        } else {
+            e.attackerDisplayName = attacker.getName();
+        }
+        e.ax = attacker.getX();
+        e.ay = attacker.getY();
+        e.az = attacker.getZ();
+    }
+
+    private static void setVictim(CombatEvent e, ServerPlayer victim) {
+        e.victimId = victim.getId();
+        e.victimName = victim.getScoreboardName();
+        e.vx = victim.getX();
+        e.vy = victim.getY();
+        e.vz = victim.getZ();
+    }
+
+    public static String statsSummary() {
+        EventRingBuffer<CombatEvent> r = ring;
+        return String.format(java.util.Locale.ROOT,
+            "ring=%d/%d published=%d dropped=%d reset_reserve=%d reset_bypass=%d reset_lost=%d wait=%s",
+            r.size(), r.capacity(), r.getPublishedCount(), r.getDroppedCount(), eventReserve(), resetBypasses, resetsLost,
+            r.getWaitStrategy());
+    }
+}
@@ -0,0 +1,163 @@
+package com.example;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Preallocated single-writer / single-reader ring buffer.
+ * The producer (server tick thread) claims a slot, fills it in place and publishes it;
+ * it never blocks and never allocates. When the ring is full the event is dropped and counted.
+ * The consumer thread drains published slots in batches using the configured wait strategy.
+ */
+public class EventRingBuffer<T> {
+    public enum WaitStrategy {
+        /** Spin on the CPU; lowest latency, burns a core */
+        BUSY_SPIN,
+        /** Spin briefly, then yield the thread */
+        YIELDING,
+        /** Park for a short fixed interval between polls */
+        SLEEPING,
+        /** Park until the producer signals a publish */
+        BLOCKING;
+
+        public static WaitStrategy parse(String name, WaitStrategy fallback) {
+            if (name == null) return fallback;
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return fallback;
+            }
+        }
+    }
+
+    private static final int SPIN_TRIES = 100;
+    private static final long SLEEP_NANOS = 100_000L;
+
+    private final Object[] slots;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+
+    // Next sequence the producer will write (published value is visible to the consumer)
+    private final AtomicLong tail = new AtomicLong();
+    // Next sequence the consumer will read
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    // Producer-local copy of head to avoid reading the shared counter on every claim
+    private long cachedHead = 0;
+    private long claimed = -1;
+
+    private volatile Thread consumerThread;
+    private volatile boolean consumerParked = false;
+
+    public EventRingBuffer(int capacity, Supplier<T> factory, WaitStrategy waitStrategy) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Object[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = factory.get();
+        }
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Claim the next slot for writing. Returns null (and counts a drop) if the ring is full.
+     * Must be followed by {@link #publish()} before the next claim.
+     */
+    public T claim() {
+        return claim(0);
+    }
+
+    /**
+     * Claim a slot only if at least {@code reserve} more slots stay free after it, so that
+     * claims with a smaller reserve (control messages) still find room when this one is refused.
+     */
+    @SuppressWarnings("unchecked")
+    public T claim(int reserve) {
+        long seq = tail.get();
+        long limit = slots.length - reserve;
+        if (seq - cachedHead >= limit) {
+            cachedHead = head.get();
+            if (seq - cachedHead >= limit) {
+                dropped.incrementAndGet();
+                return null;
+            }
+        }
+        claimed = seq;
+        return (T) slots[(int) (seq & mask)];
+    }
+
+    /** Make the claimed slot visible to the consumer. */
+    public void publish() {
+        if (claimed < 0) return;
+        tail.lazySet(claimed + 1);
+        claimed = -1;
+        if (waitStrategy == WaitStrategy.BLOCKING && consumerParked) {
+            Thread t = consumerThread;
+            if (t != null) LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * Hand every published slot (up to maxBatch) to the handler in order.
+     * Slots must not be retained by the handler; they are reused once this returns.
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<T> handler, int maxBatch) {
+        long start = head.get();
+        long available = Math.min(tail.get() - start, maxBatch);
+        for (long i = 0; i < available; i++) {
+            handler.accept((T) slots[(int) ((start + i) & mask)]);
+        }
+        if (available > 0) head.lazySet(start + available);
+        return (int) available;
+    }
+
+    /** Wait for new events according to the wait strategy. Called by the consumer when drain() returned 0. */
+    public void await(int idleRounds) {
+        switch (waitStrategy) {
+            case BUSY_SPIN -> Thread.onSpinWait();
+            case YIELDING -> {
+                if (idleRounds < SPIN_TRIES) Thread.onSpinWait(); else Thread.yield();
+            }
+            case SLEEPING -> LockSupport.parkNanos(SLEEP_NANOS);
+            case BLOCKING -> {
+                consumerThread = Thread.currentThread();
+                consumerParked = true;
+                // Re-check after advertising so a publish between drain() and here is not missed
+                if (tail.get() == head.get()) {
+                    LockSupport.parkNanos(50_000_000L);
+                }
+                consumerParked = false;
+            }
+        }
+    }
+
+    /** Wake a consumer blocked in {@link #await(int)}, e.g. on shutdown. */
+    public void wakeConsumer() {
+        Thread t = consumerThread;
+        if (t != null) LockSupport.unpark(t);
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getPublishedCount() {
+        return tail.get();
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example;
+
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+/**
+ * Optional encoding of frame bodies on the socket path (the shared-memory ring ships raw pixels).
+ *
+ * Modes, selected with PVP_FRAME_ENCODING or {"frame_encoding": ...} on the agent socket:
+ *   raw            pixels as read back (default)
+ *   deflate        zlib stream at BEST_SPEED
+ *   delta+deflate  XOR against the last keyframe, then deflate; every keyframe_interval-th frame
+ *                  (default 30, or whenever the size changes or Python sends {"keyframe": true})
+ *                  is sent as a plain deflated keyframe instead
+ *
+ * XOR against the keyframe rather than the previous frame keeps frames independent of each
+ * other: the decoder only needs the latest keyframe, and a dropped delta frame costs nothing.
+ * The per-frame result is reported as WireCodec.FRAME_FLAG_DELTA / FRAME_FLAG_DEFLATE; a frame
+ * whose compressed form is not smaller goes out uncompressed. Buffers and the Deflater are
+ * reused, so encoding allocates nothing once sized. Used by the client's FrameSender thread only,
+ * apart from the volatile configuration.
+ */
+public final class FrameEncoder {
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 30;
+
+    public enum Mode {
+        RAW("raw"),
+        DEFLATE("deflate"),
+        DELTA_DEFLATE("delta+deflate");
+
+        public final String wireName;
+
+        Mode(String wireName) {
+            this.wireName = wireName;
+        }
+
+        public static Mode fromWireName(String name) {
+            for (Mode m : values()) {
+                if (m.wireName.equalsIgnoreCase(name)) return m;
+            }
+            return RAW;
+        }
+    }
+
+    private volatile Mode mode = defaultMode();
+    private volatile int keyframeInterval = DEFAULT_KEYFRAME_INTERVAL;
+    private volatile boolean forceKeyframe = true;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] keyframe = new byte[0];
+    private int keyframeLength = -1;
+    private int sinceKeyframe;
+    private byte[] delta = new byte[0];
+    private byte[] compressed = new byte[0];
+    private byte[] output;
+    private int outputLength;
+
+    // Stats (sender thread)
+    private long frames;
+    private long keyframes;
+    private long rawBytes;
+    private long encodedBytes;
+    private long encodeNanos;
+
+    public static Mode defaultMode() {
+        String env = System.getenv("PVP_FRAME_ENCODING");
+        return env != null ? Mode.fromWireName(env.trim()) : Mode.RAW;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void configure(Mode mode, int keyframeInterval) {
+        this.mode = mode;
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+        this.forceKeyframe = true;
+    }
+
+    /** Next delta+deflate frame is sent as a keyframe (new connection, consumer restarted). */
+    public void requestKeyframe() {
+        forceKeyframe = true;
+    }
+
+    /**
+     * Encode frame[0, length). Returns the FRAME flags describing the result; the bytes to send
+     * are {@link #output()}[0, {@link #outputLength()}) and stay valid until the next call.
+     */
+    public int encode(byte[] frame, int length) {
+        long start = System.nanoTime();
+        Mode m = mode;
+        int flags = 0;
+        byte[] src = frame;
+        if (m == Mode.DELTA_DEFLATE) {
+            if (forceKeyframe || keyframeLength != length || sinceKeyframe >= keyframeInterval - 1) {
+                if (keyframe.length < length) keyframe = new byte[length];
+                System.arraycopy(frame, 0, keyframe, 0, length);
+                keyframeLength = length;
+                sinceKeyframe = 0;
+                forceKeyframe = false;
+                keyframes++;
+            } else {
+                if (delta.length < length) delta = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    delta[i] = (byte) (frame[i] ^ keyframe[i]);
+                }
+                src = delta;
+                flags |= WireCodec.FRAME_FLAG_DELTA;
+                sinceKeyframe++;
+            }
+        }
+        output = src;
+        outputLength = length;
+        if (m != Mode.RAW) {
+            int bound = length + (length >> 12) + (length >> 14) + (length >> 25) + 13; // zlib compressBound
+            if (compressed.length < bound) compressed = new byte[bound];
+            deflater.reset();
+            deflater.setInput(src, 0, length);
+            deflater.finish();
+            int n = deflater.deflate(compressed, 0, compressed.length);
+            if (deflater.finished() && n < length) {
+                output = compressed;
+                outputLength = n;
+                flags |= WireCodec.FRAME_FLAG_DEFLATE;
+            }
+        }
+        frames++;
+        rawBytes += length;
+        encodedBytes += outputLength;
+        encodeNanos += System.nanoTime() - start;
+        return flags;
+    }
+
+    public byte[] output() {
+        return output;
+    }
+
+    public int outputLength() {
+        return outputLength;
+    }
+
+    public String statsSummary() {
+        return String.format(Locale.ROOT, "encoding=%s frames=%d keyframes=%d bytes_per_frame=%.0f ratio=%.3f encode_us=%.1f",
+            mode.wireName, frames, keyframes, frames == 0 ? 0.0 : (double) encodedBytes / frames,
+            rawBytes == 0 ? 1.0 : (double) encodedBytes / rawBytes, frames == 0 ? 0.0 : encodeNanos / 1000.0 / frames);
+    }
+}
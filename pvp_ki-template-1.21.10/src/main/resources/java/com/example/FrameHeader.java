@@ -0,0 +1,172 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Header fields of one captured frame, reused from frame to frame.
+ *
+ * This is the part of the client's FrameState that needs no game classes: the fields, copying and
+ * merging them between reused slots, and writing them out. FrameState adds the two methods that
+ * read client state (capture and collect). The steady state (bin1 header or shared-memory ring)
+ * allocates nothing per frame; only the JSON fallback builds a map, via {@link #toJsonMap()}.
+ */
+public class FrameHeader {
+    // Capture slot from CaptureScheduler (frame id 0 = unscheduled test frame) and its game tick
+    public long frameId;
+    public long tick;
+    // System.nanoTime at capture; actions echo the frame id and LatencyTracker times them against this
+    public long captureNanos;
+
+    // Player snapshot, taken when the frame is rendered
+    public boolean hasPlayer;
+    public double x;
+    public double y;
+    public double z;
+    public float health;
+    public int hunger;
+    public float yaw;
+    public float pitch;
+    public int width;
+    public int height;
+    public int channels;
+    public boolean topDown;
+    public boolean testFrame;
+    public int encodingFlags; // WireCodec.FRAME_FLAG_DELTA / DEFLATE, set by the socket path
+
+    // Filled when the frame is delivered
+    public String playerName;
+    public int agentId;
+    public int bodyLength;
+    public String cmdType;
+    public String cmdData;
+    public final List<String> events = new ArrayList<>();
+    public String[] teamNames = new String[16];
+    public byte[] teamRelations = new byte[16];
+    public int teamCount;
+
+    /** Copy the render-time snapshot (frame id, player, format) of another header. */
+    public void copyCaptureFrom(FrameHeader other) {
+        frameId = other.frameId;
+        tick = other.tick;
+        captureNanos = other.captureNanos;
+        hasPlayer = other.hasPlayer;
+        x = other.x;
+        y = other.y;
+        z = other.z;
+        health = other.health;
+        hunger = other.hunger;
+        yaw = other.yaw;
+        pitch = other.pitch;
+        width = other.width;
+        height = other.height;
+        channels = other.channels;
+        topDown = other.topDown;
+        testFrame = other.testFrame;
+        encodingFlags = 0;
+    }
+
+    /**
+     * Take over what an older, never-sent frame collected: its events go first (they happened
+     * earlier) and its command is kept if this frame has none, else handed to
+     * {@link #displacedCommand}.
+     */
+    public void mergeUnsent(FrameHeader older) {
+        int n = older.events.size();
+        if (n > 0) {
+            int own = events.size();
+            for (int i = 0; i < n; i++) events.add(null);
+            for (int i = own - 1; i >= 0; i--) events.set(i + n, events.get(i));
+            for (int i = 0; i < n; i++) events.set(i, older.events.get(i));
+        }
+        if (older.cmdType != null) {
+            if (cmdType == null) {
+                cmdType = older.cmdType;
+                cmdData = older.cmdData;
+            } else {
+                displacedCommand(older.cmdType, older.cmdData);
+            }
+        }
+    }
+
+    /** An unsent frame's command that this frame could not take over (it has its own). Dropped here. */
+    protected void displacedCommand(String type, String data) {
+    }
+
+    /** Set the team/enemy relation of {@code name}; the arrays grow once, then are reused. */
+    public void addTeam(String name, byte relation) {
+        for (int i = 0; i < teamCount; i++) {
+            if (teamNames[i].equals(name)) {
+                teamRelations[i] = relation;
+                return;
+            }
+        }
+        if (teamCount == teamNames.length) {
+            teamNames = Arrays.copyOf(teamNames, teamCount * 2);
+            teamRelations = Arrays.copyOf(teamRelations, teamCount * 2);
+        }
+        teamNames[teamCount] = name;
+        teamRelations[teamCount] = relation;
+        teamCount++;
+    }
+
+    /** bin1 FRAME header for this frame (see WireCodec.writeFrameHeader). */
+    public void writeBinaryHeader(WireCodec.BinaryWriter w) {
+        WireCodec.writeFrameHeader(w, tick, frameId, captureNanos, agentId, width, height, channels, flags(), playerName,
+            x, y, z, health, hunger, yaw, pitch, bodyLength, cmdType, cmdData,
+            teamNames, teamRelations, teamCount, events);
+    }
+
+    public int flags() {
+        return (testFrame ? WireCodec.FRAME_FLAG_TEST : 0) | (topDown ? WireCodec.FRAME_FLAG_TOP_DOWN : 0) | encodingFlags;
+    }
+
+    /** Body encoding name for the JSON header (same names as FrameEncoder.Mode). */
+    public String encodingName() {
+        boolean delta = (encodingFlags & WireCodec.FRAME_FLAG_DELTA) != 0;
+        boolean deflate = (encodingFlags & WireCodec.FRAME_FLAG_DEFLATE) != 0;
+        return delta ? (deflate ? "delta+deflate" : "delta") : (deflate ? "deflate" : "raw");
+    }
+
+    /** JSON header for the fallback codec (same keys as before the binary codec existed). */
+    public Map<String, Object> toJsonMap() {
+        Map<String, Object> state = new HashMap<>();
+        state.put("frame_id", frameId);
+        state.put("tick", tick);
+        state.put("capture_ns", captureNanos);
+        if (hasPlayer) {
+            state.put("x", x);
+            state.put("y", y);
+            state.put("z", z);
+            state.put("health", health);
+            state.put("hunger", hunger);
+            state.put("pitch", pitch);
+            state.put("yaw", yaw);
+        }
+        state.put("width", width);
+        state.put("height", height);
+        state.put("channels", channels);
+        state.put("top_down", topDown);
+        state.put("test_frame", testFrame);
+        state.put("encoding", encodingName());
+        state.put("events", new ArrayList<>(events));
+        if (cmdType != null) {
+            state.put("cmd_type", cmdType);
+            state.put("cmd_data", cmdData);
+        }
+        if (playerName != null) {
+            state.put("player_name", playerName);
+            state.put("agent_id", agentId);
+        }
+        Map<String, String> teams = new HashMap<>();
+        for (int i = 0; i < teamCount; i++) {
+            teams.put(teamNames[i], WireCodec.relationName(teamRelations[i]));
+        }
+        state.put("teams", teams);
+        state.put("bodyLength", bodyLength);
+        return state;
+    }
+}
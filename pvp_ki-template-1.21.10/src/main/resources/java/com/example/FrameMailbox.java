@@ -0,0 +1,120 @@
+package com.example;
+
+import java.nio.ByteBuffer;
+import java.util.function.Supplier;
+
+/**
+ * Latest-wins handoff of frames from the render thread to one sender thread (the client's
+ * FrameSender), without allocating.
+ *
+ * Three slots rotate between the render thread ({@link #writing}), a single-slot mailbox and the
+ * sender ({@link #take}). {@link #publish} puts the filled slot in the mailbox; if the sender has
+ * not taken the previous one yet, that one is overwritten and its events and command are merged
+ * into the newer frame ({@link FrameHeader#mergeUnsent}), so nothing but pixels is lost. The lock
+ * only guards pointer swaps.
+ */
+public final class FrameMailbox<S extends FrameHeader> {
+    /** One frame: header fields and body bytes [0, length). */
+    public static final class Slot<S> {
+        public final S state;
+        public byte[] body = new byte[0];
+        public int length;
+
+        Slot(S state) {
+            this.state = state;
+        }
+
+        /** Copy body bytes [0, length) of {@code src}, growing the array only when a frame gets bigger. */
+        public void copyBody(ByteBuffer src, int length) {
+            if (body.length < length) {
+                body = new byte[length];
+            }
+            src.get(0, body, 0, length);
+            this.length = length;
+        }
+    }
+
+    private final Object lock = new Object();
+    private Slot<S> writing;              // render thread
+    private Slot<S> pending;              // mailbox, guarded by lock
+    private Slot<S> spare;                // guarded by lock
+    private Slot<S> spare2;               // guarded by lock
+    private Slot<S> sending;              // sender thread
+    private boolean closed;               // guarded by lock
+
+    // Stats
+    private volatile long offered;
+    private volatile long overwritten;
+
+    public FrameMailbox(Supplier<S> stateFactory) {
+        writing = new Slot<>(stateFactory.get());
+        spare = new Slot<>(stateFactory.get());
+        spare2 = new Slot<>(stateFactory.get());
+    }
+
+    /** Render thread: the slot to fill for the next frame. */
+    public Slot<S> writing() {
+        return writing;
+    }
+
+    /** Render thread: hand the filled {@link #writing} slot to the sender and return immediately. */
+    public void publish() {
+        Slot<S> slot = writing;
+        Slot<S> next;
+        synchronized (lock) {
+            Slot<S> unsent = pending;
+            pending = slot;
+            if (unsent != null) {
+                overwritten++;
+                slot.state.mergeUnsent(unsent.state);
+                next = unsent;
+            } else if (spare != null) {
+                next = spare;
+                spare = null;
+            } else {
+                next = spare2;
+                spare2 = null;
+            }
+            lock.notifyAll();
+        }
+        writing = next;
+        offered++;
+    }
+
+    /**
+     * Sender thread: wait for the newest frame; the slot returned last time goes back to the
+     * spares. Null once {@link #close} was called.
+     */
+    public Slot<S> take() throws InterruptedException {
+        synchronized (lock) {
+            while (!closed && pending == null) {
+                lock.wait();
+            }
+            if (closed) return null;
+            Slot<S> slot = pending;
+            pending = null;
+            if (sending != null) {
+                if (spare == null) spare = sending;
+                else spare2 = sending;
+            }
+            sending = slot;
+            return slot;
+        }
+    }
+
+    /** Wake the sender; take() returns null from now on and a frame still in the mailbox is discarded. */
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+    }
+
+    public long offered() {
+        return offered;
+    }
+
+    public long overwritten() {
+        return overwritten;
+    }
+}
@@ -0,0 +1,287 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Local transport for the bridge sockets: loopback TCP (default) or Unix domain sockets.
+ *
+ * Both ends address a channel by its TCP port; in UDS mode the port maps to
+ * {@code <socketDir>/pvp_ki-<port>.sock}, so the command bridge (9998) and the legacy
+ * agent channels (9998 + id) keep their numbering. Framing is identical on both transports.
+ *
+ * The transport is taken from the PVP_IPC_TRANSPORT / PVP_IPC_SOCKET_DIR environment
+ * variables when set (shared with the Python side and usable on the client, which does
+ * not load settings.json), otherwise from SettingsManager.ipcTransport / ipcSocketDir.
+ */
+public final class IpcTransport {
+    public enum Kind {
+        TCP, UDS;
+
+        public static Kind parse(String name, Kind fallback) {
+            if (name == null || name.isBlank()) return fallback;
+            String n = name.trim().toLowerCase(Locale.ROOT);
+            if (n.equals("uds") || n.equals("unix")) return UDS;
+            if (n.equals("tcp")) return TCP;
+            return fallback;
+        }
+    }
+
+    private IpcTransport() {}
+
+    public static Kind kind() {
+        String env = System.getenv("PVP_IPC_TRANSPORT");
+        return Kind.parse(env != null ? env : SettingsManager.ipcTransport, Kind.TCP);
+    }
+
+    public static Path socketDir() {
+        String env = System.getenv("PVP_IPC_SOCKET_DIR");
+        String dir = env != null && !env.isBlank() ? env : SettingsManager.ipcSocketDir;
+        if (dir == null || dir.isBlank()) {
+            return Paths.get(System.getProperty("java.io.tmpdir"), "pvp_ki");
+        }
+        return Paths.get(dir);
+    }
+
+    public static Path socketPath(int port) {
+        return socketDir().resolve("pvp_ki-" + port + ".sock");
+    }
+
+    /** One established stream connection; streams are unbuffered. */
+    public interface Connection extends Closeable {
+        InputStream in();
+
+        OutputStream out();
+
+        /** Bound reads on {@link #in()}; 0 disables the timeout. Reads that time out throw SocketTimeoutException. */
+        void setReadTimeout(int millis) throws IOException;
+
+        String describe();
+    }
+
+    public interface Listener extends Closeable {
+        Connection accept() throws IOException;
+
+        String describe();
+    }
+
+    public static Connection connect(String host, int port, int timeoutMs) throws IOException {
+        if (kind() == Kind.UDS) {
+            Path path = socketPath(port);
+            SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            try {
+                channel.connect(UnixDomainSocketAddress.of(path));
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            return new UnixConnection(channel, path);
+        }
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), timeoutMs);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return new TcpConnection(socket);
+    }
+
+    public static Listener listen(int port) throws IOException {
+        if (kind() == Kind.UDS) {
+            Path path = socketPath(port);
+            Files.createDirectories(path.getParent());
+            // A previous run that crashed leaves the socket file behind and bind() would fail
+            Files.deleteIfExists(path);
+            ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(UnixDomainSocketAddress.of(path));
+            return new UnixListener(server, path);
+        }
+        return new TcpListener(new ServerSocket(port));
+    }
+
+    private static final class TcpConnection implements Connection {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+
+        TcpConnection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = socket.getInputStream();
+            this.out = socket.getOutputStream();
+        }
+
+        @Override public InputStream in() { return in; }
+        @Override public OutputStream out() { return out; }
+
+        @Override
+        public void setReadTimeout(int millis) throws IOException {
+            socket.setSoTimeout(millis);
+        }
+
+        @Override
+        public String describe() {
+            return "tcp://" + socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private static final class TcpListener implements Listener {
+        private final ServerSocket server;
+
+        TcpListener(ServerSocket server) {
+            this.server = server;
+        }
+
+        @Override
+        public Connection accept() throws IOException {
+            Socket s = server.accept();
+            s.setTcpNoDelay(true);
+            return new TcpConnection(s);
+        }
+
+        @Override
+        public String describe() {
+            return "tcp://" + server.getInetAddress().getHostAddress() + ":" + server.getLocalPort();
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+    }
+
+    /**
+     * SocketChannel has no SO_TIMEOUT, so timed reads switch the channel to non-blocking
+     * and wait on a selector; with no timeout it stays blocking and reads directly.
+     */
+    private static final class UnixConnection implements Connection {
+        private final SocketChannel channel;
+        private final Path path;
+        private final InputStream in;
+        private final OutputStream out;
+        private int readTimeoutMs = 0;
+        private Selector selector;
+
+        UnixConnection(SocketChannel channel, Path path) {
+            this.channel = channel;
+            this.path = path;
+            this.in = new TimedInput();
+            this.out = Channels.newOutputStream(channel);
+        }
+
+        @Override public InputStream in() { return in; }
+        @Override public OutputStream out() { return out; }
+
+        @Override
+        public void setReadTimeout(int millis) throws IOException {
+            readTimeoutMs = Math.max(0, millis);
+            if (readTimeoutMs == 0 && selector != null) {
+                // Closing the selector deregisters the channel so it can go back to blocking writes
+                selector.close();
+                selector = null;
+                channel.configureBlocking(true);
+            }
+        }
+
+        @Override
+        public String describe() {
+            return "unix://" + path;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (selector != null) selector.close();
+            channel.close();
+        }
+
+        private int timedRead(ByteBuffer buf) throws IOException {
+            if (readTimeoutMs == 0) {
+                return channel.read(buf);
+            }
+            if (selector == null) {
+                selector = Selector.open();
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ);
+            }
+            long deadline = System.nanoTime() + readTimeoutMs * 1_000_000L;
+            while (true) {
+                int n = channel.read(buf);
+                if (n != 0) return n;
+                long remainingMs = (deadline - System.nanoTime()) / 1_000_000L;
+                if (remainingMs <= 0 || selector.select(remainingMs) == 0 && System.nanoTime() >= deadline) {
+                    throw new SocketTimeoutException("Read timed out");
+                }
+                selector.selectedKeys().clear();
+            }
+        }
+
+        private final class TimedInput extends InputStream {
+            private final byte[] one = new byte[1];
+
+            @Override
+            public int read() throws IOException {
+                int n = read(one, 0, 1);
+                return n < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) return 0;
+                return timedRead(ByteBuffer.wrap(b, off, len));
+            }
+        }
+    }
+
+    private static final class UnixListener implements Listener {
+        private final ServerSocketChannel server;
+        private final Path path;
+
+        UnixListener(ServerSocketChannel server, Path path) {
+            this.server = server;
+            this.path = path;
+        }
+
+        @Override
+        public Connection accept() throws IOException {
+            return new UnixConnection(server.accept(), path);
+        }
+
+        @Override
+        public String describe() {
+            return "unix://" + path;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                server.close();
+            } finally {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
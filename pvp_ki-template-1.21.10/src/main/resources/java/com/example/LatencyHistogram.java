@@ -0,0 +1,86 @@
+package com.example;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Fixed-size log-linear histogram of durations in microseconds.
+ *
+ * Values below 16 us get their own bucket; above that every power of two is split into 8
+ * buckets, so a reported percentile is at most 12.5% above the true value. Recording is a
+ * bucket increment and never allocates. Methods are synchronized: one thread records, commands
+ * and the IPC thread read.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int MAX_MSB = 39; // ~6 days in us; larger values land in the last bucket
+    private static final int BUCKETS = 2 * SUB + (MAX_MSB - SUB_BITS) * SUB;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sumMicros;
+    private long maxMicros;
+
+    public synchronized void recordNanos(long nanos) {
+        long us = Math.max(0L, nanos / 1000L);
+        counts[bucket(us)]++;
+        count++;
+        sumMicros += us;
+        if (us > maxMicros) maxMicros = us;
+    }
+
+    public synchronized long count() {
+        return count;
+    }
+
+    /** Value (us) at quantile q in [0, 1]: the upper edge of its bucket, capped at the maximum. */
+    public synchronized long percentileMicros(double q) {
+        if (count == 0) return 0L;
+        long rank = Math.max(1L, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(lowerBound(i + 1) - 1, maxMicros);
+            }
+        }
+        return maxMicros;
+    }
+
+    public synchronized long maxMicros() {
+        return maxMicros;
+    }
+
+    public synchronized double meanMicros() {
+        return count == 0 ? 0.0 : (double) sumMicros / count;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(counts, 0L);
+        count = 0;
+        sumMicros = 0;
+        maxMicros = 0;
+    }
+
+    /** "n=.. p50=..ms p99=..ms max=..ms" */
+    public synchronized String summary() {
+        return String.format(Locale.ROOT, "n=%d p50=%.2fms p99=%.2fms max=%.2fms",
+            count, percentileMicros(0.50) / 1000.0, percentileMicros(0.99) / 1000.0, maxMicros / 1000.0);
+    }
+
+    static int bucket(long us) {
+        if (us < 2 * SUB) return (int) us;
+        int msb = 63 - Long.numberOfLeadingZeros(us);
+        if (msb > MAX_MSB) return BUCKETS - 1;
+        int sub = (int) (us >>> (msb - SUB_BITS)) & (SUB - 1);
+        return 2 * SUB + (msb - SUB_BITS - 1) * SUB + sub;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < 2 * SUB) return bucket;
+        int k = bucket - 2 * SUB;
+        int msb = k / SUB + SUB_BITS + 1;
+        return (long) (SUB + k % SUB) << (msb - SUB_BITS);
+    }
+}
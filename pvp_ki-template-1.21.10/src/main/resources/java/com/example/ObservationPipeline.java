@@ -0,0 +1,216 @@
+package com.example;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.util.Mth;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Off-thread observations: the server thread snapshots, a worker pool computes, results go out in tick order.
+ *
+ * At END_SERVER_TICK (when {@link VisionSensor} or {@link StateSensor} is on and the tick is sampled)
+ * the server thread copies what the sensors read into a {@link Snapshot}: one {@link AgentSnapshot}
+ * per alive, non-spectator player, and for vision the block sections within range of every agent
+ * ({@link ChunkView.Chunks}). Rays (one task per agent) and state vectors are then computed on a
+ * ForkJoin pool while the next ticks run. Each tick's messages are sent only after every earlier
+ * tick's, so the bridge always sees ascending ticks.
+ *
+ * The server thread pays for the snapshot only; that cost is what /ki stats pipeline reports as
+ * snapshot time, next to worker time and snapshot-to-publish latency. If {@link #MAX_IN_FLIGHT}
+ * ticks are still being computed, further ticks are skipped rather than queued.
+ */
+public final class ObservationPipeline {
+    static final int MAX_IN_FLIGHT = 4;
+
+    /** One tick's sensor input; immutable once submitted. */
+    static final class Snapshot {
+        final long tick;
+        final List<AgentSnapshot> agents = new ArrayList<>();
+        final Map<ServerLevel, ChunkView.Chunks> chunksByLevel = new IdentityHashMap<>();
+        final Set<String> neutralTeams = Set.copyOf(SettingsManager.neutralTeams);
+        // Settings as of the snapshot, so commands cannot change a tick halfway
+        final boolean vision;
+        final int width = SettingsManager.visionGridWidth;
+        final int height = SettingsManager.visionGridHeight;
+        final float fov = SettingsManager.visionFovDegrees;
+        final double range = SettingsManager.visionRange;
+        final boolean state;
+        final int nearestK = SettingsManager.stateNearestK;
+        ByteBuffer stateRows;
+        long capturedNanos;
+
+        Snapshot(long tick, boolean vision, boolean state) {
+            this.tick = tick;
+            this.vision = vision;
+            this.state = state;
+        }
+    }
+
+    private static ForkJoinPool pool;
+    private static CompletableFuture<Void> published = CompletableFuture.completedFuture(null);
+    private static final AtomicInteger inFlight = new AtomicInteger();
+
+    // Stats: snapshot time is recorded on the server thread, the rest by workers
+    private static final LatencyHistogram snapshotTime = new LatencyHistogram();
+    private static final LatencyHistogram computeTime = new LatencyHistogram();
+    private static final LatencyHistogram publishLatency = new LatencyHistogram();
+    private static final AtomicLong skippedTicks = new AtomicLong();
+    private static final AtomicLong failedTicks = new AtomicLong();
+    private static volatile long lastPublishedTick = -1;
+
+    private ObservationPipeline() {}
+
+    /** END_SERVER_TICK: snapshot this tick and hand it to the pool. */
+    public static void onEndTick(MinecraftServer server) {
+        long tick = server.getTickCount();
+        boolean vision = SettingsManager.visionEnabled && tick % SettingsManager.visionEveryTicks == 0;
+        boolean state = SettingsManager.stateEnabled && tick % SettingsManager.stateEveryTicks == 0;
+        if (!vision && !state) return;
+        if (inFlight.get() >= MAX_IN_FLIGHT) {
+            skippedTicks.incrementAndGet();
+            return;
+        }
+
+        long start = System.nanoTime();
+        Snapshot snap = capture(server, tick, vision, state);
+        long took = System.nanoTime() - start;
+        snapshotTime.recordNanos(took);
+        if (snap.agents.isEmpty()) return;
+        snap.capturedNanos = start;
+
+        inFlight.incrementAndGet();
+        CompletableFuture<List<WireCodec.Message>> job = CompletableFuture.supplyAsync(() -> compute(snap), pool());
+        // Publish strictly after the previous tick, whichever finishes first
+        published = published.thenCompose(v -> job.handle((messages, error) -> {
+            publish(snap, messages, error);
+            return null;
+        }));
+    }
+
+    private static Snapshot capture(MinecraftServer server, long tick, boolean vision, boolean state) {
+        Snapshot snap = new Snapshot(tick, vision, state);
+        int chunkRadius = Mth.ceil(snap.range / 16.0);
+        for (ServerPlayer player : server.getPlayerList().getPlayers()) {
+            if (player.isSpectator() || !player.isAlive()) continue;
+            AgentSnapshot agent = new AgentSnapshot(player);
+            if (vision) {
+                agent.captureEntities(player, snap.range);
+                ChunkView.Chunks chunks = snap.chunksByLevel.computeIfAbsent(agent.level, ChunkView.Chunks::new);
+                int eyeY = Mth.floor(agent.eye.y);
+                chunks.add(player.getBlockX() >> 4, player.getBlockZ() >> 4, chunkRadius,
+                    eyeY - Mth.ceil(snap.range), eyeY + Mth.ceil(snap.range));
+            }
+            snap.agents.add(agent);
+        }
+        if (state && !snap.agents.isEmpty()) {
+            snap.stateRows = StateSensor.claim(snap.agents.size() * StateSensor.featuresPerAgent(snap.nearestK) * 4);
+        }
+        return snap;
+    }
+
+    /** Worker: this tick's messages, rays first. */
+    private static List<WireCodec.Message> compute(Snapshot snap) {
+        long start = System.nanoTime();
+        List<WireCodec.Message> messages = new ArrayList<>(2);
+        int n = snap.agents.size();
+        int[] ids = new int[n];
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = snap.agents.get(i).id;
+            names[i] = snap.agents.get(i).name;
+        }
+
+        if (snap.vision) {
+            int features = snap.width * snap.height * VisionSensor.CHANNELS;
+            float[] out = new float[n * features];
+            List<RecursiveAction> rays = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                AgentSnapshot agent = snap.agents.get(i);
+                ChunkView.Chunks chunks = snap.chunksByLevel.get(agent.level);
+                int offset = i * features;
+                rays.add(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        VisionSensor.castRays(snap, agent, new ChunkView(chunks), out, offset);
+                    }
+                });
+            }
+            ForkJoinTask.invokeAll(rays);
+            messages.add(new WireCodec.ObservationMessage(snap.tick, VisionSensor.SENSOR, snap.width, snap.height,
+                VisionSensor.CHANNELS, ids, names, out));
+        }
+        if (snap.state) {
+            StateSensor.writeRows(snap, snap.stateRows);
+            messages.add(new WireCodec.ObservationMessage(snap.tick, StateSensor.SENSOR,
+                StateSensor.featuresPerAgent(snap.nearestK), 1, 1, ids, names, snap.stateRows));
+        }
+        computeTime.recordNanos(System.nanoTime() - start);
+        return messages;
+    }
+
+    /** Runs once per submitted tick, in tick order. */
+    private static void publish(Snapshot snap, List<WireCodec.Message> messages, Throwable error) {
+        inFlight.decrementAndGet();
+        if (error != null) {
+            failedTicks.incrementAndGet();
+            PVP_KI.LOGGER.warn("[Pipeline] Observation failed at tick {}", snap.tick, error);
+            return;
+        }
+        for (WireCodec.Message m : messages) ServerIPCClient.send(m);
+        if (snap.vision) VisionSensor.recordRows(snap.agents.size());
+        if (snap.state) StateSensor.recordRows(snap.agents.size());
+        lastPublishedTick = snap.tick;
+        publishLatency.recordNanos(System.nanoTime() - snap.capturedNanos);
+    }
+
+    private static synchronized ForkJoinPool pool() {
+        if (pool == null) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            pool = new ForkJoinPool(threads, p -> {
+                ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                t.setName("PVP_KI-Observe-" + t.getPoolIndex());
+                t.setDaemon(true);
+                return t;
+            }, null, false);
+        }
+        return pool;
+    }
+
+    public static synchronized void stop() {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+        published = CompletableFuture.completedFuture(null);
+        inFlight.set(0);
+    }
+
+    public static String statsSummary() {
+        return String.format(Locale.ROOT, "snapshot(server thread) %s | compute %s | publish %s | in_flight=%d skipped=%d failed=%d last_tick=%d",
+            snapshotTime.summary(), computeTime.summary(), publishLatency.summary(),
+            inFlight.get(), skippedTicks.get(), failedTicks.get(), lastPublishedTick);
+    }
+
+    public static void resetStats() {
+        snapshotTime.reset();
+        computeTime.reset();
+        publishLatency.reset();
+        skippedTicks.set(0);
+        failedTicks.set(0);
+    }
+}
@@ -2,14 +2,12 @@ package com.example;
 
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
-import net.fabricmc.fabric.api.event.player.AttackEntityCallback;
 import net.fabricmc.fabric.api.entity.event.v1.ServerLivingEntityEvents;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.arguments.EntityArgument;
 import net.minecraft.commands.arguments.selector.EntitySelector;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerPlayer;
-import net.minecraft.world.InteractionResult;
 import net.minecraft.world.entity.player.Player;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
@@ -30,7 +28,9 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import net.minecraft.world.level.ClipContext;
 import net.minecraft.world.level.chunk.LevelChunk;
 import net.minecraft.world.phys.BlockHitResult;
@@ -39,6 +39,7 @@ import net.minecraft.world.phys.Vec3;
 import net.minecraft.world.scores.PlayerTeam;
 import net.minecraft.world.scores.Scoreboard;
 import net.minecraft.network.protocol.game.ClientboundSetPlayerTeamPacket;
+import net.minecraft.util.Mth;
 
 /**
  * Server mod entrypoint.
@@ -78,6 +79,8 @@ public class PVP_KI implements ModInitializer {
         KitManager.loadKits();
         SettingsManager.loadSettings();
         ArenaManager.loadArenas();
+        SpawnSitePool.init();
+        ArenaInstances.init();
 
         // Shutdown Hook for Python Process
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -90,6 +93,22 @@ public class PVP_KI implements ModInitializer {
         // Register Event Listeners
         registerEvents();
 
+        // Bridge connection lives for the lifetime of the server
+        ServerLifecycleEvents.SERVER_STARTED.register(server -> {
+            ServerIPCClient.start();
+            CombatEvents.start();
+            ArenaInstances.warmUp(server);
+        });
+        ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
+            ObservationPipeline.stop();
+            ResetScheduler.stop();
+            SpawnSitePool.stop(server);
+            SurfaceFinder.clear();
+            PlayerIndex.clear();
+            CombatEvents.stop();
+            ServerIPCClient.stop();
+        });
+
         // Register commands (single unified tree)
         CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess, environment) -> {
             LOGGER.info("Registering /ki commands - Environment: " + environment);
@@ -141,6 +160,11 @@ public class PVP_KI implements ModInitializer {
                     context.getSource().sendSuccess(() -> Component.literal("=== PVP KI Settings ==="), false);
                     context.getSource().sendSuccess(() -> Component.literal("Nametags: " + (SettingsManager.showTeamNametags ? "ON" : "OFF")), false);
                     context.getSource().sendSuccess(() -> Component.literal("Reset Mode: " + SettingsManager.resetMode), false);
+                    context.getSource().sendSuccess(() -> Component.literal("Spawn Pool: " + SettingsManager.spawnPoolSize + " sites"), false);
+                    context.getSource().sendSuccess(() -> Component.literal("Arena Slots: " + SettingsManager.arenaSlots + " per arena"), false);
+                    context.getSource().sendSuccess(() -> Component.literal("Reset Budget: " + SettingsManager.resetBudgetMs + " ms per tick"), false);
+                    context.getSource().sendSuccess(() -> Component.literal("Vision: " + (SettingsManager.visionEnabled ? "ON " : "OFF ") + SettingsManager.visionGridWidth + "x" + SettingsManager.visionGridHeight + " rays, fov " + SettingsManager.visionFovDegrees + ", range " + SettingsManager.visionRange), false);
+                    context.getSource().sendSuccess(() -> Component.literal("State vectors: " + (SettingsManager.stateEnabled ? "ON " : "OFF ") + SettingsManager.stateNearestK + " nearest players, " + StateSensor.featuresPerAgent(SettingsManager.stateNearestK) + " features"), false);
                     context.getSource().sendSuccess(() -> Component.literal("Allowed Biomes: " + (SettingsManager.allowedBiomes.isEmpty() ? "All" : String.join(", ", SettingsManager.allowedBiomes))), false);
                     context.getSource().sendSuccess(() -> Component.literal("Blocked Biomes: " + (SettingsManager.blockedBiomes.isEmpty() ? "None" : String.join(", ", SettingsManager.blockedBiomes))), false);
                     return 1;
@@ -180,6 +204,49 @@ public class PVP_KI implements ModInitializer {
             settingsRoot.then(LiteralArgumentBuilder.<CommandSourceStack>literal("resetmode")
                 .then(RequiredArgumentBuilder.<CommandSourceStack, String>argument("mode", StringArgumentType.string())
                     .executes(context -> { String mode = StringArgumentType.getString(context, "mode"); if (!mode.equalsIgnoreCase("world") && !mode.equalsIgnoreCase("arena")) { context.getSource().sendFailure(Component.literal("Invalid mode. Use 'world' or 'arena'.")); return 0; } SettingsManager.resetMode = mode.toLowerCase(Locale.ROOT); SettingsManager.saveSettings(); context.getSource().sendSuccess(() -> Component.literal("Reset mode set to " + SettingsManager.resetMode), false); return 1; })));            
+            // vision on/off, grid <w> <h>, fov <degrees>, range <blocks>
+            settingsRoot.then(LiteralArgumentBuilder.<CommandSourceStack>literal("vision")
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("on")
+                    .executes(context -> { SettingsManager.visionEnabled = true; SettingsManager.saveSettings(); context.getSource().sendSuccess(() -> Component.literal("Vision sensor enabled"), false); return 1; }))
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("off")
+                    .executes(context -> { SettingsManager.visionEnabled = false; SettingsManager.saveSettings(); context.getSource().sendSuccess(() -> Component.literal("Vision sensor disabled"), false); return 1; }))
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("grid")
+                    .then(RequiredArgumentBuilder.<CommandSourceStack, Integer>argument("width", com.mojang.brigadier.arguments.IntegerArgumentType.integer(1, 256))
+                        .then(RequiredArgumentBuilder.<CommandSourceStack, Integer>argument("height", com.mojang.brigadier.arguments.IntegerArgumentType.integer(1, 256))
+                            .executes(context -> {
+                                SettingsManager.visionGridWidth = com.mojang.brigadier.arguments.IntegerArgumentType.getInteger(context, "width");
+                                SettingsManager.visionGridHeight = com.mojang.brigadier.arguments.IntegerArgumentType.getInteger(context, "height");
+                                SettingsManager.saveSettings();
+                                context.getSource().sendSuccess(() -> Component.literal("Vision grid set to " + SettingsManager.visionGridWidth + "x" + SettingsManager.visionGridHeight), false);
+                                return 1;
+                            }))))
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("fov")
+                    .then(RequiredArgumentBuilder.<CommandSourceStack, Float>argument("degrees", com.mojang.brigadier.arguments.FloatArgumentType.floatArg(1.0f, 360.0f))
+                        .executes(context -> { SettingsManager.visionFovDegrees = com.mojang.brigadier.arguments.FloatArgumentType.getFloat(context, "degrees"); SettingsManager.saveSettings(); context.getSource().sendSuccess(() -> Component.literal("Vision FOV set to " + SettingsManager.visionFovDegrees), false); return 1; })))
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("range")
+                    .then(RequiredArgumentBuilder.<CommandSourceStack, Float>argument("blocks", com.mojang.brigadier.arguments.FloatArgumentType.floatArg(1.0f, 256.0f))
+                        .executes(context -> { SettingsManager.visionRange = com.mojang.brigadier.arguments.FloatArgumentType.getFloat(context, "blocks"); SettingsManager.saveSettings(); context.getSource().sendSuccess(() -> Component.literal("Vision range set to " + SettingsManager.visionRange), false); return 1; }))));
+            // state on/off, k <nearest players>
+            settingsRoot.then(LiteralArgumentBuilder.<CommandSourceStack>literal("state")
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("on")
+                    .executes(context -> { SettingsManager.stateEnabled = true; SettingsManager.saveSettings(); context.getSource().sendSuccess(() -> Component.literal("State vectors enabled"), false); return 1; }))
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("off")
+                    .executes(context -> { SettingsManager.stateEnabled = false; SettingsManager.saveSettings(); context.getSource().sendSuccess(() -> Component.literal("State vectors disabled"), false); return 1; }))
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("k")
+                    .then(RequiredArgumentBuilder.<CommandSourceStack, Integer>argument("players", com.mojang.brigadier.arguments.IntegerArgumentType.integer(0, 64))
+                        .executes(context -> { SettingsManager.stateNearestK = com.mojang.brigadier.arguments.IntegerArgumentType.getInteger(context, "players"); SettingsManager.saveSettings(); context.getSource().sendSuccess(() -> Component.literal("State vectors include the " + SettingsManager.stateNearestK + " nearest players"), false); return 1; }))));
+            // resetbudget <ms>: server-thread time per tick for queued reset work
+            settingsRoot.then(LiteralArgumentBuilder.<CommandSourceStack>literal("resetbudget")
+                .then(RequiredArgumentBuilder.<CommandSourceStack, Integer>argument("ms", com.mojang.brigadier.arguments.IntegerArgumentType.integer(1, 50))
+                    .executes(context -> { SettingsManager.resetBudgetMs = com.mojang.brigadier.arguments.IntegerArgumentType.getInteger(context, "ms"); SettingsManager.saveSettings(); context.getSource().sendSuccess(() -> Component.literal("Reset budget set to " + SettingsManager.resetBudgetMs + " ms per tick"), false); return 1; })));
+            // arenaslots <n>: parallel instances per arena, for concurrent matches
+            settingsRoot.then(LiteralArgumentBuilder.<CommandSourceStack>literal("arenaslots")
+                .then(RequiredArgumentBuilder.<CommandSourceStack, Integer>argument("slots", com.mojang.brigadier.arguments.IntegerArgumentType.integer(1, 256))
+                    .executes(context -> { SettingsManager.arenaSlots = com.mojang.brigadier.arguments.IntegerArgumentType.getInteger(context, "slots"); SettingsManager.saveSettings(); context.getSource().sendSuccess(() -> Component.literal("Arena slots set to " + SettingsManager.arenaSlots), false); return 1; })));
+            // spawnpool <size>: pre-generated world-mode spawn sites to keep ready (0 = off)
+            settingsRoot.then(LiteralArgumentBuilder.<CommandSourceStack>literal("spawnpool")
+                .then(RequiredArgumentBuilder.<CommandSourceStack, Integer>argument("size", com.mojang.brigadier.arguments.IntegerArgumentType.integer(0, 64))
+                    .executes(context -> { SettingsManager.spawnPoolSize = com.mojang.brigadier.arguments.IntegerArgumentType.getInteger(context, "size"); SettingsManager.saveSettings(); context.getSource().sendSuccess(() -> Component.literal("Spawn pool size set to " + SettingsManager.spawnPoolSize), false); return 1; })));
             kiRoot.then(settingsRoot);
 
             // /ki neutral <teamName> - mark scoreboard team as neutral
@@ -298,6 +365,12 @@ public class PVP_KI implements ModInitializer {
                 .then(LiteralArgumentBuilder.<CommandSourceStack>literal("remove")
                     .then(RequiredArgumentBuilder.<CommandSourceStack, String>argument("name", StringArgumentType.string())
                         .executes(ctx -> { boolean ok = ArenaManager.remove(StringArgumentType.getString(ctx, "name")); if (ok) ctx.getSource().sendSuccess(() -> Component.literal("Removed arena"), true); else ctx.getSource().sendFailure(Component.literal("Arena not found")); return ok?1:0; })))
+                // bench <name> [rounds]: template paste vs /clone into the arena's instance; blocks the server thread
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("bench")
+                    .then(RequiredArgumentBuilder.<CommandSourceStack, String>argument("name", StringArgumentType.string())
+                        .executes(ctx -> benchArena(ctx.getSource(), StringArgumentType.getString(ctx, "name"), 3))
+                        .then(RequiredArgumentBuilder.<CommandSourceStack, Integer>argument("rounds", com.mojang.brigadier.arguments.IntegerArgumentType.integer(1, 20))
+                            .executes(ctx -> benchArena(ctx.getSource(), StringArgumentType.getString(ctx, "name"), com.mojang.brigadier.arguments.IntegerArgumentType.getInteger(ctx, "rounds"))))))
                 .then(LiteralArgumentBuilder.<CommandSourceStack>literal("list")
                     .executes(ctx -> { var enabled = ArenaManager.getEnabled(); if (enabled.isEmpty()) { ctx.getSource().sendSuccess(() -> Component.literal("No enabled arenas"), false); } else { ctx.getSource().sendSuccess(() -> Component.literal("Enabled arenas:"), false); for (ArenaManager.ArenaConfig a : enabled) { ctx.getSource().sendSuccess(() -> Component.literal("- " + a.name + " [" + (a.pos1!=null?a.pos1.toShortString():"?") + ", " + (a.pos2!=null?a.pos2.toShortString():"?") + "]"), false); } } return 1; }))
             );
@@ -312,6 +385,72 @@ public class PVP_KI implements ModInitializer {
                                 .executes(ctx -> resetteams(ctx))))))
             );
 
+            // /ki stats ipc - bridge connection health
+            kiRoot.then(LiteralArgumentBuilder.<CommandSourceStack>literal("stats")
+                .requires(source -> true)
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("ipc")
+                    .executes(ctx -> {
+                        ctx.getSource().sendSuccess(() -> Component.literal("[ServerIPC] " + ServerIPCClient.statsSummary()), false);
+                        return 1;
+                    }))
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("events")
+                    .executes(ctx -> {
+                        ctx.getSource().sendSuccess(() -> Component.literal("[Events] " + CombatEvents.statsSummary()), false);
+                        return 1;
+                    }))
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("vision")
+                    .executes(ctx -> {
+                        ctx.getSource().sendSuccess(() -> Component.literal("[Vision] " + VisionSensor.statsSummary()), false);
+                        return 1;
+                    }))
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("state")
+                    .executes(ctx -> {
+                        ctx.getSource().sendSuccess(() -> Component.literal("[State] " + StateSensor.statsSummary()), false);
+                        return 1;
+                    }))
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("resets")
+                    .executes(ctx -> {
+                        ctx.getSource().sendSuccess(() -> Component.literal("[Resets] " + ResetScheduler.statsSummary()), false);
+                        return 1;
+                    })
+                    .then(LiteralArgumentBuilder.<CommandSourceStack>literal("reset")
+                        .executes(ctx -> {
+                            ResetScheduler.resetStats();
+                            ctx.getSource().sendSuccess(() -> Component.literal("[Resets] Timings cleared"), false);
+                            return 1;
+                        })))
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("arenas")
+                    .executes(ctx -> {
+                        ctx.getSource().sendSuccess(() -> Component.literal("[Arenas] " + ArenaInstances.statsSummary() + "\n" + ArenaManager.padStatsSummary()), false);
+                        return 1;
+                    }))
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("surface")
+                    .executes(ctx -> {
+                        ctx.getSource().sendSuccess(() -> Component.literal("[Surface] " + SurfaceFinder.statsSummary()), false);
+                        return 1;
+                    }))
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("spawns")
+                    .executes(ctx -> {
+                        ctx.getSource().sendSuccess(() -> Component.literal("[Spawns] " + SpawnSitePool.statsSummary()), false);
+                        return 1;
+                    }))
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("pipeline")
+                    .executes(ctx -> {
+                        ctx.getSource().sendSuccess(() -> Component.literal("[Pipeline] " + ObservationPipeline.statsSummary()), false);
+                        return 1;
+                    })
+                    .then(LiteralArgumentBuilder.<CommandSourceStack>literal("reset")
+                        .executes(ctx -> {
+                            ObservationPipeline.resetStats();
+                            ctx.getSource().sendSuccess(() -> Component.literal("[Pipeline] Stats reset"), false);
+                            return 1;
+                        })))
+                .then(LiteralArgumentBuilder.<CommandSourceStack>literal("grid")
+                    .executes(ctx -> {
+                        ctx.getSource().sendSuccess(() -> Component.literal("[Grid] " + PlayerIndex.statsSummary()), false);
+                        return 1;
+                    })));
+
             dispatcher.register(kiRoot);
         });
     }
@@ -387,7 +526,7 @@ public class PVP_KI implements ModInitializer {
             }
 
             // Dispatch by mode
-            ServerLevel level = ctx.getSource().getLevel();
+            ServerLevel level = ArenaInstances.sourceLevel(ctx.getSource().getLevel());
             if (!arenaMode) {
                 return resetteamsWorld(ctx.getSource(), level, teamNames, teamPlayers, kitName, shuffle);
             } else {
@@ -400,88 +539,108 @@ public class PVP_KI implements ModInitializer {
     }
 
     private int resetteamsWorld(CommandSourceStack src, ServerLevel level, List<String> teamNames, List<List<ServerPlayer>> teamPlayers, String kitName, boolean shuffle) {
-        // Find suitable base location like existing resetCommand
-        double x = 0, z = 0;
-        int attempts = 0;
-        boolean found = false;
-        // Restrict search area to within 100,000 blocks of spawn (performance)
-        int SEARCH_RADIUS = 100000;
-        while (attempts < 25) { // Reduce attempts for performance
-            x = (Math.random() * 2 * SEARCH_RADIUS) - SEARCH_RADIUS;
-            z = (Math.random() * 2 * SEARCH_RADIUS) - SEARCH_RADIUS;
-            attempts++;
-            LevelChunk chunk = level.getChunk((int)x >> 4, (int)z >> 4);
-            if (chunk.getInhabitedTime() == 0 && chunk.getBlockEntities().isEmpty()) {
-                String biomeName = "plains"; // placeholder until biome API update
-                if (SettingsManager.isBiomeAllowed(biomeName)) { found = true; break; }
-            }
-        }
-        if (!found) { src.sendFailure(Component.literal("Could not find suitable location after 25 attempts")); return 0; }
-
-        // Surface Y
-        double baseY = 63;
-        for (int checkY = 320; checkY >= 0; checkY--) {
-            if (!level.getBlockState(new BlockPos((int)x, checkY, (int)z)).isAir()) { baseY = checkY + 1.0; break; }
-        }
-
         int n = teamNames.size();
-        double radius = 20.0;
-        for (int i = 0; i < n; i++) {
-            double angle = (2 * Math.PI * i) / n;
-            double tx = x + radius * Math.cos(angle);
-            double tz = z + radius * Math.sin(angle);
-            // small per-player offset within team
-            for (ServerPlayer sp : teamPlayers.get(i)) {
-                double ox = (Math.random() - 0.5) * 4.0; // ±2
-                double oz = (Math.random() - 0.5) * 4.0; // ±2
-                teleportAndApply(sp, tx + ox, baseY, tz + oz, kitName, shuffle);
+        List<ServerPlayer> players = new ArrayList<>();
+        for (List<ServerPlayer> members : teamPlayers) players.addAll(members);
+        double[][] targets = new double[players.size()][];
+        ResetScheduler.Job job = ResetScheduler.job(String.join(",", teamNames));
+
+        // Site and ground search run as the job's first step, filling in targets
+        job.step(ResetScheduler.Phase.PASTE, () -> {
+            // Find suitable base location like existing resetCommand
+            double[] site = findWorldSpawn(level);
+            if (site == null) throw new IllegalStateException("Could not find suitable location after 25 attempts");
+            double x = site[0], z = site[1];
+            double radius = 20.0;
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                double angle = (2 * Math.PI * i) / n;
+                double tx = x + radius * Math.cos(angle);
+                double tz = z + radius * Math.sin(angle);
+                // small per-player offset within team, each on safe ground of its own column
+                for (int j = 0; j < teamPlayers.get(i).size(); j++) {
+                    double ox = (Math.random() - 0.5) * 4.0; // ±2
+                    double oz = (Math.random() - 0.5) * 4.0; // ±2
+                    BlockPos ground = SurfaceFinder.findSafe(level, Mth.floor(tx + ox), Mth.floor(tz + oz), SAFE_SPAWN_RADIUS);
+                    if (ground == null) throw new IllegalStateException("No safe ground near " + (int)tx + ", " + (int)tz);
+                    targets[k++] = new double[] {ground.getX() + 0.5, ground.getY(), ground.getZ() + 0.5};
+                }
             }
-        }
+        });
+        queuePlayerResets(job, level, players, targets, kitName, shuffle);
 
-        ServerIPCClient.sendCommand("RESET", String.join(",", teamNames));
-        src.sendSuccess(() -> Component.literal("Resetted " + n + " teams in world mode with kit '" + kitName + "'"), true);
+        finishReset(src, job.submit(), String.join(",", teamNames), () -> "Resetted " + n + " teams in world mode with kit '" + kitName + "'");
         return 1;
     }
 
     private int resetteamsArena(CommandSourceStack src, ServerLevel level, List<String> teamNames, List<List<ServerPlayer>> teamPlayers, String kitName, boolean shuffle) {
         List<ArenaManager.ArenaConfig> enabled = ArenaManager.getEnabled();
         if (enabled.isEmpty()) { src.sendFailure(Component.literal("No enabled arenas")); return 0; }
-        ArenaManager.ArenaConfig arena = enabled.get(new java.util.Random().nextInt(enabled.size()));
-        BlockPos min = arena.getMin(); BlockPos max = arena.getMax();
-        if (min == null || max == null) { src.sendFailure(Component.literal("Arena '" + arena.name + "' is incomplete")); return 0; }
-        int height = arena.getHeight();
-        int destY = min.getY() + height + 10;
-        BlockPos destMin = new BlockPos(min.getX(), destY, min.getZ());
-
-        // Execute /clone with replace
-        String cmd = String.format(Locale.ROOT,
-            "/clone %d %d %d %d %d %d %d %d %d replace",
-            min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ(), destMin.getX(), destMin.getY(), destMin.getZ());
-        src.getServer().getCommands().performPrefixedCommand(src, cmd);
-
-        // Find pads in source then map to destination by Y offset
-        List<BlockPos> pads = ArenaManager.findWhiteWoolPads(level, arena);
-        if (pads.size() < teamNames.size()) {
-            src.sendFailure(Component.literal("Arena '" + arena.name + "' has only " + pads.size() + " pads; " + teamNames.size() + " teams requested"));
-            return 0;
+        // Random arena with enough pads and a free slot; the same teams keep their slot across resets
+        List<ArenaManager.ArenaConfig> candidates = new ArrayList<>(enabled);
+        Collections.shuffle(candidates);
+        List<ServerPlayer> matchPlayers = new ArrayList<>();
+        for (List<ServerPlayer> members : teamPlayers) matchPlayers.addAll(members);
+        String match = ArenaInstances.matchKey(teamNames);
+        ArenaManager.ArenaConfig arena = null;
+        ArenaInstances.Lease lease = null;
+        List<BlockPos> pads = null;
+        String lastProblem = "No enabled arenas";
+        for (ArenaManager.ArenaConfig candidate : candidates) {
+            List<BlockPos> candidatePads = ArenaManager.findWhiteWoolPads(level, candidate);
+            if (candidatePads.size() < teamNames.size()) {
+                lastProblem = "Arena '" + candidate.name + "' has only " + candidatePads.size() + " pads; " + teamNames.size() + " teams requested";
+                continue;
+            }
+            lease = ArenaInstances.acquire(level, candidate, match, matchPlayers);
+            if (lease == null) {
+                lastProblem = ArenaInstances.lastRefusal();
+                continue;
+            }
+            arena = candidate;
+            pads = candidatePads;
+            break;
         }
-        // Randomly pick distinct pads from sorted list
+        if (lease == null) { src.sendFailure(Component.literal(lastProblem)); return 0; }
+
+        ArenaInstances.Instance slot = lease.instance;
+
+        // Randomly pick distinct source pads, mapped into the slot
         List<BlockPos> shuffled = new ArrayList<>(pads);
         Collections.shuffle(shuffled);
         List<BlockPos> chosen = shuffled.subList(0, teamNames.size());
 
-        int yOffset = destMin.getY() - min.getY();
+        double[][] targets = new double[matchPlayers.size()][];
+        int k = 0;
         for (int i = 0; i < teamNames.size(); i++) {
-            BlockPos srcPad = chosen.get(i);
-            BlockPos dstPad = new BlockPos(srcPad.getX(), srcPad.getY() + yOffset, srcPad.getZ());
+            BlockPos dstPad = slot.fromSource(chosen.get(i));
             double ty = dstPad.getY() + 1.0; // feet on top of block
-            for (ServerPlayer sp : teamPlayers.get(i)) {
-                teleportAndApply(sp, dstPad.getX() + 0.5, ty, dstPad.getZ() + 0.5, kitName, shuffle);
+            for (int j = 0; j < teamPlayers.get(i).size(); j++) {
+                targets[k++] = new double[] {dstPad.getX() + 0.5, ty, dstPad.getZ() + 0.5};
             }
         }
 
-        ServerIPCClient.sendCommand("RESET", String.join(",", teamNames));
-        src.sendSuccess(() -> Component.literal("Resetted " + teamNames.size() + " teams in arena '" + arena.name + "' with kit '" + kitName + "'"), true);
+        // Restore the leased slot from the arena template (full paste the first time, block diff after), then the players
+        ArenaInstances.Lease leased = lease;
+        ResetScheduler.Job job = ResetScheduler.job(match)
+            .step(ResetScheduler.Phase.PASTE, () -> ArenaInstances.reset(leased));
+        queuePlayerResets(job, slot.level(), matchPlayers, targets, kitName, shuffle);
+
+        String arenaName = arena.name;
+        finishReset(src, job.submit(), String.join(",", teamNames),
+            () -> "Resetted " + teamNames.size() + " teams in arena '" + arenaName + "' slot " + slot.slot + " with kit '" + kitName + "'");
+        return 1;
+    }
+
+    private int benchArena(CommandSourceStack src, String name, int rounds) {
+        ArenaManager.ArenaConfig arena = null;
+        for (ArenaManager.ArenaConfig a : ArenaManager.getEnabled()) {
+            if (a.name.equals(name)) arena = a;
+        }
+        if (arena == null) { src.sendFailure(Component.literal("No enabled arena '" + name + "'")); return 0; }
+        for (String line : ArenaInstances.benchmark(src, ArenaInstances.sourceLevel(src.getLevel()), arena, rounds)) {
+            src.sendSuccess(() -> Component.literal("[Arenas] " + line), false);
+        }
         return 1;
     }
 
@@ -494,7 +653,9 @@ public class PVP_KI implements ModInitializer {
             kitName = KitManager.getRandomKit();
         }
 
-        ServerLevel level = (ServerLevel) p1.level();
+        ServerLevel level = ArenaInstances.sourceLevel((ServerLevel) p1.level());
+        String participants = p1.getScoreboardName() + "," + p2.getScoreboardName();
+        String finalKit = kitName;
 
         // If reset mode is arena, place both players on arena pads
         boolean arenaMode = "arena".equalsIgnoreCase(SettingsManager.resetMode);
@@ -513,114 +674,145 @@ public class PVP_KI implements ModInitializer {
             Collections.shuffle(pads);
             BlockPos pad1 = pads.get(0);
             BlockPos pad2 = pads.get(1);
-            double ty1 = pad1.getY() + 1.0;
-            double ty2 = pad2.getY() + 1.0;
-            teleportAndApply(p1, pad1.getX() + 0.5, ty1, pad1.getZ() + 0.5, kitName, shuffle);
-            teleportAndApply(p2, pad2.getX() + 0.5, ty2, pad2.getZ() + 0.5, kitName, shuffle);
-            ServerIPCClient.sendCommand("RESET", p1.getName().getString() + "," + p2.getName().getString());
-            context.getSource().sendSuccess(() -> Component.literal("Reset to arena '" + arena.name + "' with kit '" + kitName + "'"), true);
+            double[][] targets = {
+                {pad1.getX() + 0.5, pad1.getY() + 1.0, pad1.getZ() + 0.5},
+                {pad2.getX() + 0.5, pad2.getY() + 1.0, pad2.getZ() + 0.5}
+            };
+            ResetScheduler.Job job = ResetScheduler.job(participants);
+            queuePlayerResets(job, level, List.of(p1, p2), targets, finalKit, shuffle);
+            finishReset(context.getSource(), job.submit(), participants, () -> "Reset to arena '" + arena.name + "' with kit '" + finalKit + "'");
             return 1;
         }
 
-        // World mode (fallback)
-        double x = 0, z = 0;
-        int attempts = 0;
-        boolean foundSuitable = false;
-        int SEARCH_RADIUS = 100000;
-        while (attempts < 25) {
-            x = (Math.random() * 2 * SEARCH_RADIUS) - SEARCH_RADIUS;
-            z = (Math.random() * 2 * SEARCH_RADIUS) - SEARCH_RADIUS;
-            attempts++;
+        // World mode (fallback): site and ground search run as the job's first step
+        double[][] targets = new double[2][];
+        ResetScheduler.Job job = ResetScheduler.job(participants)
+            .step(ResetScheduler.Phase.PASTE, () -> {
+                double[] site = findWorldSpawn(level);
+                if (site == null) throw new IllegalStateException("Could not find suitable location after 25 attempts");
+                double x = site[0], z = site[1];
+
+                // Safe surface for p1 at the site and p2 10 blocks east (heightmap + hazard check)
+                BlockPos ground1 = SurfaceFinder.findSafe(level, Mth.floor(x), Mth.floor(z), SAFE_SPAWN_RADIUS);
+                BlockPos ground2 = SurfaceFinder.findSafe(level, Mth.floor(x) + 10, Mth.floor(z), SAFE_SPAWN_RADIUS);
+                if (ground1 == null || ground2 == null) throw new IllegalStateException("No safe ground near " + (int)x + ", " + (int)z);
+                targets[0] = new double[] {ground1.getX() + 0.5, ground1.getY(), ground1.getZ() + 0.5};
+                targets[1] = new double[] {ground2.getX() + 0.5, ground2.getY(), ground2.getZ() + 0.5};
+            });
+        queuePlayerResets(job, level, List.of(p1, p2), targets, finalKit, shuffle);
+
+        // RESET goes to Python once the job has finished
+        finishReset(context.getSource(), job.submit(), participants, () -> "Reset to " + (int)targets[0][0] + ", " + (int)targets[0][2] + " with kit " + finalKit);
+        return 1;
+    }
+
+    // How far (blocks) a world-mode spawn may move to find safe ground; with the team circle
+    // this must stay inside SpawnSitePool.SITE_CHUNK_RADIUS, or resets generate chunks again
+    private static final int SAFE_SPAWN_RADIUS = 8;
+
+    /**
+     * World-mode base location {x, z}: a pre-generated site from {@link SpawnSitePool}, or on a pool
+     * miss the old synchronous search (up to 25 random chunks, loaded or generated on this thread).
+     * Returns null if nothing suitable was found.
+     */
+    private static double[] findWorldSpawn(ServerLevel level) {
+        SpawnSitePool.Site site = SpawnSitePool.take(level);
+        if (site != null) return new double[] {site.x(), site.z()};
+
+        int SEARCH_RADIUS = SpawnSitePool.SEARCH_RADIUS;
+        for (int attempts = 0; attempts < 25; attempts++) {
+            double x = (Math.random() * 2 * SEARCH_RADIUS) - SEARCH_RADIUS;
+            double z = (Math.random() * 2 * SEARCH_RADIUS) - SEARCH_RADIUS;
             LevelChunk chunk = level.getChunk((int)x >> 4, (int)z >> 4);
             if (chunk.getInhabitedTime() == 0 && chunk.getBlockEntities().isEmpty()) {
-                String biomeName = "plains"; // Default to plains biome
-                if (SettingsManager.isBiomeAllowed(biomeName)) {
-                    foundSuitable = true;
-                    break;
-                }
+                String biomeName = SpawnSitePool.biomeName(level.getBiome(new BlockPos((int)x, level.getSeaLevel(), (int)z)));
+                if (SettingsManager.isBiomeAllowed(biomeName)) return new double[] {x, z};
             }
         }
-        if (!foundSuitable) {
-            context.getSource().sendFailure(Component.literal("Could not find suitable location after 25 attempts"));
-            return 0;
-        }
-
-        // Find safe surface Y (first solid block from top)
-        double y = 63; // Default to world height
-        for (int checkY = 320; checkY >= 0; checkY--) {
-            net.minecraft.world.level.block.state.BlockState state = level.getBlockState(new BlockPos((int)x, checkY, (int)z));
-            if (!state.isAir()) {
-                y = checkY + 1.8; // 1.8 blocks above solid ground (player eye height)
-                break;
-            }
-        }
-
-        // Find safe surface Y for p2 at offset position
-        double y2 = 63;
-        for (int checkY = 320; checkY >= 0; checkY--) {
-            net.minecraft.world.level.block.state.BlockState state = level.getBlockState(new BlockPos((int)x + 10, checkY, (int)z));
-            if (!state.isAir()) {
-                y2 = checkY + 1.8;
-                break;
-            }
-        }
-
-        resetPlayer(p1, x, y, z, kitName, shuffle);
-        resetPlayer(p2, x + 10, y2, z, kitName, shuffle);
-
-        // Send RESET event to Python
-        ServerIPCClient.sendCommand("RESET", p1.getName().getString() + "," + p2.getName().getString());
-
-        String finalKit = kitName;
-        double finalX = x;
-        double finalZ = z;
-        context.getSource().sendSuccess(() -> Component.literal("Reset to " + (int)finalX + ", " + (int)finalZ + " with kit " + finalKit), true);
-        return 1;
+        return null;
     }
 
-    private void resetPlayer(ServerPlayer player, double x, double y, double z, String kit, boolean shuffle) {
-        player.setHealth(player.getMaxHealth());
-        player.getFoodData().setFoodLevel(20);
-        player.getInventory().clearContent();
-        player.removeAllEffects();
-        player.teleportTo(x, y, z);
-        player.setYRot(0);
-        player.setXRot(0);
-
-        if (kit != null) {
-            KitManager.applyKit(kit, player, shuffle);
+    /**
+     * Queue one step per player: cleanup, teleport and kit together, so no player is ever left in
+     * the match half reset (healed with an empty inventory) while the budget waits for the next
+     * tick. targets[i] is the feet position {x, y, z} in {@code level} for players[i]; it is read
+     * when that player's step runs, so an earlier step of the same job may fill it in. Players who
+     * left are skipped.
+     */
+    private static void queuePlayerResets(ResetScheduler.Job job, ServerLevel level, List<ServerPlayer> players, double[][] targets, String kit, boolean shuffle) {
+        ResetScheduler.Phase[] phases = kit != null
+            ? new ResetScheduler.Phase[] {ResetScheduler.Phase.CLEANUP, ResetScheduler.Phase.TELEPORT, ResetScheduler.Phase.KIT}
+            : new ResetScheduler.Phase[] {ResetScheduler.Phase.CLEANUP, ResetScheduler.Phase.TELEPORT};
+        for (int i = 0; i < players.size(); i++) {
+            ServerPlayer player = players.get(i);
+            int index = i;
+            Runnable cleanup = () -> {
+                if (player.isRemoved()) return;
+                player.setHealth(player.getMaxHealth());
+                player.getFoodData().setFoodLevel(20);
+                player.getInventory().clearContent();
+                player.removeAllEffects();
+            };
+            Runnable teleport = () -> {
+                if (player.isRemoved()) return;
+                double[] t = targets[index];
+                // Arena slots live in their own dimension, so this may change the player's level
+                player.teleportTo(level, t[0], t[1], t[2], Set.of(), 0f, 0f, true);
+            };
+            Runnable giveKit = () -> {
+                if (!player.isRemoved()) KitManager.applyKit(kit, player, shuffle);
+            };
+            job.together(phases, kit != null ? new Runnable[] {cleanup, teleport, giveKit} : new Runnable[] {cleanup, teleport});
         }
     }
 
-    private void teleportAndApply(ServerPlayer player, double x, double y, double z, String kit, boolean shuffle) {
-        resetPlayer(player, x, y, z, kit, shuffle);
+    /** Once a reset job is done: RESET to the bridge and the success message, or the failure. */
+    private static void finishReset(CommandSourceStack src, CompletableFuture<Void> done, String participants, Supplier<String> message) {
+        done.whenComplete((v, error) -> {
+            if (error != null) {
+                src.sendFailure(Component.literal(error.getMessage() != null ? error.getMessage() : "Reset cancelled"));
+                return;
+            }
+            CombatEvents.recordReset(src.getServer().getTickCount(), participants);
+            src.sendSuccess(() -> Component.literal(message.get()), true);
+        });
     }
 
     private void registerEvents() {
-        // Attack Event - compute relation and send to IPC with damage info
-        AttackEntityCallback.EVENT.register((player, world, hand, entity, hitResult) -> {
-            if (player instanceof ServerPlayer attacker && entity instanceof ServerPlayer target) {
-                String attackerName = attacker.getName().getString();
-                String targetName = target.getName().getString();
-                
-                // Compute relation
-                String relation = computeRelation(attacker, target);
-                
-                // Log for Python IPC to pick up (damage will be computed from health delta)
-                LOGGER.info("EVENT:HIT:" + attackerName + ":" + targetName + ":" + relation);
+        // Hit Event - fires after damage is applied so the record carries the real amount
+        ServerLivingEntityEvents.AFTER_DAMAGE.register((entity, source, baseDamageTaken, damageTaken, blocked) -> {
+            if (entity instanceof ServerPlayer target && source.getEntity() instanceof ServerPlayer attacker) {
+                long tick = ((ServerLevel) attacker.level()).getServer().getTickCount();
+                CombatEvents.recordHit(tick, attacker, target, computeRelation(attacker, target), damageTaken);
             }
-            return InteractionResult.PASS;
         });
 
-        // Death Event - server-side only for logging
+        // Death Event
         ServerLivingEntityEvents.AFTER_DEATH.register((entity, source) -> {
-            if (entity instanceof ServerPlayer) {
-                String victim = entity.getName().getString();
-                String killer = source.getEntity() != null ? source.getEntity().getName().getString() : "Environment";
-                LOGGER.info("EVENT:DEATH:" + victim + ":" + killer);
+            if (entity instanceof ServerPlayer victim) {
+                long tick = ((ServerLevel) victim.level()).getServer().getTickCount();
+                String relation = source.getEntity() instanceof ServerPlayer killer ? computeRelation(killer, victim) : "environment";
+                CombatEvents.recordDeath(tick, victim, source.getEntity(), relation);
             }
         });
 
+        // Close each tick's combat event batch
+        ServerTickEvents.END_SERVER_TICK.register(server -> CombatEvents.endTick(server.getTickCount()));
+
+        // Queued resets run at the start of each tick, within the reset budget
+        ServerTickEvents.START_SERVER_TICK.register(ResetScheduler::onStartTick);
+
+        // Hand back arena slots whose matches have left
+        ServerTickEvents.END_SERVER_TICK.register(ArenaInstances::onEndTick);
+        // Save arena pad lists invalidated by block changes
+        ServerTickEvents.END_SERVER_TICK.register(ArenaManager::onEndTick);
+
+        // Background spawn-site pool for world-mode resets
+        ServerTickEvents.END_SERVER_TICK.register(SpawnSitePool::onEndTick);
+
+        // Ray-cast vision and state vector observations, computed off-thread (no-op unless enabled)
+        ServerTickEvents.END_SERVER_TICK.register(ObservationPipeline::onEndTick);
+
         // Broadcast teams when players join or disconnect so clients receive up-to-date team state immediately
         ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
             try {
@@ -713,20 +905,25 @@ public class PVP_KI implements ModInitializer {
         return out;
     }
 
-    private String computeRelation(ServerPlayer attacker, ServerPlayer target) {
+    static String computeRelation(ServerPlayer attacker, ServerPlayer target) {
         ServerLevel level = (ServerLevel) attacker.level();
         Scoreboard scoreboard = level.getScoreboard();
         PlayerTeam attackerTeam = scoreboard.getPlayersTeam(attacker.getScoreboardName());
         PlayerTeam targetTeam = scoreboard.getPlayersTeam(target.getScoreboardName());
-        
-        if (attackerTeam != null && targetTeam != null && attackerTeam == targetTeam) {
+        return relationBetween(attackerTeam != null ? attackerTeam.getName() : null,
+            targetTeam != null ? targetTeam.getName() : null, SettingsManager.neutralTeams);
+    }
+
+    /** computeRelation on team names (null = no team), for snapshots evaluated off the server thread. */
+    static String relationBetween(String attackerTeam, String targetTeam, Set<String> neutralTeams) {
+        if (attackerTeam != null && attackerTeam.equals(targetTeam)) {
             return "team";
         }
         
-        if (attackerTeam != null && SettingsManager.neutralTeams.contains(attackerTeam.getName())) {
+        if (attackerTeam != null && neutralTeams.contains(attackerTeam)) {
             return "neutral";
         }
-        if (targetTeam != null && SettingsManager.neutralTeams.contains(targetTeam.getName())) {
+        if (targetTeam != null && neutralTeams.contains(targetTeam)) {
             return "neutral";
         }
         
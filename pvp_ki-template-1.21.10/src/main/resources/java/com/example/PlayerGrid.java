@@ -0,0 +1,210 @@
+package com.example;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Uniform grid over the horizontal plane for nearest-player and radius queries.
+ *
+ * Values (players, on either side) are bucketed by (floor(x / cellSize), floor(z / cellSize));
+ * distances are full 3D. The grid is maintained incrementally: {@link #beginSync()}, then
+ * {@link #update} for every live value (a value that stays in its cell only has its position
+ * rewritten), then {@link #endSync()} drops values that were not updated. Queries visit only
+ * the cells a search can still improve on, so a k-nearest or radius query costs about the
+ * number of values nearby instead of the number of values in the level.
+ *
+ * Not thread-safe: one thread updates and queries (server thread, or client thread).
+ */
+public final class PlayerGrid<T> {
+    private static final class Entry<T> {
+        final T value;
+        double x, y, z;
+        long cell;
+        int slot;     // index in its cell's list
+        int epoch;
+
+        Entry(T value) {
+            this.value = value;
+        }
+    }
+
+    private final double cellSize;
+    private final Long2ObjectOpenHashMap<ArrayList<Entry<T>>> cells = new Long2ObjectOpenHashMap<>();
+    private final Map<T, Entry<T>> entries = new IdentityHashMap<>();
+    private int epoch;
+    // Occupied cell range; bounds how far a ring search can usefully go
+    private int minCx = Integer.MAX_VALUE, maxCx = Integer.MIN_VALUE, minCz = Integer.MAX_VALUE, maxCz = Integer.MIN_VALUE;
+
+    public PlayerGrid(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        cells.clear();
+        entries.clear();
+        minCx = minCz = Integer.MAX_VALUE;
+        maxCx = maxCz = Integer.MIN_VALUE;
+    }
+
+    public void beginSync() {
+        epoch++;
+    }
+
+    /** Insert or move a value; values in the same cell only have their position rewritten. */
+    public void update(T value, double x, double y, double z) {
+        long cell = cellKey(cellOf(x), cellOf(z));
+        Entry<T> e = entries.get(value);
+        if (e == null) {
+            e = new Entry<>(value);
+            entries.put(value, e);
+            add(e, cell);
+        } else if (e.cell != cell) {
+            removeFromCell(e);
+            add(e, cell);
+        }
+        e.x = x;
+        e.y = y;
+        e.z = z;
+        e.epoch = epoch;
+    }
+
+    /** Drop every value not updated since {@link #beginSync()}, and recompute the occupied range. */
+    public void endSync() {
+        Iterator<Entry<T>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry<T> e = it.next();
+            if (e.epoch != epoch) {
+                removeFromCell(e);
+                it.remove();
+            }
+        }
+        minCx = minCz = Integer.MAX_VALUE;
+        maxCx = maxCz = Integer.MIN_VALUE;
+        for (long key : cells.keySet()) {
+            int cx = (int) (key >> 32);
+            int cz = (int) key;
+            minCx = Math.min(minCx, cx);
+            maxCx = Math.max(maxCx, cx);
+            minCz = Math.min(minCz, cz);
+            maxCz = Math.max(maxCz, cz);
+        }
+    }
+
+    public void remove(T value) {
+        Entry<T> e = entries.remove(value);
+        if (e != null) removeFromCell(e);
+    }
+
+    /**
+     * The up to {@code k} values nearest to (x, y, z) within {@code maxDist} that pass {@code filter},
+     * nearest first, into out/outDist (both at least k long). Returns how many were found.
+     */
+    public int nearest(double x, double y, double z, int k, double maxDist, Predicate<? super T> filter,
+                       T[] out, double[] outDist) {
+        if (k <= 0 || entries.isEmpty()) return 0;
+        int qx = cellOf(x);
+        int qz = cellOf(z);
+        int maxRing = Math.max(Math.max(qx - minCx, maxCx - qx), Math.max(qz - minCz, maxCz - qz));
+        maxRing = (int) Math.min(maxRing, Math.ceil(maxDist / cellSize));
+        double maxDistSq = maxDist * maxDist;
+        int found = 0;
+        for (int r = 0; r <= maxRing; r++) {
+            for (int cx = qx - r; cx <= qx + r; cx++) {
+                // Only the ring's border: whole edge columns, top and bottom cell elsewhere
+                int step = cx == qx - r || cx == qx + r ? 1 : 2 * r;
+                for (int cz = qz - r; cz <= qz + r; cz += step) {
+                    ArrayList<Entry<T>> cell = cells.get(cellKey(cx, cz));
+                    if (cell == null) continue;
+                    for (int i = 0, n = cell.size(); i < n; i++) {
+                        Entry<T> e = cell.get(i);
+                        double dx = e.x - x, dy = e.y - y, dz = e.z - z;
+                        double dSq = dx * dx + dy * dy + dz * dz;
+                        if (dSq > maxDistSq) continue;
+                        double d = Math.sqrt(dSq);
+                        if (found == k && d >= outDist[k - 1]) continue;
+                        if (filter != null && !filter.test(e.value)) continue;
+                        // Insertion into the sorted prefix; k is small
+                        int j = found < k ? found++ : k - 1;
+                        while (j > 0 && outDist[j - 1] > d) {
+                            out[j] = out[j - 1];
+                            outDist[j] = outDist[j - 1];
+                            j--;
+                        }
+                        out[j] = e.value;
+                        outDist[j] = d;
+                    }
+                }
+            }
+            // Every cell beyond ring r is at least r cells away horizontally
+            if (found == k && outDist[k - 1] <= r * cellSize) break;
+        }
+        return found;
+    }
+
+    /** Append every value within {@code radius} of (x, y, z) that passes {@code filter} to out (unordered). */
+    public void within(double x, double y, double z, double radius, Predicate<? super T> filter, List<? super T> out) {
+        if (entries.isEmpty()) return;
+        double rSq = radius * radius;
+        int cx0 = Math.max(cellOf(x - radius), minCx), cx1 = Math.min(cellOf(x + radius), maxCx);
+        int cz0 = Math.max(cellOf(z - radius), minCz), cz1 = Math.min(cellOf(z + radius), maxCz);
+        for (int cx = cx0; cx <= cx1; cx++) {
+            for (int cz = cz0; cz <= cz1; cz++) {
+                ArrayList<Entry<T>> cell = cells.get(cellKey(cx, cz));
+                if (cell == null) continue;
+                for (int i = 0, n = cell.size(); i < n; i++) {
+                    Entry<T> e = cell.get(i);
+                    double dx = e.x - x, dy = e.y - y, dz = e.z - z;
+                    if (dx * dx + dy * dy + dz * dz <= rSq && (filter == null || filter.test(e.value))) {
+                        out.add(e.value);
+                    }
+                }
+            }
+        }
+    }
+
+    private void add(Entry<T> e, long cell) {
+        ArrayList<Entry<T>> list = cells.get(cell);
+        if (list == null) {
+            list = new ArrayList<>(4);
+            cells.put(cell, list);
+            int cx = (int) (cell >> 32);
+            int cz = (int) cell;
+            minCx = Math.min(minCx, cx);
+            maxCx = Math.max(maxCx, cx);
+            minCz = Math.min(minCz, cz);
+            maxCz = Math.max(maxCz, cz);
+        }
+        e.cell = cell;
+        e.slot = list.size();
+        list.add(e);
+    }
+
+    /** Swap-remove from the cell list; empty cells are dropped (the occupied range shrinks in endSync). */
+    private void removeFromCell(Entry<T> e) {
+        ArrayList<Entry<T>> list = cells.get(e.cell);
+        int last = list.size() - 1;
+        Entry<T> moved = list.get(last);
+        list.set(e.slot, moved);
+        moved.slot = e.slot;
+        list.remove(last);
+        if (list.isEmpty()) cells.remove(e.cell);
+    }
+
+    private int cellOf(double v) {
+        return (int) Math.floor(v / cellSize);
+    }
+
+    private static long cellKey(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+    }
+}
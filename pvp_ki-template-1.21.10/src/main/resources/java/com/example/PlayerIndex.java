@@ -0,0 +1,80 @@
+package com.example;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Server-side {@link PlayerGrid} per level over alive, non-spectator players. Synced lazily: the
+ * first query in a server tick moves every player to its current position, so ticks without a
+ * query cost nothing. (The observation pipeline builds its own grid over its snapshots, off-thread.)
+ * Relation-filtered queries use PVP_KI.computeRelation, evaluated only for candidates close
+ * enough to matter. Server thread only.
+ */
+public final class PlayerIndex {
+    public static final double CELL_SIZE = 16.0;
+
+    private static final Map<ServerLevel, PlayerGrid<ServerPlayer>> grids = new IdentityHashMap<>();
+    private static int syncedTick = -1;
+    private static long syncs;
+
+    private PlayerIndex() {}
+
+    /** Move every player to its current position and drop the departed, once per server tick. */
+    private static void sync(MinecraftServer server) {
+        if (server.getTickCount() == syncedTick) return;
+        syncedTick = server.getTickCount();
+        syncs++;
+        for (PlayerGrid<ServerPlayer> grid : grids.values()) grid.beginSync();
+        for (ServerPlayer player : server.getPlayerList().getPlayers()) {
+            if (player.isSpectator() || !player.isAlive()) continue;
+            PlayerGrid<ServerPlayer> grid = grids.get((ServerLevel) player.level());
+            if (grid == null) {
+                grid = new PlayerGrid<>(CELL_SIZE);
+                grid.beginSync();
+                grids.put((ServerLevel) player.level(), grid);
+            }
+            grid.update(player, player.getX(), player.getY(), player.getZ());
+        }
+        Iterator<PlayerGrid<ServerPlayer>> it = grids.values().iterator();
+        while (it.hasNext()) {
+            PlayerGrid<ServerPlayer> grid = it.next();
+            grid.endSync();
+            if (grid.size() == 0) it.remove();
+        }
+    }
+
+    /**
+     * The up to {@code out.length} players nearest to {@code self} in its level, within {@code maxDist},
+     * whose relation to self ("team", "neutral", "enemy") passes {@code relation} (null = any).
+     * Nearest first into out/outDist; returns how many were found. Positions are as of the first
+     * query in the current tick.
+     */
+    public static int nearest(ServerPlayer self, double maxDist, Predicate<String> relation,
+                              ServerPlayer[] out, double[] outDist) {
+        sync(((ServerLevel) self.level()).getServer());
+        PlayerGrid<ServerPlayer> grid = grids.get((ServerLevel) self.level());
+        if (grid == null) return 0;
+        return grid.nearest(self.getX(), self.getY(), self.getZ(), out.length, maxDist,
+            other -> other != self && (relation == null || relation.test(PVP_KI.computeRelation(self, other))),
+            out, outDist);
+    }
+
+    public static void clear() {
+        grids.clear();
+        syncedTick = -1;
+    }
+
+    public static String statsSummary() {
+        int players = 0;
+        for (PlayerGrid<ServerPlayer> grid : grids.values()) players += grid.size();
+        return String.format(Locale.ROOT, "levels=%d players=%d cell=%.0f syncs=%d last_sync_tick=%d",
+            grids.size(), players, CELL_SIZE, syncs, syncedTick);
+    }
+}
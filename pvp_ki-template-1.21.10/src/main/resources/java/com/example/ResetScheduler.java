@@ -0,0 +1,157 @@
+package com.example;
+
+import net.minecraft.server.MinecraftServer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs reset work spread over ticks under a time budget.
+ *
+ * A reset used to do everything inside the command: arena paste, inventory clears, teleports and
+ * kit decoding for every player. With many matches ending together that made one very long tick.
+ * Resets are now {@link Job}s: an ordered list of small steps, each tagged with a {@link Phase}.
+ * At the start of every server tick, queued jobs run first-in first-out, step by step, until
+ * SettingsManager.resetBudgetMs is used up (at least one step per tick, so a huge step still
+ * makes progress). A job's future completes (on the server thread) after its last step; callers
+ * send RESET to the bridge only then, so observations never see a half-reset episode. A step
+ * that throws fails its job's future and the job is dropped. Work that must not be split across
+ * ticks (one player's cleanup, teleport and kit: otherwise they would stand in the live match
+ * with an empty inventory) is added with {@link Job#together}, which runs as one step; the budget
+ * then falls between players, never inside one.
+ *
+ * Per-phase step timings, queue length, job latency and ticks that went over budget are kept
+ * for /ki stats resets. Server thread only.
+ */
+public final class ResetScheduler {
+    public enum Phase { PASTE, CLEANUP, TELEPORT, KIT }
+
+    /** One reset: steps in the order they were added. */
+    public static final class Job {
+        final String label;
+        final List<Phase> phases = new ArrayList<>();
+        final List<Runnable> steps = new ArrayList<>();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        long enqueuedNanos;
+        int next;
+
+        Job(String label) {
+            this.label = label;
+        }
+
+        public Job step(Phase phase, Runnable step) {
+            phases.add(phase);
+            steps.add(step);
+            return this;
+        }
+
+        /** One step running {@code parts} back to back in the same tick, each timed under its phase. */
+        public Job together(Phase[] partPhases, Runnable[] parts) {
+            phases.add(null); // timed per part below
+            steps.add(() -> {
+                for (int i = 0; i < parts.length; i++) {
+                    long t = System.nanoTime();
+                    parts[i].run();
+                    phaseTime[partPhases[i].ordinal()].recordNanos(System.nanoTime() - t);
+                }
+            });
+            return this;
+        }
+
+        /** Queue the job; the future completes once every step has run. */
+        public CompletableFuture<Void> submit() {
+            enqueuedNanos = System.nanoTime();
+            queue.add(this);
+            submitted++;
+            if (queue.size() > maxQueue) maxQueue = queue.size();
+            return done;
+        }
+    }
+
+    private static final ArrayDeque<Job> queue = new ArrayDeque<>();
+
+    // Stats
+    private static final LatencyHistogram[] phaseTime = new LatencyHistogram[Phase.values().length];
+    private static final LatencyHistogram tickTime = new LatencyHistogram();
+    private static final LatencyHistogram jobLatency = new LatencyHistogram();
+    private static long submitted, completed, failed, overruns, maxQueue;
+    static {
+        for (int i = 0; i < phaseTime.length; i++) phaseTime[i] = new LatencyHistogram();
+    }
+
+    private ResetScheduler() {}
+
+    public static Job job(String label) {
+        return new Job(label);
+    }
+
+    /** START_SERVER_TICK: run queued steps until the budget is spent. */
+    public static void onStartTick(MinecraftServer server) {
+        if (queue.isEmpty()) return;
+        long start = System.nanoTime();
+        long budget = SettingsManager.resetBudgetMs * 1_000_000L;
+        long now = start;
+        do {
+            Job job = queue.peek();
+            if (job.next < job.steps.size()) {
+                Phase phase = job.phases.get(job.next);
+                Runnable step = job.steps.get(job.next);
+                job.next++;
+                try {
+                    step.run();
+                } catch (Exception e) {
+                    queue.poll();
+                    failed++;
+                    PVP_KI.LOGGER.warn("[Resets] Reset '{}' failed in {}", job.label, phase != null ? phase : "a grouped step", e);
+                    job.done.completeExceptionally(e);
+                    now = System.nanoTime();
+                    continue;
+                }
+                long after = System.nanoTime();
+                if (phase != null) phaseTime[phase.ordinal()].recordNanos(after - now);
+                now = after;
+            }
+            if (job.next >= job.steps.size()) {
+                queue.poll();
+                completed++;
+                jobLatency.recordNanos(now - job.enqueuedNanos);
+                job.done.complete(null);
+                now = System.nanoTime();
+            }
+        } while (!queue.isEmpty() && now - start < budget);
+        tickTime.recordNanos(now - start);
+        if (now - start > budget) overruns++;
+    }
+
+    public static int queueLength() {
+        return queue.size();
+    }
+
+    /** SERVER_STOPPING: queued resets will not run; fail their futures. */
+    public static void stop() {
+        for (Job job : queue) job.done.cancel(false);
+        queue.clear();
+    }
+
+    public static String statsSummary() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+            "queue=%d max=%d submitted=%d completed=%d failed=%d budget=%dms overruns=%d tick %s | job %s",
+            queue.size(), maxQueue, submitted, completed, failed, SettingsManager.resetBudgetMs, overruns,
+            tickTime.summary(), jobLatency.summary()));
+        for (Phase phase : Phase.values()) {
+            sb.append('\n').append(phase.name().toLowerCase(Locale.ROOT)).append(": ").append(phaseTime[phase.ordinal()].summary());
+        }
+        return sb.toString();
+    }
+
+    public static void resetStats() {
+        for (LatencyHistogram h : phaseTime) h.reset();
+        tickTime.reset();
+        jobLatency.reset();
+        overruns = 0;
+        maxQueue = queue.size();
+    }
+}
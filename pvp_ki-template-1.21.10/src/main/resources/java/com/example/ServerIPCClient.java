@@ -1,42 +1,309 @@
 package com.example;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
 import java.io.DataOutputStream;
-import java.net.Socket;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Server-side IPC client for authoritative Protocol v1 event/reset signaling
  * from the Minecraft server mod to the training side command bridge.
+ *
+ * Callers on the server thread only enqueue; a single daemon sender thread owns
+ * the long-lived bridge connection, writes queued messages in order and
+ * reconnects with backoff when the bridge goes away.
+ *
+ * On every connect the client offers its codecs in a HELLO message; a bridge that
+ * answers HELLO_ACK with "bin1" gets {@link WireCodec} binary records, anything else
+ * (including an older bridge that never answers) gets the JSON fallback.
+ *
+ * The connection goes over loopback TCP or a Unix domain socket, see {@link IpcTransport};
+ * the transport is re-read on every reconnect.
  */
 public class ServerIPCClient {
+    private static final String HOST = "127.0.0.1";
     private static final int COMMAND_PORT = 9998; // Dedicated command channel (moved from 10001)
+    static final int QUEUE_CAPACITY = 1024; // StateSensor sizes its buffer ring from this
+    private static final int CONNECT_TIMEOUT_MS = 1000;
+    private static final long RECONNECT_MIN_MS = 250;
+    private static final long RECONNECT_MAX_MS = 5000;
+    private static final int HANDSHAKE_TIMEOUT_MS = 500;
+    private static final int MAX_HANDSHAKE_BYTES = 4096;
+    // How long stop() lets the sender deliver what was queued before it
+    private static final long STOP_FLUSH_MS = 1000;
     private static final Gson GSON = new Gson();
 
+    private static final BlockingQueue<WireCodec.Message> outbound = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static volatile boolean running = false;
+    // Set by stop(): late sends are refused instead of restarting the sender, until start() is called again
+    private static volatile boolean stopped = false;
+    private static volatile boolean connected = false;
+    // After stop(): the sender keeps writing what is queued until this deadline (System.nanoTime)
+    private static volatile long drainDeadlineNanos;
+    private static volatile WireCodec.Codec codec = WireCodec.Codec.JSON;
+    private static volatile Thread senderThread;
+
+    // Stats (written by sender thread, read from commands)
+    private static final AtomicLong sentCount = new AtomicLong();
+    private static final AtomicLong droppedCount = new AtomicLong();
+    private static final AtomicLong refusedCount = new AtomicLong();
+    private static final AtomicLong reconnectCount = new AtomicLong();
+    private static final AtomicLong lastSendNanos = new AtomicLong();
+    private static final AtomicLong maxSendNanos = new AtomicLong();
+    private static final AtomicLong totalSendNanos = new AtomicLong();
+
     /**
      * Send a server-authoritative event/reset command to the bridge socket.
+     * Never blocks: the message is queued for the sender thread.
      */
     public static void sendCommand(String eventType, String details) {
-        try (Socket socket = new Socket("127.0.0.1", COMMAND_PORT);
-             DataOutputStream out = new DataOutputStream(socket.getOutputStream())) {
+        JsonObject msg = new JsonObject();
+        msg.addProperty("type", eventType);
+        msg.addProperty("data", details);
+        send(msg);
+    }
+
+    /** Queue an arbitrary JSON message for the bridge (always sent as JSON). */
+    public static boolean send(JsonObject msg) {
+        return send(new WireCodec.JsonMessage(msg));
+    }
+
+    /**
+     * Queue a message for the bridge; it is encoded on the sender thread with the negotiated codec.
+     * Returns false if the outbound queue is full and the message was dropped, or if the client
+     * has been stopped (a late send from a writer or worker thread never restarts the sender).
+     */
+    public static boolean send(WireCodec.Message msg) {
+        if (stopped) {
+            refusedCount.incrementAndGet();
+            return false;
+        }
+        if (!running) start();
+        if (!outbound.offer(msg)) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public static synchronized void start() {
+        stopped = false;
+        if (running) return;
+        running = true;
+        senderThread = new Thread(ServerIPCClient::runSender, "PVP_KI-ServerIPC");
+        senderThread.setDaemon(true);
+        senderThread.start();
+    }
+
+    /**
+     * Refuse new messages, then give the sender up to STOP_FLUSH_MS to write what is already queued
+     * (the event writer's last batch and RESETs) before it is interrupted. Whatever is left after
+     * that counts as dropped.
+     */
+    public static void stop() {
+        Thread sender;
+        synchronized (ServerIPCClient.class) {
+            stopped = true;
+            drainDeadlineNanos = System.nanoTime() + STOP_FLUSH_MS * 1_000_000L;
+            running = false;
+            sender = senderThread;
+            senderThread = null;
+        }
+        if (sender != null) {
+            try {
+                sender.join(STOP_FLUSH_MS + 250);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (sender.isAlive()) sender.interrupt();
+        }
+        droppedCount.addAndGet(outbound.size());
+        outbound.clear();
+    }
+
+    /** Sender loop condition: while running, or after stop() while there is something left to write. */
+    private static boolean keepSending(WireCodec.Message pending) {
+        // A sender still draining when start() runs again leaves the queue to the new one
+        if (running) return Thread.currentThread() == senderThread;
+        return (pending != null || !outbound.isEmpty()) && System.nanoTime() < drainDeadlineNanos;
+    }
+
+    private static void runSender() {
+        IpcTransport.Connection conn = null;
+        DataOutputStream out = null;
+        WireCodec.Message pending = null;
+        WireCodec.BinaryWriter binary = new WireCodec.BinaryWriter();
+        long backoffMs = RECONNECT_MIN_MS;
+
+        while (keepSending(pending)) {
+            try {
+                if (pending == null) {
+                    // Draining after stop(): take what is there, never wait for more
+                    pending = running ? outbound.poll(500, TimeUnit.MILLISECONDS) : outbound.poll();
+                    if (pending == null) continue;
+                }
+
+                if (out == null) {
+                    conn = IpcTransport.connect(HOST, COMMAND_PORT, CONNECT_TIMEOUT_MS);
+                    out = new DataOutputStream(new BufferedOutputStream(conn.out()));
+                    codec = handshake(conn, out);
+                    connected = true;
+                    backoffMs = RECONNECT_MIN_MS;
+                    System.out.println("[ServerIPC] Connected to bridge at " + conn.describe() + " (codec " + codec.wireName + ")");
+                }
+
+                long start = System.nanoTime();
+                if (codec == WireCodec.Codec.BINARY && pending.writeBinary(binary)) {
+                    out.writeInt(binary.length());
+                    out.write(binary.array(), 0, binary.length());
+                } else {
+                    byte[] payload = WireCodec.encodeJson(pending);
+                    out.writeInt(payload.length);
+                    out.write(payload);
+                }
+                // Coalesce bursts into one flush
+                if (outbound.isEmpty()) out.flush();
+                recordSend(System.nanoTime() - start);
+                pending = null;
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException e) {
+                if (connected) {
+                    System.err.println("[ServerIPC] Bridge connection lost: " + e.getMessage());
+                }
+                closeQuietly(conn);
+                conn = null;
+                out = null;
+                connected = false;
+                reconnectCount.incrementAndGet();
+                try {
+                    Thread.sleep(running ? backoffMs : Math.min(backoffMs, RECONNECT_MIN_MS));
+                } catch (InterruptedException ie) {
+                    break;
+                }
+                backoffMs = Math.min(backoffMs * 2, RECONNECT_MAX_MS);
+            }
+        }
+
+        if (out != null) {
+            try {
+                out.flush();
+            } catch (IOException ignored) {
+            }
+        }
+        closeQuietly(conn);
+        connected = false;
+    }
+
+    /**
+     * Offer our codecs and wait briefly for HELLO_ACK. Bridges that predate the
+     * handshake never answer, so a timeout means JSON.
+     */
+    private static WireCodec.Codec handshake(IpcTransport.Connection conn, DataOutputStream out) throws IOException {
+        JsonObject hello = new JsonObject();
+        hello.addProperty("type", "HELLO");
+        hello.addProperty("schema", WireCodec.SCHEMA_V1);
+        JsonArray codecs = new JsonArray();
+        for (WireCodec.Codec c : WireCodec.Codec.values()) codecs.add(c.wireName);
+        hello.add("codecs", codecs);
+        byte[] payload = GSON.toJson(hello).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.flush();
+
+        conn.setReadTimeout(HANDSHAKE_TIMEOUT_MS);
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(conn.in()));
+            int len = in.readInt();
+            if (len <= 0 || len > MAX_HANDSHAKE_BYTES) return WireCodec.Codec.JSON;
+            byte[] reply = new byte[len];
+            in.readFully(reply);
+            JsonObject ack = GSON.fromJson(new String(reply, StandardCharsets.UTF_8), JsonObject.class);
+            if (ack != null && ack.has("codec") && "HELLO_ACK".equals(ack.get("type").getAsString())) {
+                return WireCodec.Codec.fromWireName(ack.get("codec").getAsString());
+            }
+            return WireCodec.Codec.JSON;
+        } catch (SocketTimeoutException e) {
+            return WireCodec.Codec.JSON;
+        } catch (RuntimeException e) {
+            // Malformed reply; stay on the fallback
+            return WireCodec.Codec.JSON;
+        } finally {
+            conn.setReadTimeout(0);
+        }
+    }
 
-            JsonObject msg = new JsonObject();
-            msg.addProperty("type", eventType);
-            msg.addProperty("data", details);
+    private static void recordSend(long nanos) {
+        sentCount.incrementAndGet();
+        lastSendNanos.set(nanos);
+        totalSendNanos.addAndGet(nanos);
+        maxSendNanos.accumulateAndGet(nanos, Math::max);
+    }
 
-            byte[] payload = GSON.toJson(msg).getBytes(StandardCharsets.UTF_8);
-            out.writeInt(payload.length);
-            out.write(payload);
-            out.flush();
-            System.out.println("[ServerIPC] Sent command: " + eventType + " - " + details);
-        } catch (Exception e) {
-            System.err.println("[ServerIPC] Failed to send command: " + e.getMessage());
+    private static void closeQuietly(IpcTransport.Connection conn) {
+        if (conn == null) return;
+        try {
+            conn.close();
+        } catch (IOException ignored) {
         }
     }
 
     public static boolean isConnected() {
-        return true; // fire-and-forget per command
+        return connected;
+    }
+
+    public static WireCodec.Codec getCodec() {
+        return codec;
+    }
+
+    public static int getQueueDepth() {
+        return outbound.size();
+    }
+
+    public static long getSentCount() {
+        return sentCount.get();
+    }
+
+    public static long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public static long getRefusedCount() {
+        return refusedCount.get();
+    }
+
+    public static long getReconnectCount() {
+        return reconnectCount.get();
+    }
+
+    public static double getLastSendLatencyMicros() {
+        return lastSendNanos.get() / 1000.0;
+    }
+
+    public static double getAvgSendLatencyMicros() {
+        long n = sentCount.get();
+        return n == 0 ? 0.0 : (totalSendNanos.get() / (double) n) / 1000.0;
+    }
+
+    public static double getMaxSendLatencyMicros() {
+        return maxSendNanos.get() / 1000.0;
+    }
+
+    public static String statsSummary() {
+        return String.format(java.util.Locale.ROOT,
+            "connected=%s codec=%s queue=%d/%d sent=%d dropped=%d refused_after_stop=%d reconnects=%d send_us(last/avg/max)=%.1f/%.1f/%.1f",
+            connected, codec.wireName, getQueueDepth(), QUEUE_CAPACITY, getSentCount(), getDroppedCount(), getRefusedCount(), getReconnectCount(),
+            getLastSendLatencyMicros(), getAvgSendLatencyMicros(), getMaxSendLatencyMicros());
     }
 }
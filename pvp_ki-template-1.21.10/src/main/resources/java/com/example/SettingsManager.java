@@ -39,6 +39,32 @@ public class SettingsManager {
     public static String resetMode = "world";
     // Neutral teams: scoreboard teams marked as neutral
     public static Set<String> neutralTeams = new HashSet<>();
+    // Combat event ring: slot count and writer wait strategy (busy_spin, yielding, sleeping, blocking)
+    public static int eventRingCapacity = 4096;
+    public static String eventWaitStrategy = "sleeping";
+    // Bridge socket transport: "tcp" (loopback) or "uds"; empty socket dir means <tmpdir>/pvp_ki
+    public static String ipcTransport = "tcp";
+    public static String ipcSocketDir = "";
+    // Server-side ray-cast vision sensor (VisionSensor): off by default
+    public static boolean visionEnabled = false;
+    public static int visionGridWidth = 16;
+    public static int visionGridHeight = 9;
+    public static float visionFovDegrees = 90.0f;
+    public static float visionRange = 48.0f;
+    public static int visionEveryTicks = 1;
+    // Server-thread time per tick for queued reset work (ResetScheduler)
+    public static int resetBudgetMs = 10;
+    // Parallel instances of each arena (ArenaInstances slots), one match per slot
+    public static int arenaSlots = 8;
+    // Where arena slots are tiled (block X/Z of the north-west corner) in the pvp_ki:arenas dimension
+    public static int arenaSlotRegionX = 1_000_000;
+    public static int arenaSlotRegionZ = 1_000_000;
+    // World-mode spawn sites kept pre-generated by SpawnSitePool (0 = off)
+    public static int spawnPoolSize = 4;
+    // Server-side semantic state vectors (StateSensor): off by default
+    public static boolean stateEnabled = false;
+    public static int stateNearestK = 4;
+    public static int stateEveryTicks = 1;
     
     // Teams (temporary, per session)
     public static Map<String, Set<String>> teams = new HashMap<>();
@@ -61,6 +87,78 @@ public class SettingsManager {
                         resetMode = (String) rm;
                     }
                     neutralTeams = new HashSet<>((List<String>) data.getOrDefault("neutralTeams", new ArrayList<>())) ;
+                    Object cap = data.get("eventRingCapacity");
+                    if (cap instanceof Number) {
+                        eventRingCapacity = Math.max(64, ((Number) cap).intValue());
+                    }
+                    Object ws = data.get("eventWaitStrategy");
+                    if (ws instanceof String) {
+                        eventWaitStrategy = (String) ws;
+                    }
+                    Object transport = data.get("ipcTransport");
+                    if (transport instanceof String) {
+                        ipcTransport = (String) transport;
+                    }
+                    Object socketDir = data.get("ipcSocketDir");
+                    if (socketDir instanceof String) {
+                        ipcSocketDir = (String) socketDir;
+                    }
+                    Object vision = data.get("visionEnabled");
+                    if (vision instanceof Boolean) {
+                        visionEnabled = (Boolean) vision;
+                    }
+                    Object gridW = data.get("visionGridWidth");
+                    if (gridW instanceof Number) {
+                        visionGridWidth = Math.max(1, ((Number) gridW).intValue());
+                    }
+                    Object gridH = data.get("visionGridHeight");
+                    if (gridH instanceof Number) {
+                        visionGridHeight = Math.max(1, ((Number) gridH).intValue());
+                    }
+                    Object fov = data.get("visionFovDegrees");
+                    if (fov instanceof Number) {
+                        visionFovDegrees = ((Number) fov).floatValue();
+                    }
+                    Object range = data.get("visionRange");
+                    if (range instanceof Number) {
+                        visionRange = Math.max(1.0f, ((Number) range).floatValue());
+                    }
+                    Object every = data.get("visionEveryTicks");
+                    if (every instanceof Number) {
+                        visionEveryTicks = Math.max(1, ((Number) every).intValue());
+                    }
+                    Object state = data.get("stateEnabled");
+                    if (state instanceof Boolean) {
+                        stateEnabled = (Boolean) state;
+                    }
+                    Object nearestK = data.get("stateNearestK");
+                    if (nearestK instanceof Number) {
+                        stateNearestK = Math.max(0, ((Number) nearestK).intValue());
+                    }
+                    Object stateEvery = data.get("stateEveryTicks");
+                    if (stateEvery instanceof Number) {
+                        stateEveryTicks = Math.max(1, ((Number) stateEvery).intValue());
+                    }
+                    Object budget = data.get("resetBudgetMs");
+                    if (budget instanceof Number) {
+                        resetBudgetMs = Math.max(1, ((Number) budget).intValue());
+                    }
+                    Object slots = data.get("arenaSlots");
+                    if (slots instanceof Number) {
+                        arenaSlots = Math.max(1, ((Number) slots).intValue());
+                    }
+                    Object regionX = data.get("arenaSlotRegionX");
+                    if (regionX instanceof Number) {
+                        arenaSlotRegionX = ((Number) regionX).intValue();
+                    }
+                    Object regionZ = data.get("arenaSlotRegionZ");
+                    if (regionZ instanceof Number) {
+                        arenaSlotRegionZ = ((Number) regionZ).intValue();
+                    }
+                    Object spawnPool = data.get("spawnPoolSize");
+                    if (spawnPool instanceof Number) {
+                        spawnPoolSize = Math.max(0, ((Number) spawnPool).intValue());
+                    }
                     System.out.println("[Settings] Loaded settings");
                 }
             }
@@ -82,6 +180,24 @@ public class SettingsManager {
             data.put("blockedBiomes", new ArrayList<>(blockedBiomes));
             data.put("resetMode", resetMode);
             data.put("neutralTeams", new ArrayList<>(neutralTeams));
+            data.put("eventRingCapacity", eventRingCapacity);
+            data.put("eventWaitStrategy", eventWaitStrategy);
+            data.put("ipcTransport", ipcTransport);
+            data.put("ipcSocketDir", ipcSocketDir);
+            data.put("visionEnabled", visionEnabled);
+            data.put("visionGridWidth", visionGridWidth);
+            data.put("visionGridHeight", visionGridHeight);
+            data.put("visionFovDegrees", visionFovDegrees);
+            data.put("visionRange", visionRange);
+            data.put("visionEveryTicks", visionEveryTicks);
+            data.put("resetBudgetMs", resetBudgetMs);
+            data.put("arenaSlots", arenaSlots);
+            data.put("arenaSlotRegionX", arenaSlotRegionX);
+            data.put("arenaSlotRegionZ", arenaSlotRegionZ);
+            data.put("spawnPoolSize", spawnPoolSize);
+            data.put("stateEnabled", stateEnabled);
+            data.put("stateNearestK", stateNearestK);
+            data.put("stateEveryTicks", stateEveryTicks);
             try (Writer writer = Files.newBufferedWriter(SETTINGS_FILE)) {
                 GSON.toJson(data, writer);
             }
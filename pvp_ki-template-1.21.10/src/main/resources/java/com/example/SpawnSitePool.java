@@ -0,0 +1,196 @@
+package com.example;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Holder;
+import net.minecraft.core.Registry;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.Identifier;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.TicketType;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.chunk.LevelChunk;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Pre-generated spawn sites for world-mode resets.
+ *
+ * World resets used to pick random chunks within SEARCH_RADIUS and load them with level.getChunk,
+ * which generates fresh terrain synchronously and can stall the server for seconds. This pool
+ * keeps up to spawnPoolSize validated sites in the overworld instead:
+ *
+ *   1. every tick, while ready + loading < target, a random candidate chunk gets a
+ *      {@link #TICKET} ticket of radius {@link #SITE_CHUNK_RADIUS}, which covers every column
+ *      a reset may spawn or relocate a player to; the chunk system loads or generates those
+ *      chunks off-thread, at most {@link #MAX_LOADING} sites at a time (adding a ticket never
+ *      loads on the tick thread, unlike ServerLevel.setChunkForced, which calls getChunk)
+ *   2. getChunkNow is polled each tick; once it returns every chunk in the radius, the centre
+ *      is validated like before (never inhabited, no block entities) plus the real biome against
+ *      SettingsManager.isBiomeAllowed; rejected and timed-out candidates lose their ticket
+ *   3. accepted sites keep the ticket (stay loaded) until a reset takes one, so SurfaceFinder
+ *      never has to generate a neighbouring chunk
+ *
+ * The ticket type is not persistent, so a crash cannot leave pool chunks loaded in the save.
+ *
+ * {@link #take} is O(1); a reset that finds the pool empty counts a miss and falls back to the
+ * old synchronous search. The pool only refills in world reset mode. Server thread only.
+ */
+public final class SpawnSitePool {
+    public static final int SEARCH_RADIUS = 100000;
+    private static final int MAX_LOADING = 2;
+    private static final int LOAD_TIMEOUT_TICKS = 600;
+    // Chunks around the site kept loaded: world resets spawn up to 20 (team circle) + 2 (offset)
+    // + 8 (SurfaceFinder relocation) blocks from the chunk's middle block, i.e. two chunks out
+    public static final int SITE_CHUNK_RADIUS = 2;
+
+    /** Loads the chunk (full status), never expires on its own, and is not saved with the level. */
+    private static TicketType TICKET;
+
+    /** A validated site: block x/z in a loaded, never-inhabited chunk with an allowed biome (neighbours loaded too). */
+    public record Site(int x, int z, String biome) {}
+
+    private static final class Candidate {
+        final int cx, cz;
+        final long startTick;
+        final long startNanos = System.nanoTime();
+
+        Candidate(int cx, int cz, long startTick) {
+            this.cx = cx;
+            this.cz = cz;
+            this.startTick = startTick;
+        }
+    }
+
+    private static final ArrayDeque<Site> ready = new ArrayDeque<>();
+    private static final List<Candidate> loading = new ArrayList<>();
+    private static final Random random = new Random();
+
+    // Stats
+    private static final LatencyHistogram timeToReady = new LatencyHistogram();
+    private static long requested;
+    private static long accepted;
+    private static long rejected;
+    private static long timedOut;
+    private static long taken;
+    private static long misses;
+    private static long firstReadyTick = -1;
+    private static long lastTick;
+
+    private SpawnSitePool() {}
+
+    /** Register the ticket type; call from onInitialize, while registries are still open. */
+    public static void init() {
+        TICKET = Registry.register(BuiltInRegistries.TICKET_TYPE, Identifier.fromNamespaceAndPath("pvp_ki", "spawn_site"),
+            new TicketType(0L, TicketType.FLAG_LOADING));
+    }
+
+    private static void addTicket(ServerLevel level, int cx, int cz) {
+        level.getChunkSource().addTicketWithRadius(TICKET, new ChunkPos(cx, cz), SITE_CHUNK_RADIUS);
+    }
+
+    private static void removeTicket(ServerLevel level, int cx, int cz) {
+        level.getChunkSource().removeTicketWithRadius(TICKET, new ChunkPos(cx, cz), SITE_CHUNK_RADIUS);
+    }
+
+    /** The site's chunk once it and every chunk within SITE_CHUNK_RADIUS are fully loaded, else null. */
+    private static LevelChunk loadedSite(ServerLevel level, int cx, int cz) {
+        for (int dx = -SITE_CHUNK_RADIUS; dx <= SITE_CHUNK_RADIUS; dx++) {
+            for (int dz = -SITE_CHUNK_RADIUS; dz <= SITE_CHUNK_RADIUS; dz++) {
+                if (level.getChunkSource().getChunkNow(cx + dx, cz + dz) == null) return null;
+            }
+        }
+        return level.getChunkSource().getChunkNow(cx, cz);
+    }
+
+    /** END_SERVER_TICK: collect loaded candidates and start new ones. */
+    public static void onEndTick(MinecraftServer server) {
+        long tick = server.getTickCount();
+        lastTick = tick;
+        ServerLevel level = server.overworld();
+        Iterator<Candidate> it = loading.iterator();
+        while (it.hasNext()) {
+            Candidate c = it.next();
+            LevelChunk chunk = loadedSite(level, c.cx, c.cz);
+            if (chunk != null) {
+                it.remove();
+                Site site = validate(level, chunk);
+                if (site != null) {
+                    ready.add(site);
+                    accepted++;
+                    if (firstReadyTick < 0) firstReadyTick = tick;
+                    timeToReady.recordNanos(System.nanoTime() - c.startNanos);
+                } else {
+                    rejected++;
+                    removeTicket(level, c.cx, c.cz);
+                }
+            } else if (tick - c.startTick > LOAD_TIMEOUT_TICKS) {
+                it.remove();
+                timedOut++;
+                removeTicket(level, c.cx, c.cz);
+            }
+        }
+
+        if (!"world".equalsIgnoreCase(SettingsManager.resetMode)) return;
+        while (ready.size() + loading.size() < SettingsManager.spawnPoolSize && loading.size() < MAX_LOADING) {
+            int cx = (random.nextInt(2 * SEARCH_RADIUS) - SEARCH_RADIUS) >> 4;
+            int cz = (random.nextInt(2 * SEARCH_RADIUS) - SEARCH_RADIUS) >> 4;
+            addTicket(level, cx, cz);
+            loading.add(new Candidate(cx, cz, tick));
+            requested++;
+        }
+    }
+
+    private static Site validate(ServerLevel level, LevelChunk chunk) {
+        if (chunk.getInhabitedTime() != 0 || !chunk.getBlockEntities().isEmpty()) return null;
+        int x = chunk.getPos().getMiddleBlockX();
+        int z = chunk.getPos().getMiddleBlockZ();
+        String biome = biomeName(level.getBiome(new BlockPos(x, level.getSeaLevel(), z)));
+        return SettingsManager.isBiomeAllowed(biome) ? new Site(x, z, biome) : null;
+    }
+
+    /** Biome id without the namespace ("plains"), the form /ki settings biome uses. */
+    static String biomeName(Holder<Biome> biome) {
+        String id = biome.getRegisteredName();
+        int colon = id.indexOf(':');
+        return colon >= 0 ? id.substring(colon + 1) : id;
+    }
+
+    /**
+     * A ready site in {@code level}, or null (a miss) if the pool is empty or serves another level.
+     * The site's chunk ticket is released: the players teleported there keep it loaded.
+     */
+    public static Site take(ServerLevel level) {
+        Site site = level == level.getServer().overworld() ? ready.poll() : null;
+        if (site == null) {
+            misses++;
+            return null;
+        }
+        taken++;
+        removeTicket(level, site.x() >> 4, site.z() >> 4);
+        return site;
+    }
+
+    /** SERVER_STOPPING: drop every ticket we hold (they are not saved either way). */
+    public static void stop(MinecraftServer server) {
+        ServerLevel level = server.overworld();
+        for (Site site : ready) removeTicket(level, site.x() >> 4, site.z() >> 4);
+        for (Candidate c : loading) removeTicket(level, c.cx, c.cz);
+        ready.clear();
+        loading.clear();
+    }
+
+    public static String statsSummary() {
+        double minutes = firstReadyTick < 0 ? 0.0 : Math.max(1, lastTick - firstReadyTick) / 1200.0;
+        return String.format(Locale.ROOT,
+            "depth=%d/%d loading=%d requested=%d accepted=%d rejected=%d timed_out=%d refill=%.1f/min taken=%d misses=%d time_to_ready: %s",
+            ready.size(), SettingsManager.spawnPoolSize, loading.size(), requested, accepted, rejected, timedOut,
+            minutes == 0.0 ? 0.0 : accepted / minutes, taken, misses, timeToReady.summary());
+    }
+}
@@ -0,0 +1,206 @@
+package com.example;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.component.DataComponents;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.tags.ItemTags;
+import net.minecraft.world.item.BlockItem;
+import net.minecraft.world.item.BowItem;
+import net.minecraft.world.item.CrossbowItem;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import net.minecraft.world.item.TridentItem;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Semantic observation: one flat feature vector per agent per tick, from server state copied at the end of the tick.
+ *
+ * Layout (floats, in order; Python mirrors it as wire_codec.STATE_*_FIELDS):
+ *   self       17  health, max health, absorption, food, saturation, x, y, z, vx, vy, vz,
+ *                  yaw, pitch, look x, look y, look z, on ground
+ *   items       9  attack damage, attack speed, main hand class, main hand count, off hand class,
+ *                  off hand count, armor, armor toughness, armor pieces worn
+ *   arena       7  in arena, arena min - pos (x, y, z), arena max + 1 - pos (x, y, z)
+ *   neighbours  stateNearestK x 8: present, dx, dy, dz, distance, health, max health, relation
+ *                  (nearest players first, relation as VisionSensor.ENTITY_*; absent slots are zero)
+ *
+ * Item classes are {@link #ITEM_EMPTY} .. {@link #ITEM_OTHER}. Agents are all alive, non-spectator
+ * players; neighbours are the other agents in the same level, found with a {@link PlayerGrid}.
+ *
+ * Rows are computed on {@link ObservationPipeline} workers from the tick's {@link AgentSnapshot}s
+ * and written into direct little-endian buffers, so the sender thread copies them onto the wire
+ * in one bulk put and Python reads them with np.frombuffer. A message keeps its buffer until it
+ * is written, so buffers rotate through a ring longer than everything that can hold one at once:
+ * the bridge queue, the message the sender holds, and the ticks still in the pipeline.
+ * One OBSERVATION message with sensor "state" (agents x 1 x features x 1) is sent per sampled tick.
+ */
+public final class StateSensor {
+    public static final String SENSOR = "state";
+    public static final int SELF_FEATURES = 17;
+    public static final int ITEM_FEATURES = 9;
+    public static final int ARENA_FEATURES = 7;
+    public static final int NEIGHBOUR_FEATURES = 8;
+
+    public static final int ITEM_EMPTY = 0;
+    public static final int ITEM_SWORD = 1;
+    public static final int ITEM_AXE = 2;
+    public static final int ITEM_RANGED = 3;  // bow, crossbow, trident
+    public static final int ITEM_SHIELD = 4;
+    public static final int ITEM_TOTEM = 5;
+    public static final int ITEM_FOOD = 6;
+    public static final int ITEM_BLOCK = 7;
+    public static final int ITEM_OTHER = 8;
+
+    // Ring of row buffers; claimed on the server thread, see the class comment for the length
+    private static final ByteBuffer[] ring = new ByteBuffer[ServerIPCClient.QUEUE_CAPACITY + 2 + ObservationPipeline.MAX_IN_FLIGHT];
+    private static int ringNext;
+
+    // Stats (written in tick order by the pipeline's publish step)
+    private static volatile long sampledTicks;
+    private static volatile long agentRows;
+
+    private StateSensor() {}
+
+    public static int featuresPerAgent(int nearestK) {
+        return SELF_FEATURES + ITEM_FEATURES + ARENA_FEATURES + nearestK * NEIGHBOUR_FEATURES;
+    }
+
+    static void recordRows(int agents) {
+        sampledTicks++;
+        agentRows += agents;
+    }
+
+    /** Server thread: the next ring slot, reallocated if smaller than {@code bytes}; every row byte is overwritten. */
+    static ByteBuffer claim(int bytes) {
+        ByteBuffer buf = ring[ringNext];
+        if (buf == null || buf.capacity() < bytes) {
+            buf = ByteBuffer.allocateDirect(Math.max(bytes, buf == null ? 0 : buf.capacity() * 2)).order(ByteOrder.LITTLE_ENDIAN);
+            ring[ringNext] = buf;
+        }
+        ringNext = (ringNext + 1) % ring.length;
+        return buf;
+    }
+
+    /** Worker: one row per snapshot agent, in order. Neighbours come from a grid over the snapshot. */
+    static void writeRows(ObservationPipeline.Snapshot snap, ByteBuffer rows) {
+        int k = snap.nearestK;
+        Map<ServerLevel, PlayerGrid<AgentSnapshot>> grids = new IdentityHashMap<>();
+        for (AgentSnapshot a : snap.agents) {
+            PlayerGrid<AgentSnapshot> grid = grids.computeIfAbsent(a.level, l -> {
+                PlayerGrid<AgentSnapshot> g = new PlayerGrid<>(PlayerIndex.CELL_SIZE);
+                g.beginSync();
+                return g;
+            });
+            grid.update(a, a.x, a.y, a.z);
+        }
+        for (PlayerGrid<AgentSnapshot> grid : grids.values()) grid.endSync();
+
+        AgentSnapshot[] nearest = new AgentSnapshot[k];
+        double[] nearestDist = new double[k];
+        int o = 0;
+        for (AgentSnapshot agent : snap.agents) {
+            o = writeSelf(rows, o, agent);
+            o = writeItems(rows, o, agent);
+            o = writeArena(rows, o, agent);
+            int found = grids.get(agent.level).nearest(agent.x, agent.y, agent.z, k, Double.MAX_VALUE,
+                other -> other != agent, nearest, nearestDist);
+            for (int i = 0; i < k; i++) {
+                o = i < found ? writeNeighbour(rows, o, snap, agent, nearest[i], nearestDist[i]) : zeros(rows, o, NEIGHBOUR_FEATURES);
+            }
+        }
+    }
+
+    private static int put(ByteBuffer b, int o, float v) {
+        b.putFloat(o, v);
+        return o + 4;
+    }
+
+    private static int zeros(ByteBuffer b, int o, int count) {
+        for (int i = 0; i < count; i++) o = put(b, o, 0.0f);
+        return o;
+    }
+
+    private static int writeSelf(ByteBuffer b, int o, AgentSnapshot p) {
+        o = put(b, o, p.health);
+        o = put(b, o, p.maxHealth);
+        o = put(b, o, p.absorption);
+        o = put(b, o, p.food);
+        o = put(b, o, p.saturation);
+        o = put(b, o, (float) p.x);
+        o = put(b, o, (float) p.y);
+        o = put(b, o, (float) p.z);
+        o = put(b, o, (float) p.velX);
+        o = put(b, o, (float) p.velY);
+        o = put(b, o, (float) p.velZ);
+        o = put(b, o, p.yaw);
+        o = put(b, o, p.pitch);
+        o = put(b, o, (float) p.lookX);
+        o = put(b, o, (float) p.lookY);
+        o = put(b, o, (float) p.lookZ);
+        return put(b, o, p.onGround ? 1.0f : 0.0f);
+    }
+
+    private static int writeItems(ByteBuffer b, int o, AgentSnapshot p) {
+        o = put(b, o, p.attackDamage);
+        o = put(b, o, p.attackSpeed);
+        o = put(b, o, p.mainHandClass);
+        o = put(b, o, p.mainHandCount);
+        o = put(b, o, p.offHandClass);
+        o = put(b, o, p.offHandCount);
+        o = put(b, o, p.armor);
+        o = put(b, o, p.armorToughness);
+        return put(b, o, p.armorPieces);
+    }
+
+    private static int writeArena(ByteBuffer b, int o, AgentSnapshot p) {
+        if (p.arenaMin == null) return zeros(b, o, ARENA_FEATURES);
+        BlockPos min = p.arenaMin;
+        BlockPos max = p.arenaMax;
+        o = put(b, o, 1.0f);
+        o = put(b, o, (float) (min.getX() - p.x));
+        o = put(b, o, (float) (min.getY() - p.y));
+        o = put(b, o, (float) (min.getZ() - p.z));
+        o = put(b, o, (float) (max.getX() + 1 - p.x));
+        o = put(b, o, (float) (max.getY() + 1 - p.y));
+        return put(b, o, (float) (max.getZ() + 1 - p.z));
+    }
+
+    private static int writeNeighbour(ByteBuffer b, int o, ObservationPipeline.Snapshot snap,
+                                      AgentSnapshot self, AgentSnapshot other, double dist) {
+        o = put(b, o, 1.0f);
+        o = put(b, o, (float) (other.x - self.x));
+        o = put(b, o, (float) (other.y - self.y));
+        o = put(b, o, (float) (other.z - self.z));
+        o = put(b, o, (float) dist);
+        o = put(b, o, other.health);
+        o = put(b, o, other.maxHealth);
+        return put(b, o, VisionSensor.relationClass(PVP_KI.relationBetween(self.team, other.team, snap.neutralTeams)));
+    }
+
+    static int itemClass(ItemStack stack) {
+        if (stack.isEmpty()) return ITEM_EMPTY;
+        if (stack.is(ItemTags.SWORDS)) return ITEM_SWORD;
+        if (stack.is(ItemTags.AXES)) return ITEM_AXE;
+        if (stack.getItem() instanceof BowItem || stack.getItem() instanceof CrossbowItem || stack.getItem() instanceof TridentItem) {
+            return ITEM_RANGED;
+        }
+        if (stack.is(Items.SHIELD)) return ITEM_SHIELD;
+        if (stack.is(Items.TOTEM_OF_UNDYING)) return ITEM_TOTEM;
+        if (stack.has(DataComponents.FOOD)) return ITEM_FOOD;
+        if (stack.getItem() instanceof BlockItem) return ITEM_BLOCK;
+        return ITEM_OTHER;
+    }
+
+    public static String statsSummary() {
+        long n = sampledTicks;
+        return String.format(Locale.ROOT,
+            "enabled=%s k=%d features=%d every=%d ticks=%d agents/tick=%.1f (timings: /ki stats pipeline)",
+            SettingsManager.stateEnabled, SettingsManager.stateNearestK, featuresPerAgent(SettingsManager.stateNearestK),
+            SettingsManager.stateEveryTicks, n, n == 0 ? 0.0 : (double) agentRows / n);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.levelgen.Heightmap;
+
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Where a player can stand in a column, from the chunk heightmaps.
+ *
+ * World resets used to scan each column from Y 320 down to the first non-air block, allocating a
+ * BlockPos per step, and happily put players on lava, water or cactus. Here the surface is one
+ * MOTION_BLOCKING_NO_LEAVES heightmap read (so the ground is never a tree canopy); the column is
+ * safe if the ground is not a fluid or hazard and the two blocks a player occupies are not
+ * hazards either (fire, berry bushes and powder snow do not block motion). Hazard classes are
+ * VisionSensor.blockClass's.
+ *
+ * Results are cached per level and column for {@link #CACHE_TICKS} ticks, enough for one reset to
+ * ask about the same columns repeatedly without serving stale terrain later. Server thread only.
+ */
+public final class SurfaceFinder {
+    /** No standing spot in the column (unsafe or no ground). */
+    public static final int NONE = Integer.MIN_VALUE;
+    static final int CACHE_TICKS = 200;
+    private static final int CACHE_LIMIT = 4096;
+
+    // Per level: column key (BlockPos.asLong at y 0) -> (tick << 32) | standing y
+    private static final Map<ServerLevel, Long2LongOpenHashMap> cache = new IdentityHashMap<>();
+
+    // Stats
+    private static final LatencyHistogram lookupTime = new LatencyHistogram();
+    private static long lookups;
+    private static long cacheHits;
+    private static long unsafe;
+    private static long relocated;
+    private static long notFound;
+
+    private SurfaceFinder() {}
+
+    /** Feet Y of a safe standing spot at block column (x, z), or {@link #NONE}. */
+    public static int standingY(ServerLevel level, int x, int z) {
+        lookups++;
+        long tick = level.getServer().getTickCount();
+        Long2LongOpenHashMap columns = cache.computeIfAbsent(level, l -> new Long2LongOpenHashMap());
+        long key = BlockPos.asLong(x, 0, z);
+        if (columns.containsKey(key)) {
+            long entry = columns.get(key);
+            if (tick - (entry >> 32) <= CACHE_TICKS) {
+                cacheHits++;
+                return (int) entry;
+            }
+        }
+
+        long start = System.nanoTime();
+        int y = compute(level, x, z);
+        lookupTime.recordNanos(System.nanoTime() - start);
+        if (y == NONE) unsafe++;
+        if (columns.size() >= CACHE_LIMIT) columns.clear();
+        columns.put(key, (tick << 32) | (y & 0xFFFFFFFFL));
+        return y;
+    }
+
+    /**
+     * A safe standing spot at (x, z) or, failing that, the nearest one found walking outward in
+     * square rings up to {@code radius} blocks. Null if there is none.
+     */
+    public static BlockPos findSafe(ServerLevel level, int x, int z, int radius) {
+        for (int r = 0; r <= radius; r++) {
+            for (int dx = -r; dx <= r; dx++) {
+                for (int dz = -r; dz <= r; dz++) {
+                    if (Math.max(Math.abs(dx), Math.abs(dz)) != r) continue; // ring only
+                    int y = standingY(level, x + dx, z + dz);
+                    if (y != NONE) {
+                        if (r > 0) relocated++;
+                        return new BlockPos(x + dx, y, z + dz);
+                    }
+                }
+            }
+        }
+        notFound++;
+        return null;
+    }
+
+    private static int compute(ServerLevel level, int x, int z) {
+        int feet = level.getHeight(Heightmap.Types.MOTION_BLOCKING_NO_LEAVES, x, z);
+        if (feet <= level.getMinY()) return NONE; // void column
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos(x, feet - 1, z);
+        BlockState ground = level.getBlockState(pos);
+        int groundClass = VisionSensor.blockClass(ground, ground.getFluidState());
+        if (groundClass != VisionSensor.BLOCK_SOLID && groundClass != VisionSensor.BLOCK_PAD) {
+            return NONE; // water, lava, cactus, magma...
+        }
+        for (int dy = 0; dy < 2; dy++) {
+            BlockState body = level.getBlockState(pos.setY(feet + dy));
+            if (body.isAir()) continue;
+            int cls = VisionSensor.blockClass(body, body.getFluidState());
+            if (cls == VisionSensor.BLOCK_HAZARD || cls == VisionSensor.BLOCK_WATER) return NONE;
+        }
+        return feet;
+    }
+
+    public static void clear() {
+        cache.clear();
+    }
+
+    public static String statsSummary() {
+        return String.format(Locale.ROOT,
+            "lookups=%d cache_hits=%d unsafe_columns=%d relocated=%d not_found=%d heightmap_read: %s",
+            lookups, cacheHits, unsafe, relocated, notFound, lookupTime.summary());
+    }
+}
@@ -0,0 +1,173 @@
+package com.example;
+
+import net.minecraft.tags.BlockTags;
+import net.minecraft.tags.FluidTags;
+import net.minecraft.util.Mth;
+import net.minecraft.world.level.ClipContext;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.material.FluidState;
+import net.minecraft.world.phys.BlockHitResult;
+import net.minecraft.world.phys.HitResult;
+import net.minecraft.world.phys.Vec3;
+import net.minecraft.world.phys.shapes.CollisionContext;
+
+import java.util.Locale;
+
+/**
+ * Pixel-free observation: a grid of rays cast from every agent's eyes each tick.
+ *
+ * The grid is visionGridWidth x visionGridHeight rays spread evenly over visionFovDegrees
+ * horizontally (vertical FOV keeps the grid's aspect ratio), centred on the agent's look
+ * direction, out to visionRange blocks. Every ray yields {@link #CHANNELS} floats:
+ *   0  block distance / range (1 = nothing hit)
+ *   1  block class ({@link #BLOCK_NONE} .. {@link #BLOCK_PAD})
+ *   2  entity distance / range (1 = nothing hit in front of the block)
+ *   3  entity class ({@link #ENTITY_NONE} .. {@link #ENTITY_OTHER}, relation from PVP_KI.computeRelation)
+ *
+ * Rays run on {@link ObservationPipeline} workers against the tick's snapshot: copied block
+ * sections (a {@link ChunkView}) and the entity boxes in {@link AgentSnapshot}. Block rays reuse
+ * ClipContext and BlockGetter.clip as in PVP_KI.rayTraceBlock, with an empty collision context
+ * since the live player must not be read off-thread. Each sampled tick yields one OBSERVATION
+ * message with sensor "rays" (agents x height x width x channels).
+ */
+public final class VisionSensor {
+    public static final String SENSOR = "rays";
+    public static final int CHANNELS = 4;
+
+    public static final int BLOCK_NONE = 0;
+    public static final int BLOCK_SOLID = 1;
+    public static final int BLOCK_WATER = 2;
+    public static final int BLOCK_HAZARD = 3;  // lava, fire, magma, cactus, berry bush, powder snow, wither rose
+    public static final int BLOCK_FOLIAGE = 4;
+    public static final int BLOCK_PAD = 5;     // white wool spawn pads
+
+    public static final int ENTITY_NONE = 0;
+    public static final int ENTITY_ENEMY = 1;
+    public static final int ENTITY_TEAM = 2;
+    public static final int ENTITY_NEUTRAL = 3;
+    public static final int ENTITY_OTHER = 4;  // non-player living entity
+
+    // Stats (written in tick order by the pipeline's publish step)
+    private static volatile long sampledTicks;
+    private static volatile long agentRows;
+
+    private VisionSensor() {}
+
+    static void recordRows(int agents) {
+        sampledTicks++;
+        agentRows += agents;
+    }
+
+    /** Worker: write one agent's rays to out[offset, offset + width * height * CHANNELS). */
+    static void castRays(ObservationPipeline.Snapshot snap, AgentSnapshot agent, ChunkView view, float[] out, int offset) {
+        int width = snap.width;
+        int height = snap.height;
+        double range = snap.range;
+        float hFov = snap.fov;
+        float vFov = hFov * height / width;
+        Vec3 eye = agent.eye;
+        int o = offset;
+
+        for (int row = 0; row < height; row++) {
+            float pitch = Mth.clamp(agent.pitch + vFov * ((row + 0.5f) / height - 0.5f), -90.0f, 90.0f);
+            float pitchRad = pitch * Mth.DEG_TO_RAD;
+            double cosPitch = Math.cos(pitchRad);
+            double dy = -Math.sin(pitchRad);
+            for (int col = 0; col < width; col++) {
+                float yawRad = (agent.yaw + hFov * ((col + 0.5f) / width - 0.5f)) * Mth.DEG_TO_RAD;
+                double dx = -Math.sin(yawRad) * cosPitch;
+                double dz = Math.cos(yawRad) * cosPitch;
+                Vec3 end = new Vec3(eye.x + dx * range, eye.y + dy * range, eye.z + dz * range);
+
+                double blockDist = range;
+                int blockClass = BLOCK_NONE;
+                BlockHitResult hit = view.clip(new ClipContext(eye, end, ClipContext.Block.COLLIDER, ClipContext.Fluid.ANY, CollisionContext.empty()));
+                if (hit.getType() == HitResult.Type.BLOCK) {
+                    blockDist = hit.getLocation().distanceTo(eye);
+                    blockClass = blockClass(view.getBlockState(hit.getBlockPos()), view.getFluidState(hit.getBlockPos()));
+                }
+
+                // Nearest entity box in front of the block hit (slab test on the unit direction)
+                double entityDist = blockDist;
+                int entityClass = ENTITY_NONE;
+                double[] b = agent.boxes;
+                for (int i = 0; i < agent.entityCount; i++) {
+                    double t = rayBox(eye.x, eye.y, eye.z, dx, dy, dz, b, i * 6, entityDist);
+                    if (t >= 0) {
+                        entityDist = t;
+                        entityClass = agent.classes[i];
+                    }
+                }
+
+                out[o++] = (float) (blockDist / range);
+                out[o++] = blockClass;
+                out[o++] = entityClass == ENTITY_NONE ? 1.0f : (float) (entityDist / range);
+                out[o++] = entityClass;
+            }
+        }
+    }
+
+    /** Entry distance of the ray into box b[o..o+6) if it is below {@code limit}, else -1 (slab test). */
+    private static double rayBox(double ox, double oy, double oz, double dx, double dy, double dz,
+                                 double[] b, int o, double limit) {
+        double tMin = 0.0;
+        double tMax = limit;
+        if (Math.abs(dx) < 1e-9) {
+            if (ox < b[o] || ox > b[o + 3]) return -1;
+        } else {
+            double t1 = (b[o] - ox) / dx;
+            double t2 = (b[o + 3] - ox) / dx;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+        }
+        if (Math.abs(dy) < 1e-9) {
+            if (oy < b[o + 1] || oy > b[o + 4]) return -1;
+        } else {
+            double t1 = (b[o + 1] - oy) / dy;
+            double t2 = (b[o + 4] - oy) / dy;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+        }
+        if (Math.abs(dz) < 1e-9) {
+            if (oz < b[o + 2] || oz > b[o + 5]) return -1;
+        } else {
+            double t1 = (b[o + 2] - oz) / dz;
+            double t2 = (b[o + 5] - oz) / dz;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+        }
+        return tMin <= tMax && tMin < limit ? tMin : -1;
+    }
+
+    static int blockClass(BlockState state, FluidState fluid) {
+        if (!fluid.isEmpty()) {
+            return fluid.is(FluidTags.LAVA) ? BLOCK_HAZARD : BLOCK_WATER;
+        }
+        if (state.is(Blocks.WHITE_WOOL)) return BLOCK_PAD;
+        if (state.is(BlockTags.LEAVES)) return BLOCK_FOLIAGE;
+        if (state.is(BlockTags.FIRE) || state.is(BlockTags.CAMPFIRES) || state.is(Blocks.MAGMA_BLOCK)
+            || state.is(Blocks.CACTUS) || state.is(Blocks.SWEET_BERRY_BUSH) || state.is(Blocks.POWDER_SNOW)
+            || state.is(Blocks.WITHER_ROSE)) {
+            return BLOCK_HAZARD;
+        }
+        return BLOCK_SOLID;
+    }
+
+    static int relationClass(String relation) {
+        return switch (relation) {
+            case "team" -> ENTITY_TEAM;
+            case "neutral" -> ENTITY_NEUTRAL;
+            default -> ENTITY_ENEMY;
+        };
+    }
+
+    public static String statsSummary() {
+        long n = sampledTicks;
+        return String.format(Locale.ROOT,
+            "enabled=%s grid=%dx%d fov=%.0f range=%.0f every=%d ticks=%d agents/tick=%.1f (timings: /ki stats pipeline)",
+            SettingsManager.visionEnabled, SettingsManager.visionGridWidth, SettingsManager.visionGridHeight,
+            SettingsManager.visionFovDegrees, SettingsManager.visionRange, SettingsManager.visionEveryTicks,
+            n, n == 0 ? 0.0 : (double) agentRows / n);
+    }
+}
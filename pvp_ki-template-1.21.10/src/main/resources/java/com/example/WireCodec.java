@@ -0,0 +1,679 @@
+package com.example;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Protocol v1 wire codec shared by the server command bridge and the legacy client frame channel.
+ *
+ * Every message is framed as [int32 big-endian length][payload]. The payload is either
+ * UTF-8 JSON (the fallback, always starts with '{') or a binary block, selected per
+ * connection by the HELLO handshake:
+ *
+ *   header, 16 bytes little-endian: u16 magic 0x4B50 ("PK"), u8 schema id, u8 message type,
+ *                                   u32 record count, i64 server/client tick
+ *   fixed-layout records (per message type, below)
+ *   string table: u16 n, then n x (u16 byte length, UTF-8 bytes); records refer to it by u16 index
+ *
+ *   EVENTS       count x 80 bytes: u8 kind, u8 relation, u16 attacker name, u16 victim name, u16 pad,
+ *                i32 attacker id, i32 victim id, f64 x3 attacker pos, f64 x3 victim pos,
+ *                i64 tick, f32 damage, u32 pad
+ *   RESET        no records; count = participant names, in string table order
+ *   OBSERVATION  u32 features per agent, u16 sensor name, u16 width, u16 height, u16 channels
+ *                (width x height x channels = features), then count x (i32 entity id, u16 name, u16 pad,
+ *                f32 x features)
+ *   FRAME        one 80-byte record (see {@link #writeFrameHeader}), then team and event index lists
+ *   ACTION       one 24-byte record (see {@link #readAction}); Python -> client on the agent socket,
+ *                whose framing is [u16 big-endian length][payload]
+ *
+ * python/server/backend/wire_codec.py mirrors this layout.
+ */
+public final class WireCodec {
+    public static final short MAGIC = 0x4B50;
+    public static final byte SCHEMA_V1 = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final int EVENT_RECORD_BYTES = 80;
+    public static final int FRAME_RECORD_BYTES = 80;
+    public static final int NO_STRING = 0xFFFF;
+
+    public static final byte TYPE_EVENTS = 1;
+    public static final byte TYPE_RESET = 2;
+    public static final byte TYPE_OBSERVATION = 3;
+    public static final byte TYPE_FRAME = 4;
+    public static final byte TYPE_ACTION = 5;
+    public static final int ACTION_RECORD_BYTES = 24;
+
+    public static final byte KIND_HIT = 1;
+    public static final byte KIND_DEATH = 2;
+
+    /** FRAME flags: one-off /testframe capture; rows stored top row first (already flipped on the GPU). */
+    public static final int FRAME_FLAG_TEST = 1;
+    public static final int FRAME_FLAG_TOP_DOWN = 2;
+    /** FRAME body encoding: XORed against the last keyframe (a frame without it is the new keyframe); zlib-compressed. */
+    public static final int FRAME_FLAG_DELTA = 4;
+    public static final int FRAME_FLAG_DEFLATE = 8;
+
+    /** ACTION key bits, in the order of the legacy JSON action keys. */
+    public static final int ACTION_FORWARD = 1;
+    public static final int ACTION_LEFT = 1 << 1;
+    public static final int ACTION_BACK = 1 << 2;
+    public static final int ACTION_RIGHT = 1 << 3;
+    public static final int ACTION_JUMP = 1 << 4;
+    public static final int ACTION_ATTACK = 1 << 5;
+    public static final int ACTION_USE = 1 << 6;
+    public static final int ACTION_SWAP_OFFHAND = 1 << 7;
+    public static final int ACTION_OPEN_INVENTORY = 1 << 8;
+    /** JSON action key for each bit, bit 0 first. */
+    public static final String[] ACTION_KEYS = {
+        "forward", "left", "back", "right", "jump", "attack", "use", "swap_offhand", "open_inventory"
+    };
+
+    /** Codec names exchanged in the HELLO handshake, preferred first. */
+    public enum Codec {
+        BINARY("bin1"),
+        JSON("json");
+
+        public final String wireName;
+
+        Codec(String wireName) {
+            this.wireName = wireName;
+        }
+
+        public static Codec fromWireName(String name) {
+            for (Codec c : values()) {
+                if (c.wireName.equals(name)) return c;
+            }
+            return JSON;
+        }
+    }
+
+    private static final Gson GSON = new Gson();
+
+    private WireCodec() {}
+
+    public static byte relationCode(String relation) {
+        if (relation == null) return 0;
+        switch (relation) {
+            case "team": return 1;
+            case "neutral": return 2;
+            case "environment": return 3;
+            default: return 0; // enemy
+        }
+    }
+
+    public static String relationName(int code) {
+        switch (code) {
+            case 1: return "team";
+            case 2: return "neutral";
+            case 3: return "environment";
+            default: return "enemy";
+        }
+    }
+
+    /** A bridge message that can be written with either codec. */
+    public interface Message {
+        JsonObject toJson();
+
+        /** Write this message in binary form; return false if it has no binary layout (sent as JSON). */
+        boolean writeBinary(BinaryWriter w);
+    }
+
+    /** True if the payload starts with a binary header (JSON payloads start with '{'). */
+    public static boolean isBinary(byte[] payload, int length) {
+        return length >= HEADER_BYTES && (payload[0] & 0xFF) == (MAGIC & 0xFF) && (payload[1] & 0xFF) == (MAGIC >>> 8);
+    }
+
+    /** Fixed-layout action fields; one instance is decoded into repeatedly. */
+    public static final class ActionFields {
+        /** Keys this action sets (ACTION_* bits); keys outside the mask keep their state. */
+        public int mask;
+        /** Pressed state for the keys in {@link #mask}. */
+        public int pressed;
+        public float yaw;
+        public float pitch;
+        /** Header tick: the sender's step counter. */
+        public long tick;
+        /** Frame id the action was computed from (0 = not traced), for latency tracing. */
+        public long frameId;
+    }
+
+    /**
+     * Decode an ACTION payload into {@code into} without allocating.
+     * Record (24 bytes): u16 key mask, u16 pressed keys, f32 yaw delta, f32 pitch delta (degrees),
+     * u32 reserved, i64 echoed frame id; empty string table. Returns false if the payload is not a schema-1 ACTION.
+     */
+    public static boolean readAction(byte[] payload, int length, ActionFields into) {
+        if (!isBinary(payload, length) || payload[2] != SCHEMA_V1 || payload[3] != TYPE_ACTION
+            || length < HEADER_BYTES + ACTION_RECORD_BYTES) {
+            return false;
+        }
+        into.tick = leLong(payload, 8);
+        int o = HEADER_BYTES;
+        into.mask = (payload[o] & 0xFF) | (payload[o + 1] & 0xFF) << 8;
+        into.pressed = (payload[o + 2] & 0xFF) | (payload[o + 3] & 0xFF) << 8;
+        into.yaw = Float.intBitsToFloat(leInt(payload, o + 4));
+        into.pitch = Float.intBitsToFloat(leInt(payload, o + 8));
+        into.frameId = leLong(payload, o + 16);
+        return true;
+    }
+
+    private static int leInt(byte[] b, int o) {
+        return (b[o] & 0xFF) | (b[o + 1] & 0xFF) << 8 | (b[o + 2] & 0xFF) << 16 | (b[o + 3] & 0xFF) << 24;
+    }
+
+    private static long leLong(byte[] b, int o) {
+        return (leInt(b, o) & 0xFFFFFFFFL) | (long) leInt(b, o + 4) << 32;
+    }
+
+    /** Encode as UTF-8 JSON (the fallback codec). */
+    public static byte[] encodeJson(Message msg) {
+        return GSON.toJson(msg.toJson()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // ------------------------------------------------------------------
+    // Messages
+    // ------------------------------------------------------------------
+
+    /** Free-form JSON command; always sent as JSON. */
+    public static final class JsonMessage implements Message {
+        private final JsonObject json;
+
+        public JsonMessage(JsonObject json) {
+            this.json = json;
+        }
+
+        @Override
+        public JsonObject toJson() {
+            return json;
+        }
+
+        @Override
+        public boolean writeBinary(BinaryWriter w) {
+            return false;
+        }
+    }
+
+    /** RESET for a comma-separated participant list. */
+    public static final class ResetMessage implements Message {
+        public final long tick;
+        public final String participants;
+
+        public ResetMessage(long tick, String participants) {
+            this.tick = tick;
+            this.participants = participants;
+        }
+
+        @Override
+        public JsonObject toJson() {
+            JsonObject msg = new JsonObject();
+            msg.addProperty("type", "RESET");
+            msg.addProperty("data", participants);
+            msg.addProperty("tick", tick);
+            return msg;
+        }
+
+        @Override
+        public boolean writeBinary(BinaryWriter w) {
+            String[] names = participants == null || participants.isEmpty() ? new String[0] : participants.split(",");
+            w.begin(TYPE_RESET, names.length, tick);
+            for (String name : names) w.string(name);
+            w.finish();
+            return true;
+        }
+    }
+
+    /** One tick's worth of HIT/DEATH events, stored column-wise. */
+    public static final class EventsMessage implements Message {
+        public long tick = -1;
+        public int size = 0;
+        private byte[] kinds = new byte[8];
+        private byte[] relations = new byte[8];
+        private long[] ticks = new long[8];
+        private int[] attackerIds = new int[8];
+        private int[] victimIds = new int[8];
+        private String[] attackerNames = new String[8];
+        private String[] victimNames = new String[8];
+        private double[] positions = new double[8 * 6];
+        private float[] damages = new float[8];
+
+        public void add(byte kind, long tick, int attackerId, String attackerName, double ax, double ay, double az,
+                        int victimId, String victimName, double vx, double vy, double vz, String relation, float damage) {
+            if (size == kinds.length) grow();
+            int i = size++;
+            kinds[i] = kind;
+            ticks[i] = tick;
+            attackerIds[i] = attackerId;
+            attackerNames[i] = attackerName;
+            victimIds[i] = victimId;
+            victimNames[i] = victimName;
+            int p = i * 6;
+            positions[p] = ax;
+            positions[p + 1] = ay;
+            positions[p + 2] = az;
+            positions[p + 3] = vx;
+            positions[p + 4] = vy;
+            positions[p + 5] = vz;
+            relations[i] = relationCode(relation);
+            damages[i] = damage;
+            this.tick = tick;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void grow() {
+            int n = kinds.length * 2;
+            kinds = Arrays.copyOf(kinds, n);
+            relations = Arrays.copyOf(relations, n);
+            ticks = Arrays.copyOf(ticks, n);
+            attackerIds = Arrays.copyOf(attackerIds, n);
+            victimIds = Arrays.copyOf(victimIds, n);
+            attackerNames = Arrays.copyOf(attackerNames, n);
+            victimNames = Arrays.copyOf(victimNames, n);
+            positions = Arrays.copyOf(positions, n * 6);
+            damages = Arrays.copyOf(damages, n);
+        }
+
+        @Override
+        public JsonObject toJson() {
+            JsonArray events = new JsonArray();
+            for (int i = 0; i < size; i++) {
+                int p = i * 6;
+                JsonObject obj = new JsonObject();
+                obj.addProperty("kind", kinds[i] == KIND_DEATH ? "DEATH" : "HIT");
+                obj.addProperty("tick", ticks[i]);
+                obj.addProperty("attacker_id", attackerIds[i]);
+                obj.addProperty("attacker", attackerNames[i]);
+                obj.add("attacker_pos", vec3(positions[p], positions[p + 1], positions[p + 2]));
+                obj.addProperty("victim_id", victimIds[i]);
+                obj.addProperty("victim", victimNames[i]);
+                obj.add("victim_pos", vec3(positions[p + 3], positions[p + 4], positions[p + 5]));
+                obj.addProperty("relation", relationName(relations[i]));
+                obj.addProperty("damage", damages[i]);
+                events.add(obj);
+            }
+            JsonObject batch = new JsonObject();
+            batch.addProperty("type", "EVENTS");
+            batch.addProperty("tick", tick);
+            batch.add("events", events);
+            return batch;
+        }
+
+        @Override
+        public boolean writeBinary(BinaryWriter w) {
+            w.begin(TYPE_EVENTS, size, tick);
+            for (int i = 0; i < size; i++) {
+                int p = i * 6;
+                w.u8(kinds[i]);
+                w.u8(relations[i]);
+                w.u16(w.string(attackerNames[i]));
+                w.u16(w.string(victimNames[i]));
+                w.u16(0);
+                w.i32(attackerIds[i]);
+                w.i32(victimIds[i]);
+                for (int k = 0; k < 6; k++) w.f64(positions[p + k]);
+                w.i64(ticks[i]);
+                w.f32(damages[i]);
+                w.i32(0);
+            }
+            w.finish();
+            return true;
+        }
+    }
+
+    /**
+     * Per-agent float feature vectors for one tick from one sensor. Each row is a
+     * height x width x channels grid in row-major order; flat vectors are 1 x features x 1.
+     */
+    public static final class ObservationMessage implements Message {
+        public final long tick;
+        /** Sensor name, e.g. "rays" ({@link VisionSensor}); null for an unnamed vector. */
+        public final String sensor;
+        public final int width;
+        public final int height;
+        public final int channels;
+        public final int featuresPerAgent;
+        public final int[] entityIds;
+        public final String[] names;
+        /** agents x featuresPerAgent, row-major; null when the rows come as {@link #rows} */
+        public final float[] features;
+        /** Or the same rows as f32 from offset 0 of a little-endian ordered buffer, copied to the wire in bulk */
+        public final ByteBuffer rows;
+
+        public ObservationMessage(long tick, int featuresPerAgent, int[] entityIds, String[] names, float[] features) {
+            this(tick, null, featuresPerAgent, 1, 1, entityIds, names, features);
+        }
+
+        public ObservationMessage(long tick, String sensor, int width, int height, int channels,
+                                  int[] entityIds, String[] names, float[] features) {
+            this(tick, sensor, width, height, channels, entityIds, names, features, null);
+        }
+
+        /**
+         * Rows already packed as little-endian floats (e.g. a direct buffer filled by {@link StateSensor}).
+         * The buffer must not change until the sender thread has written the message.
+         */
+        public ObservationMessage(long tick, String sensor, int width, int height, int channels,
+                                  int[] entityIds, String[] names, ByteBuffer rows) {
+            this(tick, sensor, width, height, channels, entityIds, names, null, rows);
+        }
+
+        private ObservationMessage(long tick, String sensor, int width, int height, int channels,
+                                   int[] entityIds, String[] names, float[] features, ByteBuffer rows) {
+            this.tick = tick;
+            this.sensor = sensor;
+            this.width = width;
+            this.height = height;
+            this.channels = channels;
+            this.featuresPerAgent = width * height * channels;
+            this.entityIds = entityIds;
+            this.names = names;
+            this.features = features;
+            this.rows = rows;
+        }
+
+        private float feature(int agent, int f) {
+            int i = agent * featuresPerAgent + f;
+            return features != null ? features[i] : rows.getFloat(i * 4);
+        }
+
+        @Override
+        public JsonObject toJson() {
+            JsonArray agents = new JsonArray();
+            for (int a = 0; a < entityIds.length; a++) {
+                JsonObject agent = new JsonObject();
+                agent.addProperty("id", entityIds[a]);
+                agent.addProperty("name", names[a]);
+                JsonArray obs = new JsonArray();
+                for (int f = 0; f < featuresPerAgent; f++) obs.add(feature(a, f));
+                agent.add("obs", obs);
+                agents.add(agent);
+            }
+            JsonObject msg = new JsonObject();
+            msg.addProperty("type", "OBSERVATION");
+            msg.addProperty("tick", tick);
+            msg.addProperty("features", featuresPerAgent);
+            if (sensor != null) msg.addProperty("sensor", sensor);
+            JsonArray shape = new JsonArray();
+            shape.add(height);
+            shape.add(width);
+            shape.add(channels);
+            msg.add("shape", shape);
+            msg.add("agents", agents);
+            return msg;
+        }
+
+        @Override
+        public boolean writeBinary(BinaryWriter w) {
+            w.begin(TYPE_OBSERVATION, entityIds.length, tick);
+            w.i32(featuresPerAgent);
+            w.u16(w.string(sensor));
+            w.u16(width);
+            w.u16(height);
+            w.u16(channels);
+            for (int a = 0; a < entityIds.length; a++) {
+                w.i32(entityIds[a]);
+                w.u16(w.string(names[a]));
+                w.u16(0);
+                if (features != null) {
+                    w.f32s(features, a * featuresPerAgent, featuresPerAgent);
+                } else {
+                    w.bytes(rows, a * featuresPerAgent * 4, featuresPerAgent * 4);
+                }
+            }
+            w.finish();
+            return true;
+        }
+    }
+
+    /**
+     * Binary FRAME header for the legacy client channel. The raw pixel body follows the
+     * framed header unchanged, exactly as with the JSON header's bodyLength.
+     *
+     * The message header tick is the game tick the frame was scheduled for (CaptureScheduler).
+     *
+     * Record (80 bytes): i32 agent id, u16 width, u16 height, u8 channels, u8 flags ({@link #FRAME_FLAG_TEST},
+     * {@link #FRAME_FLAG_TOP_DOWN}, {@link #FRAME_FLAG_DELTA}, {@link #FRAME_FLAG_DEFLATE}),
+     * u16 player name, f64 x, y, z, f32 health, hunger, yaw, pitch, u32 body length,
+     * u16 cmd type, u16 cmd data, u16 team count, u16 event count, i64 frame id (0 for test frames),
+     * i64 capture time (client System.nanoTime; ACTION records echo the frame id, not this);
+     * then team count x (u16 name, u8 relation, u8 pad) and event count x u16 string index.
+     *
+     * Teams are passed as parallel arrays ({@link #relationCode} values) so the per-frame caller
+     * can reuse them; nothing here allocates once the writer has grown to size.
+     */
+    public static void writeFrameHeader(BinaryWriter w, long tick, long frameId, long captureNanos, int agentId, int width, int height, int channels,
+                                        int flags, String playerName, double x, double y, double z,
+                                        float health, float hunger, float yaw, float pitch, int bodyLength,
+                                        String cmdType, String cmdData, String[] teamNames, byte[] teamRelations,
+                                        int teamCount, List<String> events) {
+        w.begin(TYPE_FRAME, 1, tick);
+        w.i32(agentId);
+        w.u16(width);
+        w.u16(height);
+        w.u8((byte) channels);
+        w.u8((byte) flags);
+        w.u16(w.string(playerName));
+        w.f64(x);
+        w.f64(y);
+        w.f64(z);
+        w.f32(health);
+        w.f32(hunger);
+        w.f32(yaw);
+        w.f32(pitch);
+        w.i32(bodyLength);
+        w.u16(w.string(cmdType));
+        w.u16(w.string(cmdData));
+        int eventCount = events == null ? 0 : events.size();
+        w.u16(teamCount);
+        w.u16(eventCount);
+        w.i64(frameId);
+        w.i64(captureNanos);
+        for (int i = 0; i < teamCount; i++) {
+            w.u16(w.string(teamNames[i]));
+            w.u8(teamRelations[i]);
+            w.u8((byte) 0);
+        }
+        for (int i = 0; i < eventCount; i++) {
+            w.u16(w.string(events.get(i)));
+        }
+        w.finish();
+    }
+
+    private static JsonArray vec3(double x, double y, double z) {
+        JsonArray arr = new JsonArray();
+        arr.add(x);
+        arr.add(y);
+        arr.add(z);
+        return arr;
+    }
+
+    // ------------------------------------------------------------------
+    // Binary writer
+    // ------------------------------------------------------------------
+
+    /**
+     * Reusable little-endian message builder. Records are written first, the string table
+     * is appended by {@link #finish()}; the finished payload is {@code array()[0, length())}.
+     *
+     * Once the buffer has grown to its working size a message allocates nothing: small string
+     * tables are interned by linear scan and strings are UTF-8 encoded straight into the buffer.
+     */
+    public static final class BinaryWriter {
+        // Above this many distinct strings interning switches to the hash index
+        private static final int LINEAR_INTERN_LIMIT = 32;
+
+        private ByteBuffer buf;
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> stringIndex = new HashMap<>();
+
+        public BinaryWriter() {
+            this(4096);
+        }
+
+        public BinaryWriter(int initialCapacity) {
+            buf = ByteBuffer.allocate(initialCapacity).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        public void begin(byte type, int count, long tick) {
+            buf.clear();
+            strings.clear();
+            stringIndex.clear();
+            ensure(HEADER_BYTES);
+            buf.putShort(MAGIC);
+            buf.put(SCHEMA_V1);
+            buf.put(type);
+            buf.putInt(count);
+            buf.putLong(tick);
+        }
+
+        /** Intern a string into this message's table; returns its index or NO_STRING for null. */
+        public int string(String s) {
+            if (s == null) return NO_STRING;
+            int n = strings.size();
+            if (n <= LINEAR_INTERN_LIMIT) {
+                for (int i = 0; i < n; i++) {
+                    String t = strings.get(i);
+                    if (t == s || t.equals(s)) return i;
+                }
+                strings.add(s);
+                if (n == LINEAR_INTERN_LIMIT) {
+                    // Table outgrew the scan; index everything from here on
+                    for (int i = 0; i <= n; i++) stringIndex.put(strings.get(i), i);
+                }
+                return n;
+            }
+            Integer idx = stringIndex.get(s);
+            if (idx == null) {
+                idx = n;
+                strings.add(s);
+                stringIndex.put(s, idx);
+            }
+            return idx;
+        }
+
+        public void finish() {
+            ensure(2);
+            int n = strings.size();
+            buf.putShort((short) n);
+            for (int i = 0; i < n; i++) {
+                putUtf8(strings.get(i));
+            }
+        }
+
+        /** u16 byte length + UTF-8 bytes, encoded in place (unpaired surrogates become '?'). */
+        private void putUtf8(String s) {
+            int len = s.length();
+            int bytes = 0;
+            for (int i = 0; i < len; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) bytes += 1;
+                else if (c < 0x800) bytes += 2;
+                else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    bytes += 4;
+                    i++;
+                } else if (Character.isSurrogate(c)) bytes += 1;
+                else bytes += 3;
+            }
+            ensure(2 + bytes);
+            buf.putShort((short) bytes);
+            for (int i = 0; i < len; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    buf.put((byte) c);
+                } else if (c < 0x800) {
+                    buf.put((byte) (0xC0 | (c >> 6)));
+                    buf.put((byte) (0x80 | (c & 0x3F)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buf.put((byte) (0xF0 | (cp >> 18)));
+                    buf.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                    buf.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                    buf.put((byte) (0x80 | (cp & 0x3F)));
+                } else if (Character.isSurrogate(c)) {
+                    buf.put((byte) '?');
+                } else {
+                    buf.put((byte) (0xE0 | (c >> 12)));
+                    buf.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                    buf.put((byte) (0x80 | (c & 0x3F)));
+                }
+            }
+        }
+
+        public void u8(byte v) {
+            ensure(1);
+            buf.put(v);
+        }
+
+        public void u16(int v) {
+            ensure(2);
+            buf.putShort((short) v);
+        }
+
+        public void i32(int v) {
+            ensure(4);
+            buf.putInt(v);
+        }
+
+        public void i64(long v) {
+            ensure(8);
+            buf.putLong(v);
+        }
+
+        public void f32(float v) {
+            ensure(4);
+            buf.putFloat(v);
+        }
+
+        public void f64(double v) {
+            ensure(8);
+            buf.putDouble(v);
+        }
+
+        public void f32s(float[] values, int offset, int count) {
+            ensure(count * 4);
+            for (int i = 0; i < count; i++) {
+                buf.putFloat(values[offset + i]);
+            }
+        }
+
+        /** Bulk copy of src[offset, offset + length) (absolute; src's position is untouched). */
+        public void bytes(ByteBuffer src, int offset, int length) {
+            ensure(length);
+            buf.put(buf.position(), src, offset, length);
+            buf.position(buf.position() + length);
+        }
+
+        public byte[] array() {
+            return buf.array();
+        }
+
+        public int length() {
+            return buf.position();
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buf.array(), buf.position());
+        }
+
+        private void ensure(int n) {
+            if (buf.remaining() >= n) return;
+            int cap = Math.max(buf.capacity() * 2, buf.position() + n);
+            ByteBuffer bigger = ByteBuffer.allocate(cap).order(ByteOrder.LITTLE_ENDIAN);
+            buf.flip();
+            bigger.put(buf);
+            buf = bigger;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.mixin;
+
+import com.example.ArenaInstances;
+import com.example.ArenaManager;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+/**
+ * Reports server-side block changes to ArenaInstances, which keeps those inside arena instances
+ * for the next block-diff reset, and to ArenaManager, which drops pad lists whose pads changed.
+ * The 3-argument setBlock delegates here.
+ */
+@Mixin(Level.class)
+public class LevelMixin {
+	@Inject(method = "setBlock(Lnet/minecraft/core/BlockPos;Lnet/minecraft/world/level/block/state/BlockState;II)Z", at = @At("RETURN"))
+	private void pvp_ki$onSetBlock(BlockPos pos, BlockState state, int flags, int recursionLeft, CallbackInfoReturnable<Boolean> cir) {
+		if (cir.getReturnValueZ() && (Object) this instanceof ServerLevel level) {
+			ArenaInstances.onBlockChanged(level, pos);
+			ArenaManager.onBlockChanged(level, pos, state);
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The steady-state capture and bin1 paths allocate nothing once their buffers have grown to size,
+ * measured with HotSpot's per-thread allocation counter (the same one AllocationMeter reads
+ * around frame capture in game).
+ *
+ * Covered here: the frame header (FrameHeader, the game-free part of FrameState), the sender's
+ * slot rotation (FrameMailbox), body encoding (FrameEncoder) and the server-side messages.
+ * FrameState.capture/collect (reads of client state) and FrameReadback (GL) need the game and
+ * are only measured at runtime, by /capturestats.
+ */
+class AllocationFreeTest {
+    private static final int WARMUP = 20_000;
+    private static final int MEASURED = 10_000;
+    private static final int ROUNDS = 5;
+
+    private static com.sun.management.ThreadMXBean threads() {
+        boolean supported = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+            && bean.isThreadAllocatedMemorySupported();
+        assumeTrue(supported, "per-thread allocation counter not available on this VM");
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!bean.isThreadAllocatedMemoryEnabled()) bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+    }
+
+    /**
+     * Bytes allocated by {@code MEASURED} runs after {@code WARMUP} runs (buffers grown, code compiled).
+     * The JIT can still allocate a few hundred bytes while it swaps in compiled code, so this is
+     * the quietest of a few rounds: a path that allocates per call never gets to 0.
+     */
+    private static long allocatedAfterWarmup(Runnable step) {
+        com.sun.management.ThreadMXBean bean = threads();
+        for (int i = 0; i < WARMUP; i++) step.run();
+        long least = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS && least > 0; round++) {
+            long before = bean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < MEASURED; i++) step.run();
+            least = Math.min(least, bean.getCurrentThreadAllocatedBytes() - before);
+        }
+        return least;
+    }
+
+    private static final String[] TEAM_NAMES = {"Bob", "Eve", "Mallory", "Trent"};
+    private static final List<String> EVENTS = List.of("EVENT:HIT:Alice:Bob", "EVENT:DEATH:Eve", "EVENT:HIT:Alice:J\u00f6rg");
+
+    /** What FrameState.capture and collect put into a header, from constants instead of the client. */
+    private static void fill(FrameHeader h, long id, int bodyLength) {
+        h.frameId = id;
+        h.tick = id;
+        h.captureNanos = id * 50_000_000L;
+        h.hasPlayer = true;
+        h.x = 1.5;
+        h.y = 64.0;
+        h.z = -3.25;
+        h.health = 20f;
+        h.hunger = 18;
+        h.yaw = 90f;
+        h.pitch = -10f;
+        h.width = 128;
+        h.height = 128;
+        h.channels = 1;
+        h.topDown = true;
+        h.bodyLength = bodyLength;
+        h.events.clear();
+        for (int i = 0; i < EVENTS.size(); i++) h.events.add(EVENTS.get(i));
+        h.cmdType = (id & 1) == 0 ? "START" : null;
+        h.cmdData = h.cmdType != null ? "go" : null;
+        h.playerName = "Alice";
+        h.agentId = 2;
+        h.teamCount = 0;
+        for (int i = 0; i < TEAM_NAMES.length; i++) h.addTeam(TEAM_NAMES[i], (byte) (i & 1));
+    }
+
+    @Test
+    void frameHeaderIsAllocationFree() {
+        WireCodec.BinaryWriter w = new WireCodec.BinaryWriter(64);
+        FrameHeader header = new FrameHeader();
+        long[] frame = {0};
+        long bytes = allocatedAfterWarmup(() -> {
+            fill(header, ++frame[0], 16384);
+            header.encodingFlags = WireCodec.FRAME_FLAG_DEFLATE;
+            header.writeBinaryHeader(w);
+        });
+        assertEquals(0, bytes, "bytes allocated by " + MEASURED + " frame headers");
+    }
+
+    @Test
+    void senderSlotRotationIsAllocationFree() {
+        // FrameSender.offer on the render thread, its sender thread's take, and every other frame
+        // overwritten in the mailbox (events and command merged into the newer frame)
+        FrameMailbox<FrameHeader> mailbox = new FrameMailbox<>(FrameHeader::new);
+        FrameHeader captured = new FrameHeader();
+        int length = 128 * 128 * 3;
+        ByteBuffer pixels = ByteBuffer.allocateDirect(length);
+        long[] frame = {0};
+        long bytes = allocatedAfterWarmup(() -> {
+            long id = ++frame[0];
+            fill(captured, id, length);
+            FrameMailbox.Slot<FrameHeader> slot = mailbox.writing();
+            slot.copyBody(pixels, length);
+            slot.state.copyCaptureFrom(captured);
+            fill(slot.state, id, length);
+            mailbox.publish();
+            if ((id & 1) == 0) {
+                try {
+                    assertEquals(length, mailbox.take().length);
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        });
+        assertEquals(0, bytes, "bytes allocated by " + MEASURED + " offered frames");
+        assertTrue(mailbox.overwritten() > 0);
+    }
+
+    @Test
+    void frameEncodingIsAllocationFree() {
+        int length = 64 * 64 * 3;
+        byte[] pixels = new byte[length];
+        for (int i = 0; i < length; i++) pixels[i] = (byte) ((i / 3) % 97);
+        for (FrameEncoder.Mode mode : FrameEncoder.Mode.values()) {
+            FrameEncoder encoder = new FrameEncoder();
+            encoder.configure(mode, 4);
+            int[] frame = {0};
+            long bytes = allocatedAfterWarmup(() -> {
+                pixels[frame[0]++ % length]++; // deltas are not all zero
+                encoder.encode(pixels, length);
+            });
+            assertEquals(0, bytes, "bytes allocated by " + MEASURED + " " + mode.wireName + " frames");
+        }
+    }
+
+    @Test
+    void eventsBatchIsAllocationFree() {
+        WireCodec.BinaryWriter w = new WireCodec.BinaryWriter(64);
+        WireCodec.EventsMessage batch = new WireCodec.EventsMessage();
+        for (int i = 0; i < 8; i++) {
+            batch.add(WireCodec.KIND_HIT, 100, i, "Alice", 1, 2, 3, i + 1, "Bob" + i, 4, 5, 6, "enemy", 4.5f);
+        }
+        long bytes = allocatedAfterWarmup(() -> batch.writeBinary(w));
+        assertEquals(0, bytes, "bytes allocated by " + MEASURED + " EVENTS batches");
+    }
+
+    @Test
+    void observationRowsAreAllocationFree() {
+        WireCodec.BinaryWriter w = new WireCodec.BinaryWriter(64);
+        int agents = 4, features = 16 * 9 * 4;
+        ByteBuffer rows = ByteBuffer.allocateDirect(agents * features * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < agents * features; i++) rows.putFloat(i * 0.25f);
+        WireCodec.ObservationMessage msg = new WireCodec.ObservationMessage(5, "rays", 16, 9, 4,
+            new int[] {1, 2, 3, 4}, new String[] {"Alice", "Bob", "Eve", "Mallory"}, rows);
+        long bytes = allocatedAfterWarmup(() -> msg.writeBinary(w));
+        assertEquals(0, bytes, "bytes allocated by " + MEASURED + " OBSERVATION messages");
+    }
+}
@@ -0,0 +1,47 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventRingBufferTest {
+    static final class Slot {
+        int value;
+    }
+
+    static EventRingBuffer<Slot> ring(int capacity) {
+        return new EventRingBuffer<>(capacity, Slot::new, EventRingBuffer.WaitStrategy.SLEEPING);
+    }
+
+    static boolean put(EventRingBuffer<Slot> ring, int value, int reserve) {
+        Slot s = ring.claim(reserve);
+        if (s == null) return false;
+        s.value = value;
+        ring.publish();
+        return true;
+    }
+
+    @Test
+    void reservedSlotsAreLeftForUnreservedClaims() {
+        EventRingBuffer<Slot> ring = ring(16);
+        int accepted = 0;
+        while (put(ring, accepted, 4)) accepted++;
+        assertEquals(12, accepted);
+        assertEquals(1, ring.getDroppedCount());
+
+        // A control message still fits, up to the reserve
+        for (int i = 0; i < 4; i++) assertTrue(put(ring, 100 + i, 0));
+        assertFalse(put(ring, 200, 0));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(16, ring.drain(s -> drained.add(s.value), Integer.MAX_VALUE));
+        assertEquals(0, (int) drained.get(0));
+        assertEquals(103, (int) drained.get(15));
+
+        // Draining frees the ring for reserved claims again
+        assertTrue(put(ring, 1, 4));
+    }
+}
@@ -0,0 +1,122 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** PlayerGrid queries against brute force over moving, leaving and filtered players. */
+class PlayerGridTest {
+    static final class Player {
+        final int id;
+        double x, y, z;
+        boolean online = true;
+
+        Player(int id) {
+            this.id = id;
+        }
+
+        double dist(double qx, double qy, double qz) {
+            double dx = x - qx, dy = y - qy, dz = z - qz;
+            return Math.sqrt(dx * dx + dy * dy + dz * dz);
+        }
+    }
+
+    /** Distances of the k nearest online players passing the filter, brute force. */
+    static double[] bruteNearest(List<Player> players, double qx, double qy, double qz, int k, double maxDist,
+                                 Predicate<Player> filter) {
+        return players.stream()
+            .filter(p -> p.online && filter.test(p))
+            .mapToDouble(p -> p.dist(qx, qy, qz))
+            .filter(d -> d <= maxDist)
+            .sorted()
+            .limit(k)
+            .toArray();
+    }
+
+    @Test
+    void nearestAndWithinMatchBruteForce() {
+        Random rnd = new Random(17);
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < 300; i++) players.add(new Player(i));
+        PlayerGrid<Player> grid = new PlayerGrid<>(16.0);
+
+        int k = 4;
+        Player[] out = new Player[k];
+        double[] outDist = new double[k];
+        for (int tick = 0; tick < 200; tick++) {
+            // Players move (sometimes teleport across the map), leave and rejoin
+            grid.beginSync();
+            for (Player p : players) {
+                if (tick == 0 || rnd.nextInt(50) == 0) {
+                    p.x = rnd.nextDouble() * 400 - 200;
+                    p.y = 60 + rnd.nextDouble() * 20;
+                    p.z = rnd.nextDouble() * 400 - 200;
+                } else {
+                    p.x += rnd.nextGaussian() * 2;
+                    p.z += rnd.nextGaussian() * 2;
+                }
+                if (rnd.nextInt(40) == 0) p.online = !p.online;
+                if (p.online) grid.update(p, p.x, p.y, p.z);
+            }
+            grid.endSync();
+            assertEquals(players.stream().filter(p -> p.online).count(), grid.size());
+
+            for (int q = 0; q < 20; q++) {
+                Player self = players.get(rnd.nextInt(players.size()));
+                int team = rnd.nextInt(3);
+                Predicate<Player> filter = p -> p != self && p.id % 3 != team;
+                double maxDist = rnd.nextBoolean() ? Double.MAX_VALUE : 10 + rnd.nextDouble() * 60;
+
+                int found = grid.nearest(self.x, self.y, self.z, k, maxDist, filter::test, out, outDist);
+                double[] expected = bruteNearest(players, self.x, self.y, self.z, k, maxDist, filter);
+                assertEquals(expected.length, found, "tick " + tick + " query " + q);
+                for (int i = 0; i < found; i++) {
+                    assertEquals(expected[i], outDist[i], 1e-9);
+                    assertEquals(outDist[i], out[i].dist(self.x, self.y, self.z), 1e-9);
+                    assertTrue(filter.test(out[i]) && out[i].online);
+                }
+
+                double radius = rnd.nextDouble() * 48;
+                List<Player> within = new ArrayList<>();
+                grid.within(self.x, self.y, self.z, radius, filter::test, within);
+                Set<Player> expectedWithin = new HashSet<>();
+                for (Player p : players) {
+                    if (p.online && filter.test(p) && p.dist(self.x, self.y, self.z) <= radius) expectedWithin.add(p);
+                }
+                assertEquals(expectedWithin.size(), within.size());
+                assertEquals(expectedWithin, new HashSet<>(within));
+            }
+        }
+    }
+
+    @Test
+    void removeAndClear() {
+        PlayerGrid<String> grid = new PlayerGrid<>(16.0);
+        grid.beginSync();
+        grid.update("a", 0, 64, 0);
+        grid.update("b", 5, 64, 0);
+        grid.update("c", 100, 64, 100);
+        grid.endSync();
+
+        String[] out = new String[2];
+        double[] dist = new double[2];
+        assertEquals(2, grid.nearest(1, 64, 0, 2, Double.MAX_VALUE, null, out, dist));
+        assertEquals(List.of("a", "b"), Arrays.asList(out));
+
+        grid.remove("a");
+        assertEquals(2, grid.nearest(1, 64, 0, 2, Double.MAX_VALUE, null, out, dist));
+        assertEquals(List.of("b", "c"), Arrays.asList(out));
+
+        grid.clear();
+        assertEquals(0, grid.size());
+        assertEquals(0, grid.nearest(1, 64, 0, 2, Double.MAX_VALUE, null, out, dist));
+    }
+}
@@ -0,0 +1,213 @@
+package com.example;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round trips of the bin1 layout on the Java side. The golden payloads are the ones
+ * python/server/tests/test_wire_codec.py decodes, so both ends are pinned to the same bytes.
+ */
+class WireCodecTest {
+    static final String EVENTS_HEX =
+        "504b010102000000640000000000000001000000010000000700000009000000000000000000f83f0000000000005040"
+        + "0000000000000ac00000000000000440000000000000504000000000000010c064000000000000000000904000000000"
+        + "0203020001000000ffffffff090000000000000000000000000000000000000000000000000000000000000000000440"
+        + "000000000000504000000000000010c06400000000000000000000000000000003000500416c6963650300426f620b00"
+        + "456e7669726f6e6d656e74";
+    static final String RESET_HEX = "504b010202000000650000000000000002000500416c6963650300426f62";
+    static final String OBSERVATION_HEX =
+        "504b010302000000660000000000000003000000ffff03000100010007000000000000000000803f0000004000004040"
+        + "0900000001000000000080bf0000003f0000000002000500416c6963650300426f62";
+    // python: encode_action({forward, left: False, jump, open_inventory, yaw -12.5, pitch 3.25, frame_id 77}, tick=42)
+    static final String ACTION_HEX = "504b0105010000002a0000000000000013011101000048c100005040000000004d000000000000000000";
+
+    static WireCodec.EventsMessage sampleEvents() {
+        WireCodec.EventsMessage msg = new WireCodec.EventsMessage();
+        msg.add(WireCodec.KIND_HIT, 100, 7, "Alice", 1.5, 64.0, -3.25, 9, "Bob", 2.5, 64.0, -4.0, "enemy", 4.5f);
+        msg.add(WireCodec.KIND_DEATH, 100, -1, "Environment", 0, 0, 0, 9, "Bob", 2.5, 64.0, -4.0, "environment", 0f);
+        return msg;
+    }
+
+    static byte[] encode(WireCodec.Message msg) {
+        WireCodec.BinaryWriter w = new WireCodec.BinaryWriter(64);
+        assertTrue(msg.writeBinary(w));
+        return w.toByteArray();
+    }
+
+    /** Minimal reader for the header and string table; record fields are read in place. */
+    static final class Decoded {
+        final ByteBuffer buf;
+        final int type;
+        final int count;
+        final long tick;
+
+        Decoded(byte[] payload) {
+            assertTrue(WireCodec.isBinary(payload, payload.length));
+            buf = ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(WireCodec.MAGIC, buf.getShort(0));
+            assertEquals(WireCodec.SCHEMA_V1, buf.get(2));
+            type = buf.get(3);
+            count = buf.getInt(4);
+            tick = buf.getLong(8);
+        }
+
+        List<String> strings(int offset) {
+            int n = buf.getShort(offset) & 0xFFFF;
+            List<String> out = new ArrayList<>(n);
+            int o = offset + 2;
+            for (int i = 0; i < n; i++) {
+                int len = buf.getShort(o) & 0xFFFF;
+                out.add(new String(buf.array(), o + 2, len, StandardCharsets.UTF_8));
+                o += 2 + len;
+            }
+            assertEquals(buf.capacity(), o, "trailing bytes after the string table");
+            return out;
+        }
+    }
+
+    @Test
+    void eventsMatchGoldenAndRoundTrip() {
+        byte[] payload = encode(sampleEvents());
+        assertEquals(EVENTS_HEX, HexFormat.of().formatHex(payload));
+
+        Decoded d = new Decoded(payload);
+        assertEquals(WireCodec.TYPE_EVENTS, d.type);
+        assertEquals(2, d.count);
+        assertEquals(100, d.tick);
+        List<String> strings = d.strings(WireCodec.HEADER_BYTES + 2 * WireCodec.EVENT_RECORD_BYTES);
+        assertEquals(List.of("Alice", "Bob", "Environment"), strings);
+
+        ByteBuffer b = d.buf;
+        int r = WireCodec.HEADER_BYTES;
+        assertEquals(WireCodec.KIND_HIT, b.get(r));
+        assertEquals("enemy", WireCodec.relationName(b.get(r + 1)));
+        assertEquals("Alice", strings.get(b.getShort(r + 2)));
+        assertEquals("Bob", strings.get(b.getShort(r + 4)));
+        assertEquals(7, b.getInt(r + 8));
+        assertEquals(9, b.getInt(r + 12));
+        assertEquals(-3.25, b.getDouble(r + 32));
+        assertEquals(-4.0, b.getDouble(r + 56));
+        assertEquals(100, b.getLong(r + 64));
+        assertEquals(4.5f, b.getFloat(r + 72));
+
+        r += WireCodec.EVENT_RECORD_BYTES;
+        assertEquals(WireCodec.KIND_DEATH, b.get(r));
+        assertEquals("environment", WireCodec.relationName(b.get(r + 1)));
+        assertEquals("Environment", strings.get(b.getShort(r + 2)));
+        assertEquals(-1, b.getInt(r + 8));
+    }
+
+    @Test
+    void emptyEventsHaveHeaderAndEmptyTable() {
+        WireCodec.EventsMessage msg = new WireCodec.EventsMessage();
+        msg.tick = 7;
+        Decoded d = new Decoded(encode(msg));
+        assertEquals(0, d.count);
+        assertEquals(7, d.tick);
+        assertEquals(List.of(), d.strings(WireCodec.HEADER_BYTES));
+    }
+
+    @Test
+    void resetMatchesGoldenAndRoundTrip() {
+        byte[] payload = encode(new WireCodec.ResetMessage(101, "Alice,Bob"));
+        assertEquals(RESET_HEX, HexFormat.of().formatHex(payload));
+        Decoded d = new Decoded(payload);
+        assertEquals(WireCodec.TYPE_RESET, d.type);
+        assertEquals(101, d.tick);
+        assertEquals(List.of("Alice", "Bob"), d.strings(WireCodec.HEADER_BYTES).subList(0, d.count));
+    }
+
+    @Test
+    void observationRowsFromArrayAndBufferAreIdentical() {
+        int[] ids = {7, 9};
+        String[] names = {"Alice", "Bob"};
+        float[] features = {1f, 2f, 3f, -1f, 0.5f, 0f};
+        byte[] fromArray = encode(new WireCodec.ObservationMessage(102, 3, ids, names, features));
+        assertEquals(OBSERVATION_HEX, HexFormat.of().formatHex(fromArray));
+
+        ByteBuffer rows = ByteBuffer.allocateDirect(features.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (float f : features) rows.putFloat(f);
+        byte[] fromBuffer = encode(new WireCodec.ObservationMessage(102, null, 3, 1, 1, ids, names, rows));
+        assertArrayEquals(fromArray, fromBuffer);
+
+        Decoded d = new Decoded(fromBuffer);
+        assertEquals(3, d.buf.getInt(WireCodec.HEADER_BYTES));
+        assertEquals(WireCodec.NO_STRING, d.buf.getShort(WireCodec.HEADER_BYTES + 4) & 0xFFFF);
+        int agent1 = WireCodec.HEADER_BYTES + 12 + (8 + 12);
+        assertEquals(9, d.buf.getInt(agent1));
+        assertEquals(0.5f, d.buf.getFloat(agent1 + 8 + 4));
+    }
+
+    @Test
+    void actionFromPythonDecodes() {
+        byte[] payload = HexFormat.of().parseHex(ACTION_HEX);
+        WireCodec.ActionFields a = new WireCodec.ActionFields();
+        assertTrue(WireCodec.readAction(payload, payload.length, a));
+        assertEquals(WireCodec.ACTION_FORWARD | WireCodec.ACTION_LEFT | WireCodec.ACTION_JUMP | WireCodec.ACTION_OPEN_INVENTORY, a.mask);
+        assertEquals(WireCodec.ACTION_FORWARD | WireCodec.ACTION_JUMP | WireCodec.ACTION_OPEN_INVENTORY, a.pressed);
+        assertEquals(-12.5f, a.yaw);
+        assertEquals(3.25f, a.pitch);
+        assertEquals(42, a.tick);
+        assertEquals(77, a.frameId);
+
+        // Truncated and non-ACTION payloads are refused
+        assertFalse(WireCodec.readAction(payload, payload.length - 20, a));
+        byte[] reset = encode(new WireCodec.ResetMessage(1, "x"));
+        assertFalse(WireCodec.readAction(reset, reset.length, a));
+    }
+
+    @Test
+    void writerReuseAndLargeStringTables() {
+        WireCodec.BinaryWriter w = new WireCodec.BinaryWriter(16);
+        WireCodec.EventsMessage big = new WireCodec.EventsMessage();
+        for (int i = 0; i < 40; i++) {
+            // 80 distinct names: past the linear intern limit, so the hash index is used
+            big.add(WireCodec.KIND_HIT, 5, i, "a" + i, 0, 0, 0, i + 1, "v" + i, 0, 0, 0, "team", 1f);
+        }
+        big.writeBinary(w);
+        Decoded d = new Decoded(w.toByteArray());
+        List<String> strings = d.strings(WireCodec.HEADER_BYTES + 40 * WireCodec.EVENT_RECORD_BYTES);
+        assertEquals(80, strings.size());
+        int last = WireCodec.HEADER_BYTES + 39 * WireCodec.EVENT_RECORD_BYTES;
+        assertEquals("a39", strings.get(d.buf.getShort(last + 2)));
+        assertEquals("v39", strings.get(d.buf.getShort(last + 4)));
+
+        // The same writer then produces exactly the fresh-writer bytes for a small message
+        sampleEvents().writeBinary(w);
+        assertEquals(EVENTS_HEX, HexFormat.of().formatHex(w.toByteArray()));
+    }
+
+    @Test
+    void unicodeNamesEncodeAsUtf8() {
+        WireCodec.EventsMessage msg = new WireCodec.EventsMessage();
+        msg.add(WireCodec.KIND_HIT, 1, 1, "J\u00f6rg_\u00df", 0, 0, 0, 2, "\uD83D\uDE00", 0, 0, 0, "enemy", 1f);
+        Decoded d = new Decoded(encode(msg));
+        assertEquals(List.of("J\u00f6rg_\u00df", "\uD83D\uDE00"), d.strings(WireCodec.HEADER_BYTES + WireCodec.EVENT_RECORD_BYTES));
+    }
+
+    @Test
+    void jsonFallbackCarriesTheSameFields() {
+        JsonObject reset = JsonParser.parseString(new String(WireCodec.encodeJson(new WireCodec.ResetMessage(101, "Alice,Bob")),
+            StandardCharsets.UTF_8)).getAsJsonObject();
+        assertEquals("RESET", reset.get("type").getAsString());
+        assertEquals("Alice,Bob", reset.get("data").getAsString());
+        assertEquals(101, reset.get("tick").getAsLong());
+
+        JsonObject events = JsonParser.parseString(new String(WireCodec.encodeJson(sampleEvents()), StandardCharsets.UTF_8)).getAsJsonObject();
+        assertEquals(2, events.getAsJsonArray("events").size());
+        JsonObject hit = events.getAsJsonArray("events").get(0).getAsJsonObject();
+        assertEquals("Alice", hit.get("attacker").getAsString());
+        assertEquals(-3.25, hit.getAsJsonArray("attacker_pos").get(2).getAsDouble());
+        assertEquals("environment", events.getAsJsonArray("events").get(1).getAsJsonObject().get("relation").getAsString());
+    }
+}
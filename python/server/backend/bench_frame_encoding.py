@@ -0,0 +1,89 @@
+"""
+Bytes per frame and encode/decode cost of the socket frame encodings (raw, deflate,
+delta+deflate) on synthetic PvP-like frames at several observation sizes.
+
+The scene is a block-textured arena (noisy 8x8 tiles, flat sky in the top third) with a few moving
+player sprites. ``--pan`` shifts the background one pixel per frame as when the agent turns,
+which is the worst case for deltas. Encoding uses the Python mirror of FrameEncoder.java
+(same zlib level and keyframe rule), so byte counts match the mod; timings are for CPython's
+zlib and are a rough upper bound for the Java encoder.
+
+Usage: python -m backend.bench_frame_encoding [--frames 200] [--keyframe-interval 30] [--pan]
+"""
+import argparse
+import random
+import statistics
+import time
+
+from .frame_encoding import MODES, FrameBodyDecoder, FrameBodyEncoder
+
+SIZES = ((64, 64, 1), (64, 64, 3), (128, 128, 1), (128, 128, 3), (256, 256, 3))
+
+
+def _scene(width: int, height: int, channels: int, frames: int, pan: bool, seed: int = 7):
+    rng = random.Random(seed)
+    # 16 block textures of 8x8 noisy pixels
+    tiles = []
+    for _ in range(16):
+        base = [rng.randrange(60, 200) for _ in range(channels)]
+        tiles.append([bytes(max(0, min(255, v + rng.randrange(-24, 25))) for v in base) for _ in range(64)])
+    sky = bytes(200 if c == 0 else 160 for c in range(channels))
+    rows = []
+    for y in range(height):
+        if y < height // 3:
+            rows.append(sky * (width * 2))
+        else:
+            rows.append(b''.join(tiles[((x // 8) * 7 + (y // 8) * 13) % 16][(y % 8) * 8 + x % 8]
+                                 for x in range(width * 2)))
+    sprites = [[rng.randrange(width), rng.randrange(height // 3, height), rng.choice((-1, 1)), rng.choice((-1, 1))]
+               for _ in range(3)]
+    sprite_px = bytes(30 for _ in range(channels))
+    sw, sh = max(2, width // 16), max(4, height // 8)
+    for f in range(frames):
+        shift = (f % width) if pan else 0
+        frame = bytearray(b''.join(row[shift * channels:(shift + width) * channels] for row in rows))
+        for s in sprites:
+            s[0] = (s[0] + s[2]) % (width - sw)
+            s[1] = min(height - sh, max(height // 3, s[1] + s[3] * (f % 3 == 0)))
+            for y in range(s[1], s[1] + sh):
+                start = (y * width + s[0]) * channels
+                frame[start:start + sw * channels] = sprite_px * sw
+        yield bytes(frame)
+
+
+def _bench(frames, mode: str, keyframe_interval: int):
+    encoder = FrameBodyEncoder(mode, keyframe_interval)
+    decoder = FrameBodyDecoder()
+    sizes, enc_ns, dec_ns = [], [], []
+    for frame in frames:
+        t0 = time.perf_counter_ns()
+        encoding, body = encoder.encode(frame)
+        t1 = time.perf_counter_ns()
+        out = decoder.decode({'encoding': encoding}, body)
+        t2 = time.perf_counter_ns()
+        assert out == frame
+        sizes.append(len(body))
+        enc_ns.append(t1 - t0)
+        dec_ns.append(t2 - t1)
+    return statistics.fmean(sizes), statistics.median(enc_ns) / 1000.0, statistics.median(dec_ns) / 1000.0
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__.split('\n\n')[0])
+    parser.add_argument('--frames', type=int, default=200)
+    parser.add_argument('--keyframe-interval', type=int, default=30)
+    parser.add_argument('--pan', action='store_true', help='shift the background every frame (camera turning)')
+    args = parser.parse_args()
+
+    print('%-12s %-14s %12s %8s %12s %12s' % ('size', 'encoding', 'bytes/frame', 'ratio', 'encode p50', 'decode p50'))
+    for width, height, channels in SIZES:
+        frames = list(_scene(width, height, channels, args.frames, args.pan))
+        raw = width * height * channels
+        for mode in MODES:
+            mean_bytes, enc_us, dec_us = _bench(frames, mode, args.keyframe_interval)
+            print('%-12s %-14s %12.0f %8.3f %10.1fus %10.1fus' % (
+                '%dx%dx%d' % (width, height, channels), mode, mean_bytes, mean_bytes / raw, enc_us, dec_us))
+
+
+if __name__ == '__main__':
+    main()
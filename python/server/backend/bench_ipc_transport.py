@@ -0,0 +1,148 @@
+"""
+Loopback TCP vs Unix domain socket latency for the command bridge event path.
+
+Two measurements per transport, both using the production framing ([u32 BE length][payload])
+and a bin1 EVENTS payload of --events records:
+
+  echo    raw round trip: client sends the frame, a peer thread echoes it back
+  bridge  client send -> CommandConnector decode -> dispatcher callback (one way, same process)
+
+Usage: python -m backend.bench_ipc_transport [--iterations 5000] [--events 8]
+"""
+import argparse
+import json
+import os
+import socket
+import statistics
+import struct
+import tempfile
+import threading
+import time
+
+from . import wire_codec
+from .command_bridge import CommandConnector, recv_exact
+
+
+def _events_payload(n: int) -> bytes:
+    events = [{
+        'kind': 'HIT', 'tick': 100 + i, 'attacker_id': 1, 'attacker': 'Alice', 'attacker_pos': (1.0, 64.0, 2.0),
+        'victim_id': 2, 'victim': 'Bob', 'victim_pos': (2.0, 64.0, 3.0), 'relation': 'enemy', 'damage': 4.5,
+    } for i in range(n)]
+    payload = wire_codec.encode_events(100, events)
+    return struct.pack('>I', len(payload)) + payload
+
+
+def _listen(transport: str, path: str) -> socket.socket:
+    if transport == 'uds':
+        if os.path.exists(path):
+            os.unlink(path)
+        srv = socket.socket(socket.AF_UNIX, socket.SOCK_STREAM)
+        srv.bind(path)
+    else:
+        srv = socket.socket(socket.AF_INET, socket.SOCK_STREAM)
+        srv.setsockopt(socket.SOL_SOCKET, socket.SO_REUSEADDR, 1)
+        srv.bind(('127.0.0.1', 0))
+    srv.listen(1)
+    return srv
+
+
+def _connect(transport: str, address) -> socket.socket:
+    if transport == 'uds':
+        s = socket.socket(socket.AF_UNIX, socket.SOCK_STREAM)
+        s.connect(address)
+    else:
+        s = socket.create_connection(address)
+        s.setsockopt(socket.IPPROTO_TCP, socket.TCP_NODELAY, 1)
+    return s
+
+
+def _negotiate_bin1(s: socket.socket):
+    """HELLO exchange; the bridge only accepts binary payloads on a connection acked bin1."""
+    hello = json.dumps({'type': 'HELLO', 'schema': wire_codec.SCHEMA_V1, 'codecs': [wire_codec.CODEC_BINARY]}).encode('utf-8')
+    s.sendall(struct.pack('>I', len(hello)) + hello)
+    (n,) = struct.unpack('>I', recv_exact(s, 4))
+    ack = json.loads(recv_exact(s, n))
+    if ack.get('codec') != wire_codec.CODEC_BINARY:
+        raise RuntimeError('bridge did not negotiate bin1 (is PVP_CMD_SECRET set?)')
+
+
+def _summary(samples_ns):
+    samples_us = sorted(x / 1000.0 for x in samples_ns)
+    p = lambda q: samples_us[min(len(samples_us) - 1, int(q * len(samples_us)))]
+    return 'mean %7.1f  p50 %7.1f  p99 %7.1f  max %8.1f us' % (
+        statistics.fmean(samples_us), p(0.50), p(0.99), samples_us[-1])
+
+
+def bench_echo(transport: str, frame: bytes, iterations: int, tmp: str):
+    srv = _listen(transport, os.path.join(tmp, 'echo.sock'))
+    address = srv.getsockname()
+
+    def echo():
+        conn, _ = srv.accept()
+        with conn:
+            if transport == 'tcp':
+                conn.setsockopt(socket.IPPROTO_TCP, socket.TCP_NODELAY, 1)
+            try:
+                while True:
+                    (n,) = struct.unpack('>I', recv_exact(conn, 4))
+                    body = recv_exact(conn, n)
+                    conn.sendall(struct.pack('>I', n) + body)
+            except ConnectionError:
+                pass
+
+    t = threading.Thread(target=echo, daemon=True)
+    t.start()
+    samples = []
+    with _connect(transport, address) as s:
+        for i in range(iterations + iterations // 10):
+            start = time.perf_counter_ns()
+            s.sendall(frame)
+            (n,) = struct.unpack('>I', recv_exact(s, 4))
+            recv_exact(s, n)
+            if i >= iterations // 10:  # warm-up
+                samples.append(time.perf_counter_ns() - start)
+    t.join(timeout=1.0)
+    srv.close()
+    return samples
+
+
+def bench_bridge(transport: str, frame: bytes, iterations: int, tmp: str):
+    received = threading.Event()
+    path = os.path.join(tmp, 'bridge.sock')
+    bridge = CommandConnector(lambda header: received.set(), port=0, transport=transport, socket_path=path)
+    bridge.start()
+    address = path if transport == 'uds' else bridge._server_sock.getsockname()
+    samples = []
+    try:
+        with _connect(transport, address) as s:
+            _negotiate_bin1(s)
+            for i in range(iterations + iterations // 10):
+                received.clear()
+                start = time.perf_counter_ns()
+                s.sendall(frame)
+                if not received.wait(timeout=5.0):
+                    raise RuntimeError('bridge did not dispatch the event batch')
+                if i >= iterations // 10:
+                    samples.append(time.perf_counter_ns() - start)
+    finally:
+        bridge.stop()
+    return samples
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__, formatter_class=argparse.RawDescriptionHelpFormatter)
+    parser.add_argument('--iterations', type=int, default=5000)
+    parser.add_argument('--events', type=int, default=8)
+    args = parser.parse_args()
+
+    transports = ['tcp'] + (['uds'] if hasattr(socket, 'AF_UNIX') else [])
+    frame = _events_payload(args.events)
+    print('EVENTS frame: %d records, %d bytes, %d iterations' % (args.events, len(frame), args.iterations))
+    with tempfile.TemporaryDirectory(prefix='pvp_ki_bench') as tmp:
+        for name, fn in (('echo', bench_echo), ('bridge', bench_bridge)):
+            for transport in transports:
+                print('%-6s %-3s  %s' % (name, transport, _summary(fn(transport, frame, args.iterations, tmp))))
+
+
+if __name__ == '__main__':
+    main()
@@ -0,0 +1,54 @@
+"""
+Bytes per message and Python decode cost of bin1 vs JSON for EVENTS batches.
+
+Payloads are built the way the mod sends them: bin1 with the Python mirror of WireCodec
+(byte-identical, see tests/test_wire_codec.py) and JSON in the shape of EventsMessage.toJson.
+The Java encode side is measured by WireCodecBenchmark in the mod's jmh source set.
+
+Usage: python -m backend.bench_wire_codec [--iterations 20000]
+"""
+import argparse
+import json
+import statistics
+import time
+
+from . import wire_codec
+
+SIZES = (1, 8, 64)
+
+
+def _events(n: int):
+    return [{
+        'kind': 'HIT', 'tick': 100 + i, 'attacker_id': 1, 'attacker': 'Alice', 'attacker_pos': [1.5, 64.0, 2.25],
+        'victim_id': 2, 'victim': 'Bob', 'victim_pos': [2.5, 64.0, 3.75], 'relation': 'enemy', 'damage': 4.5,
+    } for i in range(n)]
+
+
+def _median_us(fn, payload: bytes, iterations: int) -> float:
+    samples = []
+    for i in range(iterations + iterations // 10):
+        t0 = time.perf_counter_ns()
+        fn(payload)
+        if i >= iterations // 10:  # warm-up
+            samples.append(time.perf_counter_ns() - t0)
+    return statistics.median(samples) / 1000.0
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__, formatter_class=argparse.RawDescriptionHelpFormatter)
+    parser.add_argument('--iterations', type=int, default=20000)
+    args = parser.parse_args()
+
+    print('%6s  %10s %10s  %12s %12s' % ('events', 'bin1 B', 'json B', 'bin1 dec us', 'json dec us'))
+    for n in SIZES:
+        events = _events(n)
+        binary = wire_codec.encode_events(100, events)
+        text = json.dumps({'type': 'EVENTS', 'tick': 100, 'events': events}).encode('utf-8')
+        assert wire_codec.decode_message(binary)['events'][0]['attacker'] == 'Alice'
+        bin_us = _median_us(wire_codec.decode_message, binary, args.iterations)
+        json_us = _median_us(lambda p: json.loads(p.decode('utf-8')), text, args.iterations)
+        print('%6d  %10d %10d  %12.1f %12.1f' % (n, len(binary), len(text), bin_us, json_us))
+
+
+if __name__ == '__main__':
+    main()
@@ -5,14 +5,21 @@ import logging
 import os
 import socket
 import struct
+import tempfile
 import threading
 
+from . import wire_codec
+
 log = logging.getLogger(__name__)
 
-MAX_HDR = int(os.environ.get('PVP_MAX_HDR', 64 * 1024))
+# OBSERVATION messages carry every agent's sensor rows in one payload (16x9 rays = 2.3 KB per agent)
+MAX_HDR = int(os.environ.get('PVP_MAX_HDR', 1024 * 1024))
 MAX_BODY = int(os.environ.get('PVP_MAX_BODY', 10 * 1024 * 1024))
 SOCK_TIMEOUT = float(os.environ.get('PVP_SOCK_TIMEOUT', 10.0))
 CMD_SECRET = os.environ.get('PVP_CMD_SECRET')
+# 'tcp' (loopback, default) or 'uds'; must match the mod's ipcTransport / PVP_IPC_TRANSPORT
+IPC_TRANSPORT = os.environ.get('PVP_IPC_TRANSPORT', 'tcp').strip().lower()
+IPC_SOCKET_DIR = os.environ.get('PVP_IPC_SOCKET_DIR') or os.path.join(tempfile.gettempdir(), 'pvp_ki')
 
 
 def _verify_command_token(token: str | None, secret: str) -> bool:
@@ -24,6 +31,11 @@ def _verify_command_token(token: str | None, secret: str) -> bool:
     return hmac.compare_digest(token, expected)
 
 
+def ipc_socket_path(port: int, socket_dir: str | None = None) -> str:
+    """Unix socket path for a channel; same naming as IpcTransport.socketPath in the mod."""
+    return os.path.join(socket_dir or IPC_SOCKET_DIR, 'pvp_ki-%d.sock' % port)
+
+
 def recv_exact(sock: socket.socket, n: int) -> bytes:
     buf = bytearray()
     while len(buf) < n:
@@ -35,10 +47,13 @@ def recv_exact(sock: socket.socket, n: int) -> bytes:
 
 
 class CommandConnector:
-    def __init__(self, dispatcher_callback, host: str = '127.0.0.1', port: int = 9998):
+    def __init__(self, dispatcher_callback, host: str = '127.0.0.1', port: int = 9998,
+                 transport: str | None = None, socket_path: str | None = None):
         self.dispatcher = dispatcher_callback
         self.host = host
         self.port = port
+        self.transport = (transport or IPC_TRANSPORT) if hasattr(socket, 'AF_UNIX') else 'tcp'
+        self.socket_path = socket_path or ipc_socket_path(port)
         self._server_sock = None
         self._accept_thread = None
         self._running = False
@@ -46,14 +61,25 @@ class CommandConnector:
     def start(self):
         if self._running:
             return
-        self._server_sock = socket.socket(socket.AF_INET, socket.SOCK_STREAM)
-        self._server_sock.setsockopt(socket.SOL_SOCKET, socket.SO_REUSEADDR, 1)
-        self._server_sock.bind((self.host, self.port))
+        if self.transport == 'uds':
+            os.makedirs(os.path.dirname(self.socket_path), exist_ok=True)
+            # Remove a socket file left behind by a previous run, otherwise bind fails
+            if os.path.exists(self.socket_path):
+                os.unlink(self.socket_path)
+            self._server_sock = socket.socket(socket.AF_UNIX, socket.SOCK_STREAM)
+            self._server_sock.bind(self.socket_path)
+            os.chmod(self.socket_path, 0o600)
+            endpoint = 'unix://' + self.socket_path
+        else:
+            self._server_sock = socket.socket(socket.AF_INET, socket.SOCK_STREAM)
+            self._server_sock.setsockopt(socket.SOL_SOCKET, socket.SO_REUSEADDR, 1)
+            self._server_sock.bind((self.host, self.port))
+            endpoint = 'tcp://%s:%s' % (self.host, self.port)
         self._server_sock.listen(4)
         self._running = True
         self._accept_thread = threading.Thread(target=self._accept_loop, daemon=True)
         self._accept_thread.start()
-        log.info('CommandConnector started on %s:%s', self.host, self.port)
+        log.info('CommandConnector started on %s', endpoint)
 
     def stop(self):
         self._running = False
@@ -64,6 +90,8 @@ class CommandConnector:
                 except Exception:
                     pass
                 self._server_sock.close()
+            if self.transport == 'uds' and os.path.exists(self.socket_path):
+                os.unlink(self.socket_path)
         except Exception:
             log.exception('Error stopping CommandConnector')
 
@@ -79,49 +107,21 @@ class CommandConnector:
                     log.exception('Accept loop error')
 
     def _handle_client_conn(self, conn: socket.socket, addr):
+        # The server mod keeps one long-lived connection open and streams
+        # length-prefixed messages over it; older clients send one message
+        # per connection and close, which ends this loop via ConnectionError.
+        # Binary payloads are only accepted once this connection has been
+        # acked bin1 in a HELLO exchange.
+        session = {'codec': wire_codec.CODEC_JSON}
         try:
-            hdr_len_b = recv_exact(conn, 4)
-            hdr_len = struct.unpack('>I', hdr_len_b)[0]
-            if hdr_len <= 0 or hdr_len > MAX_HDR:
-                log.warning('Rejecting command: header length out of bounds %s from %s', hdr_len, addr)
-                return
-
-            hdr_bytes = recv_exact(conn, hdr_len)
-            try:
-                header = json.loads(hdr_bytes.decode('utf-8'))
-            except json.JSONDecodeError:
-                log.warning('Failed to parse command JSON from %s', addr)
-                return
-
-            if not isinstance(header, dict):
-                log.warning('Command header not a dict from %s', addr)
-                return
-
-            if CMD_SECRET:
-                token = header.get('token')
-                if not _verify_command_token(token, CMD_SECRET):
-                    log.warning('Rejected command with invalid HMAC token from %s', addr)
-                    return
-
-            body_len = int(header.get('bodyLength', 0)) if header.get('bodyLength') is not None else 0
-            if body_len < 0 or body_len > MAX_BODY:
-                log.warning('Rejecting command: bodyLength out of bounds %s from %s', body_len, addr)
-                return
-
-            # Ensure message body is fully consumed from socket even on errors
-            body_bytes = b''
-            if body_len:
+            while self._running:
                 try:
-                    body_bytes = recv_exact(conn, body_len)
-                except ConnectionError as e:
-                    log.warning('Failed to read command body from %s: %s', addr, e)
+                    hdr_len_b = recv_exact(conn, 4)
+                except socket.timeout:
+                    # Idle persistent connection; keep waiting for the next message
+                    continue
+                if not self._handle_message(conn, addr, hdr_len_b, session):
                     return
-
-            if self.dispatcher:
-                try:
-                    self.dispatcher(header)
-                except Exception:
-                    log.exception('Dispatcher failed')
         except ConnectionError:
             log.debug('Client disconnected during command handling %s', addr)
         except socket.timeout:
@@ -133,3 +133,79 @@ class CommandConnector:
                 conn.close()
             except Exception:
                 pass
+
+    def _handle_message(self, conn: socket.socket, addr, hdr_len_b: bytes, session: dict) -> bool:
+        """Read and dispatch one message. Returns False if the stream is no longer in sync."""
+        hdr_len = struct.unpack('>I', hdr_len_b)[0]
+        if hdr_len <= 0 or hdr_len > MAX_HDR:
+            log.warning('Rejecting command: header length out of bounds %s from %s', hdr_len, addr)
+            return False
+
+        hdr_bytes = recv_exact(conn, hdr_len)
+        if wire_codec.is_binary(hdr_bytes):
+            # Binary records carry no HMAC token: never accept them with a secret configured,
+            # nor from a peer that skipped the handshake
+            if CMD_SECRET or session['codec'] != wire_codec.CODEC_BINARY:
+                log.warning('Rejected binary command from %s: bin1 not negotiated on this connection', addr)
+                return True
+            try:
+                header = wire_codec.decode_message(hdr_bytes)
+            except (ValueError, struct.error) as e:
+                log.warning('Failed to decode binary command from %s: %s', addr, e)
+                return True
+            self._dispatch(header)
+            return True
+
+        try:
+            header = json.loads(hdr_bytes.decode('utf-8'))
+        except json.JSONDecodeError:
+            log.warning('Failed to parse command JSON from %s', addr)
+            return True
+
+        if not isinstance(header, dict):
+            log.warning('Command header not a dict from %s', addr)
+            return True
+
+        body_len = int(header.get('bodyLength', 0)) if header.get('bodyLength') is not None else 0
+        if body_len < 0 or body_len > MAX_BODY:
+            log.warning('Rejecting command: bodyLength out of bounds %s from %s', body_len, addr)
+            return False
+
+        # Ensure message body is fully consumed from socket even on errors
+        if body_len:
+            try:
+                recv_exact(conn, body_len)
+            except ConnectionError as e:
+                log.warning('Failed to read command body from %s: %s', addr, e)
+                return False
+
+        if header.get('type') == 'HELLO':
+            session['codec'] = self._reply_hello(conn, header)
+            return True
+
+        if CMD_SECRET:
+            token = header.get('token')
+            if not _verify_command_token(token, CMD_SECRET):
+                log.warning('Rejected command with invalid HMAC token from %s', addr)
+                return True
+
+        self._dispatch(header)
+        return True
+
+    def _reply_hello(self, conn: socket.socket, hello: dict) -> str:
+        # Binary records carry no HMAC token, so only negotiate bin1 when no secret is configured
+        offered = hello.get('codecs') or []
+        codec = wire_codec.CODEC_JSON
+        if not CMD_SECRET and wire_codec.CODEC_BINARY in offered and hello.get('schema') == wire_codec.SCHEMA_V1:
+            codec = wire_codec.CODEC_BINARY
+        ack = json.dumps({'type': 'HELLO_ACK', 'codec': codec}).encode('utf-8')
+        conn.sendall(struct.pack('>I', len(ack)) + ack)
+        log.info('Command bridge codec negotiated: %s', codec)
+        return codec
+
+    def _dispatch(self, header: dict):
+        if self.dispatcher:
+            try:
+                self.dispatcher(header)
+            except Exception:
+                log.exception('Dispatcher failed')
@@ -0,0 +1,84 @@
+"""
+Frame body encodings of the mod's socket frame path (``FrameEncoder.java``).
+
+Python opts in on the agent socket with ``{"frame_encoding": "delta+deflate", "keyframe_interval": 30}``
+(or ``"deflate"``; ``"raw"`` turns it off) and can ask for a fresh keyframe with ``{"keyframe": true}``.
+Each frame header then says how its body was encoded (``header['encoding']``):
+
+    raw            pixels as read back
+    deflate        zlib stream of the pixels
+    delta          pixels XOR the last keyframe (sent uncompressed when deflate did not help)
+    delta+deflate  zlib stream of pixels XOR the last keyframe
+
+A frame without ``delta`` is a keyframe and replaces the reference. Deltas are always against the
+keyframe, never the previous frame, so a reader only needs the latest keyframe.
+"""
+import zlib
+
+try:
+    import numpy as np
+except Exception:  # numpy is optional; XOR falls back to big integers
+    np = None
+
+from . import wire_codec
+
+MODES = ('raw', 'deflate', 'delta+deflate')
+DEFAULT_KEYFRAME_INTERVAL = 30
+
+
+def xor_bytes(a, b) -> bytes:
+    if np is not None:
+        return np.bitwise_xor(np.frombuffer(a, dtype=np.uint8), np.frombuffer(b, dtype=np.uint8)).tobytes()
+    n = len(a)
+    return (int.from_bytes(a, 'little') ^ int.from_bytes(b, 'little')).to_bytes(n, 'little')
+
+
+class FrameBodyDecoder:
+    """Turns encoded frame bodies back into pixels; keep one per agent connection."""
+
+    def __init__(self):
+        self.keyframe = None
+
+    def decode(self, header: dict, body) -> bytes:
+        encoding = header.get('encoding', 'raw')
+        flags = wire_codec.frame_encoding_flags(encoding)
+        data = zlib.decompress(body) if flags & wire_codec.FRAME_FLAG_DEFLATE else bytes(body)
+        if not flags & wire_codec.FRAME_FLAG_DELTA:
+            self.keyframe = data
+            return data
+        if self.keyframe is None or len(self.keyframe) != len(data):
+            raise ValueError('delta frame without a matching keyframe')
+        return xor_bytes(data, self.keyframe)
+
+
+class FrameBodyEncoder:
+    """Python mirror of FrameEncoder.java (tests and benchmarks)."""
+
+    def __init__(self, mode: str = 'delta+deflate', keyframe_interval: int = DEFAULT_KEYFRAME_INTERVAL, level: int = 1):
+        if mode not in MODES:
+            raise ValueError('unknown frame encoding %r' % mode)
+        self.mode = mode
+        self.keyframe_interval = max(1, keyframe_interval)
+        self.level = level
+        self.keyframe = None
+        self.since_keyframe = 0
+
+    def encode(self, frame: bytes):
+        """Returns (encoding name, body)."""
+        flags = 0
+        src = frame
+        if self.mode == 'delta+deflate':
+            if (self.keyframe is None or len(self.keyframe) != len(frame)
+                    or self.since_keyframe >= self.keyframe_interval - 1):
+                self.keyframe = bytes(frame)
+                self.since_keyframe = 0
+            else:
+                src = xor_bytes(frame, self.keyframe)
+                flags |= wire_codec.FRAME_FLAG_DELTA
+                self.since_keyframe += 1
+        if self.mode != 'raw':
+            packed = zlib.compress(src, self.level)
+            if len(packed) < len(src):
+                src = packed
+                flags |= wire_codec.FRAME_FLAG_DEFLATE
+        return wire_codec.frame_encoding_name(flags), bytes(src)
@@ -0,0 +1,186 @@
+"""
+Reader for the mod's shared-memory frame ring (``FrameRing.java``).
+
+The mod maps ``<socket dir>/pvp_ki-frames-<port>.ring`` after the agent socket receives
+``{"frames": "shm"}`` and publishes every captured frame into it instead of writing it to
+the socket. Pixels are exposed zero-copy with ``np.frombuffer`` over the mapping.
+
+Layout (little-endian):
+
+    file header, 64 bytes: u32 magic "PKFR", u16 version, u16 slots, u32 stride,
+                           u32 header capacity, u32 body capacity, u32 pad, i64 published seq
+    slot i at 64 + i * stride:
+        i64 seq (0 while being written), u32 header length, u32 body length, i64 epoch ms,
+        u16 width, u16 height, u8 channels, u8 flags (wire_codec.FRAME_FLAG_*), u16 pad,
+        i64 frame id (0 for test frames), i64 game tick, 16 bytes reserved,
+        header bytes (bin1 FRAME header), body bytes
+
+Frame seq ``s`` (starting at 1) lives in slot ``(s - 1) % slots``. A slot can be overwritten
+while it is being read, so check :meth:`FrameRingReader.is_current` after consuming a view.
+"""
+import mmap
+import os
+import struct
+import time
+from dataclasses import dataclass
+
+from . import wire_codec
+
+try:
+    import numpy as np
+except Exception:  # numpy is optional; memoryview slices are returned instead
+    np = None
+
+MAGIC = 0x52464B50
+VERSION = 1
+FILE_HEADER = struct.Struct('<IHHIIIIq')
+SLOT_HEADER = struct.Struct('<qIIqHHBBHqq16x')
+PUBLISHED_SEQ_OFFSET = 24
+
+assert FILE_HEADER.size == 32
+assert SLOT_HEADER.size == 64
+FILE_HEADER_BYTES = 64
+
+
+def ring_path(port: int, socket_dir: str | None = None) -> str:
+    """Ring file for an agent port; same naming as IPCManager in the mod."""
+    from .command_bridge import IPC_SOCKET_DIR
+    return os.path.join(socket_dir or IPC_SOCKET_DIR, 'pvp_ki-frames-%d.ring' % port)
+
+
+@dataclass
+class RingFrame:
+    seq: int
+    slot: int
+    timestamp_ms: int
+    width: int
+    height: int
+    channels: int
+    test_frame: bool
+    top_down: bool
+    frame_id: int  # CaptureScheduler id; gaps are frames the mod dropped
+    tick: int
+    header: bytes
+    pixels: object  # np.ndarray view (height, width, channels) or memoryview
+
+    def decode_header(self) -> dict:
+        return wire_codec.decode_frame_header(self.header)
+
+
+class FrameRingReader:
+    def __init__(self, path: str):
+        self.path = path
+        with open(path, 'rb') as f:
+            self._mm = mmap.mmap(f.fileno(), 0, access=mmap.ACCESS_READ)
+        magic, version, self.slots, self.stride, self.header_capacity, self.body_capacity, _pad, _seq = \
+            FILE_HEADER.unpack_from(self._mm, 0)
+        if magic != MAGIC:
+            raise ValueError('not a frame ring (magic 0x%08x)' % magic)
+        if version != VERSION:
+            raise ValueError('unsupported frame ring version %d' % version)
+
+    @classmethod
+    def open_when_ready(cls, path: str, timeout: float = 5.0, poll: float = 0.01):
+        """Wait for the mod to create and initialise the ring file."""
+        deadline = time.monotonic() + timeout
+        while True:
+            try:
+                return cls(path)
+            except (FileNotFoundError, ValueError):
+                if time.monotonic() >= deadline:
+                    raise
+                time.sleep(poll)
+
+    def _slot_offset(self, slot: int) -> int:
+        return FILE_HEADER_BYTES + slot * self.stride
+
+    def published_seq(self) -> int:
+        return struct.unpack_from('<q', self._mm, PUBLISHED_SEQ_OFFSET)[0]
+
+    def is_current(self, frame: RingFrame) -> bool:
+        """True if the slot still holds this frame, i.e. the views read from it were not overwritten."""
+        return struct.unpack_from('<q', self._mm, self._slot_offset(frame.slot))[0] == frame.seq
+
+    def read(self, seq: int | None = None) -> RingFrame | None:
+        """Frame ``seq`` (default: the latest), or None if it is not available or was overwritten."""
+        if seq is None:
+            seq = self.published_seq()
+        if seq <= 0:
+            return None
+        slot = (seq - 1) % self.slots
+        base = self._slot_offset(slot)
+        (slot_seq, header_len, body_len, ts, width, height, channels, flags, _pad,
+         frame_id, tick) = SLOT_HEADER.unpack_from(self._mm, base)
+        if slot_seq != seq:
+            return None
+        header_off = base + SLOT_HEADER.size
+        body_off = header_off + self.header_capacity
+        header = bytes(self._mm[header_off:header_off + min(header_len, self.header_capacity)])
+        if np is not None:
+            pixels = np.frombuffer(self._mm, dtype=np.uint8, count=body_len, offset=body_off)
+            if width * height * channels == body_len:
+                pixels = pixels.reshape(height, width, channels)
+        else:
+            pixels = memoryview(self._mm)[body_off:body_off + body_len]
+        frame = RingFrame(seq, slot, ts, width, height, channels, bool(flags & wire_codec.FRAME_FLAG_TEST),
+                          bool(flags & wire_codec.FRAME_FLAG_TOP_DOWN), frame_id, tick, header, pixels)
+        # Seqlock check: the writer zeroes the slot seq before reusing the slot
+        return frame if self.is_current(frame) else None
+
+    def wait_next(self, last_seq: int, timeout: float = 1.0, poll: float = 0.0005) -> RingFrame | None:
+        """Latest frame newer than ``last_seq``; frames the reader fell behind on are skipped."""
+        deadline = time.monotonic() + timeout
+        while True:
+            seq = self.published_seq()
+            if seq > last_seq:
+                frame = self.read(seq)
+                if frame is not None:
+                    return frame
+            if time.monotonic() >= deadline:
+                return None
+            time.sleep(poll)
+
+    def close(self):
+        # Fails with BufferError while numpy views of the mapping are still alive
+        self._mm.close()
+
+
+class FrameRingWriter:
+    """Python stand-in for the mod's writer (tests and tooling)."""
+
+    def __init__(self, path: str, slots: int = 4, header_capacity: int = 4096, body_capacity: int = 64 * 64 * 4):
+        align = lambda n: (max(n, 64) + 63) // 64 * 64
+        self.slots = slots
+        self.header_capacity = align(header_capacity)
+        self.body_capacity = align(body_capacity)
+        self.stride = SLOT_HEADER.size + self.header_capacity + self.body_capacity
+        size = FILE_HEADER_BYTES + slots * self.stride
+        os.makedirs(os.path.dirname(path) or '.', exist_ok=True)
+        with open(path, 'w+b') as f:
+            f.truncate(size)
+            self._mm = mmap.mmap(f.fileno(), size)
+        FILE_HEADER.pack_into(self._mm, 0, 0, VERSION, slots, self.stride, self.header_capacity, self.body_capacity, 0, 0)
+        struct.pack_into('<I', self._mm, 0, MAGIC)
+        self.next_seq = 1
+
+    def publish(self, body: bytes, width: int, height: int, channels: int, header: bytes = b'',
+                flags: int = wire_codec.FRAME_FLAG_TOP_DOWN, frame_id: int = 0, tick: int = 0) -> int:
+        if len(body) > self.body_capacity or len(header) > self.header_capacity:
+            raise ValueError('frame does not fit the ring slot')
+        seq = self.next_seq
+        slot = (seq - 1) % self.slots
+        base = FILE_HEADER_BYTES + slot * self.stride
+        struct.pack_into('<q', self._mm, base, 0)
+        header_off = base + SLOT_HEADER.size
+        self._mm[header_off:header_off + len(header)] = header
+        body_off = header_off + self.header_capacity
+        self._mm[body_off:body_off + len(body)] = body
+        SLOT_HEADER.pack_into(self._mm, base, 0, len(header), len(body), int(time.time() * 1000),
+                              width, height, channels, flags, 0, frame_id, tick)
+        struct.pack_into('<q', self._mm, base, seq)
+        struct.pack_into('<q', self._mm, PUBLISHED_SEQ_OFFSET, seq)
+        self.next_seq += 1
+        return seq
+
+    def close(self):
+        self._mm.close()
@@ -19,6 +19,7 @@ class Manager:
         self._initialized = False
         self._status_listeners = []
         self.agents = {}  # For mapping agent_id to player_name, etc.
+        self.latest_observations = {}  # sensor name ('rays', ...) -> latest OBSERVATION message
 
         try:
             # --- CRITICAL INITIALIZATION ORDER ---
@@ -158,7 +159,30 @@ class Manager:
         
         # Event → Reward Processing
         # Parse events from Minecraft server and assign rewards to agents
-        if cmd_type == 'HIT':
+        if cmd_type == 'EVENTS':
+            # Batched per-tick combat events:
+            # {"type": "EVENTS", "tick": N, "events": [{"kind": "HIT"|"DEATH", "attacker": ..., "victim": ...,
+            #   "attacker_id", "victim_id", "attacker_pos", "victim_pos", "relation", "damage"}]}
+            for event in cmd.get('events') or []:
+                if not isinstance(event, dict):
+                    continue
+                kind = event.get('kind')
+                if kind == 'HIT':
+                    log.info(f"HIT event (tick {event.get('tick')}): {event.get('attacker')} hit {event.get('victim')} "
+                             f"for {event.get('damage')} [{event.get('relation')}]")
+                    # TODO: Map attacker/victim to agent_id and add reward
+                elif kind == 'DEATH':
+                    log.info(f"DEATH event (tick {event.get('tick')}): {event.get('victim')} killed by {event.get('attacker')}")
+                    # TODO: Map victim to agent_id and add negative reward
+
+        elif cmd_type == 'OBSERVATION':
+            # Per-tick server-side sensor rows, e.g. ray-cast vision or state vectors (wire_codec.state_fields):
+            # {"type": "OBSERVATION", "tick": N, "sensor": "rays", "shape": [h, w, c],
+            #  "agents": [{"id": entity_id, "name": player, "obs": h*w*c floats}]}
+            self.latest_observations[cmd.get('sensor') or 'vector'] = cmd
+            return  # too large for the per-command debug log below
+
+        elif cmd_type == 'HIT':
             # HIT event: {"type": "HIT", "data": "AttackerName,VictimName"}
             data = cmd.get('data', '')
             parts = data.split(',')
@@ -0,0 +1,378 @@
+"""
+Binary Protocol v1 codec ("bin1") for the command bridge and the legacy client frame channel.
+
+Mirrors ``WireCodec.java`` in the Fabric mod. Every message on the socket is framed as
+``[int32 big-endian length][payload]``; the payload is either JSON (starts with ``{``) or a
+little-endian binary block:
+
+    header (16 bytes): u16 magic 0x4B50, u8 schema, u8 type, u32 count, i64 tick
+    fixed-layout records (per type)
+    string table: u16 n, then n x (u16 len, utf-8 bytes)
+
+Decoded messages use the same dict shape as their JSON counterparts so dispatchers do not
+need to know which codec was negotiated.
+"""
+import struct
+
+try:
+    import numpy as np
+except Exception:  # numpy is optional; struct is used as a fallback
+    np = None
+
+MAGIC = 0x4B50
+SCHEMA_V1 = 1
+CODEC_BINARY = 'bin1'
+CODEC_JSON = 'json'
+
+TYPE_EVENTS = 1
+TYPE_RESET = 2
+TYPE_OBSERVATION = 3
+TYPE_FRAME = 4
+TYPE_ACTION = 5
+
+KIND_HIT = 1
+KIND_DEATH = 2
+
+FRAME_FLAG_TEST = 1
+FRAME_FLAG_TOP_DOWN = 2
+FRAME_FLAG_DELTA = 4    # body XORed against the last keyframe (see frame_encoding.py)
+FRAME_FLAG_DEFLATE = 8  # body is a zlib stream
+NO_STRING = 0xFFFF
+
+# Ray-cast vision sensor (VisionSensor.java): OBSERVATION sensor 'rays', shape [height, width, 4].
+# Channels per ray: block distance / range, block class, entity distance / range, entity class.
+RAY_SENSOR = 'rays'
+RAY_BLOCK_CLASSES = ('none', 'solid', 'water', 'hazard', 'foliage', 'pad')
+RAY_ENTITY_CLASSES = ('none', 'enemy', 'team', 'neutral', 'other')
+
+# Semantic state sensor (StateSensor.java): OBSERVATION sensor 'state', shape [1, features, 1] with
+# features = 33 + 8 * K (K nearest players, setting stateNearestK). Rows are little-endian f32, so
+# np.frombuffer views them without copying; state_fields() names the slices.
+STATE_SENSOR = 'state'
+STATE_SELF_FIELDS = ('health', 'max_health', 'absorption', 'food', 'saturation', 'x', 'y', 'z',
+                     'vx', 'vy', 'vz', 'yaw', 'pitch', 'look_x', 'look_y', 'look_z', 'on_ground')
+STATE_ITEM_FIELDS = ('attack_damage', 'attack_speed', 'main_hand', 'main_hand_count', 'off_hand',
+                     'off_hand_count', 'armor', 'armor_toughness', 'armor_pieces')
+STATE_ARENA_FIELDS = ('in_arena', 'arena_min_dx', 'arena_min_dy', 'arena_min_dz',
+                      'arena_max_dx', 'arena_max_dy', 'arena_max_dz')
+STATE_NEIGHBOUR_FIELDS = ('present', 'dx', 'dy', 'dz', 'distance', 'health', 'max_health', 'relation')
+STATE_ITEM_CLASSES = ('empty', 'sword', 'axe', 'ranged', 'shield', 'totem', 'food', 'block', 'other')
+STATE_FIXED_FEATURES = len(STATE_SELF_FIELDS) + len(STATE_ITEM_FIELDS) + len(STATE_ARENA_FIELDS)
+
+# ACTION key bits, bit 0 first (same names as the JSON action keys)
+ACTION_KEYS = ('forward', 'left', 'back', 'right', 'jump', 'attack', 'use', 'swap_offhand', 'open_inventory')
+
+RELATIONS = ('enemy', 'team', 'neutral', 'environment')
+KIND_NAMES = {KIND_HIT: 'HIT', KIND_DEATH: 'DEATH'}
+
+HEADER = struct.Struct('<HBBIq')
+EVENT_RECORD = struct.Struct('<BBHHHii6dqfI')
+FRAME_RECORD = struct.Struct('<iHHBBH3d4fIHHHHqq')
+TEAM_ENTRY = struct.Struct('<HBB')
+OBSERVATION_PREFIX = struct.Struct('<IHHHH')  # features, sensor name, width, height, channels
+ACTION_RECORD = struct.Struct('<HHffIq')
+
+assert HEADER.size == 16
+assert EVENT_RECORD.size == 80
+assert FRAME_RECORD.size == 80
+assert OBSERVATION_PREFIX.size == 12
+assert ACTION_RECORD.size == 24
+
+if np is not None:
+    EVENT_DTYPE = np.dtype([
+        ('kind', '<u1'), ('relation', '<u1'), ('attacker_name', '<u2'), ('victim_name', '<u2'), ('_pad0', '<u2'),
+        ('attacker_id', '<i4'), ('victim_id', '<i4'),
+        ('attacker_pos', '<f8', (3,)), ('victim_pos', '<f8', (3,)),
+        ('tick', '<i8'), ('damage', '<f4'), ('_pad1', '<u4'),
+    ])
+    assert EVENT_DTYPE.itemsize == EVENT_RECORD.size
+
+
+def is_binary(payload: bytes) -> bool:
+    return len(payload) >= HEADER.size and struct.unpack_from('<H', payload, 0)[0] == MAGIC
+
+
+def relation_code(relation) -> int:
+    try:
+        return RELATIONS.index(relation)
+    except ValueError:
+        return 0
+
+
+# ----------------------------------------------------------------------
+# Decoding
+# ----------------------------------------------------------------------
+
+def _read_strings(payload: bytes, offset: int):
+    (n,) = struct.unpack_from('<H', payload, offset)
+    offset += 2
+    strings = []
+    for _ in range(n):
+        (length,) = struct.unpack_from('<H', payload, offset)
+        offset += 2
+        strings.append(bytes(payload[offset:offset + length]).decode('utf-8'))
+        offset += length
+    return strings, offset
+
+
+def _lookup(strings, idx):
+    return None if idx == NO_STRING else strings[idx]
+
+
+def decode_header(payload: bytes):
+    magic, schema, msg_type, count, tick = HEADER.unpack_from(payload, 0)
+    if magic != MAGIC:
+        raise ValueError('bad magic 0x%04x' % magic)
+    if schema != SCHEMA_V1:
+        raise ValueError('unsupported schema %d' % schema)
+    return msg_type, count, tick
+
+
+def event_records(payload: bytes):
+    """Zero-copy numpy view of an EVENTS record block (requires numpy)."""
+    if np is None:
+        raise RuntimeError('numpy is not available')
+    msg_type, count, _ = decode_header(payload)
+    if msg_type != TYPE_EVENTS:
+        raise ValueError('not an EVENTS message')
+    return np.frombuffer(payload, dtype=EVENT_DTYPE, count=count, offset=HEADER.size)
+
+
+def decode_message(payload: bytes) -> dict:
+    msg_type, count, tick = decode_header(payload)
+    offset = HEADER.size
+
+    if msg_type == TYPE_EVENTS:
+        records = [EVENT_RECORD.unpack_from(payload, offset + i * EVENT_RECORD.size) for i in range(count)]
+        strings, _ = _read_strings(payload, offset + count * EVENT_RECORD.size)
+        events = []
+        for (kind, relation, a_name, v_name, _p0, a_id, v_id,
+             ax, ay, az, vx, vy, vz, ev_tick, damage, _p1) in records:
+            events.append({
+                'kind': KIND_NAMES.get(kind, 'HIT'),
+                'tick': ev_tick,
+                'attacker_id': a_id,
+                'attacker': _lookup(strings, a_name),
+                'attacker_pos': [ax, ay, az],
+                'victim_id': v_id,
+                'victim': _lookup(strings, v_name),
+                'victim_pos': [vx, vy, vz],
+                'relation': RELATIONS[relation] if relation < len(RELATIONS) else 'enemy',
+                'damage': damage,
+            })
+        return {'type': 'EVENTS', 'tick': tick, 'events': events}
+
+    if msg_type == TYPE_RESET:
+        strings, _ = _read_strings(payload, offset)
+        return {'type': 'RESET', 'tick': tick, 'data': ','.join(strings[:count])}
+
+    if msg_type == TYPE_OBSERVATION:
+        features, sensor_idx, width, height, channels = OBSERVATION_PREFIX.unpack_from(payload, offset)
+        offset += OBSERVATION_PREFIX.size
+        stride = 8 + 4 * features
+        rows = []
+        for i in range(count):
+            base = offset + i * stride
+            ent_id, name_idx, _pad = struct.unpack_from('<iHH', payload, base)
+            if np is not None:
+                obs = np.frombuffer(payload, dtype='<f4', count=features, offset=base + 8)
+            else:
+                obs = list(struct.unpack_from('<%df' % features, payload, base + 8))
+            rows.append((ent_id, name_idx, obs))
+        strings, _ = _read_strings(payload, offset + count * stride)
+        agents = [{'id': ent_id, 'name': _lookup(strings, name_idx), 'obs': obs} for ent_id, name_idx, obs in rows]
+        return {'type': 'OBSERVATION', 'tick': tick, 'features': features, 'sensor': _lookup(strings, sensor_idx),
+                'shape': [height, width, channels], 'agents': agents}
+
+    if msg_type == TYPE_FRAME:
+        return decode_frame_header(payload)
+
+    if msg_type == TYPE_ACTION:
+        mask, pressed, yaw, pitch, _reserved, frame_id = ACTION_RECORD.unpack_from(payload, offset)
+        action = {key: bool(pressed & (1 << bit)) for bit, key in enumerate(ACTION_KEYS) if mask & (1 << bit)}
+        action['yaw'] = yaw
+        action['pitch'] = pitch
+        action['frame_id'] = frame_id
+        return {'type': 'ACTION', 'tick': tick, 'action': action}
+
+    raise ValueError('unknown message type %d' % msg_type)
+
+
+def frame_encoding_name(flags: int) -> str:
+    """Body encoding of a FRAME, as in the JSON header: raw, deflate, delta or delta+deflate."""
+    delta, deflate = flags & FRAME_FLAG_DELTA, flags & FRAME_FLAG_DEFLATE
+    return ('delta+deflate' if deflate else 'delta') if delta else ('deflate' if deflate else 'raw')
+
+
+def frame_encoding_flags(name: str) -> int:
+    return (FRAME_FLAG_DELTA if name.startswith('delta') else 0) | (FRAME_FLAG_DEFLATE if name.endswith('deflate') else 0)
+
+
+def decode_frame_header(payload: bytes) -> dict:
+    msg_type, _count, tick = decode_header(payload)
+    if msg_type != TYPE_FRAME:
+        raise ValueError('not a FRAME header')
+    offset = HEADER.size
+    (agent_id, width, height, channels, flags, name_idx, x, y, z, health, hunger, yaw, pitch,
+     body_length, cmd_type, cmd_data, team_count, event_count, frame_id, capture_ns) = FRAME_RECORD.unpack_from(payload, offset)
+    offset += FRAME_RECORD.size
+    team_entries = []
+    for _ in range(team_count):
+        t_name, t_rel, _p = TEAM_ENTRY.unpack_from(payload, offset)
+        team_entries.append((t_name, t_rel))
+        offset += TEAM_ENTRY.size
+    event_idx = list(struct.unpack_from('<%dH' % event_count, payload, offset)) if event_count else []
+    offset += 2 * event_count
+    strings, _ = _read_strings(payload, offset)
+    header = {
+        'tick': tick,
+        'frame_id': frame_id,
+        'capture_ns': capture_ns,
+        'agent_id': agent_id,
+        'width': width,
+        'height': height,
+        'channels': channels,
+        'test_frame': bool(flags & FRAME_FLAG_TEST),
+        'top_down': bool(flags & FRAME_FLAG_TOP_DOWN),
+        'encoding': frame_encoding_name(flags),
+        'player_name': _lookup(strings, name_idx),
+        'x': x, 'y': y, 'z': z,
+        'health': health, 'hunger': hunger, 'yaw': yaw, 'pitch': pitch,
+        'bodyLength': body_length,
+        'teams': {strings[n]: RELATIONS[r] if r < len(RELATIONS) else 'enemy' for n, r in team_entries},
+        'events': [strings[i] for i in event_idx],
+    }
+    if cmd_type != NO_STRING:
+        header['cmd_type'] = strings[cmd_type]
+        header['cmd_data'] = _lookup(strings, cmd_data)
+    return header
+
+
+# ----------------------------------------------------------------------
+# Encoding (used by tests and Python-side stand-ins for the mod)
+# ----------------------------------------------------------------------
+
+class _Strings:
+    def __init__(self):
+        self.items = []
+        self.index = {}
+
+    def __call__(self, s):
+        if s is None:
+            return NO_STRING
+        if s not in self.index:
+            self.index[s] = len(self.items)
+            self.items.append(s)
+        return self.index[s]
+
+    def encode(self) -> bytes:
+        out = bytearray(struct.pack('<H', len(self.items)))
+        for s in self.items:
+            b = s.encode('utf-8')
+            out += struct.pack('<H', len(b)) + b
+        return bytes(out)
+
+
+def encode_events(tick: int, events) -> bytes:
+    strings = _Strings()
+    out = bytearray(HEADER.pack(MAGIC, SCHEMA_V1, TYPE_EVENTS, len(events), tick))
+    for e in events:
+        kind = KIND_DEATH if e.get('kind') == 'DEATH' else KIND_HIT
+        out += EVENT_RECORD.pack(
+            kind, relation_code(e.get('relation')), strings(e.get('attacker')), strings(e.get('victim')), 0,
+            int(e.get('attacker_id', -1)), int(e.get('victim_id', -1)),
+            *[float(v) for v in e.get('attacker_pos', (0, 0, 0))],
+            *[float(v) for v in e.get('victim_pos', (0, 0, 0))],
+            int(e.get('tick', tick)), float(e.get('damage', 0.0)), 0)
+    return bytes(out + strings.encode())
+
+
+def encode_reset(tick: int, participants: str) -> bytes:
+    names = [n for n in participants.split(',')] if participants else []
+    strings = _Strings()
+    for n in names:
+        strings(n)
+    return HEADER.pack(MAGIC, SCHEMA_V1, TYPE_RESET, len(names), tick) + strings.encode()
+
+
+def state_nearest_k(features: int) -> int:
+    """Number of neighbour slots in a 'state' row of ``features`` floats."""
+    k, rest = divmod(features - STATE_FIXED_FEATURES, len(STATE_NEIGHBOUR_FIELDS))
+    if k < 0 or rest:
+        raise ValueError('%d features is not a state row' % features)
+    return k
+
+
+def state_fields(obs) -> dict:
+    """Split one 'state' row into {'self': ..., 'items': ..., 'arena': ..., 'neighbours': [...]} slices.
+
+    Slices of a numpy row are views; each neighbour slice follows STATE_NEIGHBOUR_FIELDS."""
+    k = state_nearest_k(len(obs))
+    a = len(STATE_SELF_FIELDS)
+    b = a + len(STATE_ITEM_FIELDS)
+    c = b + len(STATE_ARENA_FIELDS)
+    n = len(STATE_NEIGHBOUR_FIELDS)
+    return {'self': obs[:a], 'items': obs[a:b], 'arena': obs[b:c],
+            'neighbours': [obs[c + i * n:c + (i + 1) * n] for i in range(k)]}
+
+
+def encode_observation(tick: int, agents, features: int, sensor: str | None = None, shape=None) -> bytes:
+    """``shape`` is [height, width, channels] with a product of ``features``; flat vectors default to [1, features, 1]."""
+    height, width, channels = shape if shape is not None else (1, features, 1)
+    if height * width * channels != features:
+        raise ValueError('shape %r does not hold %d features' % (shape, features))
+    strings = _Strings()
+    out = bytearray(HEADER.pack(MAGIC, SCHEMA_V1, TYPE_OBSERVATION, len(agents), tick))
+    out += OBSERVATION_PREFIX.pack(features, strings(sensor), width, height, channels)
+    for agent in agents:
+        obs = list(agent['obs'])
+        if len(obs) != features:
+            raise ValueError('observation length %d != %d' % (len(obs), features))
+        out += struct.pack('<iHH', int(agent['id']), strings(agent.get('name')), 0)
+        out += struct.pack('<%df' % features, *obs)
+    return bytes(out + strings.encode())
+
+
+def encode_frame_header(header: dict) -> bytes:
+    strings = _Strings()
+    teams = header.get('teams') or {}
+    events = header.get('events') or []
+    name_idx = strings(header.get('player_name'))
+    cmd_type = strings(header.get('cmd_type'))
+    cmd_data = strings(header.get('cmd_data'))
+    out = bytearray(HEADER.pack(MAGIC, SCHEMA_V1, TYPE_FRAME, 1, int(header.get('tick', 0))))
+    out += FRAME_RECORD.pack(
+        int(header.get('agent_id', 0)), int(header.get('width', 0)), int(header.get('height', 0)),
+        int(header.get('channels', 4)),
+        (FRAME_FLAG_TEST if header.get('test_frame') else 0) | (FRAME_FLAG_TOP_DOWN if header.get('top_down') else 0)
+        | frame_encoding_flags(header.get('encoding', 'raw')),
+        name_idx,
+        float(header.get('x', 0)), float(header.get('y', 0)), float(header.get('z', 0)),
+        float(header.get('health', 0)), float(header.get('hunger', 0)),
+        float(header.get('yaw', 0)), float(header.get('pitch', 0)),
+        int(header.get('bodyLength', 0)), cmd_type, cmd_data, len(teams), len(events), int(header.get('frame_id', 0)),
+        int(header.get('capture_ns', 0)))
+    for name, relation in teams.items():
+        out += TEAM_ENTRY.pack(strings(name), relation_code(relation), 0)
+    for event in events:
+        out += struct.pack('<H', strings(event))
+    return bytes(out + strings.encode())
+
+
+def encode_action(action: dict, tick: int = 0) -> bytes:
+    """
+    Fixed-layout ACTION for the legacy client socket (framed there as [u16 big-endian length][payload]).
+    Keys missing from ``action`` keep their current state on the client; yaw/pitch are deltas in degrees.
+    ``frame_id`` echoes the frame the action was computed from, so the mod can time observation-to-action
+    latency (0 = not traced).
+    """
+    mask = pressed = 0
+    for bit, key in enumerate(ACTION_KEYS):
+        if key in action:
+            mask |= 1 << bit
+            if action[key]:
+                pressed |= 1 << bit
+    out = HEADER.pack(MAGIC, SCHEMA_V1, TYPE_ACTION, 1, tick)
+    out += ACTION_RECORD.pack(mask, pressed, float(action.get('yaw', 0.0)), float(action.get('pitch', 0.0)), 0,
+                              int(action.get('frame_id', 0)))
+    return out + struct.pack('<H', 0)
@@ -0,0 +1,114 @@
+"""
+Tests for command_bridge.py transports (loopback TCP and Unix domain sockets).
+"""
+import json
+import socket
+import struct
+import threading
+
+import pytest
+
+try:
+    from backend import command_bridge, wire_codec
+    from backend.command_bridge import CommandConnector, recv_exact
+except Exception:
+    from python.server.backend import command_bridge, wire_codec
+    from python.server.backend.command_bridge import CommandConnector, recv_exact
+
+TRANSPORTS = ['tcp'] + (['uds'] if hasattr(socket, 'AF_UNIX') else [])
+
+
+def _start_bridge(transport, tmp_path, received):
+    done = threading.Event()
+
+    def dispatch(header):
+        received.append(header)
+        done.set()
+
+    bridge = CommandConnector(dispatch, port=0, transport=transport, socket_path=str(tmp_path / 'bridge.sock'))
+    bridge.start()
+    if transport == 'uds':
+        client = socket.socket(socket.AF_UNIX, socket.SOCK_STREAM)
+        client.connect(bridge.socket_path)
+    else:
+        client = socket.create_connection(bridge._server_sock.getsockname())
+    client.settimeout(2.0)
+    return bridge, client, done
+
+
+def _frame(payload: bytes) -> bytes:
+    return struct.pack('>I', len(payload)) + payload
+
+
+def _hello(client) -> dict:
+    hello = json.dumps({'type': 'HELLO', 'schema': 1, 'codecs': ['bin1', 'json']}).encode('utf-8')
+    client.sendall(_frame(hello))
+    (n,) = struct.unpack('>I', recv_exact(client, 4))
+    return json.loads(recv_exact(client, n))
+
+
+@pytest.mark.parametrize('transport', TRANSPORTS)
+def test_events_dispatched_over_transport(transport, tmp_path):
+    received = []
+    bridge, client, done = _start_bridge(transport, tmp_path, received)
+    try:
+        assert _hello(client)['codec'] == 'bin1'
+        client.sendall(_frame(wire_codec.encode_reset(7, 'Alice,Bob')))
+        assert done.wait(2.0)
+        assert received[0] == {'type': 'RESET', 'tick': 7, 'data': 'Alice,Bob'}
+    finally:
+        client.close()
+        bridge.stop()
+
+
+@pytest.mark.parametrize('transport', TRANSPORTS)
+def test_hello_ack_over_transport(transport, tmp_path):
+    received = []
+    bridge, client, _ = _start_bridge(transport, tmp_path, received)
+    try:
+        ack = _hello(client)
+        assert ack['type'] == 'HELLO_ACK'
+        assert received == []
+    finally:
+        client.close()
+        bridge.stop()
+
+
+def test_binary_rejected_without_hello(tmp_path):
+    received = []
+    bridge, client, done = _start_bridge('tcp', tmp_path, received)
+    try:
+        client.sendall(_frame(wire_codec.encode_reset(7, 'Alice,Bob')))
+        # The connection stays in sync: a JSON command after the rejected binary one still goes through
+        client.sendall(_frame(json.dumps({'type': 'PING'}).encode('utf-8')))
+        assert done.wait(2.0)
+        assert received == [{'type': 'PING'}]
+    finally:
+        client.close()
+        bridge.stop()
+
+
+def test_binary_rejected_when_secret_set(tmp_path, monkeypatch):
+    monkeypatch.setattr(command_bridge, 'CMD_SECRET', 'secret')
+    received = []
+    bridge, client, done = _start_bridge('tcp', tmp_path, received)
+    try:
+        assert _hello(client)['codec'] == 'json'
+        client.sendall(_frame(wire_codec.encode_reset(7, 'Alice,Bob')))
+        assert not done.wait(0.5)
+        assert received == []
+    finally:
+        client.close()
+        bridge.stop()
+
+
+def test_uds_socket_file_removed_on_stop(tmp_path):
+    if 'uds' not in TRANSPORTS:
+        pytest.skip('AF_UNIX not available')
+    path = tmp_path / 'bridge.sock'
+    path.write_bytes(b'')  # stale file from a crashed run
+    bridge = CommandConnector(lambda h: None, transport='uds', socket_path=str(path))
+    bridge.start()
+    assert path.exists()
+    bridge.stop()
+    assert not path.exists()
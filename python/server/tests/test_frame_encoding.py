@@ -0,0 +1,59 @@
+"""
+Tests for frame_encoding.py (frame body encodings written by FrameEncoder.java).
+"""
+import pytest
+
+try:
+    from backend import frame_encoding, wire_codec
+except Exception:
+    from python.server.backend import frame_encoding, wire_codec
+
+
+def _frames(n: int, size: int = 64 * 64):
+    """Static background with a small block that moves one byte per frame."""
+    background = bytes((i * 7) & 0xFF for i in range(size))
+    for f in range(n):
+        frame = bytearray(background)
+        frame[f:f + 32] = b'\xff' * 32
+        yield bytes(frame)
+
+
+@pytest.mark.parametrize('mode', frame_encoding.MODES)
+def test_round_trip(mode):
+    encoder = frame_encoding.FrameBodyEncoder(mode, keyframe_interval=4)
+    decoder = frame_encoding.FrameBodyDecoder()
+    for frame in _frames(10):
+        encoding, body = encoder.encode(frame)
+        assert decoder.decode({'encoding': encoding}, body) == frame
+
+
+def test_keyframe_interval():
+    encoder = frame_encoding.FrameBodyEncoder('delta+deflate', keyframe_interval=3)
+    encodings = [encoder.encode(frame)[0] for frame in _frames(7)]
+    assert encodings == ['deflate', 'delta+deflate', 'delta+deflate'] * 2 + ['deflate']
+
+
+def test_delta_is_smaller_than_deflate():
+    sizes = {}
+    for mode in ('deflate', 'delta+deflate'):
+        encoder = frame_encoding.FrameBodyEncoder(mode, keyframe_interval=30)
+        bodies = [encoder.encode(frame)[1] for frame in _frames(8)]
+        sizes[mode] = sum(len(body) for body in bodies[1:])  # skip the keyframe
+    assert sizes['delta+deflate'] < sizes['deflate']
+
+
+def test_delta_without_keyframe_is_rejected():
+    encoder = frame_encoding.FrameBodyEncoder('delta+deflate')
+    frames = list(_frames(2))
+    encoder.encode(frames[0])
+    encoding, body = encoder.encode(frames[1])
+    assert encoding == 'delta+deflate'
+    with pytest.raises(ValueError):
+        frame_encoding.FrameBodyDecoder().decode({'encoding': encoding}, body)
+
+
+def test_header_carries_encoding():
+    header = {'tick': 1, 'width': 64, 'height': 64, 'channels': 1, 'bodyLength': 100, 'encoding': 'delta+deflate'}
+    decoded = wire_codec.decode_frame_header(wire_codec.encode_frame_header(header))
+    assert decoded['encoding'] == 'delta+deflate'
+    assert wire_codec.frame_encoding_flags('delta') == wire_codec.FRAME_FLAG_DELTA
@@ -0,0 +1,93 @@
+"""
+Tests for frame_ring.py (shared-memory frame ring written by FrameRing.java).
+"""
+import pytest
+
+try:
+    from backend import frame_ring, wire_codec
+except Exception:
+    from python.server.backend import frame_ring, wire_codec
+
+
+def _body(seed: int, n: int = 64 * 64 * 4) -> bytes:
+    return bytes((seed + i) & 0xFF for i in range(n))
+
+
+def test_layout_sizes():
+    assert frame_ring.FILE_HEADER.size <= frame_ring.FILE_HEADER_BYTES
+    assert frame_ring.SLOT_HEADER.size == 64
+
+
+def test_latest_frame_round_trip(tmp_path):
+    path = str(tmp_path / 'agent.ring')
+    writer = frame_ring.FrameRingWriter(path, slots=4)
+    header = wire_codec.encode_frame_header({'tick': 7, 'agent_id': 2, 'width': 64, 'height': 64,
+                                             'player_name': 'Alice', 'bodyLength': 64 * 64 * 4})
+    writer.publish(_body(1), 64, 64, 4, header)
+    writer.publish(_body(2), 64, 64, 4, header, flags=wire_codec.FRAME_FLAG_TEST, frame_id=5, tick=1200)
+
+    reader = frame_ring.FrameRingReader(path)
+    frame = reader.read()
+    assert frame.seq == 2
+    assert (frame.width, frame.height, frame.channels, frame.test_frame, frame.top_down) == (64, 64, 4, True, False)
+    assert (frame.frame_id, frame.tick) == (5, 1200)
+    assert bytes(memoryview(frame.pixels).cast('B')) == _body(2)
+    assert frame.decode_header()['player_name'] == 'Alice'
+    assert reader.is_current(frame)
+    writer.close()
+
+
+def test_overwritten_slot_is_rejected(tmp_path):
+    path = str(tmp_path / 'agent.ring')
+    writer = frame_ring.FrameRingWriter(path, slots=2)
+    reader = frame_ring.FrameRingReader(path)
+    writer.publish(_body(1), 64, 64, 4)
+    first = reader.read(1)
+    assert first is not None
+    writer.publish(_body(2), 64, 64, 4)
+    writer.publish(_body(3), 64, 64, 4)  # reuses slot 0
+    assert not reader.is_current(first)
+    assert reader.read(1) is None
+    assert reader.read(3).seq == 3
+    writer.close()
+
+
+def test_wait_next_skips_to_latest(tmp_path):
+    path = str(tmp_path / 'agent.ring')
+    writer = frame_ring.FrameRingWriter(path, slots=4)
+    reader = frame_ring.FrameRingReader(path)
+    assert reader.wait_next(0, timeout=0.01) is None
+    for i in range(3):
+        writer.publish(_body(i), 64, 64, 4)
+    assert reader.wait_next(0, timeout=0.01).seq == 3
+    writer.close()
+
+
+def test_numpy_view_shape(tmp_path):
+    np = pytest.importorskip('numpy')
+    path = str(tmp_path / 'agent.ring')
+    writer = frame_ring.FrameRingWriter(path, slots=2)
+    writer.publish(_body(5), 64, 64, 4)
+    frame = frame_ring.FrameRingReader(path).read()
+    assert frame.top_down
+    assert frame.pixels.shape == (64, 64, 4)
+    assert frame.pixels.dtype == np.uint8
+    assert frame.pixels[0, 0, 0] == 5
+    writer.close()
+
+
+def test_grayscale_frame(tmp_path):
+    path = str(tmp_path / 'agent.ring')
+    writer = frame_ring.FrameRingWriter(path, slots=2, body_capacity=96 * 72)
+    writer.publish(_body(9, 96 * 72), 96, 72, 1)
+    frame = frame_ring.FrameRingReader(path).read()
+    assert (frame.width, frame.height, frame.channels) == (96, 72, 1)
+    assert len(memoryview(frame.pixels).cast('B')) == 96 * 72
+    writer.close()
+
+
+def test_rejects_non_ring_file(tmp_path):
+    path = tmp_path / 'bogus.ring'
+    path.write_bytes(b'\0' * 128)
+    with pytest.raises(ValueError):
+        frame_ring.FrameRingReader(str(path))
@@ -0,0 +1,228 @@
+"""
+Tests for wire_codec.py (binary Protocol v1 bridge codec).
+
+The golden payloads below were produced by WireCodec.java in the Fabric mod, so these
+tests pin the Java and Python layouts to each other.
+"""
+import struct
+
+import pytest
+
+try:
+    from backend import wire_codec
+except Exception:
+    from python.server.backend import wire_codec
+
+
+# Encoded by WireCodec.java (EventsMessage with one HIT and one environment DEATH)
+JAVA_EVENTS_HEX = (
+    '504b010102000000640000000000000001000000010000000700000009000000000000000000f83f0000000000005040'
+    '0000000000000ac00000000000000440000000000000504000000000000010c064000000000000000000904000000000'
+    '0203020001000000ffffffff090000000000000000000000000000000000000000000000000000000000000000000440'
+    '000000000000504000000000000010c06400000000000000000000000000000003000500416c6963650300426f620b00'
+    '456e7669726f6e6d656e74'
+)
+
+# Encoded by WireCodec.java (ResetMessage(101, "Alice,Bob"))
+JAVA_RESET_HEX = (
+    '504b010202000000650000000000000002000500416c6963650300426f62'
+)
+
+# Encoded by WireCodec.java (ObservationMessage, 2 agents x 3 features)
+JAVA_OBSERVATION_HEX = (
+    '504b010302000000660000000000000003000000ffff03000100010007000000000000000000803f0000004000004040'
+    '0900000001000000000080bf0000003f0000000002000500416c6963650300426f62'
+)
+
+# Encoded by WireCodec.java (ObservationMessage(103, "rays", 2, 1, 4, ...): one agent, 2x1 rays x 4 channels)
+JAVA_RAYS_HEX = (
+    '504b010301000000670000000000000008000000000002000100040007000000010000000000803e0000803f0000803f'
+    '000000000000003f0000a0400000003e0000803f02000400726179730500416c696365'
+)
+
+# Encoded by WireCodec.java (writeFrameHeader with teams, one event and a command)
+JAVA_FRAME_HEX = (
+    '504b0104010000003700000000000000020000004000400004010000000000000000f03f000000000000004000000000'
+    '000008400000a041000090410000b442000020c10040000001000200020001000700000000000000141a99be1c000000'
+    '0300010004000000050006000500416c696365050053544152540200676f0300426f62030045766513004556454e543a'
+    '4849543a416c6963653a426f62'
+)
+
+
+@pytest.fixture
+def sample_events():
+    return [
+        {
+            'kind': 'HIT', 'tick': 100,
+            'attacker_id': 7, 'attacker': 'Alice', 'attacker_pos': [1.5, 64.0, -3.25],
+            'victim_id': 9, 'victim': 'Bob', 'victim_pos': [2.5, 64.0, -4.0],
+            'relation': 'enemy', 'damage': 4.5,
+        },
+        {
+            'kind': 'DEATH', 'tick': 100,
+            'attacker_id': -1, 'attacker': 'Environment', 'attacker_pos': [0.0, 0.0, 0.0],
+            'victim_id': 9, 'victim': 'Bob', 'victim_pos': [2.5, 64.0, -4.0],
+            'relation': 'environment', 'damage': 0.0,
+        },
+    ]
+
+
+@pytest.fixture
+def sample_frame_header():
+    return {
+        'tick': 55, 'frame_id': 7, 'capture_ns': 123456789012, 'agent_id': 2, 'width': 64, 'height': 64, 'channels': 4,
+        'test_frame': True, 'top_down': False, 'encoding': 'raw',
+        'player_name': 'Alice', 'x': 1.0, 'y': 2.0, 'z': 3.0,
+        'health': 20.0, 'hunger': 18.0, 'yaw': 90.0, 'pitch': -10.0,
+        'bodyLength': 16384, 'cmd_type': 'START', 'cmd_data': 'go',
+        'teams': {'Bob': 'team', 'Eve': 'enemy'},
+        'events': ['EVENT:HIT:Alice:Bob'],
+    }
+
+
+def test_record_sizes():
+    """Fixed layouts must match the sizes documented in WireCodec.java."""
+    assert wire_codec.HEADER.size == 16
+    assert wire_codec.EVENT_RECORD.size == 80
+    assert wire_codec.FRAME_RECORD.size == 80
+    assert wire_codec.ACTION_RECORD.size == 24
+
+
+def test_events_round_trip(sample_events):
+    payload = wire_codec.encode_events(100, sample_events)
+    assert wire_codec.is_binary(payload)
+    decoded = wire_codec.decode_message(payload)
+    assert decoded['type'] == 'EVENTS'
+    assert decoded['tick'] == 100
+    assert decoded['events'] == sample_events
+
+
+def test_events_match_java_encoder(sample_events):
+    assert wire_codec.encode_events(100, sample_events).hex() == JAVA_EVENTS_HEX
+    decoded = wire_codec.decode_message(bytes.fromhex(JAVA_EVENTS_HEX))
+    assert decoded['events'] == sample_events
+
+
+def test_events_numpy_view(sample_events):
+    np = pytest.importorskip('numpy')
+    records = wire_codec.event_records(wire_codec.encode_events(100, sample_events))
+    assert records.shape == (2,)
+    assert list(records['victim_id']) == [9, 9]
+    np.testing.assert_allclose(records['attacker_pos'][0], [1.5, 64.0, -3.25])
+    assert records['damage'][0] == pytest.approx(4.5)
+
+
+def test_empty_events_round_trip():
+    decoded = wire_codec.decode_message(wire_codec.encode_events(7, []))
+    assert decoded == {'type': 'EVENTS', 'tick': 7, 'events': []}
+
+
+def test_reset_round_trip():
+    payload = wire_codec.encode_reset(101, 'Alice,Bob')
+    assert payload.hex() == JAVA_RESET_HEX
+    assert wire_codec.decode_message(payload) == {'type': 'RESET', 'tick': 101, 'data': 'Alice,Bob'}
+
+
+def test_observation_round_trip():
+    agents = [
+        {'id': 7, 'name': 'Alice', 'obs': [1.0, 2.0, 3.0]},
+        {'id': 9, 'name': 'Bob', 'obs': [-1.0, 0.5, 0.0]},
+    ]
+    payload = wire_codec.encode_observation(102, agents, 3)
+    assert payload.hex() == JAVA_OBSERVATION_HEX
+    decoded = wire_codec.decode_message(payload)
+    assert decoded['features'] == 3
+    assert decoded['sensor'] is None and decoded['shape'] == [1, 3, 1]
+    assert [a['name'] for a in decoded['agents']] == ['Alice', 'Bob']
+    assert [list(map(float, a['obs'])) for a in decoded['agents']] == [a['obs'] for a in agents]
+
+
+def test_ray_observation_matches_java_encoder():
+    rays = [0.25, 1.0, 1.0, 0.0, 0.5, 5.0, 0.125, 1.0]
+    payload = wire_codec.encode_observation(103, [{'id': 7, 'name': 'Alice', 'obs': rays}], 8,
+                                            sensor=wire_codec.RAY_SENSOR, shape=(1, 2, 4))
+    assert payload.hex() == JAVA_RAYS_HEX
+    decoded = wire_codec.decode_message(payload)
+    assert decoded['sensor'] == 'rays' and decoded['shape'] == [1, 2, 4]
+    assert list(map(float, decoded['agents'][0]['obs'])) == rays
+    assert wire_codec.RAY_BLOCK_CLASSES[int(rays[5])] == 'pad'
+    assert wire_codec.RAY_ENTITY_CLASSES[int(rays[7])] == 'enemy'
+
+
+def test_state_observation_layout():
+    k = 2
+    features = wire_codec.STATE_FIXED_FEATURES + k * len(wire_codec.STATE_NEIGHBOUR_FIELDS)
+    assert features == 49  # StateSensor.featuresPerAgent(2)
+    row = [float(i) for i in range(features)]
+    payload = wire_codec.encode_observation(104, [{'id': 7, 'name': 'Alice', 'obs': row}], features,
+                                            sensor=wire_codec.STATE_SENSOR, shape=(1, features, 1))
+    decoded = wire_codec.decode_message(payload)
+    assert decoded['sensor'] == 'state' and decoded['shape'] == [1, features, 1]
+    fields = wire_codec.state_fields(decoded['agents'][0]['obs'])
+    assert list(map(float, fields['self'])) == row[:17]
+    assert list(map(float, fields['arena'])) == row[26:33]
+    assert len(fields['neighbours']) == k
+    assert list(map(float, fields['neighbours'][1])) == row[41:49]
+
+
+def test_state_rejects_odd_length():
+    with pytest.raises(ValueError):
+        wire_codec.state_nearest_k(wire_codec.STATE_FIXED_FEATURES + 3)
+
+
+def test_observation_rejects_bad_shape():
+    with pytest.raises(ValueError):
+        wire_codec.encode_observation(1, [{'id': 1, 'name': 'A', 'obs': [1.0, 2.0]}], 2, sensor='rays', shape=(1, 1, 4))
+
+
+def test_observation_rejects_wrong_length():
+    with pytest.raises(ValueError):
+        wire_codec.encode_observation(1, [{'id': 1, 'name': 'A', 'obs': [1.0]}], 2)
+
+
+def test_frame_header_round_trip(sample_frame_header):
+    payload = wire_codec.encode_frame_header(sample_frame_header)
+    assert payload.hex() == JAVA_FRAME_HEX
+    assert wire_codec.decode_frame_header(payload) == sample_frame_header
+
+
+def test_frame_header_top_down_flag(sample_frame_header):
+    sample_frame_header.update({'channels': 1, 'test_frame': False, 'top_down': True, 'bodyLength': 4096})
+    decoded = wire_codec.decode_frame_header(wire_codec.encode_frame_header(sample_frame_header))
+    assert decoded['top_down'] and not decoded['test_frame']
+    assert decoded['channels'] == 1
+
+
+def test_action_layout():
+    """Bit order and record layout read by WireCodec.readAction."""
+    payload = wire_codec.encode_action({'forward': True, 'left': False, 'jump': True, 'open_inventory': True,
+                                        'yaw': -12.5, 'pitch': 3.25, 'frame_id': 77}, tick=42)
+    assert payload.hex() == '504b0105010000002a0000000000000013011101000048c100005040000000004d000000000000000000'
+
+
+def test_action_round_trip():
+    action = {'back': True, 'attack': False, 'use': True, 'yaw': 1.5, 'pitch': -0.25, 'frame_id': 1188}
+    decoded = wire_codec.decode_message(wire_codec.encode_action(action, tick=9))
+    assert decoded == {'type': 'ACTION', 'tick': 9, 'action': action}
+
+
+def test_action_keys_absent_stay_out_of_mask():
+    decoded = wire_codec.decode_message(wire_codec.encode_action({}))
+    assert decoded['action'] == {'yaw': 0.0, 'pitch': 0.0, 'frame_id': 0}
+
+
+def test_unicode_names_round_trip(sample_events):
+    sample_events[0]['attacker'] = 'Jörg_ß'
+    decoded = wire_codec.decode_message(wire_codec.encode_events(100, sample_events))
+    assert decoded['events'][0]['attacker'] == 'Jörg_ß'
+
+
+def test_json_payload_is_not_binary():
+    assert not wire_codec.is_binary(b'{"type": "RESET", "data": "a,b"}')
+
+
+def test_bad_schema_rejected(sample_events):
+    payload = bytearray(wire_codec.encode_events(100, sample_events))
+    struct.pack_into('<B', payload, 2, 99)
+    with pytest.raises(ValueError):
+        wire_codec.decode_message(bytes(payload))